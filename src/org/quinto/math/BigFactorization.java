@@ -0,0 +1,231 @@
+package org.quinto.math;
+
+import java.io.Serializable;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Factorization of a BigInteger into powers of primes. It's created by {@link PrimeUtils#factor(BigInteger)}.
+ * <p>Distinct prime factors are stored in increasing order together with their exponents in primitive arrays,
+ * so the accessors don't allocate memory. See {@link Factorization} for long numbers.
+ * <p>A sign isn't a factor: a product of all the prime powers is equal to an absolute value of the number.
+ * Number 1 (and -1) has no prime factors.
+ * <p>Multiplicative functions of the absolute value are computed from the factorization: {@link #totient()}, {@link #moebius()},
+ * {@link #divisorCount()}, {@link #divisorSum()}, and {@link #divisors()} enumerates divisors lazily.
+ */
+public class BigFactorization implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+    
+    private final BigInteger number;
+    private final BigInteger primes[];
+    private final int exponents[];
+    
+    /**
+     * @param number a factored number
+     * @param primes distinct prime factors in increasing order
+     * @param exponents exponents of the prime factors
+     */
+    BigFactorization( BigInteger number, BigInteger primes[], int exponents[] )
+    {
+        this.number = number;
+        this.primes = primes;
+        this.exponents = exponents;
+    }
+    
+    /**
+     * Get a factored number.
+     * @return a non-zero number
+     */
+    public BigInteger getNumber()
+    {
+        return number;
+    }
+    
+    /**
+     * Get a quantity of distinct prime factors.
+     * @return 0 for numbers 1 and -1
+     */
+    public int size()
+    {
+        return primes.length;
+    }
+    
+    /**
+     * Get a prime factor.
+     * @param i an index of a prime factor, from 0 to {@link #size()} - 1
+     * @return the i-th distinct prime factor in increasing order
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public BigInteger getPrime( int i ) throws IndexOutOfBoundsException
+    {
+        return primes[ i ];
+    }
+    
+    /**
+     * Get an exponent of a prime factor.
+     * @param i an index of a prime factor, from 0 to {@link #size()} - 1
+     * @return a positive exponent of the i-th prime factor
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public int getExponent( int i ) throws IndexOutOfBoundsException
+    {
+        return exponents[ i ];
+    }
+    
+    /**
+     * Get all the distinct prime factors.
+     * @return a new array of prime factors in increasing order
+     */
+    public BigInteger[] getPrimes()
+    {
+        return primes.clone();
+    }
+    
+    /**
+     * Get exponents of all the distinct prime factors.
+     * @return a new array of exponents in the order of {@link #getPrimes()}
+     */
+    public int[] getExponents()
+    {
+        return exponents.clone();
+    }
+    
+    /**
+     * Euler's totient function: a quantity of numbers in range [ 1 .. |n| ] that are relatively prime to n.
+     * https://en.wikipedia.org/wiki/Euler%27s_totient_function
+     * @return &phi;( |n| ) = &prod; p<sup>e - 1</sup> * ( p - 1 )
+     */
+    public BigInteger totient()
+    {
+        BigInteger ret = BigInteger.ONE;
+        for ( int i = 0; i < primes.length; i++ ) ret = ret.multiply( primes[ i ].subtract( BigInteger.ONE ) ).multiply( primes[ i ].pow( exponents[ i ] - 1 ) );
+        return ret;
+    }
+    
+    /**
+     * M&ouml;bius function.
+     * https://en.wikipedia.org/wiki/M%C3%B6bius_function
+     * @return 0 if |n| isn't squarefree, otherwise 1 or -1 for an even or odd quantity of prime factors
+     */
+    public int moebius()
+    {
+        for ( int e : exponents ) if ( e > 1 ) return 0;
+        return ( primes.length & 1 ) == 0 ? 1 : -1;
+    }
+    
+    /**
+     * Quantity of positive divisors.
+     * https://en.wikipedia.org/wiki/Divisor_function
+     * @return &tau;( |n| ) = &prod; ( e + 1 )
+     */
+    public BigInteger divisorCount()
+    {
+        BigInteger ret = BigInteger.ONE;
+        for ( int e : exponents ) ret = ret.multiply( BigInteger.valueOf( e + 1L ) );
+        return ret;
+    }
+    
+    /**
+     * Sum of positive divisors.
+     * https://en.wikipedia.org/wiki/Divisor_function
+     * @return &sigma;( |n| ) = &prod; ( p<sup>e + 1</sup> - 1 ) / ( p - 1 )
+     */
+    public BigInteger divisorSum()
+    {
+        BigInteger ret = BigInteger.ONE;
+        for ( int i = 0; i < primes.length; i++ )
+        {
+            BigInteger p = primes[ i ];
+            ret = ret.multiply( p.pow( exponents[ i ] + 1 ).subtract( BigInteger.ONE ).divide( p.subtract( BigInteger.ONE ) ) );
+        }
+        return ret;
+    }
+    
+    /**
+     * Lazy enumeration of positive divisors. Exponents of primes are counted like digits of a mixed radix number,
+     * the first prime is the lowest digit, so divisors aren't sorted: 1, 2, 4, 3, 6, 12 for 12.
+     * <p>The iterator keeps products of the higher digits, so a step is a single multiplication.
+     * @return an iterator over &tau;( |n| ) divisors of |n|
+     */
+    public Iterator< BigInteger > divisors()
+    {
+        return new Iterator< BigInteger >()
+        {
+            private final int counters[] = new int[ primes.length ];
+            /**
+             * Products of powers of primes with indices i and above, the current divisor is at index 0.
+             */
+            private final BigInteger products[] = new BigInteger[ primes.length + 1 ];
+            private boolean hasNext = true;
+            
+            {
+                Arrays.fill( products, BigInteger.ONE );
+            }
+            
+            @Override
+            public boolean hasNext()
+            {
+                return hasNext;
+            }
+            
+            @Override
+            public BigInteger next()
+            {
+                if ( !hasNext ) throw new NoSuchElementException();
+                BigInteger ret = products[ 0 ];
+                int i = 0;
+                while ( i < counters.length && counters[ i ] == exponents[ i ] ) i++;
+                if ( i == counters.length ) hasNext = false;
+                else
+                {
+                    counters[ i ]++;
+                    BigInteger product = products[ i ].multiply( primes[ i ] );
+                    // Lower digits start from zero exponents again.
+                    for ( int j = i; j >= 0; j-- )
+                    {
+                        if ( j < i ) counters[ j ] = 0;
+                        products[ j ] = product;
+                    }
+                }
+                return ret;
+            }
+        };
+    }
+    
+    @Override
+    public boolean equals( Object o )
+    {
+        if ( o == this ) return true;
+        if ( !( o instanceof BigFactorization ) ) return false;
+        BigFactorization f = ( BigFactorization )o;
+        return number.equals( f.number ) && Arrays.equals( primes, f.primes ) && Arrays.equals( exponents, f.exponents );
+    }
+    
+    @Override
+    public int hashCode()
+    {
+        return number.hashCode();
+    }
+    
+    /**
+     * Get a text form of the factorization, e.g. {@code 2^3 * 3 * 7} for 168, {@code -5^2} for -25 and {@code 1} for 1.
+     * @return prime powers separated by {@code " * "}
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        if ( number.signum() < 0 ) sb.append( '-' );
+        if ( primes.length == 0 ) sb.append( '1' );
+        for ( int i = 0; i < primes.length; i++ )
+        {
+            if ( i > 0 ) sb.append( " * " );
+            sb.append( primes[ i ] );
+            if ( exponents[ i ] > 1 ) sb.append( '^' ).append( exponents[ i ] );
+        }
+        return sb.toString();
+    }
+}
\ No newline at end of file
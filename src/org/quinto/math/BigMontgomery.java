@@ -0,0 +1,279 @@
+package org.quinto.math;
+
+import java.math.BigInteger;
+
+/**
+ * Montgomery modular arithmetic for odd BigInteger moduli on mutable arrays of 32-bit limbs.
+ * <p>A residue a is represented as a * R mod n, where R = 2<sup>32 k</sup> and k is a number of limbs of n.
+ * Limbs are stored in little-endian order. All residues are fully reduced, i.e. lie in range [ 0 .. n ),
+ * so equal residues have equal representations.
+ * <p>Arithmetic methods don't allocate memory: results are written to a given array which may be one of the arguments.
+ * An instance keeps a scratch buffer, so it's not thread-safe.
+ * https://en.wikipedia.org/wiki/Montgomery_modular_multiplication
+ */
+class BigMontgomery
+{
+    private static final long MASK = 0xFFFFFFFFL;
+    
+    private final BigInteger modulus;
+    private final int n[];
+    private final int length;
+    /**
+     * -n<sup>-1</sup> mod 2<sup>32</sup>.
+     */
+    private final long nInverse;
+    private final long t[];
+    
+    /**
+     * @param modulus an odd number greater than one
+     */
+    BigMontgomery( BigInteger modulus )
+    {
+        this.modulus = modulus;
+        length = ( modulus.bitLength() + 31 ) >>> 5;
+        n = limbs( modulus, length );
+        nInverse = -Montgomery.inverse( n[ 0 ] & MASK ) & MASK;
+        t = new long[ ( length << 1 ) + 1 ];
+    }
+    
+    /**
+     * A new residue 0.
+     */
+    int[] newValue()
+    {
+        return new int[ length ];
+    }
+    
+    /**
+     * Convert a number to the Montgomery form.
+     * @param a any number, it's reduced modulo n
+     * @return a * R mod n
+     */
+    int[] valueOf( BigInteger a )
+    {
+        return limbs( a.mod( modulus ).shiftLeft( length << 5 ).mod( modulus ), length );
+    }
+    
+    /**
+     * Convert a residue from the Montgomery form.
+     * @param a a residue a * R mod n
+     * @return a
+     */
+    BigInteger toBigInteger( int a[] )
+    {
+        int one[] = newValue();
+        one[ 0 ] = 1;
+        int ret[] = newValue();
+        multiply( a, one, ret );
+        byte bytes[] = new byte[ ( length << 2 ) + 1 ];
+        for ( int i = 0; i < length; i++ )
+        {
+            int j = bytes.length - 1 - ( i << 2 );
+            bytes[ j ] = ( byte )ret[ i ];
+            bytes[ j - 1 ] = ( byte )( ret[ i ] >>> 8 );
+            bytes[ j - 2 ] = ( byte )( ret[ i ] >>> 16 );
+            bytes[ j - 3 ] = ( byte )( ret[ i ] >>> 24 );
+        }
+        return new BigInteger( bytes );
+    }
+    
+    /**
+     * Montgomery product by CIOS method (coarsely integrated operand scanning): a * b * R<sup>-1</sup> mod n.
+     * Time O( k<sup>2</sup> ).
+     * @param out a destination, may be the same array as a or b
+     */
+    void multiply( int a[], int b[], int out[] )
+    {
+        long t[] = this.t;
+        int n[] = this.n;
+        int length = this.length;
+        for ( int i = 0; i < length + 2; i++ ) t[ i ] = 0L;
+        for ( int i = 0; i < length; i++ )
+        {
+            // A sum of a 64-bit product of limbs and two limbs doesn't overflow as unsigned: ( 2^32 - 1 )^2 + 2 * ( 2^32 - 1 ) = 2^64 - 1.
+            long ai = a[ i ] & MASK;
+            long carry = 0L;
+            for ( int j = 0; j < length; j++ )
+            {
+                long s = t[ j ] + ai * ( b[ j ] & MASK ) + carry;
+                t[ j ] = s & MASK;
+                carry = s >>> 32;
+            }
+            long s = t[ length ] + carry;
+            t[ length ] = s & MASK;
+            t[ length + 1 ] = s >>> 32;
+            // Add m * n which makes the lowest limb zero, then shift by one limb.
+            long m = ( t[ 0 ] * nInverse ) & MASK;
+            carry = ( t[ 0 ] + m * ( n[ 0 ] & MASK ) ) >>> 32;
+            for ( int j = 1; j < length; j++ )
+            {
+                s = t[ j ] + m * ( n[ j ] & MASK ) + carry;
+                t[ j - 1 ] = s & MASK;
+                carry = s >>> 32;
+            }
+            s = t[ length ] + carry;
+            t[ length - 1 ] = s & MASK;
+            t[ length ] = t[ length + 1 ] + ( s >>> 32 );
+        }
+        // The result is less than 2 * n.
+        for ( int i = 0; i < length; i++ ) out[ i ] = ( int )t[ i ];
+        if ( t[ length ] != 0L || compare( out, n ) >= 0 ) subtractLimbs( out, n, out );
+    }
+    
+    /**
+     * a<sup>2</sup> * R<sup>-1</sup> mod n. Products of different limbs are computed once and doubled,
+     * then the square is reduced separately (SOS method), it takes 3/4 of multiplications of {@link #multiply}.
+     * @param out a destination, may be the same array as a
+     */
+    void square( int a[], int out[] )
+    {
+        long t[] = this.t;
+        int n[] = this.n;
+        int length = this.length;
+        for ( int i = 0; i < t.length; i++ ) t[ i ] = 0L;
+        for ( int i = 0; i < length - 1; i++ )
+        {
+            long ai = a[ i ] & MASK;
+            long carry = 0L;
+            for ( int j = i + 1; j < length; j++ )
+            {
+                long s = t[ i + j ] + ai * ( a[ j ] & MASK ) + carry;
+                t[ i + j ] = s & MASK;
+                carry = s >>> 32;
+            }
+            t[ i + length ] = carry;
+        }
+        long carry = 0L;
+        for ( int i = 0; i < length; i++ )
+        {
+            long ai = a[ i ] & MASK;
+            long square = ai * ai;
+            long s = ( t[ i << 1 ] << 1 ) + ( square & MASK ) + carry;
+            t[ i << 1 ] = s & MASK;
+            s = ( t[ ( i << 1 ) + 1 ] << 1 ) + ( square >>> 32 ) + ( s >>> 32 );
+            t[ ( i << 1 ) + 1 ] = s & MASK;
+            carry = s >>> 32;
+        }
+        for ( int i = 0; i < length; i++ )
+        {
+            long m = ( t[ i ] * nInverse ) & MASK;
+            carry = 0L;
+            for ( int j = 0; j < length; j++ )
+            {
+                long s = t[ i + j ] + m * ( n[ j ] & MASK ) + carry;
+                t[ i + j ] = s & MASK;
+                carry = s >>> 32;
+            }
+            for ( int j = i + length; carry != 0L; j++ )
+            {
+                long s = t[ j ] + carry;
+                t[ j ] = s & MASK;
+                carry = s >>> 32;
+            }
+        }
+        // The result is less than 2 * n.
+        for ( int i = 0; i < length; i++ ) out[ i ] = ( int )t[ i + length ];
+        if ( t[ length << 1 ] != 0L || compare( out, n ) >= 0 ) subtractLimbs( out, n, out );
+    }
+    
+    /**
+     * ( a + b ) mod n.
+     * @param out a destination, may be the same array as a or b
+     */
+    void add( int a[], int b[], int out[] )
+    {
+        long carry = 0L;
+        for ( int i = 0; i < length; i++ )
+        {
+            long s = ( a[ i ] & MASK ) + ( b[ i ] & MASK ) + carry;
+            out[ i ] = ( int )s;
+            carry = s >>> 32;
+        }
+        if ( carry != 0L || compare( out, n ) >= 0 ) subtractLimbs( out, n, out );
+    }
+    
+    /**
+     * ( a - b ) mod n.
+     * @param out a destination, may be the same array as a or b
+     */
+    void subtract( int a[], int b[], int out[] )
+    {
+        if ( subtractLimbs( a, b, out ) ) addLimbs( out, n, out );
+    }
+    
+    /**
+     * -a mod n.
+     * @param out a destination, may be the same array as a
+     */
+    void negate( int a[], int out[] )
+    {
+        if ( isZero( a ) ) System.arraycopy( a, 0, out, 0, length );
+        else subtractLimbs( n, a, out );
+    }
+    
+    /**
+     * a * c mod n for a small non-negative c by doubling and adding. Time O( k log( c ) ).
+     * @param out a destination which differs from a
+     */
+    void multiply( int a[], int c, int out[] )
+    {
+        for ( int i = 0; i < length; i++ ) out[ i ] = 0;
+        for ( int i = 31 - Integer.numberOfLeadingZeros( c ); i >= 0; i-- )
+        {
+            add( out, out, out );
+            if ( ( ( c >>> i ) & 1 ) != 0 ) add( out, a, out );
+        }
+    }
+    
+    static boolean isZero( int a[] )
+    {
+        for ( int limb : a ) if ( limb != 0 ) return false;
+        return true;
+    }
+    
+    /**
+     * Unsigned comparison of equally sized numbers.
+     */
+    private static int compare( int a[], int b[] )
+    {
+        for ( int i = a.length - 1; i >= 0; i-- ) if ( a[ i ] != b[ i ] ) return Integer.compareUnsigned( a[ i ], b[ i ] );
+        return 0;
+    }
+    
+    /**
+     * @return true if there is a borrow
+     */
+    private static boolean subtractLimbs( int a[], int b[], int out[] )
+    {
+        long borrow = 0L;
+        for ( int i = 0; i < out.length; i++ )
+        {
+            long s = ( a[ i ] & MASK ) - ( b[ i ] & MASK ) + borrow;
+            out[ i ] = ( int )s;
+            borrow = s >> 32;
+        }
+        return borrow != 0L;
+    }
+    
+    private static void addLimbs( int a[], int b[], int out[] )
+    {
+        long carry = 0L;
+        for ( int i = 0; i < out.length; i++ )
+        {
+            long s = ( a[ i ] & MASK ) + ( b[ i ] & MASK ) + carry;
+            out[ i ] = ( int )s;
+            carry = s >>> 32;
+        }
+    }
+    
+    /**
+     * Little-endian limbs of a non-negative number.
+     */
+    private static int[] limbs( BigInteger a, int length )
+    {
+        int ret[] = new int[ length ];
+        byte bytes[] = a.toByteArray();
+        for ( int i = 0; i < bytes.length && ( i >>> 2 ) < length; i++ ) ret[ i >>> 2 ] |= ( bytes[ bytes.length - 1 - i ] & 0xFF ) << ( ( i & 3 ) << 3 );
+        return ret;
+    }
+}
\ No newline at end of file
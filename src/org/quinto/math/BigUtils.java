@@ -247,4 +247,60 @@ public class BigUtils
         if ( a.signum() == 0 || b.signum() == 0 ) return BigInteger.ZERO;
         return a.divide( a.gcd( b ) ).multiply( b ).abs();
     }
+    
+    /**
+     * Euler's totient function: a quantity of numbers in range [ 1 .. |n| ] that are relatively prime to n.<br>
+     * https://en.wikipedia.org/wiki/Euler%27s_totient_function
+     * <p>It factors n, so time depends on the second largest prime factor, see {@link PrimeUtils#factor(BigInteger)}.
+     * @param n a non-zero number
+     * @return &phi;( |n| )
+     * @throws IllegalArgumentException if n = 0
+     * @see MathUtils#totient(long)
+     */
+    public static BigInteger totient( BigInteger n ) throws IllegalArgumentException
+    {
+        return PrimeUtils.factor( n ).totient();
+    }
+    
+    /**
+     * M&ouml;bius function.<br>
+     * https://en.wikipedia.org/wiki/M%C3%B6bius_function
+     * <p>It factors n, so time depends on the second largest prime factor, see {@link PrimeUtils#factor(BigInteger)}.
+     * @param n a non-zero number
+     * @return &mu;( |n| )
+     * @throws IllegalArgumentException if n = 0
+     * @see MathUtils#moebius(long)
+     */
+    public static int moebius( BigInteger n ) throws IllegalArgumentException
+    {
+        return PrimeUtils.factor( n ).moebius();
+    }
+    
+    /**
+     * Quantity of positive divisors.<br>
+     * https://en.wikipedia.org/wiki/Divisor_function
+     * <p>It factors n, so time depends on the second largest prime factor, see {@link PrimeUtils#factor(BigInteger)}.
+     * @param n a non-zero number
+     * @return &tau;( |n| )
+     * @throws IllegalArgumentException if n = 0
+     * @see MathUtils#divisorCount(long)
+     */
+    public static BigInteger divisorCount( BigInteger n ) throws IllegalArgumentException
+    {
+        return PrimeUtils.factor( n ).divisorCount();
+    }
+    
+    /**
+     * Sum of positive divisors.<br>
+     * https://en.wikipedia.org/wiki/Divisor_function
+     * <p>It factors n, so time depends on the second largest prime factor, see {@link PrimeUtils#factor(BigInteger)}.
+     * @param n a non-zero number
+     * @return &sigma;( |n| )
+     * @throws IllegalArgumentException if n = 0
+     * @see MathUtils#divisorSum(long)
+     */
+    public static BigInteger divisorSum( BigInteger n ) throws IllegalArgumentException
+    {
+        return PrimeUtils.factor( n ).divisorSum();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,390 @@
+package org.quinto.math;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hilbert class polynomials of imaginary quadratic orders and their roots modulo primes.
+ * <p>A polynomial H<sub>D</sub>( x ) = &prod;( x - j( ( -b + &radic;D ) / ( 2 * a ) ) ) runs over reduced primitive forms ( a, b, c )
+ * of a discriminant D. Values of j-invariant are evaluated by q-expansions with binary fixed-point arithmetic:
+ * a real number r is a BigInteger r * 2<sup>precision</sup>, a complex number is a pair { re, im }.
+ * Precision is enough to round coefficients of the product to integers. Polynomials are computed on demand and cached.
+ * <p>Roots modulo a prime are found by Cantor-Zassenhaus equal-degree splitting.
+ */
+class ClassPolynomial
+{
+    /**
+     * An upper bound of absolute values of discriminants.
+     */
+    static final int MAX_DISCRIMINANT = 2000;
+    
+    /**
+     * An upper bound of class numbers (degrees of polynomials).
+     */
+    static final int MAX_CLASS_NUMBER = 12;
+    
+    /**
+     * Discriminants up to {@link #MAX_DISCRIMINANT} with class numbers up to {@link #MAX_CLASS_NUMBER},
+     * sorted by class numbers, then by absolute values.
+     */
+    static final int DISCRIMINANTS[];
+    
+    private static final int GUARD_BITS = 64;
+    private static final int ATTEMPTS = 64;
+    
+    /**
+     * Arguments of Taylor series are reduced by this power of 2, so that series converge fast.
+     */
+    private static final int REDUCTION_BITS = 16;
+    
+    private static final double LN_2 = Math.log( 2.0 );
+    private static final Map< Integer, BigInteger[] > CACHE = new ConcurrentHashMap<>();
+    
+    static
+    {
+        List< int[] > discriminants = new ArrayList<>();
+        for ( int d = -3; d >= -MAX_DISCRIMINANT; d-- )
+        {
+            if ( ( d & 3 ) != 0 && ( d & 3 ) != 1 ) continue;
+            int h = forms( d ).size();
+            if ( h <= MAX_CLASS_NUMBER ) discriminants.add( new int[]{ d, h } );
+        }
+        discriminants.sort( Comparator.< int[] >comparingInt( dh -> dh[ 1 ] ).thenComparingInt( dh -> -dh[ 0 ] ) );
+        DISCRIMINANTS = new int[ discriminants.size() ];
+        for ( int i = 0; i < DISCRIMINANTS.length; i++ ) DISCRIMINANTS[ i ] = discriminants.get( i )[ 0 ];
+    }
+    
+    /**
+     * Get a Hilbert class polynomial.
+     * @param d a negative discriminant, d = 0 or 1 modulo 4
+     * @return coefficients { c<sub>0</sub>, ..., c<sub>h - 1</sub> } of a monic polynomial
+     * x<sup>h</sup> + c<sub>h - 1</sub> * x<sup>h - 1</sup> + ... + c<sub>0</sub>
+     */
+    static BigInteger[] get( int d )
+    {
+        return CACHE.computeIfAbsent( d, ClassPolynomial::compute ).clone();
+    }
+    
+    /**
+     * Get reduced primitive binary quadratic forms a * x<sup>2</sup> + b * x * y + c * y<sup>2</sup> of a discriminant.
+     * Their quantity is the class number.
+     * @param d a negative discriminant
+     * @return forms { a, b, c } such that |b| &le; a &le; c, b &ge; 0 if |b| = a or a = c, gcd( a, b, c ) = 1
+     */
+    static List< int[] > forms( int d )
+    {
+        List< int[] > ret = new ArrayList<>();
+        for ( int a = 1; 3 * a * a <= -d; a++ )
+        {
+            for ( int b = 1 - a; b <= a; b++ )
+            {
+                if ( ( b * b - d ) % ( 4 * a ) != 0 ) continue;
+                int c = ( b * b - d ) / ( 4 * a );
+                if ( c < a || b < 0 && a == c ) continue;
+                if ( MathUtils.gcd( MathUtils.gcd( a, Math.abs( b ) ), c ) == 1 ) ret.add( new int[]{ a, b, c } );
+            }
+        }
+        return ret;
+    }
+    
+    private static BigInteger[] compute( int d )
+    {
+        List< int[] > forms = forms( d );
+        double sqrtD = Math.sqrt( -d );
+        // Coefficients are bounded by the product of |j| + 1, where |j| is about e^( pi * sqrt( |D| ) / a ).
+        // Absolute errors of j are multiplied by the largest |j| = |1 / q|.
+        double bits = Math.PI * sqrtD / LN_2;
+        for ( int form[] : forms ) bits += Math.PI * sqrtD / form[ 0 ] / LN_2 + 1.0;
+        int precision = ( int )bits + GUARD_BITS;
+        BigInteger pi = pi( precision );
+        BigInteger sqrt = BigUtils.isqrt( BigInteger.valueOf( -d ).shiftLeft( precision << 1 ) );
+        BigInteger polynomial[][] = { { BigInteger.ONE.shiftLeft( precision ), BigInteger.ZERO } };
+        for ( int form[] : forms )
+        {
+            BigInteger j[] = j( form[ 0 ], form[ 1 ], sqrt, pi, precision );
+            BigInteger product[][] = new BigInteger[ polynomial.length + 1 ][];
+            product[ polynomial.length ] = polynomial[ polynomial.length - 1 ];
+            product[ 0 ] = negate( multiply( polynomial[ 0 ], j, precision ) );
+            for ( int i = 1; i < polynomial.length; i++ ) product[ i ] = add( polynomial[ i - 1 ], negate( multiply( polynomial[ i ], j, precision ) ) );
+            polynomial = product;
+        }
+        BigInteger ret[] = new BigInteger[ forms.size() ];
+        BigInteger half = BigInteger.ONE.shiftLeft( precision - 1 );
+        for ( int i = 0; i < ret.length; i++ )
+        {
+            ret[ i ] = polynomial[ i ][ 0 ].add( half ).shiftRight( precision );
+            // Errors should be far less than 1 / 2.
+            if ( polynomial[ i ][ 0 ].subtract( ret[ i ].shiftLeft( precision ) ).abs().bitLength() >= precision - 8 || polynomial[ i ][ 1 ].abs().bitLength() >= precision - 8 )
+            {
+                throw new ArithmeticException( "Insufficient precision of class polynomial for discriminant " + d );
+            }
+        }
+        return ret;
+    }
+    
+    /**
+     * Value of j-invariant at &tau; = ( -b + &radic;D ) / ( 2 * a ).
+     * <p>j = E<sub>4</sub><sup>3</sup> / ( q * &eta;<sup>24</sup> ), where q = e<sup>2 * &pi; * i * &tau;</sup>,
+     * E<sub>4</sub> = 1 + 240 * &sum;&sigma;<sub>3</sub>( k ) * q<sup>k</sup>,
+     * &eta; = &prod;( 1 - q<sup>k</sup> ) = 1 + &sum;( -1 )<sup>k</sup> * ( q<sup>k * ( 3 * k - 1 ) / 2</sup> + q<sup>k * ( 3 * k + 1 ) / 2</sup> ).
+     * There is no cancellation, so the absolute error of j is the error of the series multiplied by |1 / q|.
+     * @param sqrtD &radic;|D| in fixed point
+     * @param pi &pi; in fixed point
+     * @return a complex number in fixed point
+     */
+    private static BigInteger[] j( int a, int b, BigInteger sqrtD, BigInteger pi, int precision )
+    {
+        BigInteger one = BigInteger.ONE.shiftLeft( precision );
+        // 1 / q = e^( pi * sqrt( |D| ) / a ) * e^( i * pi * b / a ).
+        BigInteger radius = exp( multiply( pi, sqrtD, precision ).divide( BigInteger.valueOf( a ) ), precision );
+        BigInteger unit[] = cosSin( pi.multiply( BigInteger.valueOf( b ) ).divide( BigInteger.valueOf( a ) ), precision );
+        BigInteger inverse[] = { multiply( radius, unit[ 0 ], precision ), multiply( radius, unit[ 1 ], precision ) };
+        BigInteger q[] = { unit[ 0 ].shiftLeft( precision ).divide( radius ), unit[ 1 ].negate().shiftLeft( precision ).divide( radius ) };
+        int terms = ( int )Math.ceil( precision * LN_2 * a / ( Math.PI * sqrtD.doubleValue() / one.doubleValue() ) ) + 1;
+        BigInteger powers[][] = new BigInteger[ terms + 1 ][];
+        powers[ 0 ] = new BigInteger[]{ one, BigInteger.ZERO };
+        for ( int k = 1; k <= terms; k++ ) powers[ k ] = multiply( powers[ k - 1 ], q, precision );
+        BigInteger e4[] = powers[ 0 ];
+        for ( int k = 1; k <= terms; k++ )
+        {
+            long sigma3 = 0L;
+            for ( long divisor = 1L; divisor <= k; divisor++ ) if ( k % divisor == 0L ) sigma3 += divisor * divisor * divisor;
+            e4 = add( e4, multiply( powers[ k ], BigInteger.valueOf( 240L * sigma3 ) ) );
+        }
+        BigInteger eta[] = powers[ 0 ];
+        for ( int k = 1; k * ( 3 * k - 1 ) / 2 <= terms; k++ )
+        {
+            BigInteger term[] = powers[ k * ( 3 * k - 1 ) / 2 ];
+            if ( k * ( 3 * k + 1 ) / 2 <= terms ) term = add( term, powers[ k * ( 3 * k + 1 ) / 2 ] );
+            eta = add( eta, ( k & 1 ) == 0 ? term : negate( term ) );
+        }
+        BigInteger eta2[] = multiply( eta, eta, precision );
+        BigInteger eta4[] = multiply( eta2, eta2, precision );
+        BigInteger eta8[] = multiply( eta4, eta4, precision );
+        BigInteger eta24[] = multiply( multiply( eta8, eta8, precision ), eta8, precision );
+        BigInteger e43[] = multiply( multiply( e4, e4, precision ), e4, precision );
+        return divide( multiply( e43, inverse, precision ), eta24, precision );
+    }
+    
+    /**
+     * Calculate &pi; by Machin's formula &pi; = 16 * arctg( 1 / 5 ) - 4 * arctg( 1 / 239 ).
+     */
+    private static BigInteger pi( int precision )
+    {
+        int extended = precision + REDUCTION_BITS;
+        return arctanOfInverse( 5, extended ).shiftLeft( 4 ).subtract( arctanOfInverse( 239, extended ).shiftLeft( 2 ) ).shiftRight( REDUCTION_BITS );
+    }
+    
+    private static BigInteger arctanOfInverse( int x, int precision )
+    {
+        BigInteger square = BigInteger.valueOf( ( long )x * x );
+        BigInteger power = BigInteger.ONE.shiftLeft( precision ).divide( BigInteger.valueOf( x ) );
+        BigInteger ret = BigInteger.ZERO;
+        for ( int k = 1; power.signum() != 0; k += 2 )
+        {
+            BigInteger term = power.divide( BigInteger.valueOf( k ) );
+            ret = ( k & 2 ) == 0 ? ret.add( term ) : ret.subtract( term );
+            power = power.divide( square );
+        }
+        return ret;
+    }
+    
+    /**
+     * Calculate e<sup>x</sup> for a non-negative x: Taylor series of x / 2<sup>k</sup>, squared k times.
+     */
+    private static BigInteger exp( BigInteger x, int precision )
+    {
+        int halvings = x.shiftRight( precision ).bitLength() + REDUCTION_BITS;
+        // The same bits with a greater precision are x / 2^halvings, squaring doubles relative errors.
+        int extended = precision + halvings;
+        BigInteger term = BigInteger.ONE.shiftLeft( extended );
+        BigInteger ret = term;
+        for ( int k = 1; term.signum() != 0; k++ )
+        {
+            term = multiply( term, x, extended ).divide( BigInteger.valueOf( k ) );
+            ret = ret.add( term );
+        }
+        for ( int i = 0; i < halvings; i++ ) ret = multiply( ret, ret, extended );
+        return ret.shiftRight( halvings );
+    }
+    
+    /**
+     * Calculate cos( x ) and sin( x ) for |x| &le; &pi;: Taylor series of x / 2<sup>k</sup>, the complex number is squared k times.
+     * @return { cos( x ), sin( x ) }
+     */
+    private static BigInteger[] cosSin( BigInteger x, int precision )
+    {
+        int extended = precision + REDUCTION_BITS;
+        BigInteger ret[] = { BigInteger.ZERO, BigInteger.ZERO };
+        BigInteger term = BigInteger.ONE.shiftLeft( extended );
+        for ( int k = 0; term.signum() != 0; k++ )
+        {
+            ret[ k & 1 ] = ( k & 2 ) == 0 ? ret[ k & 1 ].add( term ) : ret[ k & 1 ].subtract( term );
+            term = multiply( term, x, extended ).divide( BigInteger.valueOf( k + 1 ) );
+        }
+        for ( int i = 0; i < REDUCTION_BITS; i++ ) ret = multiply( ret, ret, extended );
+        return new BigInteger[]{ ret[ 0 ].shiftRight( REDUCTION_BITS ), ret[ 1 ].shiftRight( REDUCTION_BITS ) };
+    }
+    
+    private static BigInteger multiply( BigInteger x, BigInteger y, int precision )
+    {
+        return x.multiply( y ).shiftRight( precision );
+    }
+    
+    private static BigInteger[] add( BigInteger x[], BigInteger y[] )
+    {
+        return new BigInteger[]{ x[ 0 ].add( y[ 0 ] ), x[ 1 ].add( y[ 1 ] ) };
+    }
+    
+    private static BigInteger[] negate( BigInteger x[] )
+    {
+        return new BigInteger[]{ x[ 0 ].negate(), x[ 1 ].negate() };
+    }
+    
+    /**
+     * Product of a complex number and an integer.
+     */
+    private static BigInteger[] multiply( BigInteger x[], BigInteger y )
+    {
+        return new BigInteger[]{ x[ 0 ].multiply( y ), x[ 1 ].multiply( y ) };
+    }
+    
+    private static BigInteger[] multiply( BigInteger x[], BigInteger y[], int precision )
+    {
+        return new BigInteger[]
+        {
+            x[ 0 ].multiply( y[ 0 ] ).subtract( x[ 1 ].multiply( y[ 1 ] ) ).shiftRight( precision ),
+            x[ 0 ].multiply( y[ 1 ] ).add( x[ 1 ].multiply( y[ 0 ] ) ).shiftRight( precision )
+        };
+    }
+    
+    private static BigInteger[] divide( BigInteger x[], BigInteger y[], int precision )
+    {
+        BigInteger norm = y[ 0 ].multiply( y[ 0 ] ).add( y[ 1 ].multiply( y[ 1 ] ) );
+        BigInteger numerator[] = multiply( x, new BigInteger[]{ y[ 0 ], y[ 1 ].negate() }, 0 );
+        return new BigInteger[]{ numerator[ 0 ].shiftLeft( precision ).divide( norm ), numerator[ 1 ].shiftLeft( precision ).divide( norm ) };
+    }
+    
+    /**
+     * Find a root of a monic polynomial modulo a prime.
+     * <p>Distinct linear factors are extracted as gcd( f( x ), x<sup>p</sup> - x ), then they are split by
+     * gcd( g( x ), ( x + &delta; )<sup>( p - 1 ) / 2</sup> - 1 ) with random &delta; until a single linear factor remains.
+     * @param coefficients lower coefficients { c<sub>0</sub>, ..., c<sub>h - 1</sub> } of a monic polynomial
+     * @param p an odd prime
+     * @param random a source of &delta;
+     * @return a root, or null if it's not found (there are no roots or p isn't prime)
+     */
+    static BigInteger root( BigInteger coefficients[], BigInteger p, Random random )
+    {
+        BigInteger f[] = Arrays.copyOf( coefficients, coefficients.length + 1 );
+        f[ coefficients.length ] = BigInteger.ONE;
+        for ( int i = 0; i < coefficients.length; i++ ) f[ i ] = f[ i ].mod( p );
+        if ( f.length == 2 ) return f[ 0 ].negate().mod( p );
+        try
+        {
+            BigInteger xp[] = pow( new BigInteger[]{ BigInteger.ZERO, BigInteger.ONE }, p, f, p );
+            if ( xp.length < 2 ) xp = Arrays.copyOf( xp, 2 );
+            xp[ 1 ] = ( xp[ 1 ] == null ? BigInteger.ZERO : xp[ 1 ] ).subtract( BigInteger.ONE ).mod( p );
+            if ( xp[ 0 ] == null ) xp[ 0 ] = BigInteger.ZERO;
+            BigInteger g[] = gcd( f, trim( xp ), p );
+            BigInteger exponent = p.shiftRight( 1 );
+            for ( int attempt = 0; g.length > 2 && attempt < ATTEMPTS; attempt++ )
+            {
+                BigInteger delta = new BigInteger( p.bitLength() + 8, random ).mod( p );
+                BigInteger w[] = pow( new BigInteger[]{ delta, BigInteger.ONE }, exponent, g, p );
+                if ( w.length == 0 ) continue;
+                w[ 0 ] = w[ 0 ].subtract( BigInteger.ONE ).mod( p );
+                BigInteger d[] = gcd( g, trim( w ), p );
+                if ( d.length > 1 && d.length < g.length ) g = d;
+            }
+            return g.length == 2 ? g[ 0 ].negate().mod( p ) : null;
+        }
+        catch ( ArithmeticException e )
+        {
+            // A leading coefficient isn't invertible, so p is composite.
+            return null;
+        }
+    }
+    
+    /**
+     * Remove leading zero coefficients.
+     */
+    private static BigInteger[] trim( BigInteger a[] )
+    {
+        int length = a.length;
+        while ( length > 0 && a[ length - 1 ].signum() == 0 ) length--;
+        return length == a.length ? a : Arrays.copyOf( a, length );
+    }
+    
+    /**
+     * Product of polynomials modulo a monic polynomial f and a prime p.
+     */
+    private static BigInteger[] multiply( BigInteger a[], BigInteger b[], BigInteger f[], BigInteger p )
+    {
+        if ( a.length == 0 || b.length == 0 ) return new BigInteger[ 0 ];
+        BigInteger product[] = new BigInteger[ a.length + b.length - 1 ];
+        Arrays.fill( product, BigInteger.ZERO );
+        for ( int i = 0; i < a.length; i++ ) for ( int j = 0; j < b.length; j++ ) product[ i + j ] = product[ i + j ].add( a[ i ].multiply( b[ j ] ) );
+        return remainder( product, f, p );
+    }
+    
+    private static BigInteger[] pow( BigInteger base[], BigInteger exponent, BigInteger f[], BigInteger p )
+    {
+        BigInteger ret[] = { BigInteger.ONE };
+        base = remainder( base, f, p );
+        for ( int i = exponent.bitLength() - 1; i >= 0; i-- )
+        {
+            ret = multiply( ret, ret, f, p );
+            if ( exponent.testBit( i ) ) ret = multiply( ret, base, f, p );
+        }
+        return ret;
+    }
+    
+    /**
+     * Remainder of division of polynomials modulo a prime.
+     * @param a a dividend
+     * @param b a divisor with an invertible leading coefficient
+     * @return a remainder without leading zeros
+     * @throws ArithmeticException if the leading coefficient of b isn't invertible modulo p
+     */
+    private static BigInteger[] remainder( BigInteger a[], BigInteger b[], BigInteger p ) throws ArithmeticException
+    {
+        // Coefficients are reduced modulo p only when they are needed, intermediate values are sums of several products.
+        BigInteger ret[] = a.clone();
+        BigInteger inverse = b[ b.length - 1 ].modInverse( p );
+        for ( int i = a.length - 1; i >= b.length - 1; i-- )
+        {
+            BigInteger factor = ret[ i ].mod( p );
+            if ( factor.signum() == 0 ) continue;
+            if ( !inverse.equals( BigInteger.ONE ) ) factor = factor.multiply( inverse ).mod( p );
+            for ( int j = 0; j < b.length - 1; j++ ) ret[ i - b.length + 1 + j ] = ret[ i - b.length + 1 + j ].subtract( factor.multiply( b[ j ] ) );
+        }
+        ret = Arrays.copyOf( ret, Math.min( ret.length, b.length - 1 ) );
+        for ( int i = 0; i < ret.length; i++ ) ret[ i ] = ret[ i ].mod( p );
+        return trim( ret );
+    }
+    
+    /**
+     * Monic greatest common divisor of polynomials modulo a prime.
+     * @param a a non-zero polynomial
+     */
+    private static BigInteger[] gcd( BigInteger a[], BigInteger b[], BigInteger p ) throws ArithmeticException
+    {
+        while ( b.length > 0 )
+        {
+            BigInteger r[] = remainder( a, b, p );
+            a = b;
+            b = r;
+        }
+        BigInteger inverse = a[ a.length - 1 ].modInverse( p );
+        BigInteger ret[] = new BigInteger[ a.length ];
+        for ( int i = 0; i < a.length; i++ ) ret[ i ] = a[ i ].multiply( inverse ).mod( p );
+        return ret;
+    }
+}
\ No newline at end of file
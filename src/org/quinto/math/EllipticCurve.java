@@ -0,0 +1,126 @@
+package org.quinto.math;
+
+import java.math.BigInteger;
+
+/**
+ * Elliptic curve y<sup>2</sup> = x<sup>3</sup> + a * x + b over integers modulo n in affine coordinates.
+ * <p>The modulus isn't required to be prime. A point is an array { x, y }, the point at infinity is null.
+ * If a denominator of some operation isn't invertible modulo n, the operation fails:
+ * a non-trivial divisor of n is stored to {@link #divisor}, the result is null and all the next operations fail too.
+ * So a result of a chain of operations is reduced to a result of the same chain over the field of every prime p that divides n,
+ * unless some operation failed.
+ */
+class EllipticCurve
+{
+    final BigInteger n;
+    final BigInteger a;
+    final BigInteger b;
+    
+    /**
+     * A non-trivial divisor of n that was found as a denominator, or null if all the operations were successful.
+     */
+    BigInteger divisor;
+    
+    /**
+     * Create a curve.
+     * @param n a modulus greater than 1
+     * @param a a coefficient in range [ 0 .. n - 1 ]
+     * @param b a coefficient in range [ 0 .. n - 1 ]
+     */
+    EllipticCurve( BigInteger n, BigInteger a, BigInteger b )
+    {
+        this.n = n;
+        this.a = a;
+        this.b = b;
+    }
+    
+    /**
+     * Get a discriminant of the curve up to a constant factor -16.
+     * @return 4 * a<sup>3</sup> + 27 * b<sup>2</sup> modulo n
+     */
+    BigInteger discriminant()
+    {
+        return a.pow( 3 ).shiftLeft( 2 ).add( b.pow( 2 ).multiply( BigInteger.valueOf( 27L ) ) ).mod( n );
+    }
+    
+    /**
+     * Get a right-hand side of the curve equation.
+     * @return x<sup>3</sup> + a * x + b modulo n
+     */
+    BigInteger rightHandSide( BigInteger x )
+    {
+        return x.multiply( x ).add( a ).multiply( x ).add( b ).mod( n );
+    }
+    
+    /**
+     * Check if a point lies on the curve.
+     * @param x a coordinate in range [ 0 .. n - 1 ]
+     * @param y a coordinate in range [ 0 .. n - 1 ]
+     */
+    boolean contains( BigInteger x, BigInteger y )
+    {
+        return y.multiply( y ).mod( n ).equals( rightHandSide( x ) );
+    }
+    
+    /**
+     * Sum of two points.
+     * @param p a point or null
+     * @param q a point or null
+     * @return p + q, or null if it's the point at infinity or the operation failed
+     */
+    BigInteger[] add( BigInteger p[], BigInteger q[] )
+    {
+        if ( divisor != null ) return null;
+        if ( p == null ) return q;
+        if ( q == null ) return p;
+        BigInteger lambda;
+        if ( p[ 0 ].equals( q[ 0 ] ) )
+        {
+            if ( p[ 1 ].add( q[ 1 ] ).mod( n ).signum() == 0 ) return null;
+            // The same x coordinate and different y coordinates modulo a composite n.
+            if ( !p[ 1 ].equals( q[ 1 ] ) )
+            {
+                divisor = p[ 1 ].subtract( q[ 1 ] ).gcd( n );
+                return null;
+            }
+            BigInteger denominator = inverse( p[ 1 ].shiftLeft( 1 ) );
+            if ( denominator == null ) return null;
+            lambda = p[ 0 ].multiply( p[ 0 ] ).multiply( BigInteger.valueOf( 3L ) ).add( a ).multiply( denominator ).mod( n );
+        }
+        else
+        {
+            BigInteger denominator = inverse( q[ 0 ].subtract( p[ 0 ] ) );
+            if ( denominator == null ) return null;
+            lambda = q[ 1 ].subtract( p[ 1 ] ).multiply( denominator ).mod( n );
+        }
+        BigInteger x = lambda.multiply( lambda ).subtract( p[ 0 ] ).subtract( q[ 0 ] ).mod( n );
+        BigInteger y = lambda.multiply( p[ 0 ].subtract( x ) ).subtract( p[ 1 ] ).mod( n );
+        return new BigInteger[]{ x, y };
+    }
+    
+    /**
+     * Multiply a point by a scalar with a binary method.
+     * @param p a point or null
+     * @param k a non-negative scalar
+     * @return k * p, or null if it's the point at infinity or some operation failed
+     */
+    BigInteger[] multiply( BigInteger p[], BigInteger k )
+    {
+        BigInteger ret[] = null;
+        for ( int i = k.bitLength() - 1; i >= 0 && divisor == null; i-- )
+        {
+            ret = add( ret, ret );
+            if ( k.testBit( i ) ) ret = add( ret, p );
+        }
+        return ret;
+    }
+    
+    private BigInteger inverse( BigInteger d )
+    {
+        d = d.mod( n );
+        BigInteger gcd = d.gcd( n );
+        if ( gcd.equals( BigInteger.ONE ) ) return d.modInverse( n );
+        divisor = gcd;
+        return null;
+    }
+}
\ No newline at end of file
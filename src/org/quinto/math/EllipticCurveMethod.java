@@ -0,0 +1,367 @@
+package org.quinto.math;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lenstra elliptic curve factorization (ECM) with Montgomery curves B * y<sup>2</sup> = x<sup>3</sup> + A * x<sup>2</sup> + x.
+ * <p>Points are represented by projective coordinates ( X : Z ) without y, so a sum of two points needs their difference.
+ * Arithmetic is done on limb arrays by {@link BigMontgomery}, loops of both stages don't allocate memory.
+ * Curves are chosen by Suyama's parametrization with a parameter sigma, so their orders are divisible by 12.
+ * <p>Stage 1 multiplies a point by all the prime powers up to a bound B1 with Montgomery's ladder.
+ * A factor p is found if the order of the point modulo p is B1-smooth.
+ * <p>Stage 2 (standard continuation) finds p if the order has a single prime factor q in ( B1 .. B2 ], B2 = 100 * B1.
+ * Every q is written as m * D &plusmn; j, where D = 2310 and j &lt; D / 2, then [ q ] Q is at infinity modulo p iff
+ * [ m * D ] Q = &plusmn;[ j ] Q, i.e. X<sub>mD</sub> * Z<sub>j</sub> - X<sub>j</sub> * Z<sub>mD</sub> = 0 (mod p).
+ * Points [ j ] Q are precomputed, points [ m * D ] Q are passed by additions, the differences are multiplied and checked by a single gcd.
+ * <p>Curves run in parallel on a pool. Workers take curves with consecutive sigmas, a found factor stops all the workers.
+ * https://en.wikipedia.org/wiki/Lenstra_elliptic-curve_factorization
+ */
+class EllipticCurveMethod
+{
+    /**
+     * Bounds of stage 1 and quantities of curves to find a factor of a given quantity of decimal digits with high probability:
+     * { digits, B1, curves }.
+     */
+    static final long LEVELS[][] = {
+        { 15L, 2000L, 25L },
+        { 20L, 11000L, 90L },
+        { 25L, 50000L, 300L },
+        { 30L, 250000L, 700L },
+        { 35L, 1000000L, 1800L },
+        { 40L, 3000000L, 5100L },
+        { 45L, 11000000L, 10600L },
+        { 50L, 43000000L, 19300L } };
+    
+    private static final int D = 2310;
+    
+    /**
+     * Positions of odd numbers j &lt; D / 2 which are relatively prime to D, or -1 for the rest numbers.
+     */
+    private static final int INDICES[] = new int[ D / 2 + 1 ];
+    
+    /**
+     * Quantity of numbers j, &phi;( D ) / 2.
+     */
+    private static final int J;
+    
+    private static final long FIRST_SIGMA = 6L;
+    
+    static
+    {
+        int count = 0;
+        for ( int j = 0; j < INDICES.length; j++ ) INDICES[ j ] = ( j & 1 ) != 0 && MathUtils.gcd( j, D ) == 1 ? count++ : -1;
+        J = count;
+    }
+    
+    private final BigInteger n;
+    private final AtomicLong sigma = new AtomicLong( FIRST_SIGMA );
+    private final AtomicInteger curves = new AtomicInteger();
+    private final AtomicReference< BigInteger > factor = new AtomicReference<>();
+    
+    /**
+     * @param n an odd composite number which isn't a perfect power
+     */
+    EllipticCurveMethod( BigInteger n )
+    {
+        this.n = n;
+    }
+    
+    /**
+     * Run curves of all the levels up to a given size of factors.
+     * <p>Levels are passed in increasing order, a level is finished when all its curves are done.
+     * If {@code digits} exceeds the last level then the last level is repeated until a factor is found.
+     * @param digits a quantity of decimal digits of a sought factor
+     * @param pool a pool to run curves in parallel, or null to run them in the current thread
+     * @return a non-trivial factor of n, or null if it isn't found
+     */
+    BigInteger findFactor( int digits, ForkJoinPool pool )
+    {
+        for ( int i = 0; ; i = Math.min( i + 1, LEVELS.length - 1 ) )
+        {
+            long level[] = LEVELS[ i ];
+            BigInteger ret = run( level[ 1 ], ( int )level[ 2 ], pool );
+            if ( ret != null || level[ 0 ] >= digits ) return ret;
+        }
+    }
+    
+    /**
+     * Run a given quantity of curves with a bound B1.
+     * @param b1 a bound of stage 1, B2 = 100 * B1
+     * @param quantity a quantity of curves
+     * @param pool a pool to run curves in parallel, or null to run them in the current thread
+     * @return a non-trivial factor of n, or null if it isn't found
+     */
+    BigInteger run( long b1, int quantity, ForkJoinPool pool )
+    {
+        AtomicInteger remaining = new AtomicInteger( quantity );
+        Runnable worker = () ->
+        {
+            Curve curve = new Curve();
+            while ( factor.get() == null && remaining.getAndDecrement() > 0 )
+            {
+                BigInteger d = curve.run( sigma.getAndIncrement(), b1, b1 * 100L );
+                curves.incrementAndGet();
+                if ( d != null ) factor.compareAndSet( null, d );
+            }
+        };
+        if ( pool == null ) worker.run();
+        else
+        {
+            List< ForkJoinTask< ? > > tasks = new ArrayList<>();
+            for ( int i = Math.min( Math.max( pool.getParallelism(), 1 ), quantity ); i > 0; i-- ) tasks.add( pool.submit( worker ) );
+            // All the tasks are joined, so none of them outlives the search.
+            for ( ForkJoinTask< ? > task : tasks ) task.join();
+        }
+        return factor.get();
+    }
+    
+    /**
+     * Get a quantity of curves that were run completely or stopped.
+     */
+    int getCurves()
+    {
+        return curves.get();
+    }
+    
+    /**
+     * Working storage of a worker: Montgomery arithmetic modulo n and points.
+     */
+    private class Curve
+    {
+        private final BigMontgomery m = new BigMontgomery( n );
+        private final int a24[] = m.newValue();
+        private final int x[] = m.newValue();
+        private final int z[] = m.newValue();
+        /**
+         * Scratch points of the ladder.
+         */
+        private final int px[] = m.newValue();
+        private final int pz[] = m.newValue();
+        private final int x0[] = m.newValue();
+        private final int z0[] = m.newValue();
+        private final int x1[] = m.newValue();
+        private final int z1[] = m.newValue();
+        private final int t1[] = m.newValue();
+        private final int t2[] = m.newValue();
+        private final int t3[] = m.newValue();
+        private final int t4[] = m.newValue();
+        /**
+         * Points [ j ] Q of stage 2.
+         */
+        private final int sx[][] = new int[ J ][];
+        private final int sz[][] = new int[ J ][];
+        private final boolean used[] = new boolean[ J ];
+        
+        Curve()
+        {
+            for ( int i = 0; i < J; i++ )
+            {
+                sx[ i ] = m.newValue();
+                sz[ i ] = m.newValue();
+            }
+        }
+        
+        /**
+         * Run both stages on a curve.
+         * @param s a parameter of Suyama's parametrization, s &gt; 5
+         * @return a non-trivial factor of n, or null if the curve failed or was stopped
+         */
+        BigInteger run( long s, long b1, long b2 )
+        {
+            // u = s^2 - 5, v = 4 * s, Q = ( u^3 : v^3 ), ( A + 2 ) / 4 = ( v - u )^3 * ( 3 * u + v ) / ( 16 * u^3 * v ).
+            BigInteger sigma = BigInteger.valueOf( s );
+            BigInteger u = sigma.multiply( sigma ).subtract( BigUtils.BI_FIVE ).mod( n );
+            BigInteger v = sigma.shiftLeft( 2 ).mod( n );
+            BigInteger u3 = u.modPow( BigUtils.BI_THREE, n );
+            BigInteger denominator = u3.multiply( v ).shiftLeft( 4 ).mod( n );
+            BigInteger g = denominator.gcd( n );
+            if ( !g.equals( BigInteger.ONE ) ) return g.equals( n ) ? null : g;
+            BigInteger numerator = v.subtract( u ).modPow( BigUtils.BI_THREE, n ).multiply( u.multiply( BigUtils.BI_THREE ).add( v ) );
+            copy( m.valueOf( numerator.multiply( denominator.modInverse( n ) ) ), a24 );
+            copy( m.valueOf( u3 ), x );
+            copy( m.valueOf( v.modPow( BigUtils.BI_THREE, n ) ), z );
+            PrimeSieve sieve = new PrimeSieve( 2L, b1 );
+            for ( long p = sieve.next(); p != 0L; p = sieve.next() )
+            {
+                if ( factor.get() != null ) return null;
+                long q = p;
+                while ( q <= b1 / p ) q *= p;
+                multiplyPoint( x, z, q, x, z );
+            }
+            g = gcd( z );
+            if ( !g.equals( BigInteger.ONE ) ) return g.equals( n ) ? null : g;
+            return stage2( b1, b2 );
+        }
+        
+        /**
+         * Standard continuation from a point Q = ( {@link #x} : {@link #z} ).
+         */
+        private BigInteger stage2( long b1, long b2 )
+        {
+            // [ j ] Q for odd j: Q_{j + 2} = Q_j + Q_2 with a difference Q_{j - 2}, and Q_{-1} = -Q_1 has the same coordinates as Q_1.
+            int q2x[] = m.newValue();
+            int q2z[] = m.newValue();
+            doublePoint( x, z, q2x, q2z );
+            int currentX[] = x.clone();
+            int currentZ[] = z.clone();
+            int previousX[] = x.clone();
+            int previousZ[] = z.clone();
+            for ( int j = 1; j < D / 2; j += 2 )
+            {
+                if ( INDICES[ j ] >= 0 )
+                {
+                    copy( currentX, sx[ INDICES[ j ] ] );
+                    copy( currentZ, sz[ INDICES[ j ] ] );
+                }
+                addPoints( currentX, currentZ, q2x, q2z, previousX, previousZ, previousX, previousZ );
+                int t[] = previousX;
+                previousX = currentX;
+                currentX = t;
+                t = previousZ;
+                previousZ = currentZ;
+                currentZ = t;
+            }
+            // Primes below D / 2 would need m = 0.
+            long from = Math.max( b1, D / 2 ) + 1L;
+            long mFrom = ( from + D / 2 ) / D;
+            int dx[] = m.newValue();
+            int dz[] = m.newValue();
+            int ax[] = m.newValue();
+            int az[] = m.newValue();
+            int bx[] = m.newValue();
+            int bz[] = m.newValue();
+            multiplyPoint( x, z, D, dx, dz );
+            multiplyPoint( x, z, mFrom * D, ax, az );
+            multiplyPoint( x, z, ( mFrom + 1L ) * D, bx, bz );
+            int product[] = m.valueOf( BigInteger.ONE );
+            long mCurrent = mFrom;
+            Arrays.fill( used, false );
+            PrimeSieve sieve = new PrimeSieve( from, b2 );
+            for ( long q = sieve.next(); q != 0L; q = sieve.next() )
+            {
+                long mq = ( q + D / 2 ) / D;
+                if ( mq > mCurrent )
+                {
+                    if ( factor.get() != null ) return null;
+                    Arrays.fill( used, false );
+                    // [ ( m + 2 ) * D ] Q = [ ( m + 1 ) * D ] Q + [ D ] Q with a difference [ m * D ] Q.
+                    for ( ; mCurrent < mq; mCurrent++ )
+                    {
+                        addPoints( bx, bz, dx, dz, ax, az, ax, az );
+                        int t[] = ax;
+                        ax = bx;
+                        bx = t;
+                        t = az;
+                        az = bz;
+                        bz = t;
+                    }
+                }
+                // Primes m * D - j and m * D + j share a difference.
+                int i = INDICES[ ( int )Math.abs( q - mq * D ) ];
+                if ( used[ i ] ) continue;
+                used[ i ] = true;
+                m.multiply( ax, sz[ i ], t1 );
+                m.multiply( sx[ i ], az, t2 );
+                m.subtract( t1, t2, t1 );
+                m.multiply( product, t1, product );
+            }
+            BigInteger g = gcd( product );
+            return g.equals( BigInteger.ONE ) || g.equals( n ) ? null : g;
+        }
+        
+        /**
+         * Montgomery's ladder: ( x : z ) = [ k ] ( px : pz ). Points R<sub>0</sub> and R<sub>1</sub> always differ by P.
+         * @param k a positive multiplier
+         * @param outX a destination, may be the same array as x
+         * @param outZ a destination, may be the same array as z
+         */
+        private void multiplyPoint( int x[], int z[], long k, int outX[], int outZ[] )
+        {
+            copy( x, px );
+            copy( z, pz );
+            copy( x, x0 );
+            copy( z, z0 );
+            doublePoint( px, pz, x1, z1 );
+            for ( int i = 62 - Long.numberOfLeadingZeros( k ); i >= 0; i-- )
+            {
+                if ( ( ( k >>> i ) & 1L ) != 0L )
+                {
+                    addPoints( x0, z0, x1, z1, px, pz, x0, z0 );
+                    doublePoint( x1, z1, x1, z1 );
+                }
+                else
+                {
+                    addPoints( x0, z0, x1, z1, px, pz, x1, z1 );
+                    doublePoint( x0, z0, x0, z0 );
+                }
+            }
+            copy( x0, outX );
+            copy( z0, outZ );
+        }
+        
+        /**
+         * Doubling: X<sub>2</sub> = ( X + Z )<sup>2</sup> ( X - Z )<sup>2</sup>,
+         * Z<sub>2</sub> = 4 X Z ( ( X - Z )<sup>2</sup> + ( A + 2 ) / 4 * 4 X Z ). 5 multiplications.
+         * @param outX a destination, may be the same array as x
+         * @param outZ a destination, may be the same array as z
+         */
+        private void doublePoint( int x[], int z[], int outX[], int outZ[] )
+        {
+            m.add( x, z, t1 );
+            m.square( t1, t1 );
+            m.subtract( x, z, t2 );
+            m.square( t2, t2 );
+            m.subtract( t1, t2, t3 );
+            m.multiply( t1, t2, outX );
+            m.multiply( t3, a24, t4 );
+            m.add( t4, t2, t4 );
+            m.multiply( t3, t4, outZ );
+        }
+        
+        /**
+         * Differential addition of points P and Q with a known difference P - Q:
+         * X = Z<sub>P-Q</sub> ( U + V )<sup>2</sup>, Z = X<sub>P-Q</sub> ( U - V )<sup>2</sup>,
+         * where U = ( X<sub>P</sub> - Z<sub>P</sub> ) ( X<sub>Q</sub> + Z<sub>Q</sub> ), V = ( X<sub>P</sub> + Z<sub>P</sub> ) ( X<sub>Q</sub> - Z<sub>Q</sub> ).
+         * 6 multiplications.
+         * @param outX a destination, may be the same array as any of arguments
+         * @param outZ a destination, may be the same array as any of arguments
+         */
+        private void addPoints( int xp[], int zp[], int xq[], int zq[], int xd[], int zd[], int outX[], int outZ[] )
+        {
+            m.subtract( xp, zp, t1 );
+            m.add( xq, zq, t2 );
+            m.multiply( t1, t2, t1 );
+            m.add( xp, zp, t2 );
+            m.subtract( xq, zq, t3 );
+            m.multiply( t2, t3, t2 );
+            m.add( t1, t2, t3 );
+            m.square( t3, t3 );
+            m.subtract( t1, t2, t4 );
+            m.square( t4, t4 );
+            m.multiply( xd, t4, t4 );
+            m.multiply( zd, t3, outX );
+            copy( t4, outZ );
+        }
+        
+        /**
+         * gcd( a, n ) for a residue in the Montgomery form.
+         */
+        private BigInteger gcd( int a[] )
+        {
+            return m.toBigInteger( a ).gcd( n );
+        }
+    }
+    
+    private static void copy( int from[], int to[] )
+    {
+        System.arraycopy( from, 0, to, 0, from.length );
+    }
+}
\ No newline at end of file
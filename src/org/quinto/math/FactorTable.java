@@ -0,0 +1,466 @@
+package org.quinto.math;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Table of the smallest prime factors of numbers in range [ 0 .. limit ], limit &lt; 2<sup>32</sup>.
+ * <p>The table is compressed by a mod 30 wheel: it keeps 8 entries per 30 integers, one per residue that is relatively prime to 30.
+ * Factors 2, 3 and 5 of the rest numbers are found by divisibility checks. A composite number below 2<sup>32</sup> has a factor
+ * below 2<sup>16</sup>, so an entry is a char: the smallest prime factor of a composite number, or 0 for a prime number and for 1.
+ * So a table of numbers up to 10<sup>8</sup> takes 53 MB, about 0.53 bytes per number.
+ * <p>Segments of the table are sieved in parallel. Every prime p from 7 up to a square root of the limit passes
+ * its multiples p * q, q &ge; p, q relatively prime to 30, and marks the ones which aren't marked yet by smaller primes.
+ * So every entry is written once, as in a linear sieve, but segments don't depend on each other.
+ * <p>Factorization is a table walk: n, n / spf( n ), n / spf( n ) / spf( n / spf( n ) ), ... takes at most log<sub>7</sub>( n ) lookups.
+ * <p>A table is sieved in heap memory by {@link #sieve}, or generated as a file by {@link #create} and opened read-only
+ * by {@link #open} through {@link FileChannel#map}, so processes that open the same file share its pages.
+ */
+public class FactorTable
+{
+    /**
+     * The largest limit of a table.
+     */
+    public static final long MAX_LIMIT = ( 1L << 32 ) - 1L;
+    
+    /**
+     * The largest quantity of distinct prime factors of numbers up to {@link #MAX_LIMIT}: 2 * 3 * ... * 23 &lt; 2<sup>32</sup> &lt; 2 * 3 * ... * 29.
+     */
+    public static final int MAX_DISTINCT_FACTORS = 9;
+    
+    private static final long MAGIC = 0x5150534D46544231L;
+    private static final int HEADER_BYTES = 16;
+    private static final int CYCLE_LENGTH = 30;
+    private static final int RESIDUES[] = { 1, 7, 11, 13, 17, 19, 23, 29 };
+    /**
+     * Entries per region, a region is a single buffer of 1 GB.
+     */
+    private static final int REGION_SHIFT = 29;
+    private static final int REGION_MASK = ( 1 << REGION_SHIFT ) - 1;
+    /**
+     * Entries per task and per sieved segment. Both are multiples of 8, a chunk is inside a single region.
+     */
+    private static final int CHUNK_ENTRIES = 1 << 22;
+    private static final int SEGMENT_ENTRIES = 1 << 16;
+    /**
+     * Position of a residue modulo 30 in {@link #RESIDUES}, or -1 for residues that aren't relatively prime to 30.
+     */
+    private static final int POSITIONS[] = new int[ CYCLE_LENGTH ];
+    
+    static
+    {
+        Arrays.fill( POSITIONS, -1 );
+        for ( int i = 0; i < RESIDUES.length; i++ ) POSITIONS[ RESIDUES[ i ] ] = i;
+    }
+    
+    private final long limit;
+    private final CharBuffer regions[];
+    private long buildTime;
+    
+    private FactorTable( long limit, CharBuffer regions[] )
+    {
+        this.limit = limit;
+        this.regions = regions;
+    }
+    
+    /**
+     * Sieve a table of numbers in range [ 0 .. {@code limit} ] in heap memory on a common pool.
+     * @param limit an upper inclusive bound, it's rounded up to a multiple of 30 minus 1
+     * @return a table which isn't backed by a file
+     * @throws IllegalArgumentException if {@code limit} is negative or greater than {@link #MAX_LIMIT}
+     */
+    public static FactorTable sieve( long limit ) throws IllegalArgumentException
+    {
+        return sieve( limit, ForkJoinPool.commonPool() );
+    }
+    
+    /**
+     * Sieve a table of numbers in range [ 0 .. {@code limit} ] in heap memory on a given pool.
+     * @param limit an upper inclusive bound, it's rounded up to a multiple of 30 minus 1
+     * @param pool a pool to sieve segments on, or null to sieve them in the current thread
+     * @return a table which isn't backed by a file
+     * @throws IllegalArgumentException if {@code limit} is negative or greater than {@link #MAX_LIMIT}
+     */
+    public static FactorTable sieve( long limit, ForkJoinPool pool ) throws IllegalArgumentException
+    {
+        long time = System.nanoTime();
+        long entries = getEntries( limit );
+        CharBuffer regions[] = new CharBuffer[ ( int )( ( entries + REGION_MASK ) >>> REGION_SHIFT ) ];
+        for ( int i = 0; i < regions.length; i++ ) regions[ i ] = CharBuffer.allocate( ( int )Math.min( 1L << REGION_SHIFT, entries - ( ( long )i << REGION_SHIFT ) ) );
+        fill( regions, entries, pool );
+        FactorTable ret = new FactorTable( entries / 8L * CYCLE_LENGTH - 1L, regions );
+        ret.buildTime = System.nanoTime() - time;
+        return ret;
+    }
+    
+    /**
+     * Generate a table file of numbers in range [ 0 .. {@code limit} ] on a common pool.
+     * <p>The file is written to a temporary file which is atomically moved to {@code path} when complete,
+     * so concurrent readers never see a partial table.
+     * @param path a path of the table file
+     * @param limit an upper inclusive bound, it's rounded up to a multiple of 30 minus 1
+     * @return the generated table opened read-only
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalArgumentException if {@code limit} is negative or greater than {@link #MAX_LIMIT}
+     */
+    public static FactorTable create( Path path, long limit ) throws IOException, IllegalArgumentException
+    {
+        return create( path, limit, ForkJoinPool.commonPool() );
+    }
+    
+    /**
+     * Generate a table file of numbers in range [ 0 .. {@code limit} ] on a given pool.
+     * <p>The file is written to a temporary file which is atomically moved to {@code path} when complete,
+     * so concurrent readers never see a partial table.
+     * @param path a path of the table file
+     * @param limit an upper inclusive bound, it's rounded up to a multiple of 30 minus 1
+     * @param pool a pool to sieve segments on, or null to sieve them in the current thread
+     * @return the generated table opened read-only
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalArgumentException if {@code limit} is negative or greater than {@link #MAX_LIMIT}
+     */
+    public static FactorTable create( Path path, long limit, ForkJoinPool pool ) throws IOException, IllegalArgumentException
+    {
+        long time = System.nanoTime();
+        long entries = getEntries( limit );
+        Path absolute = path.toAbsolutePath();
+        Path temp = Files.createTempFile( absolute.getParent(), absolute.getFileName().toString(), ".tmp" );
+        try
+        {
+            try ( FileChannel channel = FileChannel.open( temp, StandardOpenOption.READ, StandardOpenOption.WRITE ) )
+            {
+                ByteBuffer header = ByteBuffer.allocate( HEADER_BYTES );
+                header.putLong( MAGIC ).putLong( entries / 8L * CYCLE_LENGTH - 1L ).flip();
+                while ( header.hasRemaining() ) channel.write( header, header.position() );
+                MappedByteBuffer regions[] = map( channel, entries, FileChannel.MapMode.READ_WRITE );
+                fill( asChars( regions ), entries, pool );
+                for ( MappedByteBuffer region : regions ) region.force();
+            }
+            Files.move( temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+        }
+        finally
+        {
+            Files.deleteIfExists( temp );
+        }
+        FactorTable ret = open( path );
+        ret.buildTime = System.nanoTime() - time;
+        return ret;
+    }
+    
+    /**
+     * Open a table file generated by {@link #create} read-only.
+     * <p>The file is mapped into memory, it isn't read into heap.
+     * @param path a path of the table file
+     * @return a table of the smallest prime factors
+     * @throws IOException if an I/O error occurs or the file isn't a factor table
+     */
+    public static FactorTable open( Path path ) throws IOException
+    {
+        long time = System.nanoTime();
+        try ( FileChannel channel = FileChannel.open( path, StandardOpenOption.READ ) )
+        {
+            ByteBuffer header = ByteBuffer.allocate( HEADER_BYTES );
+            while ( header.hasRemaining() ) if ( channel.read( header, header.position() ) < 0 ) break;
+            header.flip();
+            if ( header.remaining() < HEADER_BYTES || header.getLong() != MAGIC ) throw new IOException( "Not a factor table: " + path );
+            long limit = header.getLong();
+            long entries = ( limit + 1L ) / CYCLE_LENGTH * 8L;
+            if ( limit < 0L || limit > MAX_LIMIT + CYCLE_LENGTH || ( limit + 1L ) % CYCLE_LENGTH != 0L || channel.size() != HEADER_BYTES + 2L * entries ) throw new IOException( "Corrupted factor table: " + path );
+            FactorTable ret = new FactorTable( limit, asChars( map( channel, entries, FileChannel.MapMode.READ_ONLY ) ) );
+            ret.buildTime = System.nanoTime() - time;
+            return ret;
+        }
+    }
+    
+    /**
+     * Quantity of entries of a table which covers a given limit.
+     */
+    private static long getEntries( long limit ) throws IllegalArgumentException
+    {
+        if ( limit < 0L || limit > MAX_LIMIT ) throw new IllegalArgumentException( "Limit must be in range [ 0 .. " + MAX_LIMIT + " ], got " + limit );
+        return ( limit / CYCLE_LENGTH + 1L ) * 8L;
+    }
+    
+    /**
+     * Map entries of a table file by regions, entries follow the header.
+     */
+    private static MappedByteBuffer[] map( FileChannel channel, long entries, FileChannel.MapMode mode ) throws IOException
+    {
+        MappedByteBuffer ret[] = new MappedByteBuffer[ ( int )( ( entries + REGION_MASK ) >>> REGION_SHIFT ) ];
+        for ( int i = 0; i < ret.length; i++ )
+        {
+            long regionStart = ( long )i << REGION_SHIFT;
+            ret[ i ] = channel.map( mode, HEADER_BYTES + 2L * regionStart, 2L * Math.min( 1L << REGION_SHIFT, entries - regionStart ) );
+        }
+        return ret;
+    }
+    
+    /**
+     * Views of mapped regions as little-endian chars.
+     */
+    private static CharBuffer[] asChars( ByteBuffer regions[] )
+    {
+        CharBuffer ret[] = new CharBuffer[ regions.length ];
+        for ( int i = 0; i < regions.length; i++ ) ret[ i ] = regions[ i ].order( ByteOrder.LITTLE_ENDIAN ).asCharBuffer();
+        return ret;
+    }
+    
+    /**
+     * Sieve all the entries by chunks in parallel.
+     */
+    private static void fill( CharBuffer regions[], long entries, ForkJoinPool pool )
+    {
+        int primes[] = SmallPrimes.getOrSieve( ( int )MathUtils.isqrt( entries / 8L * CYCLE_LENGTH - 1L ) );
+        // Differences of indices of consecutive multiples p * q relatively prime to 30 don't depend on a cycle of q.
+        int deltas[][] = new int[ primes.length ][ 8 ];
+        for ( int i = 3; i < primes.length; i++ )
+        {
+            long p = primes[ i ];
+            for ( int j = 0; j < 8; j++ ) deltas[ i ][ j ] = ( int )( index( p * ( j == 7 ? CYCLE_LENGTH + 1 : RESIDUES[ j + 1 ] ) ) - index( p * RESIDUES[ j ] ) );
+        }
+        List< ForkJoinTask< ? > > tasks = new ArrayList<>();
+        for ( long from = 0L; from < entries; from += CHUNK_ENTRIES )
+        {
+            long e0 = from;
+            int length = ( int )Math.min( CHUNK_ENTRIES, entries - from );
+            CharBuffer region = regions[ ( int )( from >>> REGION_SHIFT ) ];
+            Runnable task = () -> sieveChunk( region, e0, length, primes, deltas );
+            if ( pool == null ) task.run();
+            else tasks.add( pool.submit( task ) );
+        }
+        for ( ForkJoinTask< ? > task : tasks ) task.join();
+    }
+    
+    private static void sieveChunk( CharBuffer region, long e0, int length, int primes[], int deltas[][] )
+    {
+        // Every task writes through its own view of the buffer.
+        CharBuffer view = region.duplicate();
+        view.position( ( int )e0 & REGION_MASK );
+        char segment[] = new char[ SEGMENT_ENTRIES ];
+        for ( int i = 0; i < length; i += segment.length )
+        {
+            int segmentLength = Math.min( segment.length, length - i );
+            sieveSegment( e0 + i, segment, segmentLength, primes, deltas );
+            view.put( segment, 0, segmentLength );
+        }
+    }
+    
+    /**
+     * Sieve entries [ e0 .. e0 + length ), they cover numbers [ 30 * e0 / 8 .. 30 * ( e0 + length ) / 8 ).
+     */
+    private static void sieveSegment( long e0, char segment[], int length, int primes[], int deltas[][] )
+    {
+        Arrays.fill( segment, 0, length, ( char )0 );
+        long low = e0 / 8L * CYCLE_LENGTH;
+        long high = ( e0 + length ) / 8L * CYCLE_LENGTH;
+        for ( int i = 3; i < primes.length; i++ )
+        {
+            long p = primes[ i ];
+            if ( p * p >= high ) break;
+            // The first multiplier q >= p, q * p >= low, relatively prime to 30.
+            long q = Math.max( p, ( low + p - 1L ) / p );
+            int position = -1;
+            while ( ( position = POSITIONS[ ( int )( q % CYCLE_LENGTH ) ] ) < 0 ) q++;
+            int delta[] = deltas[ i ];
+            char c = ( char )p;
+            for ( long j = index( p * q ) - e0; j < length; j += delta[ position ], position = ( position + 1 ) & 7 ) if ( segment[ ( int )j ] == 0 ) segment[ ( int )j ] = c;
+        }
+    }
+    
+    /**
+     * Index of an entry of a number that is relatively prime to 30.
+     */
+    private static long index( long n )
+    {
+        long k = n / CYCLE_LENGTH;
+        return ( k << 3 ) + POSITIONS[ ( int )( n - k * CYCLE_LENGTH ) ];
+    }
+    
+    private char get( long n )
+    {
+        long i = index( n );
+        return regions[ ( int )( i >>> REGION_SHIFT ) ].get( ( int )i & REGION_MASK );
+    }
+    
+    /**
+     * Get the upper inclusive bound of the table.
+     * @return the largest number of the table
+     */
+    public long getLimit()
+    {
+        return limit;
+    }
+    
+    /**
+     * Check if the table contains a number (or its absolute value if the number is negative).
+     * @param n a number
+     * @return true iff absolute value of n is not greater than the limit of the table
+     */
+    public boolean contains( long n )
+    {
+        return n >= -limit && n <= limit;
+    }
+    
+    /**
+     * Get a size of the table entries, in heap or in a mapped file.
+     * @return two bytes per 30 / 8 numbers
+     */
+    public long getMemoryUsage()
+    {
+        return ( limit + 1L ) / CYCLE_LENGTH * 16L;
+    }
+    
+    /**
+     * Get time that was spent to build the table by {@link #sieve} or by {@link #create}, or to map it by {@link #open}.
+     * @return time in nanoseconds
+     */
+    public long getBuildTime()
+    {
+        return buildTime;
+    }
+    
+    private void check( long n ) throws IllegalArgumentException
+    {
+        if ( !contains( n ) ) throw new IllegalArgumentException( "Number " + n + " is out of table range [ 0 .. " + limit + " ]" );
+    }
+    
+    /**
+     * Primality test by a table lookup. Constant time.
+     * <p>Negative number n is considered prime if -n is prime.
+     * @param n a number to check for primality
+     * @return true if and only if absolute value of n is prime
+     * @throws IllegalArgumentException if the table doesn't contain n
+     */
+    public boolean isPrime( long n ) throws IllegalArgumentException
+    {
+        check( n );
+        n = Math.abs( n );
+        if ( n < 7L ) return n == 2L || n == 3L || n == 5L;
+        return n % 2L != 0L && n % 3L != 0L && n % 5L != 0L && get( n ) == 0;
+    }
+    
+    /**
+     * Get the smallest prime factor of a number by a table lookup. Constant time.
+     * @param n a non-zero number
+     * @return the smallest prime factor of absolute value of n, or 1 if n = 1 or n = -1
+     * @throws IllegalArgumentException if n = 0 or the table doesn't contain n
+     */
+    public long getSmallestPrimeFactor( long n ) throws IllegalArgumentException
+    {
+        check( n );
+        if ( n == 0L ) throw new IllegalArgumentException( "Zero has no prime factors" );
+        n = Math.abs( n );
+        if ( n % 2L == 0L ) return 2L;
+        if ( n % 3L == 0L ) return 3L;
+        if ( n % 5L == 0L ) return 5L;
+        char p = get( n );
+        return p == 0 ? n : p;
+    }
+    
+    /**
+     * Factorization of a number into powers of primes by a table walk. Time O( log( n ) ).
+     * @param n a non-zero number
+     * @return factorization of absolute value of n
+     * @throws IllegalArgumentException if n = 0 or the table doesn't contain n
+     */
+    public Factorization factor( long n ) throws IllegalArgumentException
+    {
+        long primes[] = new long[ MAX_DISTINCT_FACTORS ];
+        int exponents[] = new int[ MAX_DISTINCT_FACTORS ];
+        int count = factor( n, primes, exponents );
+        return new Factorization( n, Arrays.copyOf( primes, count ), Arrays.copyOf( exponents, count ) );
+    }
+    
+    /**
+     * Factorization of a number into powers of primes by a table walk without memory allocation. Time O( log( n ) ).
+     * @param n a non-zero number
+     * @param primes an array of at least {@link #MAX_DISTINCT_FACTORS} elements to store distinct prime factors in increasing order
+     * @param exponents an array of at least {@link #MAX_DISTINCT_FACTORS} elements to store exponents of the prime factors
+     * @return a quantity of distinct prime factors of absolute value of n
+     * @throws IllegalArgumentException if n = 0 or the table doesn't contain n
+     * @throws IndexOutOfBoundsException if the arrays are too short for the factors of n
+     */
+    public int factor( long n, long primes[], int exponents[] ) throws IllegalArgumentException, IndexOutOfBoundsException
+    {
+        check( n );
+        if ( n == 0L ) throw new IllegalArgumentException( "Zero has no factorization" );
+        int count = 0;
+        long m = Math.abs( n );
+        int e = Long.numberOfTrailingZeros( m );
+        if ( e > 0 )
+        {
+            m >>>= e;
+            primes[ count ] = 2L;
+            exponents[ count++ ] = e;
+        }
+        // Divisions by constants are compiled into multiplications.
+        for ( e = 0; m % 3L == 0L; e++ ) m /= 3L;
+        if ( e > 0 )
+        {
+            primes[ count ] = 3L;
+            exponents[ count++ ] = e;
+        }
+        for ( e = 0; m % 5L == 0L; e++ ) m /= 5L;
+        if ( e > 0 )
+        {
+            primes[ count ] = 5L;
+            exponents[ count++ ] = e;
+        }
+        while ( m > 1L )
+        {
+            char c = get( m );
+            long p = c == 0 ? m : c;
+            if ( count > 0 && primes[ count - 1 ] == p ) exponents[ count - 1 ]++;
+            else
+            {
+                primes[ count ] = p;
+                exponents[ count++ ] = 1;
+            }
+            // A 32-bit division is faster.
+            m = m <= Integer.MAX_VALUE ? ( int )m / ( int )p : m / p;
+        }
+        return count;
+    }
+    
+    /**
+     * Get all the positive divisors of a number by its factorization from the table.
+     * @param n a non-zero number
+     * @return divisors of absolute value of n in increasing order
+     * @throws IllegalArgumentException if n = 0 or the table doesn't contain n
+     */
+    public long[] getDivisors( long n ) throws IllegalArgumentException
+    {
+        Factorization f = factor( n );
+        int count = 1;
+        for ( int i = 0; i < f.size(); i++ ) count *= f.getExponent( i ) + 1;
+        long ret[] = new long[ count ];
+        ret[ 0 ] = 1L;
+        int size = 1;
+        for ( int i = 0; i < f.size(); i++ )
+        {
+            long p = f.getPrime( i );
+            int previous = size;
+            long power = 1L;
+            for ( int e = f.getExponent( i ); e > 0; e-- )
+            {
+                power *= p;
+                for ( int j = 0; j < previous; j++ ) ret[ size++ ] = ret[ j ] * power;
+            }
+        }
+        Arrays.sort( ret );
+        return ret;
+    }
+}
\ No newline at end of file
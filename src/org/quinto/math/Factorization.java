@@ -0,0 +1,244 @@
+package org.quinto.math;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Factorization of a long number into powers of primes. It's created by {@link PrimeUtils#factor(long)} and by {@link FactorTable#factor(long)}.
+ * <p>Distinct prime factors are stored in increasing order together with their exponents in primitive arrays,
+ * so the accessors don't box and don't allocate memory. See {@link BigFactorization} for BigIntegers.
+ * <p>A sign isn't a factor: a product of all the prime powers is equal to an absolute value of the number.
+ * Number 1 (and -1) has no prime factors.
+ * <p>Multiplicative functions of the absolute value are computed from the factorization: {@link #totient()}, {@link #moebius()},
+ * {@link #divisorCount()}, {@link #divisorSum()}, and {@link #divisors()} enumerates divisors lazily.
+ */
+public class Factorization implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+    
+    private final long number;
+    private final long primes[];
+    private final int exponents[];
+    
+    /**
+     * @param number a factored number
+     * @param primes distinct prime factors in increasing order
+     * @param exponents exponents of the prime factors
+     */
+    Factorization( long number, long primes[], int exponents[] )
+    {
+        this.number = number;
+        this.primes = primes;
+        this.exponents = exponents;
+    }
+    
+    /**
+     * Get a factored number.
+     * @return a non-zero number
+     */
+    public long getNumber()
+    {
+        return number;
+    }
+    
+    /**
+     * Get a quantity of distinct prime factors.
+     * @return 0 for numbers 1 and -1
+     */
+    public int size()
+    {
+        return primes.length;
+    }
+    
+    /**
+     * Get a prime factor.
+     * @param i an index of a prime factor, from 0 to {@link #size()} - 1
+     * @return the i-th distinct prime factor in increasing order
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public long getPrime( int i ) throws IndexOutOfBoundsException
+    {
+        return primes[ i ];
+    }
+    
+    /**
+     * Get an exponent of a prime factor.
+     * @param i an index of a prime factor, from 0 to {@link #size()} - 1
+     * @return a positive exponent of the i-th prime factor
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public int getExponent( int i ) throws IndexOutOfBoundsException
+    {
+        return exponents[ i ];
+    }
+    
+    /**
+     * Get all the distinct prime factors.
+     * @return a new array of prime factors in increasing order
+     */
+    public long[] getPrimes()
+    {
+        return primes.clone();
+    }
+    
+    /**
+     * Get exponents of all the distinct prime factors.
+     * @return a new array of exponents in the order of {@link #getPrimes()}
+     */
+    public int[] getExponents()
+    {
+        return exponents.clone();
+    }
+    
+    /**
+     * Euler's totient function: a quantity of numbers in range [ 1 .. |n| ] that are relatively prime to n.
+     * https://en.wikipedia.org/wiki/Euler%27s_totient_function
+     * @return &phi;( |n| ) = &prod; p<sup>e - 1</sup> * ( p - 1 )
+     */
+    public long totient()
+    {
+        long ret = 1L;
+        for ( int i = 0; i < primes.length; i++ )
+        {
+            long p = primes[ i ];
+            ret *= p - 1L;
+            for ( int e = exponents[ i ]; e > 1; e-- ) ret *= p;
+        }
+        return ret;
+    }
+    
+    /**
+     * M&ouml;bius function.
+     * https://en.wikipedia.org/wiki/M%C3%B6bius_function
+     * @return 0 if |n| isn't squarefree, otherwise 1 or -1 for an even or odd quantity of prime factors
+     */
+    public int moebius()
+    {
+        for ( int e : exponents ) if ( e > 1 ) return 0;
+        return ( primes.length & 1 ) == 0 ? 1 : -1;
+    }
+    
+    /**
+     * Quantity of positive divisors.
+     * https://en.wikipedia.org/wiki/Divisor_function
+     * @return &tau;( |n| ) = &prod; ( e + 1 )
+     */
+    public int divisorCount()
+    {
+        int ret = 1;
+        for ( int e : exponents ) ret *= e + 1;
+        return ret;
+    }
+    
+    /**
+     * Sum of positive divisors.
+     * https://en.wikipedia.org/wiki/Divisor_function
+     * @return &sigma;( |n| ) = &prod; ( 1 + p + ... + p<sup>e</sup> )
+     * @throws ArithmeticException if the result overflows a long
+     */
+    public long divisorSum() throws ArithmeticException
+    {
+        long ret = 1L;
+        for ( int i = 0; i < primes.length; i++ )
+        {
+            long sum = 1L;
+            long power = 1L;
+            for ( int e = exponents[ i ]; e > 0; e-- )
+            {
+                power = Math.multiplyExact( power, primes[ i ] );
+                sum = Math.addExact( sum, power );
+            }
+            ret = Math.multiplyExact( ret, sum );
+        }
+        return ret;
+    }
+    
+    /**
+     * Lazy enumeration of positive divisors. Exponents of primes are counted like digits of a mixed radix number,
+     * the first prime is the lowest digit, so divisors aren't sorted: 1, 2, 4, 3, 6, 12 for 12.
+     * <p>The iterator keeps products of the higher digits, so a step is a single multiplication.
+     * It allocates two arrays of {@link #size()} + 1 elements, steps don't allocate memory.
+     * The divisor 2<sup>63</sup> of {@link Long#MIN_VALUE} is returned as {@link Long#MIN_VALUE}.
+     * @return an iterator over &tau;( |n| ) divisors of |n|
+     */
+    public PrimitiveIterator.OfLong divisors()
+    {
+        return new PrimitiveIterator.OfLong()
+        {
+            private final int counters[] = new int[ primes.length ];
+            /**
+             * Products of powers of primes with indices i and above, the current divisor is at index 0.
+             */
+            private final long products[] = new long[ primes.length + 1 ];
+            private boolean hasNext = true;
+            
+            {
+                Arrays.fill( products, 1L );
+            }
+            
+            @Override
+            public boolean hasNext()
+            {
+                return hasNext;
+            }
+            
+            @Override
+            public long nextLong()
+            {
+                if ( !hasNext ) throw new NoSuchElementException();
+                long ret = products[ 0 ];
+                int i = 0;
+                while ( i < counters.length && counters[ i ] == exponents[ i ] ) i++;
+                if ( i == counters.length ) hasNext = false;
+                else
+                {
+                    counters[ i ]++;
+                    long product = products[ i ] * primes[ i ];
+                    // Lower digits start from zero exponents again.
+                    for ( int j = i; j >= 0; j-- )
+                    {
+                        if ( j < i ) counters[ j ] = 0;
+                        products[ j ] = product;
+                    }
+                }
+                return ret;
+            }
+        };
+    }
+    
+    @Override
+    public boolean equals( Object o )
+    {
+        if ( o == this ) return true;
+        if ( !( o instanceof Factorization ) ) return false;
+        Factorization f = ( Factorization )o;
+        return number == f.number && Arrays.equals( primes, f.primes ) && Arrays.equals( exponents, f.exponents );
+    }
+    
+    @Override
+    public int hashCode()
+    {
+        return Long.hashCode( number );
+    }
+    
+    /**
+     * Get a text form of the factorization, e.g. {@code 2^3 * 3 * 7} for 168, {@code -5^2} for -25 and {@code 1} for 1.
+     * @return prime powers separated by {@code " * "}
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        if ( number < 0L ) sb.append( '-' );
+        if ( primes.length == 0 ) sb.append( '1' );
+        for ( int i = 0; i < primes.length; i++ )
+        {
+            if ( i > 0 ) sb.append( " * " );
+            sb.append( primes[ i ] );
+            if ( exponents[ i ] > 1 ) sb.append( '^' ).append( exponents[ i ] );
+        }
+        return sb.toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,441 @@
+package org.quinto.math;
+
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Factorization of long numbers by several tiers of methods.
+ * <ul><li>Trial division by cached odd primes up to {@link #TRIAL_LIMIT}. Divisibility is checked by a multiplication
+ * by an inverse of a prime modulo 2<sup>64</sup>, so there are no divisions at all.</li>
+ * <li>Cofactors are checked by {@link PrimeUtils#isPrime(long)} and by {@link MathUtils#getBaseOfPerfectPower(long)}.</li>
+ * <li>Composite cofactors are split by Pollard-Brent rho method on 64-bit Montgomery arithmetic ({@link Montgomery}).
+ * Differences are multiplied in batches, so a single gcd is computed per {@link #BATCH_SIZE} iterations.</li>
+ * <li>If rho fails with several polynomials, SQUFOF (Shanks' square forms factorization) with multipliers and
+ * Hart's one line factoring are tried.</li></ul>
+ * <p>Loops don't allocate memory, a few small arrays are allocated per number.
+ * <p>BigIntegers are divided by primes up to {@link #BIG_TRIAL_LIMIT} ({@link TrialDivision}), cofactors below 2<sup>63</sup>
+ * are factored as long numbers, and composite cofactors are split by {@link EllipticCurveMethod}.
+ * Cofactors of {@link #QUADRATIC_SIEVE_BITS} bits and more get a limited ECM run for factors up to a third of their digits,
+ * then they are split by {@link QuadraticSieve} whose time depends only on the size of a cofactor.
+ * https://en.wikipedia.org/wiki/Pollard%27s_rho_algorithm
+ * https://en.wikipedia.org/wiki/Shanks%27s_square_forms_factorization
+ */
+class Factorizer
+{
+    /**
+     * An upper inclusive bound of trial divisors.
+     */
+    static final int TRIAL_LIMIT = 1 << 11;
+    
+    /**
+     * An upper inclusive bound of trial divisors of BigIntegers.
+     */
+    static final int BIG_TRIAL_LIMIT = 1 << 16;
+    
+    /**
+     * A minimal bit length of composite BigIntegers that are split by the quadratic sieve, about 30 decimal digits.
+     */
+    static final int QUADRATIC_SIEVE_BITS = 100;
+    
+    /**
+     * Quantity of iterations of rho method per gcd.
+     */
+    private static final int BATCH_SIZE = 128;
+    
+    /**
+     * Quantity of polynomials x<sup>2</sup> + c which are tried by rho method before other methods.
+     */
+    private static final int RHO_ATTEMPTS = 4;
+    
+    /**
+     * An iteration bound of rho method per polynomial. Expected quantity of iterations is about sqrt( p ) &lt; 2<sup>16</sup>.
+     */
+    private static final long RHO_ITERATIONS = 1L << 22;
+    
+    private static final long HART_ITERATIONS = 1L << 20;
+    
+    /**
+     * Multipliers of SQUFOF, square-free products of 3, 5, 7 and 11.
+     */
+    private static final int MULTIPLIERS[] = { 1155, 105, 165, 15, 231, 21, 385, 35, 33, 3, 55, 5, 77, 7, 11, 1 };
+    
+    private static final int PRIMES[];
+    
+    /**
+     * Inverses of {@link #PRIMES} modulo 2<sup>64</sup>. A number n is divisible by a prime p iff n * p<sup>-1</sup>
+     * mod 2<sup>64</sup> doesn't exceed ( 2<sup>64</sup> - 1 ) / p (as unsigned), and then the product is the quotient.
+     */
+    private static final long INVERSES[];
+    
+    /**
+     * Unsigned quotients ( 2<sup>64</sup> - 1 ) / p for {@link #PRIMES}.
+     */
+    private static final long QUOTIENTS[];
+    
+    static
+    {
+        int table[] = SmallPrimes.upTo( TRIAL_LIMIT );
+        int length = 0;
+        while ( length < table.length && table[ length ] <= TRIAL_LIMIT ) length++;
+        // The prime 2 is divided out by a shift.
+        PRIMES = new int[ length - 1 ];
+        System.arraycopy( table, 1, PRIMES, 0, PRIMES.length );
+        INVERSES = new long[ PRIMES.length ];
+        QUOTIENTS = new long[ PRIMES.length ];
+        for ( int i = 0; i < PRIMES.length; i++ )
+        {
+            INVERSES[ i ] = Montgomery.inverse( PRIMES[ i ] );
+            QUOTIENTS[ i ] = Long.divideUnsigned( -1L, PRIMES[ i ] );
+        }
+    }
+    
+    /**
+     * Factor a number into powers of primes.
+     * @param n a non-zero number
+     * @return factorization of the absolute value of n
+     */
+    static Factorization factor( long n )
+    {
+        // A 63-bit number has at most 63 prime factors, counted with multiplicity.
+        long factors[] = new long[ 64 ];
+        int count = 0;
+        int zeros = Long.numberOfTrailingZeros( n );
+        for ( int i = 0; i < zeros; i++ ) factors[ count++ ] = 2L;
+        // An odd number isn't Long.MIN_VALUE, so it can be negated.
+        long m = Math.abs( n >> zeros );
+        int i = 0;
+        for ( ; i < PRIMES.length; i++ )
+        {
+            long p = PRIMES[ i ];
+            if ( p * p > m ) break;
+            for ( long q = m * INVERSES[ i ]; Long.compareUnsigned( q, QUOTIENTS[ i ] ) <= 0; q = m * INVERSES[ i ] )
+            {
+                m = q;
+                factors[ count++ ] = p;
+            }
+        }
+        if ( i < PRIMES.length )
+        {
+            // There are no factors up to a square root of m.
+            if ( m > 1L ) factors[ count++ ] = m;
+        }
+        else if ( m > 1L )
+        {
+            // Every factor of a cofactor exceeds the trial limit, so there are at most 5 of them.
+            long stack[] = new long[ 8 ];
+            int top = 0;
+            stack[ top++ ] = m;
+            while ( top > 0 )
+            {
+                long c = stack[ --top ];
+                if ( c <= ( long )TRIAL_LIMIT * TRIAL_LIMIT || PrimeUtils.isPrime( c ) ) factors[ count++ ] = c;
+                else
+                {
+                    long d = split( c );
+                    stack[ top++ ] = d;
+                    stack[ top++ ] = c / d;
+                }
+            }
+        }
+        Arrays.sort( factors, 0, count );
+        int size = 0;
+        for ( int j = 0; j < count; j++ ) if ( j == 0 || factors[ j ] != factors[ j - 1 ] ) size++;
+        long primes[] = new long[ size ];
+        int exponents[] = new int[ size ];
+        for ( int j = 0, k = -1; j < count; j++ )
+        {
+            if ( j == 0 || factors[ j ] != factors[ j - 1 ] ) primes[ ++k ] = factors[ j ];
+            exponents[ k ]++;
+        }
+        return new Factorization( n, primes, exponents );
+    }
+    
+    /**
+     * Factor a BigInteger into powers of primes.
+     * @param n a non-zero number
+     * @param pool a pool to run curves of ECM in parallel, or null to run them in the current thread
+     * @return factorization of the absolute value of n
+     */
+    static BigFactorization factor( BigInteger n, ForkJoinPool pool )
+    {
+        List< BigInteger > factors = new ArrayList<>();
+        BigInteger m = n.abs();
+        int zeros = m.getLowestSetBit();
+        for ( int i = 0; i < zeros; i++ ) factors.add( BigUtils.BI_TWO );
+        m = m.shiftRight( zeros );
+        if ( m.bitLength() >= 64 )
+        {
+            // Trial division reports distinct primes, so their exponents are counted separately.
+            BigInteger odd = m;
+            List< BigInteger > primes = new ArrayList<>();
+            m = TrialDivision.divideOut( m, BIG_TRIAL_LIMIT, p -> primes.add( BigInteger.valueOf( p ) ) );
+            for ( BigInteger p : primes ) for ( BigInteger qr[] = odd.divideAndRemainder( p ); qr[ 1 ].signum() == 0; qr = odd.divideAndRemainder( p ) )
+            {
+                odd = qr[ 0 ];
+                factors.add( p );
+            }
+        }
+        Deque< BigInteger > stack = new ArrayDeque<>();
+        if ( !m.equals( BigInteger.ONE ) ) stack.push( m );
+        while ( !stack.isEmpty() )
+        {
+            BigInteger c = stack.pop();
+            if ( c.bitLength() < 64 )
+            {
+                Factorization f = factor( c.longValue() );
+                for ( int i = 0; i < f.size(); i++ ) for ( int e = 0; e < f.getExponent( i ); e++ ) factors.add( BigInteger.valueOf( f.getPrime( i ) ) );
+            }
+            else if ( PrimeUtils.isPrime( c ) ) factors.add( c );
+            else
+            {
+                BigInteger d = split( c, pool );
+                stack.push( d );
+                stack.push( c.divide( d ) );
+            }
+        }
+        Collections.sort( factors );
+        List< BigInteger > primes = new ArrayList<>();
+        List< Integer > exponents = new ArrayList<>();
+        for ( int i = 0; i < factors.size(); i++ )
+        {
+            if ( i == 0 || !factors.get( i ).equals( factors.get( i - 1 ) ) )
+            {
+                primes.add( factors.get( i ) );
+                exponents.add( 0 );
+            }
+            exponents.set( exponents.size() - 1, exponents.get( exponents.size() - 1 ) + 1 );
+        }
+        int e[] = new int[ exponents.size() ];
+        for ( int i = 0; i < e.length; i++ ) e[ i ] = exponents.get( i );
+        return new BigFactorization( n, primes.toArray( new BigInteger[ primes.size() ] ), e );
+    }
+    
+    /**
+     * Find a non-trivial factor of a composite BigInteger. Small numbers are split by ECM with growing bounds.
+     * Numbers of {@link #QUADRATIC_SIEVE_BITS} bits and more are split by the quadratic sieve
+     * unless ECM finds a factor of a third of their digits.
+     * @param n an odd composite number without prime factors up to {@link #BIG_TRIAL_LIMIT}
+     * @param pool a pool to run curves and polynomials in parallel, or null to run them in the current thread
+     * @return a factor d such that 1 &lt; d &lt; n
+     */
+    static BigInteger split( BigInteger n, ForkJoinPool pool )
+    {
+        BigInteger ret = getBaseOfPerfectPower( n );
+        if ( ret != null ) return ret;
+        if ( n.bitLength() < QUADRATIC_SIEVE_BITS ) return new EllipticCurveMethod( n ).findFactor( Integer.MAX_VALUE, pool );
+        // A level of ECM costs about a quarter of the sieve for numbers of three times its digits, log10( 2 ) / 3 = 0.1003.
+        // The bound is rounded down to a level, numbers below 45 digits are sieved faster than the first level runs.
+        int digits = ( int )( n.bitLength() * 0.1003 ) / 5 * 5;
+        if ( digits >= EllipticCurveMethod.LEVELS[ 0 ][ 0 ] )
+        {
+            ret = new EllipticCurveMethod( n ).findFactor( digits, pool );
+            if ( ret != null ) return ret;
+        }
+        return new QuadraticSieve( n ).findFactor( pool );
+    }
+    
+    /**
+     * Check if a number is a perfect power.
+     * @param n a number without prime factors up to {@link #BIG_TRIAL_LIMIT}
+     * @return a base b such that b<sup>e</sup> = n for some prime e, or null if n isn't a perfect power
+     */
+    static BigInteger getBaseOfPerfectPower( BigInteger n )
+    {
+        // All the prime factors exceed 2^16, so an exponent doesn't exceed bitLength / 16.
+        int max = n.bitLength() / ( 31 - Integer.numberOfLeadingZeros( BIG_TRIAL_LIMIT ) );
+        for ( int e = 2; e <= max; e++ )
+        {
+            if ( !PrimeUtils.isPrime( e ) ) continue;
+            BigInteger e1 = BigInteger.valueOf( e - 1 );
+            BigInteger ee = BigInteger.valueOf( e );
+            // Newton's iteration decreases monotonically from an upper bound to floor( n^( 1 / e ) ).
+            BigInteger x = BigInteger.ONE.shiftLeft( ( n.bitLength() + e - 1 ) / e );
+            while ( true )
+            {
+                BigInteger y = x.multiply( e1 ).add( n.divide( x.pow( e - 1 ) ) ).divide( ee );
+                if ( y.compareTo( x ) >= 0 ) break;
+                x = y;
+            }
+            if ( x.pow( e ).equals( n ) ) return x;
+        }
+        return null;
+    }
+    
+    /**
+     * Find a non-trivial factor of a composite number.
+     * @param n an odd composite number without prime factors up to {@link #TRIAL_LIMIT}
+     * @return a factor d such that 1 &lt; d &lt; n
+     */
+    static long split( long n )
+    {
+        long power[] = MathUtils.getBaseOfPerfectPower( n );
+        if ( power != null ) return power[ 0 ];
+        for ( int c = 1; c <= RHO_ATTEMPTS; c++ )
+        {
+            long d = rho( n, c, RHO_ITERATIONS );
+            if ( d != 0L ) return d;
+        }
+        long d = squfof( n );
+        if ( d != 0L ) return d;
+        d = hart( n );
+        if ( d != 0L ) return d;
+        // Rho method succeeds for almost every polynomial, so the loop ends.
+        for ( int c = RHO_ATTEMPTS + 1; ; c++ )
+        {
+            d = rho( n, c, Long.MAX_VALUE );
+            if ( d != 0L ) return d;
+        }
+    }
+    
+    /**
+     * Pollard-Brent rho method with a polynomial x<sup>2</sup> + c / R in the Montgomery form, gcd( x * R, n ) = gcd( x, n ),
+     * so residues are never converted back. Any non-zero constant makes a pseudo-random sequence, so c isn't converted either.
+     * @param n an odd composite number which isn't a perfect power
+     * @param c a small positive constant of the polynomial, n + c must fit long datatype
+     * @param iterations an approximate bound of iterations
+     * @return a non-trivial factor of n, or 0 if the method failed
+     */
+    static long rho( long n, int c, long iterations )
+    {
+        long nInverse = Montgomery.inverse( n );
+        long x = c;
+        long y = c;
+        long saved = c;
+        long product = Montgomery.one( n );
+        long g = 1L;
+        // Brent's cycle detection: x is fixed at a position 2 * r - 2 while y passes positions from 3 * r - 1 to 4 * r - 2.
+        for ( long r = 1L; g == 1L && r <= iterations; r <<= 1 )
+        {
+            x = y + ( n & ( y >> 63 ) );
+            for ( long i = 0L; i < r; i++ ) y = next( y, c, n, nInverse );
+            for ( long k = 0L; k < r && g == 1L; k += BATCH_SIZE )
+            {
+                saved = y;
+                long steps = Math.min( BATCH_SIZE, r - k );
+                for ( long i = 0L; i < steps; i++ )
+                {
+                    y = next( y, c, n, nInverse );
+                    product = Montgomery.multiply( product, difference( x, y, n ), n, nInverse );
+                }
+                g = MathUtils.gcd( product, n );
+            }
+        }
+        // The batch has collected all the factors of n, so it's repeated step by step from the saved position.
+        if ( g == n )
+        {
+            do
+            {
+                saved = next( saved, c, n, nInverse );
+                g = MathUtils.gcd( difference( x, saved, n ), n );
+            }
+            while ( g == 1L );
+        }
+        return g == 1L || g == n ? 0L : g;
+    }
+    
+    /**
+     * ( x<sup>2</sup> + c ) / R mod n for x in range ( -n .. n + c ). A square doesn't depend on a sign of x, so REDC isn't corrected:
+     * x<sup>2</sup> &lt; n * R, so the result lies in range ( -n .. n ) and a sum is in range ( -n .. n + c ) again.
+     * Iterations are a chain of dependent multiplications, and corrections to range [ 0 .. n ) would lengthen it.
+     */
+    private static long next( long x, int c, long n, long nInverse )
+    {
+        long m = x * x * nInverse;
+        return MathUtils.multiplyHigh( x, x ) - MathUtils.multiplyHigh( m, n ) - ( n & ( m >> 63 ) ) + c;
+    }
+    
+    /**
+     * ( x - y ) mod n for x in range [ 0 .. n + c ) and y in range ( -n .. n + c ).
+     * @return a non-negative difference which is less than n + c, its product with a residue is less than n * R as REDC requires
+     */
+    private static long difference( long x, long y, long n )
+    {
+        y += n & ( y >> 63 );
+        long ret = x - y;
+        return ret + ( n & ( ret >> 63 ) );
+    }
+    
+    /**
+     * Shanks' square forms factorization. A continued fraction of sqrt( k * n ) is expanded until a square form is found,
+     * then a reduction of its square root leads to an ambiguous form which contains a factor of n.
+     * Time O( n<sup>1/4</sup> ).
+     * @param n an odd composite number which isn't a perfect square and has no factors among 3, 5, 7 and 11
+     * @return a non-trivial factor of n, or 0 if the method failed with all the multipliers
+     */
+    static long squfof( long n )
+    {
+        long s = MathUtils.isqrt( n );
+        long bound = 6L * MathUtils.isqrt( s << 1 );
+        for ( int k : MULTIPLIERS )
+        {
+            if ( n > Long.MAX_VALUE / k ) continue;
+            long d = k * n;
+            long p0 = MathUtils.isqrt( d );
+            long p = p0;
+            long pPrevious = p0;
+            long qPrevious = 1L;
+            long q = d - p0 * p0;
+            if ( q == 0L ) continue;
+            long r = 0L;
+            long i = 2L;
+            for ( ; i < bound; i++ )
+            {
+                long b = ( p0 + p ) / q;
+                p = b * q - p;
+                long t = q;
+                q = qPrevious + b * ( pPrevious - p );
+                // Only forms on even positions are proper squares.
+                if ( ( i & 1L ) == 0L && ( r = MathUtils.getBaseOfPerfectSquare( q ) ) != MathUtils.NOT_FOUND ) break;
+                qPrevious = t;
+                pPrevious = p;
+            }
+            if ( i >= bound ) continue;
+            long b = ( p0 - p ) / r;
+            p = b * r + p;
+            pPrevious = p;
+            qPrevious = r;
+            q = ( d - p * p ) / r;
+            for ( i = 0L; i < bound; i++ )
+            {
+                b = ( p0 + p ) / q;
+                pPrevious = p;
+                p = b * q - p;
+                long t = q;
+                q = qPrevious + b * ( pPrevious - p );
+                qPrevious = t;
+                if ( p == pPrevious ) break;
+            }
+            long g = MathUtils.gcd( n, qPrevious );
+            if ( g != 1L && g != n ) return g;
+        }
+        return 0L;
+    }
+    
+    /**
+     * Hart's one line factoring: s = ceil( sqrt( n * i ) ) for i = 1, 2, 3...
+     * If s<sup>2</sup> mod n is a perfect square t<sup>2</sup> then gcd( s - t, n ) is likely a factor of n.
+     * It's fast for numbers below 2<sup>42</sup>, a product n * i must fit long.
+     * @param n an odd composite number
+     * @return a non-trivial factor of n, or 0 if the method failed
+     */
+    static long hart( long n )
+    {
+        for ( long i = 1L; i <= HART_ITERATIONS && n <= Long.MAX_VALUE / i; i++ )
+        {
+            long ni = n * i;
+            long s = MathUtils.isqrt( ni );
+            if ( s * s != ni ) s++;
+            long t = MathUtils.getBaseOfPerfectSquare( MathUtils.modMultiply( s, s, n ) );
+            if ( t == MathUtils.NOT_FOUND ) continue;
+            long g = MathUtils.gcd( s - t, n );
+            if ( g != 1L && g != n ) return g;
+        }
+        return 0L;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,164 @@
+package org.quinto.math;
+
+/**
+ * Linear sieve of multiplicative functions for all the numbers up to a bound.
+ * <p>Every composite number m is visited once, as i * p where p is the smallest prime factor of m,
+ * and p doesn't exceed the smallest prime factor of i. So f( i * p ) is found from values of smaller numbers:
+ * if p doesn't divide i then f( i * p ) = f( i ) * f( p ), otherwise only the exponent of p changes.
+ * Numbers that aren't visited before the sieve reaches them are primes. Time O( n ).
+ * https://cp-algorithms.com/algebra/prime-sieve-linear.html
+ */
+class LinearSieve
+{
+    /**
+     * Check a bound of a table.
+     * @return a capacity of an array of primes up to n, &pi;( n ) &lt; 1.25506 * n / ln( n ) for n &gt; 1
+     */
+    private static int primesCapacity( int n ) throws IllegalArgumentException
+    {
+        if ( n < 0 || n == Integer.MAX_VALUE ) throw new IllegalArgumentException( "Bound must be in range [ 0 .. " + ( Integer.MAX_VALUE - 1 ) + " ], got " + n );
+        return n < 17 ? 8 : ( int )( 1.25506 * n / Math.log( n ) ) + 1;
+    }
+    
+    /**
+     * @see MathUtils#totientTable(int)
+     */
+    static int[] totients( int n ) throws IllegalArgumentException
+    {
+        int primes[] = new int[ primesCapacity( n ) ];
+        int ret[] = new int[ n + 1 ];
+        if ( n > 0 ) ret[ 1 ] = 1;
+        int count = 0;
+        for ( int i = 2; i <= n; i++ )
+        {
+            if ( ret[ i ] == 0 )
+            {
+                ret[ i ] = i - 1;
+                primes[ count++ ] = i;
+            }
+            int max = n / i;
+            for ( int j = 0; j < count; j++ )
+            {
+                int p = primes[ j ];
+                if ( p > max ) break;
+                if ( i % p == 0 )
+                {
+                    ret[ i * p ] = ret[ i ] * p;
+                    break;
+                }
+                ret[ i * p ] = ret[ i ] * ( p - 1 );
+            }
+        }
+        return ret;
+    }
+    
+    /**
+     * @see MathUtils#moebiusTable(int)
+     */
+    static int[] moebius( int n ) throws IllegalArgumentException
+    {
+        int primes[] = new int[ primesCapacity( n ) ];
+        int ret[] = new int[ n + 1 ];
+        boolean composite[] = new boolean[ n + 1 ];
+        if ( n > 0 ) ret[ 1 ] = 1;
+        int count = 0;
+        for ( int i = 2; i <= n; i++ )
+        {
+            if ( !composite[ i ] )
+            {
+                ret[ i ] = -1;
+                primes[ count++ ] = i;
+            }
+            int max = n / i;
+            for ( int j = 0; j < count; j++ )
+            {
+                int p = primes[ j ];
+                if ( p > max ) break;
+                composite[ i * p ] = true;
+                // A square of p divides i * p, the value is 0 already.
+                if ( i % p == 0 ) break;
+                ret[ i * p ] = -ret[ i ];
+            }
+        }
+        return ret;
+    }
+    
+    /**
+     * @see MathUtils#divisorCountTable(int)
+     */
+    static int[] divisorCounts( int n ) throws IllegalArgumentException
+    {
+        int primes[] = new int[ primesCapacity( n ) ];
+        int ret[] = new int[ n + 1 ];
+        // Exponents of the smallest prime factors.
+        byte exponents[] = new byte[ n + 1 ];
+        if ( n > 0 ) ret[ 1 ] = 1;
+        int count = 0;
+        for ( int i = 2; i <= n; i++ )
+        {
+            if ( ret[ i ] == 0 )
+            {
+                ret[ i ] = 2;
+                exponents[ i ] = 1;
+                primes[ count++ ] = i;
+            }
+            int max = n / i;
+            for ( int j = 0; j < count; j++ )
+            {
+                int p = primes[ j ];
+                if ( p > max ) break;
+                int m = i * p;
+                if ( i % p == 0 )
+                {
+                    int e = exponents[ i ];
+                    ret[ m ] = ret[ i ] / ( e + 1 ) * ( e + 2 );
+                    exponents[ m ] = ( byte )( e + 1 );
+                    break;
+                }
+                ret[ m ] = ret[ i ] << 1;
+                exponents[ m ] = 1;
+            }
+        }
+        return ret;
+    }
+    
+    /**
+     * @see MathUtils#divisorSumTable(int)
+     */
+    static long[] divisorSums( int n ) throws IllegalArgumentException
+    {
+        int primes[] = new int[ primesCapacity( n ) ];
+        long ret[] = new long[ n + 1 ];
+        // Powers of the smallest prime factors.
+        int powers[] = new int[ n + 1 ];
+        if ( n > 0 ) ret[ 1 ] = 1L;
+        int count = 0;
+        for ( int i = 2; i <= n; i++ )
+        {
+            if ( ret[ i ] == 0L )
+            {
+                ret[ i ] = i + 1L;
+                powers[ i ] = i;
+                primes[ count++ ] = i;
+            }
+            int max = n / i;
+            for ( int j = 0; j < count; j++ )
+            {
+                int p = primes[ j ];
+                if ( p > max ) break;
+                int m = i * p;
+                if ( i % p == 0 )
+                {
+                    // sigma( m ) = sigma( m / q ) * ( 1 + p + ... + q ) for the power q of p in m.
+                    int q = powers[ i ] * p;
+                    ret[ m ] = ret[ m / q ] * ( ( ( long )q * p - 1L ) / ( p - 1 ) );
+                    powers[ m ] = q;
+                    break;
+                }
+                ret[ m ] = ret[ i ] * ( p + 1L );
+                powers[ m ] = p;
+            }
+        }
+        return ret;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,70 @@
+package org.quinto.math;
+
+import java.math.BigInteger;
+
+/**
+ * Lucas-Lehmer test kernel for Mersenne numbers M<sub>p</sub> = 2<sup>p</sup> - 1.
+ * <p>A residue is squared by {@link BigInteger#multiply(BigInteger)} which selects squaring algorithms by length
+ * (schoolbook, Karatsuba or Toom-Cook). Reduction modulo M<sub>p</sub> doesn't need division:
+ * x = ( x &amp; M<sub>p</sub> ) + ( x &gt;&gt; p ) modulo M<sub>p</sub>, since 2<sup>p</sup> = 1 modulo M<sub>p</sub>.
+ * Exponents below 32 are tested with long arithmetic.
+ */
+class LucasLehmer
+{
+    /**
+     * The first residue of the sequence.
+     */
+    static final BigInteger START = BigUtils.BI_FOUR;
+    
+    private static final int MAX_LONG_EXPONENT = 31;
+    
+    /**
+     * Check if M<sub>p</sub> is prime.
+     * @param p an odd prime exponent
+     * @return true iff 2<sup>p</sup> - 1 is prime
+     */
+    static boolean test( int p )
+    {
+        if ( p <= MAX_LONG_EXPONENT ) return testLong( p );
+        BigInteger m = BigInteger.ONE.shiftLeft( p ).subtract( BigInteger.ONE );
+        return run( START, p, m, p - 2 ).signum() == 0;
+    }
+    
+    /**
+     * Run several iterations of the test: x &rarr; x<sup>2</sup> - 2 modulo M<sub>p</sub>.
+     * <p>M<sub>p</sub> is prime iff a residue after p - 2 iterations from {@link #START} is zero.
+     * @param x a residue in range [ 0 .. M<sub>p</sub> - 1 ]
+     * @param p an exponent greater than 2
+     * @param m the modulus M<sub>p</sub>, it's a mask of p lower bits
+     * @param iterations quantity of iterations
+     * @return a residue in range [ 0 .. M<sub>p</sub> - 1 ]
+     */
+    static BigInteger run( BigInteger x, int p, BigInteger m, int iterations )
+    {
+        for ( int i = 0; i < iterations; i++ )
+        {
+            BigInteger square = x.multiply( x );
+            // Both parts are less than 2^p, so a sum exceeds M_p at most once.
+            x = square.and( m ).add( square.shiftRight( p ) );
+            if ( x.compareTo( m ) >= 0 ) x = x.subtract( m );
+            x = x.subtract( BigUtils.BI_TWO );
+            if ( x.signum() < 0 ) x = x.add( m );
+        }
+        return x;
+    }
+    
+    private static boolean testLong( int p )
+    {
+        long m = ( 1L << p ) - 1L;
+        long x = 4L;
+        for ( int i = 2; i < p; i++ )
+        {
+            long square = x * x;
+            x = ( square & m ) + ( square >>> p );
+            if ( x >= m ) x -= m;
+            x -= 2L;
+            if ( x < 0L ) x += m;
+        }
+        return x == 0L;
+    }
+}
\ No newline at end of file
@@ -1,5 +1,8 @@
 package org.quinto.math;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -151,6 +154,11 @@ public class MathUtils
                                                                    0xC000000040000000L, 0xD555555555555555L, 0xC000000000000000L, 0xD555555555555555L, 0xC000400040004000L, 0xC010000000002008L, 0xC000000000000000L, 0xD555555555555555L,
                                                                    0xC000000000000000L, 0xC000300300008000L, 0xC008000040000000L, 0xC080001818000102L, 0xC000000000000000L, 0xD555555555555555L, 0xC000000808000000L, 0xC000038000040000L,
                                                                    0xC000000040000000L, 0xC080001818000102L, 0xC000000000000000L, 0xD555555555555555L, 0xC000000000000000L, 0xD555555555555555L, 0xC040804040000000L, 0xC000000000008000L };
+    
+    /**
+     * {@code Math.multiplyHigh} which is an intrinsic since Java 9, or null in Java 8.
+     */
+    private static final MethodHandle MULTIPLY_HIGH = findMultiplyHigh();
 
     /**
      * Some methods return this value as indication that the answer doesn't exist or is undefined.<br>
@@ -1847,6 +1855,119 @@ public class MathUtils
         return a;
     }
     
+    /**
+     * Euler's totient function: a quantity of numbers in range [ 1 .. |n| ] that are relatively prime to n.<br>
+     * https://en.wikipedia.org/wiki/Euler%27s_totient_function<br>
+     * totient( 1 ) = 1<br>
+     * totient( 12 ) = 4<br>
+     * totient( 13 ) = 12
+     * <p>It factors n, see {@link #totientTable(int)} for all the numbers up to a bound.
+     * @param n a non-zero number
+     * @return &phi;( |n| )
+     * @throws IllegalArgumentException if n = 0
+     */
+    public static long totient( long n ) throws IllegalArgumentException
+    {
+        return PrimeUtils.factor( n ).totient();
+    }
+    
+    /**
+     * M&ouml;bius function.<br>
+     * https://en.wikipedia.org/wiki/M%C3%B6bius_function<br>
+     * moebius( 1 ) = 1<br>
+     * moebius( 12 ) = 0<br>
+     * moebius( 30 ) = -1
+     * <p>It factors n, see {@link #moebiusTable(int)} for all the numbers up to a bound.
+     * @param n a non-zero number
+     * @return &mu;( |n| )
+     * @throws IllegalArgumentException if n = 0
+     */
+    public static int moebius( long n ) throws IllegalArgumentException
+    {
+        return PrimeUtils.factor( n ).moebius();
+    }
+    
+    /**
+     * Quantity of positive divisors.<br>
+     * https://en.wikipedia.org/wiki/Divisor_function<br>
+     * divisorCount( 1 ) = 1<br>
+     * divisorCount( 12 ) = 6<br>
+     * divisorCount( 13 ) = 2
+     * <p>It factors n, see {@link #divisorCountTable(int)} for all the numbers up to a bound.
+     * @param n a non-zero number
+     * @return &tau;( |n| )
+     * @throws IllegalArgumentException if n = 0
+     */
+    public static int divisorCount( long n ) throws IllegalArgumentException
+    {
+        return PrimeUtils.factor( n ).divisorCount();
+    }
+    
+    /**
+     * Sum of positive divisors.<br>
+     * https://en.wikipedia.org/wiki/Divisor_function<br>
+     * divisorSum( 1 ) = 1<br>
+     * divisorSum( 12 ) = 28<br>
+     * divisorSum( 13 ) = 14
+     * <p>It factors n, see {@link #divisorSumTable(int)} for all the numbers up to a bound.
+     * @param n a non-zero number
+     * @return &sigma;( |n| )
+     * @throws IllegalArgumentException if n = 0
+     * @throws ArithmeticException if the result overflows a long
+     */
+    public static long divisorSum( long n ) throws IllegalArgumentException, ArithmeticException
+    {
+        return PrimeUtils.factor( n ).divisorSum();
+    }
+    
+    /**
+     * Euler's totient function of all the numbers up to a bound. Linear sieve, time O( n ).
+     * @param n bound
+     * @return an array of n + 1 elements, element i is &phi;( i ), element 0 is 0
+     * @throws IllegalArgumentException if n &lt; 0 or n = {@link Integer#MAX_VALUE}
+     * @see #totient(long)
+     */
+    public static int[] totientTable( int n ) throws IllegalArgumentException
+    {
+        return LinearSieve.totients( n );
+    }
+    
+    /**
+     * M&ouml;bius function of all the numbers up to a bound. Linear sieve, time O( n ).
+     * @param n bound
+     * @return an array of n + 1 elements, element i is &mu;( i ), element 0 is 0
+     * @throws IllegalArgumentException if n &lt; 0 or n = {@link Integer#MAX_VALUE}
+     * @see #moebius(long)
+     */
+    public static int[] moebiusTable( int n ) throws IllegalArgumentException
+    {
+        return LinearSieve.moebius( n );
+    }
+    
+    /**
+     * Quantity of positive divisors of all the numbers up to a bound. Linear sieve, time O( n ).
+     * @param n bound
+     * @return an array of n + 1 elements, element i is &tau;( i ), element 0 is 0
+     * @throws IllegalArgumentException if n &lt; 0 or n = {@link Integer#MAX_VALUE}
+     * @see #divisorCount(long)
+     */
+    public static int[] divisorCountTable( int n ) throws IllegalArgumentException
+    {
+        return LinearSieve.divisorCounts( n );
+    }
+    
+    /**
+     * Sum of positive divisors of all the numbers up to a bound. Linear sieve, time O( n ).
+     * @param n bound
+     * @return an array of n + 1 elements, element i is &sigma;( i ), element 0 is 0
+     * @throws IllegalArgumentException if n &lt; 0 or n = {@link Integer#MAX_VALUE}
+     * @see #divisorSum(long)
+     */
+    public static long[] divisorSumTable( int n ) throws IllegalArgumentException
+    {
+        return LinearSieve.divisorSums( n );
+    }
+    
     /**
      * Returns integer square root of n.
      * <p>Integer square root: http://en.wikipedia.org/wiki/Integer_square_root
@@ -3111,4 +3232,76 @@ public class MathUtils
         }
         return dividend >= 0L || dividend < divisor ? 0L : 1L;
     }
+    
+    /**
+     * Returns the high 64 bits of the unsigned 128-bit product of two arguments
+     * where each argument is interpreted as an unsigned value.
+     * <p>The low 64 bits of the product are {@code a * b}.
+     * <p>This method doesn't use BigInteger datatype and is available in Java 8
+     * unlike {@code Math.unsignedMultiplyHigh}.
+     * The implementation is a Java port of algorithm described in the book
+     * "Hacker's Delight" (section "Multiword multiplication").
+     * <p>{@code Math.multiplyHigh} is used if it's available at runtime (Java 9+).
+     * @param a first value
+     * @param b second value
+     * @return the high 64 bits of the unsigned product a * b
+     */
+    public static long multiplyHighUnsigned( long a, long b )
+    {
+        if ( MULTIPLY_HIGH != null )
+        {
+            try
+            {
+                // Signed high part is corrected by the values of sign bits.
+                long high = ( long )MULTIPLY_HIGH.invokeExact( a, b );
+                return high + ( ( a >> 63 ) & b ) + ( ( b >> 63 ) & a );
+            }
+            catch ( Throwable e )
+            {
+                // Math.multiplyHigh doesn't throw exceptions.
+            }
+        }
+        long a0 = a & 0xFFFFFFFFL;
+        long a1 = a >>> 32;
+        long b0 = b & 0xFFFFFFFFL;
+        long b1 = b >>> 32;
+        long t = a1 * b0 + ( ( a0 * b0 ) >>> 32 );
+        long w = ( t & 0xFFFFFFFFL ) + a0 * b1;
+        return a1 * b1 + ( t >>> 32 ) + ( w >>> 32 );
+    }
+    
+    /**
+     * Returns the high 64 bits of the signed 128-bit product of two arguments, as {@code Math.multiplyHigh} of Java 9+.
+     * <p>It saves the sign corrections of {@link #multiplyHighUnsigned} when both arguments are known to be non-negative.
+     * @param a first value
+     * @param b second value
+     * @return the high 64 bits of the signed product a * b
+     */
+    static long multiplyHigh( long a, long b )
+    {
+        if ( MULTIPLY_HIGH != null )
+        {
+            try
+            {
+                return ( long )MULTIPLY_HIGH.invokeExact( a, b );
+            }
+            catch ( Throwable e )
+            {
+                // Math.multiplyHigh doesn't throw exceptions.
+            }
+        }
+        return multiplyHighUnsigned( a, b ) - ( ( a >> 63 ) & b ) - ( ( b >> 63 ) & a );
+    }
+    
+    private static MethodHandle findMultiplyHigh()
+    {
+        try
+        {
+            return MethodHandles.lookup().findStatic( Math.class, "multiplyHigh", MethodType.methodType( long.class, long.class, long.class ) );
+        }
+        catch ( NoSuchMethodException | IllegalAccessException e )
+        {
+            return null;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,398 @@
+package org.quinto.math;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A running search of Mersenne primes M<sub>p</sub> = 2<sup>p</sup> - 1 in a range of exponents,
+ * see {@link PrimeUtils#searchMersennePrimes(int, int, Path, ForkJoinPool)}.
+ * <p>Exponents are filtered before Lucas-Lehmer tests:
+ * <ul><li>p must be prime;</li>
+ * <li>M<sub>p</sub> is divisible by 2 * p + 1 if p = 3 modulo 4 and 2 * p + 1 is prime;</li>
+ * <li>trial factoring: every factor of M<sub>p</sub> is q = 2 * k * p + 1 = &plusmn;1 modulo 8.
+ * Values of k are sieved by small primes, q divides M<sub>p</sub> iff 2<sup>p</sup> = 1 modulo q.</li></ul>
+ * Workers on a pool take exponents from the largest one, every exponent is tested by a single worker
+ * ({@link LucasLehmer}).
+ * <p>Residues of Lucas-Lehmer tests are saved to a checkpoint directory periodically and when a test is finished.
+ * A new search with the same directory resumes tests from saved residues and doesn't repeat finished tests.
+ * <p>The result is available through the {@link Future} interface: exponents of prime M<sub>p</sub> in increasing order.
+ * The search can be cancelled at any moment, the running tests are stopped between slices of iterations.
+ */
+public class MersenneSearch implements Future< int[] >
+{
+    /**
+     * A default interval between checkpoints of a test.
+     */
+    static final long DEFAULT_CHECKPOINT_MILLIS = 60000L;
+    
+    /**
+     * Upper bound of bits of trial factors.
+     */
+    static final int MAX_FACTOR_BITS = 62;
+    
+    private static final long MAGIC = 0x4D65727365546573L;
+    
+    /**
+     * Lucas-Lehmer iterations are done in slices of about this quantity of bits (exponent by iterations).
+     * The search can be cancelled between slices.
+     */
+    private static final int SLICE_BITS = 1 << 20;
+    
+    /**
+     * Values of k are sieved by odd primes below this bound.
+     */
+    private static final int SIEVE_LIMIT = 1 << 10;
+    
+    private static final int SIEVE_LENGTH = 1 << 16;
+    
+    private final CompletableFuture< int[] > result = new CompletableFuture<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicInteger tested = new AtomicInteger();
+    private final List< ForkJoinTask< ? > > tasks = new ArrayList<>();
+    private final int exponents[];
+    private final boolean primes[];
+    private final Path directory;
+    private final long checkpointNanos;
+    private volatile boolean stopped;
+    
+    /**
+     * Start a search on a given pool.
+     * @param from the least exponent, inclusive
+     * @param to the greatest exponent, inclusive
+     * @param directory a directory of checkpoints (it's created on the first checkpoint), or null if tests aren't saved
+     * @param checkpointMillis an interval between checkpoints of a test
+     * @param pool a pool to run tests on
+     */
+    MersenneSearch( int from, int to, Path directory, long checkpointMillis, ForkJoinPool pool )
+    {
+        this.directory = directory;
+        checkpointNanos = TimeUnit.MILLISECONDS.toNanos( checkpointMillis );
+        int candidates[] = new int[ 16 ];
+        int size = 0;
+        for ( int p = to; p >= Math.max( from, 2 ); p-- )
+        {
+            if ( !PrimeUtils.isPrime( p ) ) continue;
+            if ( size == candidates.length ) candidates = Arrays.copyOf( candidates, size << 1 );
+            candidates[ size++ ] = p;
+        }
+        exponents = Arrays.copyOf( candidates, size );
+        primes = new boolean[ size ];
+        int workers = Math.min( Math.max( pool.getParallelism(), 1 ), size );
+        if ( workers == 0 )
+        {
+            result.complete( exponents );
+            return;
+        }
+        AtomicInteger running = new AtomicInteger( workers );
+        synchronized ( tasks )
+        {
+            for ( int i = 0; i < workers; i++ )
+            {
+                tasks.add( pool.submit( () ->
+                {
+                    try
+                    {
+                        run();
+                    }
+                    catch ( Throwable e )
+                    {
+                        stopped = true;
+                        result.completeExceptionally( e );
+                    }
+                    finally
+                    {
+                        if ( running.decrementAndGet() == 0 ) complete();
+                    }
+                } ) );
+            }
+        }
+    }
+    
+    private void run() throws IOException
+    {
+        while ( !stopped )
+        {
+            int i = next.getAndIncrement();
+            if ( i >= exponents.length ) return;
+            Boolean prime = test( exponents[ i ] );
+            if ( prime == null ) return;
+            primes[ i ] = prime;
+            tested.incrementAndGet();
+        }
+    }
+    
+    private void complete()
+    {
+        if ( stopped ) return;
+        int ret[] = new int[ exponents.length ];
+        int size = 0;
+        for ( int i = exponents.length - 1; i >= 0; i-- ) if ( primes[ i ] ) ret[ size++ ] = exponents[ i ];
+        result.complete( Arrays.copyOf( ret, size ) );
+    }
+    
+    /**
+     * Check if M<sub>p</sub> is prime.
+     * @param p a prime exponent
+     * @return primality of M<sub>p</sub>, or null if the search was stopped
+     */
+    private Boolean test( int p ) throws IOException
+    {
+        if ( p == 2 ) return true;
+        if ( p > 3 && ( p & 3 ) == 3 && PrimeUtils.isPrime( ( ( long )p << 1 ) + 1L ) ) return false;
+        if ( p < 64 ) return LucasLehmer.test( p );
+        BigInteger m = BigInteger.ONE.shiftLeft( p ).subtract( BigInteger.ONE );
+        int iterations = 0;
+        BigInteger x = LucasLehmer.START;
+        BigInteger checkpoint[] = load( p, m );
+        if ( checkpoint == null )
+        {
+            if ( findFactor( p ) != 0L ) return false;
+        }
+        else
+        {
+            iterations = checkpoint[ 0 ].intValue();
+            x = checkpoint[ 1 ];
+        }
+        int slice = Math.max( 1, SLICE_BITS / p );
+        long saved = System.nanoTime();
+        while ( iterations < p - 2 )
+        {
+            if ( stopped ) return null;
+            int count = Math.min( slice, p - 2 - iterations );
+            x = LucasLehmer.run( x, p, m, count );
+            iterations += count;
+            if ( directory != null && ( iterations == p - 2 || System.nanoTime() - saved >= checkpointNanos ) )
+            {
+                save( p, iterations, x );
+                saved = System.nanoTime();
+            }
+        }
+        return x.signum() == 0;
+    }
+    
+    /**
+     * Find a factor q = 2 * k * p + 1 of M<sub>p</sub> by trial factoring.
+     * <p>Factors are searched up to 2<sup>b</sup>, where b = 6 + 2 * log<sub>2</sub>( p ) (but not more than {@link #MAX_FACTOR_BITS}
+     * and the square root of M<sub>p</sub>), so trial factoring takes a small part of time of a Lucas-Lehmer test.
+     * @param p an odd prime exponent
+     * @return a factor, or 0 if there are no factors up to the bound
+     */
+    static long findFactor( int p )
+    {
+        int bits = Math.min( Math.min( MAX_FACTOR_BITS, 6 + 2 * ( 32 - Integer.numberOfLeadingZeros( p ) ) ), ( p + 1 ) >>> 1 );
+        long maxK = ( ( 1L << bits ) - 1L ) / ( ( long )p << 1 );
+        int sievingPrimes[] = SmallPrimes.upTo( SIEVE_LIMIT );
+        int sievingLength = 0;
+        while ( sievingLength < sievingPrimes.length && sievingPrimes[ sievingLength ] < SIEVE_LIMIT ) sievingLength++;
+        // k = offsets[ j ] modulo sievingPrimes[ j ] gives q divisible by the prime.
+        long offsets[] = new long[ sievingLength ];
+        for ( int j = 1; j < sievingLength; j++ )
+        {
+            int r = sievingPrimes[ j ];
+            offsets[ j ] = r == p ? -1L : MathUtils.modInverse( r - ( int )( ( 2L * p ) % r ), r );
+        }
+        long twoP = ( long )p << 1;
+        boolean composite[] = new boolean[ SIEVE_LENGTH ];
+        for ( long k0 = 1L; k0 <= maxK; k0 += SIEVE_LENGTH )
+        {
+            Arrays.fill( composite, false );
+            for ( int j = 1; j < sievingLength; j++ )
+            {
+                if ( offsets[ j ] < 0L ) continue;
+                int r = sievingPrimes[ j ];
+                int start = ( int )Math.floorMod( offsets[ j ] - k0, ( long )r );
+                // The prime itself isn't a composite q.
+                if ( k0 + start == offsets[ j ] && twoP * offsets[ j ] + 1L == r ) start += r;
+                for ( int i = start; i < SIEVE_LENGTH; i += r ) composite[ i ] = true;
+            }
+            int length = ( int )Math.min( SIEVE_LENGTH, maxK - k0 + 1L );
+            for ( int i = 0; i < length; i++ )
+            {
+                if ( composite[ i ] ) continue;
+                long q = twoP * ( k0 + i ) + 1L;
+                int q8 = ( int )q & 7;
+                if ( q8 != 1 && q8 != 7 ) continue;
+                if ( divides( q, p ) ) return q;
+            }
+        }
+        return 0L;
+    }
+    
+    /**
+     * Check if 2<sup>p</sup> = 1 modulo q by left-to-right binary exponentiation in the Montgomery form.
+     * Multiplication by 2 is a shift and a conditional subtraction.
+     * @param q an odd modulus below 2<sup>63</sup>
+     */
+    private static boolean divides( long q, int p )
+    {
+        long qInverse = Montgomery.inverse( q );
+        long one = Montgomery.one( q );
+        long x = one;
+        for ( int i = 31 - Integer.numberOfLeadingZeros( p ); i >= 0; i-- )
+        {
+            x = Montgomery.multiply( x, x, q, qInverse );
+            if ( ( ( p >>> i ) & 1 ) == 0 ) continue;
+            x <<= 1;
+            if ( x < 0L || x >= q ) x -= q;
+        }
+        return x == one;
+    }
+    
+    private Path file( int p )
+    {
+        return directory.resolve( "M" + p + ".ll" );
+    }
+    
+    /**
+     * Load a checkpoint of a test.
+     * @return { iterations, residue }, or null if there is no valid checkpoint
+     */
+    private BigInteger[] load( int p, BigInteger m ) throws IOException
+    {
+        if ( directory == null ) return null;
+        try ( DataInputStream in = new DataInputStream( Files.newInputStream( file( p ) ) ) )
+        {
+            if ( in.readLong() != MAGIC || in.readInt() != p ) return null;
+            int iterations = in.readInt();
+            byte bytes[] = new byte[ in.readInt() ];
+            in.readFully( bytes );
+            BigInteger x = new BigInteger( bytes );
+            if ( iterations < 0 || iterations > p - 2 || x.signum() < 0 || x.compareTo( m ) >= 0 ) return null;
+            return new BigInteger[]{ BigInteger.valueOf( iterations ), x };
+        }
+        catch ( NoSuchFileException e )
+        {
+            return null;
+        }
+        catch ( IOException | RuntimeException e )
+        {
+            // A truncated or corrupted file, the test starts over.
+            return null;
+        }
+    }
+    
+    /**
+     * Save a checkpoint of a test. It's written to a temporary file which is atomically moved into place.
+     */
+    private void save( int p, int iterations, BigInteger x ) throws IOException
+    {
+        Path file = file( p );
+        Files.createDirectories( directory );
+        Path temp = Files.createTempFile( directory, file.getFileName().toString(), ".tmp" );
+        try
+        {
+            try ( DataOutputStream out = new DataOutputStream( Files.newOutputStream( temp ) ) )
+            {
+                byte bytes[] = x.toByteArray();
+                out.writeLong( MAGIC );
+                out.writeInt( p );
+                out.writeInt( iterations );
+                out.writeInt( bytes.length );
+                out.write( bytes );
+            }
+            Files.move( temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+        }
+        finally
+        {
+            Files.deleteIfExists( temp );
+        }
+    }
+    
+    /**
+     * Get exponents of the range that need tests: prime exponents.
+     * @return prime exponents in decreasing order, in the order of tests
+     */
+    public int[] getExponents()
+    {
+        return exponents.clone();
+    }
+    
+    /**
+     * Get a quantity of finished tests.
+     * @return a quantity of tested exponents
+     */
+    public int getTestedExponents()
+    {
+        return tested.get();
+    }
+    
+    /**
+     * Get a progress of the search: a part of exponents that are already tested.
+     * @return a value from 0 to 1, it's 1 if all the exponents are tested
+     */
+    public double getProgress()
+    {
+        return exponents.length == 0 ? 1.0 : ( double )tested.get() / exponents.length;
+    }
+    
+    /**
+     * Wait for the result of the search.
+     * @return exponents p of the range such that M<sub>p</sub> is prime, in increasing order
+     * @throws CancellationException if the search was cancelled
+     * @throws java.util.concurrent.CompletionException if a worker failed (for example, with {@link IOException} of a checkpoint)
+     */
+    public int[] join()
+    {
+        return result.join();
+    }
+    
+    /**
+     * Stop all the workers. Checkpoints are kept, so a new search can resume the tests.
+     * The search completes with {@link CancellationException} unless it's already done.
+     * @param mayInterruptIfRunning ignored, workers are stopped between slices of iterations
+     * @return false if the search is already done
+     */
+    @Override
+    public boolean cancel( boolean mayInterruptIfRunning )
+    {
+        stopped = true;
+        boolean ret = result.completeExceptionally( new CancellationException() );
+        synchronized ( tasks )
+        {
+            for ( ForkJoinTask< ? > task : tasks ) task.cancel( false );
+        }
+        return ret;
+    }
+    
+    @Override
+    public boolean isCancelled()
+    {
+        return result.isCancelled();
+    }
+    
+    @Override
+    public boolean isDone()
+    {
+        return result.isDone();
+    }
+    
+    @Override
+    public int[] get() throws InterruptedException, ExecutionException
+    {
+        return result.get();
+    }
+    
+    @Override
+    public int[] get( long timeout, TimeUnit unit ) throws InterruptedException, ExecutionException, TimeoutException
+    {
+        return result.get( timeout, unit );
+    }
+}
\ No newline at end of file
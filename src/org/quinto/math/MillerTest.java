@@ -0,0 +1,199 @@
+package org.quinto.math;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A running deterministic Miller primality test of a BigInteger, see {@link PrimeUtils#passesMillerAsync(BigInteger, ForkJoinPool)}.
+ * <p>Witnesses are prime numbers up to 2 * log<sub>2</sub>( n )<sup>2</sup>. The range of witnesses is split into chunks,
+ * workers on a pool take chunks in increasing order, sieve them and test every witness of a chunk.
+ * The first failing witness completes the test with false and stops all the workers.
+ * <p>The result is available through the {@link Future} interface. The test can be cancelled at any moment,
+ * workers stop after the witness that is being tested.
+ */
+public class MillerTest implements Future< Boolean >
+{
+    /**
+     * Quantity of chunks per worker, for load balancing.
+     */
+    private static final int CHUNKS_PER_WORKER = 16;
+    
+    private static final long MIN_CHUNK_LENGTH = 30L * 64L;
+    
+    private final CompletableFuture< Boolean > result = new CompletableFuture<>();
+    private final AtomicLong next = new AtomicLong();
+    private final AtomicLong covered = new AtomicLong();
+    private final AtomicLong tested = new AtomicLong();
+    private final List< ForkJoinTask< ? > > tasks = new ArrayList<>();
+    private final long limit;
+    private volatile boolean stopped;
+    
+    /**
+     * Start a test on a given pool.
+     * @param n a number to check for primality
+     * @param pool a pool to test witnesses on
+     */
+    MillerTest( BigInteger n, ForkJoinPool pool )
+    {
+        n = n.abs();
+        long q = n.bitLength();
+        if ( !n.testBit( 0 ) || q < 64 )
+        {
+            limit = 0L;
+            result.complete( PrimeUtils.passesMiller( n ) );
+            return;
+        }
+        // A number is prime if it's strong pseudoprime to all bases from 2 to 2 * log( n ) ^ 2.
+        limit = Math.min( q * q << 1, PrimesIterable.LAST_LONG_PRIME );
+        BigInteger number = n;
+        BigInteger nMinusOne = n.subtract( BigInteger.ONE );
+        int a = nMinusOne.getLowestSetBit();
+        BigInteger m = nMinusOne.shiftRight( a );
+        int primesLimit = ( int )MathUtils.isqrt( Math.min( limit, PrimeSieve.MAX_SIEVING_LIMIT ) );
+        int primes[] = PrimeSieve.getSievingPrimes( primesLimit );
+        int workers = Math.max( pool.getParallelism(), 1 );
+        // Chunks are aligned to the wheel cycle.
+        long chunk = Math.max( MIN_CHUNK_LENGTH, limit / ( ( long )workers * CHUNKS_PER_WORKER ) );
+        long chunkLength = chunk - chunk % PrimeSieve.CYCLE_LENGTH;
+        workers = ( int )Math.min( workers, ( limit + chunkLength - 1L ) / chunkLength );
+        AtomicInteger running = new AtomicInteger( workers );
+        synchronized ( tasks )
+        {
+            for ( int i = 0; i < workers; i++ )
+            {
+                tasks.add( pool.submit( () ->
+                {
+                    try
+                    {
+                        run( number, nMinusOne, m, a, chunkLength, primes, primesLimit );
+                    }
+                    catch ( Throwable e )
+                    {
+                        stopped = true;
+                        result.completeExceptionally( e );
+                    }
+                    finally
+                    {
+                        // All the witnesses are passed unless the result is already known.
+                        if ( running.decrementAndGet() == 0 ) result.complete( true );
+                    }
+                } ) );
+            }
+        }
+    }
+    
+    private void run( BigInteger n, BigInteger nMinusOne, BigInteger m, int a, long chunkLength, int primes[], int primesLimit )
+    {
+        while ( !stopped )
+        {
+            long lo = next.getAndAdd( chunkLength );
+            // Overflow or the end of the range.
+            if ( lo < 0L || lo > limit ) return;
+            long hi = Math.min( lo + chunkLength - 1L, limit );
+            for ( long p : ParallelPrimeSieve.sieveChunk( lo, hi, primes, primesLimit ) )
+            {
+                if ( stopped ) return;
+                if ( !PrimeUtils.internalPassesMillerRabin( n, BigInteger.valueOf( p ), nMinusOne, m, a ) )
+                {
+                    stopped = true;
+                    result.complete( false );
+                    return;
+                }
+                tested.incrementAndGet();
+            }
+            covered.addAndGet( hi - lo + 1L );
+        }
+    }
+    
+    /**
+     * Get a quantity of witnesses that are already passed.
+     * @return a quantity of tested witnesses
+     */
+    public long getTestedWitnesses()
+    {
+        return tested.get();
+    }
+    
+    /**
+     * Get an upper bound of witnesses. All the primes up to this bound are tested if a number is prime.
+     * @return 2 * log<sub>2</sub>( n )<sup>2</sup>, or 0 if the test doesn't need parallel witnesses (n &lt; 2<sup>63</sup> or n is even)
+     */
+    public long getLimit()
+    {
+        return limit;
+    }
+    
+    /**
+     * Get a progress of the test: a part of the range of witnesses that is already passed.
+     * <p>The progress of a failed or cancelled test is not changed anymore.
+     * @return a value from 0 to 1, it's 1 if all the witnesses are passed
+     */
+    public double getProgress()
+    {
+        if ( limit == 0L ) return isDone() ? 1.0 : 0.0;
+        return Math.min( ( double )covered.get() / ( limit + 1L ), 1.0 );
+    }
+    
+    /**
+     * Wait for the result of the test.
+     * @return true if and only if absolute value of n is prime
+     * @throws CancellationException if the test was cancelled
+     * @throws java.util.concurrent.CompletionException if a worker failed
+     */
+    public boolean join()
+    {
+        return result.join();
+    }
+    
+    /**
+     * Stop all the workers. The test completes with {@link CancellationException} unless it's already done.
+     * @param mayInterruptIfRunning ignored, workers are stopped between witnesses
+     * @return false if the test is already done
+     */
+    @Override
+    public boolean cancel( boolean mayInterruptIfRunning )
+    {
+        stopped = true;
+        boolean ret = result.completeExceptionally( new CancellationException() );
+        synchronized ( tasks )
+        {
+            for ( ForkJoinTask< ? > task : tasks ) task.cancel( false );
+        }
+        return ret;
+    }
+    
+    @Override
+    public boolean isCancelled()
+    {
+        return result.isCancelled();
+    }
+    
+    @Override
+    public boolean isDone()
+    {
+        return result.isDone();
+    }
+    
+    @Override
+    public Boolean get() throws InterruptedException, ExecutionException
+    {
+        return result.get();
+    }
+    
+    @Override
+    public Boolean get( long timeout, TimeUnit unit ) throws InterruptedException, ExecutionException, TimeoutException
+    {
+        return result.get( timeout, unit );
+    }
+}
\ No newline at end of file
@@ -0,0 +1,361 @@
+package org.quinto.math;
+
+/**
+ * Witness sets for the deterministic Miller test of {@code long} numbers.
+ * <p>Numbers below 2<sup>32</sup> need a single witness. It's selected from a table by a hash of the number.
+ * The table follows Forisek and Jancina, "Fast Primality Testing for Integers That Fit into a Machine Word":
+ * for every bucket a base was chosen so that no composite number below 2<sup>32</sup> in this bucket
+ * (except multiples of {@link #SMALL_PRIMES}) is a strong pseudoprime to it.
+ * Strong pseudoprimes to a base b were enumerated as n = p + k * p * ord<sub>p</sub>( b ) over the smallest prime factor p of n.
+ * <p>Larger numbers are tested with the first primes according to Sloane's A006945, or with 7 bases
+ * by Jim Sinclair which are sufficient for all numbers below 2<sup>64</sup>.
+ * Hashed witnesses for them (2 or 3 bases per bucket as in FJ64) are not implemented: such a table can be verified
+ * only against the list of base 2 strong pseudoprimes below 2<sup>64</sup> by Feitsma and Galway.
+ * http://miller-rabin.appspot.com/
+ */
+class MillerWitnesses
+{
+    /**
+     * Numbers below this limit are tested with a single hashed witness, larger ones with {@link #WITNESSES}.
+     */
+    static final long HASHED_LIMIT = 1L << 32;
+    
+    /**
+     * Odd primes that must be checked by trial division before a hashed witness test.
+     */
+    static final int SMALL_PRIMES[] = { 3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37, 41, 43, 47, 53 };
+    
+    /**
+     * Square of the prime next to {@link #SMALL_PRIMES}. Numbers below it without small factors are prime.
+     */
+    static final int TRIAL_LIMIT = 59 * 59;
+    
+    /**
+     * Witnesses of size classes of numbers above {@link #HASHED_LIMIT}, see {@link #sizeClass}.
+     * The first classes need first q primes, the last one needs 7 bases by Jim Sinclair instead of 9 or 12 first primes.
+     */
+    static final int WITNESSES[][] =
+    {
+        { 2, 3, 5, 7, 11 },
+        { 2, 3, 5, 7, 11, 13 },
+        { 2, 3, 5, 7, 11, 13, 17 },
+        { 2, 325, 9375, 28178, 450775, 9780504, 1795265022 }
+    };
+    
+    /**
+     * Smallest odd numbers that require more witnesses than the previous size class.
+     * Sloane's A006945: http://oeis.org/A006945
+     */
+    private static final long CLASS_LIMITS[] = { 2152302898747L, 3474749660383L, 341550071728321L };
+    
+    private static final int HASH_BITS = 12;
+    private static final long SMALL_INVERSES[] = new long[ SMALL_PRIMES.length ];
+    private static final long SMALL_QUOTIENTS[] = new long[ SMALL_PRIMES.length ];
+    private static final int HASHED_WITNESSES[] =
+    {
+        2, 60683, 60683, 60683, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 60683, 2,
+        2, 60683, 2, 60683, 60683, 2, 2, 2, 23804, 2, 2, 23804, 2, 60683, 2, 2,
+        23804, 60683, 60683, 2, 2, 2, 2, 2, 2, 2, 23804, 2, 2, 60683, 17261, 23804,
+        60683, 2, 2, 2, 60683, 2, 17261, 2, 60683, 2, 2, 2, 60683, 2, 2, 2,
+        2, 2, 17261, 2, 23804, 2, 60683, 2, 60683, 2, 2, 2, 2, 17261, 2, 2,
+        60683, 2, 2, 2, 2, 60683, 60683, 60683, 60683, 2, 60683, 60683, 23804, 60683, 2, 2,
+        2, 2, 2, 23804, 60683, 60683, 2, 2, 2, 60683, 2, 60683, 2, 2, 2, 23804,
+        2, 2, 2, 2, 2, 23804, 2, 2, 2, 2, 2, 60683, 60683, 60683, 2, 23804,
+        2, 2, 2, 23804, 2, 2, 60683, 23804, 2, 2, 60683, 23804, 60683, 2, 2, 60683,
+        60683, 2, 2, 2, 60683, 2, 2, 60683, 60683, 2, 17261, 2, 60683, 2, 60683, 2,
+        2, 2, 2, 60683, 2, 2, 2, 60683, 60683, 2, 2, 23804, 17261, 60683, 2, 60683,
+        2, 2, 2, 2, 60683, 2, 60683, 2, 60683, 2, 2, 2, 60683, 2, 23804, 2,
+        60683, 2, 60683, 2, 2, 2, 23804, 23804, 23804, 2, 17261, 17261, 60683, 2, 2, 2,
+        23804, 60683, 2, 60683, 2, 2, 17261, 2, 2, 60683, 23804, 2, 23804, 2, 60683, 17261,
+        2, 2, 2, 2, 60683, 17261, 2, 2, 2, 2, 2, 2, 2, 2, 17261, 2,
+        60683, 2, 60683, 2, 2, 2, 2, 60683, 2, 17261, 60683, 60683, 2, 60683, 2, 2,
+        60683, 18645, 2, 2, 60683, 2, 2, 2, 2, 60683, 2, 60683, 2, 60683, 2, 2,
+        60683, 2, 2, 17261, 2, 23804, 2, 2, 2, 60683, 37391, 2, 2, 23804, 60683, 2,
+        2, 60683, 2, 2, 2, 2, 2, 2, 2, 60683, 60683, 2, 2, 60683, 2, 2,
+        2, 60683, 2, 23804, 2, 60683, 2, 2, 2, 61062, 2, 2, 23804, 2, 60683, 2,
+        2, 2, 2, 60683, 2, 60683, 17261, 2, 23804, 2, 2, 2, 2, 23804, 2, 60683,
+        2, 2, 2, 60683, 2, 60683, 2, 60683, 33130, 60683, 60683, 2, 2, 61062, 23804, 60683,
+        2, 60683, 23804, 60683, 60683, 60683, 2, 37391, 2, 2, 2, 2, 2, 60683, 17261, 2,
+        61062, 2, 2, 2, 60683, 2, 23804, 2, 61062, 2, 2, 60683, 60683, 60683, 2, 2,
+        23804, 2, 2, 2, 60683, 33130, 2, 23804, 2, 60683, 23804, 60683, 60683, 2, 2, 2,
+        23804, 2, 2, 2, 2, 2, 2, 2, 2, 60683, 2, 60683, 2, 2, 2, 60683,
+        2, 60683, 2, 60683, 2, 60683, 60683, 2, 60683, 60683, 2, 60683, 23804, 23804, 2, 60683,
+        60683, 2, 60683, 2, 60683, 2, 2, 2, 2, 2, 2, 2, 2, 60683, 60683, 60683,
+        2, 2, 60683, 60683, 2, 2, 17261, 2, 60683, 2, 23804, 2, 2, 17261, 2, 17261,
+        2, 60683, 60683, 2, 60683, 2, 2, 23804, 2, 2, 2, 2, 2, 60683, 2, 2,
+        2, 2, 60683, 60683, 2, 2, 2, 2, 2, 2, 2, 60683, 61062, 60683, 2, 60683,
+        60683, 2, 60683, 2, 60683, 60683, 60683, 2, 2, 60683, 60683, 2, 60683, 2, 23804, 60683,
+        2, 61062, 60683, 2, 2, 23804, 60683, 2, 2, 2, 2, 2, 23804, 2, 60683, 2,
+        2, 60683, 60683, 2, 2, 60683, 2, 2, 2, 2, 60683, 2, 60683, 2, 2, 23804,
+        2, 2, 2, 60683, 2, 60683, 2, 2, 2, 60683, 61062, 2, 60683, 2, 60683, 61062,
+        60683, 60683, 2, 2, 2, 2, 2, 2, 60683, 2, 2, 23804, 2, 2, 60683, 2,
+        23804, 2, 2, 2, 2, 2, 2, 23804, 2, 2, 61062, 37391, 2, 2, 2, 2,
+        2, 2, 60683, 2, 60683, 2, 23804, 2, 60683, 37391, 2, 60683, 60683, 2, 2, 2,
+        2, 2, 2, 2, 2, 2, 2, 60683, 2, 2, 60683, 23804, 2, 2, 60683, 2,
+        23804, 23804, 60683, 2, 60683, 2, 2, 2, 23804, 23804, 2, 2, 60683, 2, 23804, 2,
+        2, 60683, 2, 23804, 2, 60683, 2, 2, 2, 2, 2, 2, 2, 23804, 2, 2,
+        2, 2, 60683, 2, 2, 2, 2, 61062, 2, 60683, 2, 2, 60683, 2, 23804, 2,
+        2, 60683, 60683, 2, 2, 23804, 2, 23804, 2, 2, 2, 60683, 2, 2, 2, 60683,
+        2, 2, 60683, 17261, 60683, 2, 37391, 2, 2, 2, 2, 23804, 60683, 61062, 2, 60683,
+        60683, 33130, 2, 2, 61062, 2, 2, 2, 2, 2, 2, 2, 60683, 2, 60683, 2,
+        17261, 2, 2, 2, 2, 2, 2, 60683, 17261, 61062, 60683, 2, 2, 2, 2, 2,
+        2, 2, 60683, 2, 60683, 2, 2, 2, 60683, 23804, 2, 23804, 23804, 60683, 2, 60683,
+        60683, 23804, 2, 2, 23804, 60683, 60683, 23804, 60683, 60683, 60683, 2, 2, 2, 17261, 60683,
+        23804, 2, 2, 60683, 2, 2, 2, 2, 60683, 60683, 2, 2, 2, 2, 60683, 2,
+        2, 2, 2, 2, 2, 2, 2, 33130, 60683, 2, 2, 2, 60683, 60683, 2, 2,
+        2, 2, 2, 2, 60683, 60683, 61062, 33130, 23804, 2, 2, 60683, 2, 60683, 2, 2,
+        2, 23804, 2, 2, 2, 2, 2, 60683, 2, 17261, 2, 2, 60683, 2, 2, 23804,
+        60683, 61062, 2, 2, 2, 2, 2, 2, 2, 60683, 17261, 2, 2, 2, 2, 2,
+        60683, 2, 2, 2, 17261, 2, 23804, 17261, 2, 17261, 2, 60683, 2, 2, 2, 2,
+        2, 2, 60683, 2, 23804, 60683, 23804, 2, 2, 2, 2, 2, 60683, 2, 2, 60683,
+        60683, 2, 2, 2, 2, 2, 23804, 60683, 60683, 2, 61062, 2, 60683, 2, 2, 2,
+        60683, 2, 2, 60683, 61062, 2, 60683, 60683, 61062, 2, 2, 60683, 2, 2, 2, 2,
+        60683, 2, 2, 60683, 2, 60683, 17261, 2, 2, 60683, 2, 2, 60683, 2, 2, 2,
+        17261, 2, 2, 2, 60683, 2, 2, 17261, 60683, 2, 2, 60683, 2, 60683, 2, 60683,
+        60683, 2, 23804, 2, 60683, 2, 2, 2, 23804, 60683, 23804, 2, 2, 60683, 60683, 2,
+        2, 60683, 60683, 60683, 2, 17261, 2, 2, 60683, 60683, 23804, 60683, 2, 2, 2, 2,
+        60683, 2, 2, 2, 2, 2, 2, 2, 2, 60683, 60683, 2, 2, 2, 60683, 2,
+        2, 2, 2, 2, 2, 60683, 23804, 2, 2, 2, 2, 60683, 2, 2, 60683, 23804,
+        2, 2, 17261, 60683, 60683, 2, 2, 2, 60683, 60683, 2, 23804, 60683, 2, 60683, 2,
+        23804, 2, 2, 2, 2, 60683, 23804, 2, 2, 2, 2, 60683, 61062, 2, 37391, 23804,
+        2, 60683, 33130, 2, 23804, 2, 2, 17261, 60683, 2, 60683, 17261, 2, 2, 60683, 60683,
+        23804, 2, 2, 2, 2, 60683, 2, 2, 2, 2, 2, 60683, 2, 23804, 2, 2,
+        2, 60683, 60683, 2, 60683, 2, 2, 60683, 60683, 2, 60683, 2, 17261, 60683, 60683, 2,
+        60683, 23804, 2, 2, 2, 17261, 60683, 23804, 60683, 60683, 17261, 2, 17261, 2, 2, 2,
+        61062, 2, 2, 2, 2, 2, 2, 60683, 60683, 60683, 2, 2, 2, 2, 60683, 60683,
+        2, 60683, 2, 2, 60683, 60683, 2, 2, 2, 60683, 2, 2, 2, 2, 23804, 2,
+        2, 2, 23804, 2, 2, 2, 60683, 2, 60683, 60683, 2, 2, 2, 2, 60683, 2,
+        2, 60683, 60683, 60683, 2, 2, 2, 60683, 2, 60683, 60683, 2, 60683, 2, 2, 2,
+        2, 2, 2, 2, 2, 2, 60683, 2, 2, 23804, 2, 2, 2, 2, 2, 2,
+        2, 2, 23804, 60683, 2, 17261, 2, 60683, 60683, 2, 2, 60683, 23804, 2, 2, 2,
+        2, 2, 17261, 2, 2, 23804, 2, 23804, 2, 2, 23804, 23804, 23804, 2, 60683, 60683,
+        60683, 2, 2, 60683, 2, 2, 2, 2, 2, 2, 60683, 2, 2, 23804, 2, 2,
+        60683, 60683, 2, 60683, 60683, 60683, 2, 60683, 23804, 2, 2, 2, 2, 2, 2, 60683,
+        2, 2, 2, 60683, 60683, 2, 2, 60683, 2, 60683, 2, 17261, 23804, 2, 2, 37391,
+        60683, 2, 2, 60683, 2, 2, 60683, 2, 2, 60683, 60683, 60683, 60683, 2, 60683, 60683,
+        2, 2, 60683, 2, 2, 2, 60683, 2, 2, 2, 2, 60683, 60683, 60683, 2, 60683,
+        2, 2, 18645, 2, 23804, 23804, 60683, 2, 60683, 2, 17261, 60683, 2, 2, 60683, 60683,
+        2, 23804, 17261, 61062, 2, 2, 23804, 60683, 2, 2, 2, 60683, 2, 60683, 2, 2,
+        60683, 2, 2, 60683, 2, 60683, 37391, 2, 2, 23804, 2, 60683, 60683, 17261, 2, 2,
+        60683, 2, 2, 60683, 2, 60683, 2, 2, 2, 37391, 2, 2, 60683, 2, 2, 60683,
+        2, 61062, 2, 2, 23804, 17261, 2, 2, 60683, 2, 2, 2, 2, 2, 2, 2,
+        23804, 60683, 2, 2, 2, 2, 23804, 2, 2, 2, 23804, 60683, 2, 2, 60683, 60683,
+        2, 23804, 60683, 60683, 2, 2, 2, 60683, 2, 2, 2, 60683, 2, 2, 60683, 2,
+        17261, 60683, 60683, 2, 2, 17261, 2, 60683, 2, 60683, 23804, 60683, 2, 2, 60683, 2,
+        60683, 2, 2, 61062, 2, 23804, 60683, 2, 23804, 60683, 60683, 60683, 2, 2, 2, 60683,
+        60683, 60683, 2, 23804, 2, 2, 37391, 23804, 2, 2, 2, 2, 60683, 2, 2, 2,
+        2, 2, 60553, 60683, 2, 60683, 2, 60683, 2, 2, 2, 2, 2, 60683, 2, 2,
+        2, 2, 2, 60683, 23804, 23804, 60683, 2, 2, 2, 2, 2, 23804, 60683, 2, 2,
+        23804, 17261, 60683, 2, 2, 17261, 2, 60683, 23804, 37391, 2, 2, 60683, 2, 2, 60683,
+        2, 2, 60683, 60683, 2, 60683, 2, 60683, 2, 2, 60683, 2, 2, 2, 2, 60683,
+        2, 60683, 2, 2, 2, 2, 2, 17261, 60683, 2, 60683, 2, 60683, 23804, 33130, 2,
+        2, 60683, 23804, 2, 2, 2, 2, 2, 2, 2, 23804, 2, 2, 2, 2, 17261,
+        60683, 2, 2, 2, 60683, 2, 60683, 60683, 2, 60683, 60683, 2, 2, 2, 2, 60683,
+        2, 60683, 60683, 2, 2, 2, 2, 60683, 2, 23804, 16414, 60683, 2, 23804, 2, 2,
+        2, 60683, 37391, 60683, 60683, 2, 2, 60683, 2, 2, 2, 2, 61062, 60683, 60683, 60683,
+        23804, 60683, 17261, 2, 2, 17261, 60683, 60683, 2, 60683, 60683, 60683, 17261, 17261, 37391, 2,
+        17261, 2, 2, 2, 17261, 2, 2, 2, 2, 2, 17261, 2, 2, 18645, 2, 60683,
+        2, 23804, 2, 2, 2, 2, 17261, 2, 2, 2, 23804, 60683, 2, 2, 2, 2,
+        2, 2, 60683, 60683, 2, 2, 60683, 60683, 2, 23804, 23804, 23804, 2, 2, 2, 2,
+        60683, 23804, 2, 23804, 2, 2, 2, 2, 2, 2, 2, 2, 60683, 60683, 2, 2,
+        2, 2, 17261, 2, 60683, 2, 60683, 2, 2, 17261, 60683, 60683, 2, 2, 2, 60683,
+        23804, 2, 2, 60683, 23804, 2, 60683, 60683, 2, 2, 60683, 2, 17261, 2, 2, 2,
+        2, 2, 2, 60683, 2, 2, 2, 23804, 2, 2, 2, 60683, 2, 2, 2, 2,
+        2, 2, 60683, 60683, 60683, 60683, 60683, 2, 2, 60683, 60683, 60683, 2, 2, 2, 60683,
+        23804, 2, 2, 2, 2, 61062, 60683, 2, 2, 2, 2, 2, 2, 23804, 60683, 2,
+        2, 60683, 2, 2, 60683, 2, 23804, 2, 2, 60683, 2, 2, 2, 2, 2, 2,
+        2, 2, 2, 2, 60683, 2, 2, 18645, 2, 2, 2, 60683, 2, 2, 2, 2,
+        2, 60683, 2, 17261, 60683, 60683, 2, 2, 60683, 2, 2, 2, 2, 2, 2, 23804,
+        60683, 60683, 2, 33130, 60683, 60683, 2, 60683, 23804, 60683, 2, 2, 2, 2, 2, 60683,
+        60683, 2, 60683, 2, 60683, 60683, 2, 60683, 2, 2, 2, 2, 2, 2, 60683, 60683,
+        17261, 17261, 2, 2, 2, 2, 60683, 60683, 17261, 2, 2, 2, 60683, 60683, 2, 2,
+        23804, 2, 2, 60683, 60683, 2, 60683, 2, 2, 2, 2, 2, 60683, 61062, 2, 60683,
+        2, 2, 60683, 60683, 2, 2, 2, 60683, 2, 60683, 2, 2, 2, 2, 61062, 2,
+        2, 60683, 2, 2, 60683, 17261, 60683, 2, 2, 2, 61062, 60683, 60683, 2, 2, 2,
+        2, 2, 60683, 60683, 2, 2, 2, 2, 60683, 60683, 60683, 60683, 2, 60683, 2, 2,
+        60683, 2, 2, 60683, 2, 60683, 2, 2, 60683, 60683, 2, 60683, 60683, 2, 2, 2,
+        2, 2, 2, 2, 23804, 2, 2, 60683, 2, 60683, 2, 2, 2, 37391, 2, 60683,
+        2, 17261, 2, 60683, 61062, 17261, 60683, 60683, 60683, 2, 23804, 60683, 2, 60683, 60683, 2,
+        60683, 23804, 17261, 60683, 2, 2, 61062, 2, 60683, 2, 60683, 60683, 2, 17261, 2, 2,
+        2, 2, 2, 2, 2, 60683, 60683, 2, 60683, 2, 60683, 60683, 23804, 2, 2, 2,
+        60683, 23804, 2, 2, 60683, 61062, 2, 2, 2, 2, 2, 2, 60683, 60683, 2, 23804,
+        23804, 60683, 23804, 2, 2, 60683, 2, 2, 2, 23804, 2, 60683, 2, 2, 23804, 2,
+        2, 60683, 2, 2, 2, 2, 60683, 2, 2, 60683, 60683, 23804, 60683, 60683, 60683, 60683,
+        17261, 60683, 2, 2, 2, 23804, 60683, 60683, 2, 2, 23804, 2, 2, 60683, 60683, 2,
+        2, 2, 2, 2, 2, 61062, 23804, 2, 2, 60683, 60683, 60683, 2, 60683, 17261, 17261,
+        60683, 60683, 60683, 60683, 23804, 2, 60683, 60683, 60683, 23804, 2, 60683, 2, 2, 17261, 23804,
+        2, 2, 60683, 23804, 2, 2, 60683, 2, 2, 2, 17261, 23804, 60683, 2, 2, 60683,
+        23804, 2, 17261, 60683, 2, 2, 2, 2, 2, 60683, 2, 2, 2, 2, 60683, 2,
+        2, 2, 2, 60683, 2, 2, 2, 60683, 2, 60683, 17261, 2, 60683, 60683, 2, 2,
+        2, 17261, 61062, 2, 2, 2, 2, 60683, 60683, 2, 60683, 2, 60683, 2, 2, 2,
+        23804, 60683, 2, 2, 37391, 60683, 2, 17261, 2, 23804, 2, 2, 60683, 2, 2, 2,
+        2, 2, 60683, 60683, 60683, 23804, 2, 2, 2, 2, 60683, 2, 60683, 60683, 60683, 23804,
+        2, 2, 2, 2, 60683, 2, 2, 60683, 2, 23804, 23804, 2, 23804, 23804, 60683, 2,
+        23804, 2, 23804, 60683, 2, 60683, 2, 2, 60553, 60683, 2, 2, 2, 23804, 2, 2,
+        23804, 2, 60683, 2, 2, 60683, 2, 60683, 23804, 60683, 2, 60683, 23804, 60683, 2, 2,
+        60683, 2, 23804, 2, 2, 60683, 2, 2, 2, 23804, 2, 2, 60683, 2, 2, 60683,
+        60683, 60683, 60683, 60683, 2, 2, 2, 2, 2, 2, 2, 23804, 60683, 2, 2, 2,
+        60683, 60683, 60683, 2, 23804, 2, 2, 2, 2, 2, 2, 23804, 2, 2, 60683, 2,
+        60683, 60683, 2, 60683, 2, 2, 2, 2, 60683, 2, 60683, 2, 2, 61062, 2, 60683,
+        2, 2, 60683, 60683, 2, 60683, 2, 60683, 2, 2, 2, 23804, 60683, 2, 2, 23804,
+        60683, 60683, 23804, 2, 61062, 60683, 60683, 2, 2, 2, 18645, 2, 17261, 2, 2, 2,
+        60683, 2, 2, 60683, 60683, 2, 2, 2, 2, 23804, 60683, 2, 2, 2, 2, 60683,
+        60683, 2, 2, 23804, 2, 2, 2, 60683, 23804, 2, 2, 23804, 2, 60683, 2, 23804,
+        60683, 23804, 23804, 2, 60683, 23804, 60683, 2, 2, 2, 60683, 60683, 2, 2, 60683, 60683,
+        2, 2, 2, 2, 17261, 60683, 23804, 2, 23804, 2, 2, 2, 2, 2, 23804, 2,
+        60683, 60683, 2, 60683, 60683, 2, 2, 23804, 2, 60683, 2, 2, 60683, 2, 2, 2,
+        37391, 2, 60683, 2, 2, 2, 2, 2, 2, 2, 2, 60683, 23804, 60683, 23804, 2,
+        60683, 2, 2, 2, 2, 23804, 60683, 2, 2, 2, 2, 2, 2, 2, 2, 2,
+        60683, 61062, 2, 60683, 2, 2, 61062, 2, 60683, 2, 60683, 60683, 60683, 60683, 60683, 2,
+        2, 2, 2, 23804, 60683, 60683, 23804, 2, 60683, 2, 2, 2, 60683, 2, 2, 2,
+        2, 17261, 17261, 2, 61062, 2, 2, 2, 2, 2, 60683, 61062, 17261, 2, 2, 23804,
+        2, 60683, 2, 2, 2, 2, 23804, 2, 2, 2, 60683, 2, 2, 60683, 60683, 23804,
+        2, 2, 2, 2, 2, 60683, 2, 2, 2, 23804, 2, 2, 41540, 2, 2, 2,
+        2, 60683, 2, 60683, 60683, 60683, 23804, 17261, 2, 60683, 2, 60683, 2, 23804, 2, 23804,
+        2, 2, 60683, 60683, 23804, 2, 2, 60683, 2, 2, 60683, 2, 2, 2, 2, 2,
+        2, 23804, 2, 2, 60683, 2, 17261, 23804, 2, 2, 2, 23804, 60683, 2, 2, 23804,
+        23804, 2, 2, 60683, 2, 23804, 2, 2, 2, 23804, 17261, 60683, 17261, 60683, 2, 2,
+        2, 2, 60683, 2, 2, 2, 2, 2, 2, 2, 2, 2, 60683, 2, 2, 23804,
+        2, 60683, 61062, 2, 2, 23804, 2, 2, 60683, 2, 61062, 60683, 60683, 60683, 2, 37391,
+        60683, 2, 2, 2, 2, 60683, 17261, 2, 2, 2, 2, 37391, 2, 23804, 2, 23804,
+        60683, 60683, 2, 2, 2, 2, 60683, 2, 2, 2, 60683, 2, 2, 2, 61062, 2,
+        2, 23804, 60683, 60683, 2, 2, 2, 2, 60683, 2, 2, 23804, 23804, 2, 60683, 2,
+        2, 60683, 2, 2, 60683, 2, 2, 60683, 2, 2, 2, 2, 2, 2, 2, 2,
+        60683, 2, 2, 60683, 2, 2, 2, 2, 23804, 60683, 2, 60683, 2, 61062, 2, 2,
+        2, 2, 23804, 60683, 61062, 23804, 2, 2, 2, 2, 17261, 60683, 2, 60683, 2, 2,
+        23804, 2, 17261, 60683, 60683, 2, 2, 60683, 2, 2, 2, 60683, 60683, 2, 23804, 2,
+        2, 2, 2, 17261, 2, 2, 2, 60683, 60683, 2, 2, 2, 2, 17261, 2, 23804,
+        2, 2, 17261, 23804, 2, 2, 23804, 2, 2, 61062, 17261, 2, 2, 23804, 2, 60683,
+        2, 60683, 2, 2, 23804, 60683, 60683, 2, 2, 60683, 2, 60683, 2, 2, 37391, 60683,
+        61062, 60683, 2, 2, 60683, 2, 2, 2, 2, 2, 17261, 2, 2, 2, 60683, 60683,
+        2, 2, 23804, 2, 2, 2, 2, 2, 2, 60683, 23804, 60683, 2, 2, 2, 2,
+        60683, 2, 23804, 60683, 2, 2, 2, 2, 2, 60683, 2, 2, 2, 60683, 60683, 60683,
+        2, 2, 2, 23804, 60683, 2, 2, 2, 60683, 2, 60683, 2, 60683, 2, 2, 2,
+        60683, 2, 2, 2, 2, 2, 2, 60683, 23804, 2, 2, 2, 2, 60683, 2, 2,
+        2, 2, 60683, 2, 23804, 60683, 23804, 2, 23804, 2, 23804, 60683, 2, 23804, 2, 2,
+        2, 2, 60683, 37391, 23804, 17261, 2, 60683, 2, 2, 2, 60683, 60683, 23804, 2, 2,
+        2, 2, 2, 2, 61062, 2, 60683, 60683, 60683, 2, 2, 60683, 2, 2, 2, 60683,
+        2, 2, 60683, 23804, 23804, 2, 2, 2, 60683, 60683, 2, 2, 2, 2, 60683, 17261,
+        2, 2, 2, 2, 2, 60683, 60683, 2, 2, 2, 2, 60683, 2, 2, 17261, 2,
+        2, 60683, 60683, 2, 2, 2, 2, 60683, 2, 60683, 60683, 60683, 2, 2, 23804, 2,
+        2, 2, 2, 60683, 60683, 60683, 60683, 2, 2, 23804, 2, 60683, 23804, 60683, 60683, 2,
+        2, 2, 17261, 23804, 23804, 2, 60683, 60683, 23804, 23804, 23804, 60683, 2, 60683, 60683, 60683,
+        60683, 2, 2, 60683, 17261, 2, 2, 2, 2, 2, 2, 2, 2, 60683, 2, 2,
+        2, 60683, 60683, 37391, 60683, 60683, 2, 23804, 2, 60683, 2, 60683, 17261, 2, 60683, 2,
+        2, 2, 2, 2, 37391, 2, 2, 60683, 2, 17261, 2, 2, 2, 60683, 2, 2,
+        2, 23804, 23804, 23804, 2, 2, 2, 23804, 2, 2, 2, 2, 60683, 2, 2, 60683,
+        2, 2, 2, 2, 2, 60683, 2, 23804, 23804, 2, 60683, 60683, 23804, 23804, 60683, 60683,
+        60683, 2, 60683, 2, 2, 2, 2, 23804, 60683, 60683, 2, 2, 2, 23804, 2, 2,
+        2, 2, 61062, 2, 2, 60683, 2, 17261, 17261, 2, 60683, 2, 2, 60683, 60683, 23804,
+        2, 2, 17261, 2, 23804, 17261, 2, 60683, 2, 2, 60683, 2, 2, 2, 17261, 60683,
+        60683, 2, 2, 2, 60683, 17261, 60683, 2, 60683, 2, 2, 17261, 2, 23804, 17261, 2,
+        60683, 2, 2, 2, 2, 23804, 2, 17261, 60683, 2, 23804, 2, 2, 60683, 2, 37391,
+        2, 2, 17261, 60683, 60683, 2, 23804, 2, 60683, 2, 2, 60683, 2, 2, 2, 2,
+        60683, 2, 2, 2, 33130, 2, 2, 2, 2, 23804, 2, 60683, 2, 2, 2, 2,
+        2, 2, 60683, 23804, 2, 60683, 2, 2, 23804, 60683, 2, 2, 2, 2, 2, 2,
+        2, 2, 60683, 2, 2, 60683, 23804, 2, 23804, 23804, 60683, 2, 2, 2, 2, 2,
+        60683, 2, 61062, 60683, 2, 2, 2, 2, 2, 23804, 2, 60683, 2, 23804, 2, 23804,
+        2, 60683, 60683, 2, 2, 2, 2, 60683, 2, 2, 60683, 2, 23804, 60683, 60683, 2,
+        60683, 2, 2, 60683, 2, 2, 2, 60683, 2, 37391, 2, 2, 2, 23804, 2, 2,
+        2, 60683, 60683, 2, 2, 2, 2, 60683, 2, 2, 2, 2, 23804, 2, 2, 23804,
+        60683, 2, 60683, 2, 2, 60683, 2, 23804, 23804, 2, 2, 2, 2, 2, 2, 2,
+        2, 60683, 2, 2, 60683, 2, 2, 23804, 60683, 37391, 60683, 60683, 2, 60683, 33130, 60683,
+        2, 2, 60683, 17261, 2, 60683, 2, 2, 2, 60683, 61062, 60683, 2, 60683, 60683, 2,
+        2, 2, 23804, 37391, 60683, 23804, 23804, 2, 17261, 23804, 2, 17261, 2, 60683, 60683, 2,
+        23804, 60683, 2, 23804, 60683, 2, 60683, 60683, 60683, 2, 60683, 60683, 2, 60683, 2, 60683,
+        2, 2, 60683, 2, 2, 23804, 2, 23804, 2, 2, 60683, 2, 2, 60683, 17261, 2,
+        2, 2, 2, 2, 2, 60683, 10559, 17261, 60683, 2, 2, 2, 23804, 2, 60683, 23804,
+        2, 2, 2, 2, 17261, 60683, 2, 2, 2, 2, 2, 2, 23804, 2, 2, 2,
+        61062, 2, 2, 2, 60683, 23804, 60683, 2, 60683, 2, 2, 60683, 2, 2, 60683, 23804,
+        2, 2, 2, 2, 2, 23804, 2, 2, 2, 2, 2, 2, 60683, 23804, 2, 60683,
+        2, 2, 60683, 23804, 2, 2, 2, 2, 2, 60683, 23804, 2, 2, 2, 2, 60683,
+        2, 2, 2, 2, 2, 2, 60683, 2, 23804, 2, 2, 23804, 2, 2, 60683, 60683,
+        2, 60683, 2, 2, 2, 60683, 2, 60683, 2, 60683, 60683, 2, 60683, 23804, 2, 60683,
+        17261, 2, 60683, 2, 2, 2, 60683, 2, 2, 60683, 2, 2, 17261, 2, 2, 2,
+        2, 60683, 2, 2, 2, 2, 23804, 2, 2, 2, 2, 60683, 2, 60683, 2, 23804,
+        60683, 23804, 2, 2, 60683, 2, 2, 23804, 60683, 2, 2, 2, 60683, 2, 60683, 3670,
+        60683, 23804, 60683, 2, 60683, 2, 60683, 2, 23804, 2, 60683, 2, 2, 60683, 60683, 60683,
+        60683, 2, 2, 2, 60683, 2, 60683, 2, 2, 2, 2, 23804, 2, 2, 2, 60683,
+        2, 23804, 60683, 57625, 60683, 2, 2, 2, 60683, 2, 2, 60683, 2, 2, 60683, 2,
+        2, 2, 2, 2, 2, 2, 2, 60683, 2, 2, 2, 2, 60683, 2, 60683, 2,
+        60683, 2, 60683, 60683, 60683, 2, 2, 2, 2, 23804, 60683, 2, 60683, 2, 60683, 23804,
+        60683, 2, 60683, 23804, 2, 2, 60683, 2, 60683, 2, 2, 2, 2, 2, 23804, 2,
+        60683, 23804, 60683, 60683, 2, 2, 60683, 2, 2, 2, 60683, 23804, 23804, 2, 2, 2,
+        61062, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 60683, 2, 2, 2, 2,
+        2, 2, 60683, 2, 2, 2, 2, 2, 2, 2, 17261, 2, 2, 2, 2, 2,
+        2, 2, 2, 2, 2, 2, 60683, 2, 2, 2, 60683, 2, 60683, 2, 2, 2,
+        2, 2, 2, 60683, 2, 2, 2, 2, 2, 2, 23804, 2, 2, 2, 2, 2,
+        2, 2, 2, 23804, 2, 2, 2, 60683, 2, 23804, 60683, 2, 17261, 2, 2, 2,
+        23804, 60683, 23804, 23804, 60683, 2, 2, 2, 2, 60683, 2, 17261, 2, 2, 17261, 2,
+        60683, 2, 60683, 2, 2, 60683, 23804, 2, 61062, 2, 2, 2, 2, 2, 2, 2,
+        2, 23804, 2, 60683, 2, 2, 2, 2, 60683, 57625, 2, 23804, 2, 2, 2, 18645,
+        2, 2, 2, 2, 2, 2, 17261, 17261, 2, 2, 2, 60683, 23804, 2, 60683, 2,
+        23804, 60683, 2, 2, 2, 2, 2, 2, 60683, 2, 2, 60683, 60683, 2, 2, 2,
+        60683, 2, 23804, 2, 2, 2, 60683, 60683, 60683, 60683, 60683, 23804, 2, 60683, 2, 2,
+        2, 23804, 23804, 2, 2, 2, 2, 23804, 2, 23804, 2, 2, 2, 60683, 2, 2,
+        60683, 2, 2, 17261, 2, 2, 60683, 2, 2, 2, 60683, 2, 2, 2, 60683, 60683,
+        60683, 2, 60683, 2, 60683, 2, 2, 17261, 23804, 60683, 2, 60683, 60683, 60683, 23804, 2,
+        60683, 60683, 2, 60683, 2, 2, 60683, 2, 2, 2, 2, 60683, 2, 60683, 23804, 2,
+        2, 2, 2, 16414, 2, 2, 2, 2, 2, 2, 2, 2, 60683, 2, 2, 2,
+        60683, 2, 2, 2, 60683, 23804, 2, 2, 60683, 60683, 23804, 17261, 2, 60683, 60683, 2,
+        17261, 2, 2, 60683, 23804, 17261, 2, 2, 37391, 2, 2, 60683, 60683, 2, 60683, 2,
+        2, 2, 2, 60683, 2, 2, 2, 60683, 60683, 61062, 23804, 2, 60683, 2, 60683, 60683,
+        2, 2, 60683, 61062, 2, 2, 60683, 2, 2, 2, 60683, 2, 60683, 60683, 2, 2,
+        2, 2, 2, 60683, 2, 2, 60683, 60683, 2, 2, 2, 17261, 2, 60683, 60683, 2,
+        2, 60683, 2, 23804, 2, 2, 2, 2, 2, 60683, 60683, 17261, 60683, 2, 2, 23804,
+        60683, 23804, 60683, 2, 23804, 2, 2, 2, 2, 2, 37391, 60683, 2, 60683, 2, 2,
+        2, 2, 23804, 2, 2, 23804, 60683, 2, 2, 60683, 2, 2, 60683, 2, 60683, 2,
+        60683, 2, 61062, 23804, 2, 2, 60683, 23804, 2, 2, 2, 2, 2, 2, 60683, 60683,
+        60683, 2, 2, 23804, 2, 23804, 2, 2, 2, 2, 61062, 2, 2, 60683, 2, 2,
+        2, 23804, 2, 2, 2, 2, 60683, 2, 2, 2, 17261, 2, 23804, 23804, 23804, 60683,
+        2, 23804, 2, 2, 2, 61062, 60683, 2, 2, 2, 23804, 2, 2, 2, 60683, 2
+    };
+    
+    static
+    {
+        for ( int i = 0; i < SMALL_PRIMES.length; i++ )
+        {
+            SMALL_INVERSES[ i ] = Montgomery.inverse( SMALL_PRIMES[ i ] );
+            SMALL_QUOTIENTS[ i ] = Long.divideUnsigned( -1L, SMALL_PRIMES[ i ] );
+        }
+    }
+    
+    /**
+     * Trial division by {@link #SMALL_PRIMES} without division instructions.
+     * <p>A number n is divisible by an odd p iff n * p<sup>-1</sup> mod 2<sup>64</sup> &le; ( 2<sup>64</sup> - 1 ) / p as unsigned numbers,
+     * because multiplication by p<sup>-1</sup> maps multiples of p onto [ 0 .. ( 2<sup>64</sup> - 1 ) / p ] one-to-one.
+     * @param n a non-negative number
+     * @return the smallest prime of {@link #SMALL_PRIMES} that divides n, or 0 if there is no such prime
+     */
+    static int smallFactor( long n )
+    {
+        for ( int i = 0; i < SMALL_PRIMES.length; i++ ) if ( Long.compareUnsigned( n * SMALL_INVERSES[ i ], SMALL_QUOTIENTS[ i ] ) <= 0 ) return SMALL_PRIMES[ i ];
+        return 0;
+    }
+    
+    /**
+     * Get a size class of a number.
+     * @param n a number which is not less than {@link #HASHED_LIMIT}
+     * @return an index of witnesses in {@link #WITNESSES}
+     */
+    static int sizeClass( long n )
+    {
+        int ret = 0;
+        while ( ret < CLASS_LIMITS.length && n >= CLASS_LIMITS[ ret ] ) ret++;
+        return ret;
+    }
+    
+    /**
+     * Get a witness for an odd number below 2<sup>32</sup> that has no prime factors among {@link #SMALL_PRIMES}.
+     * <p>The witness can be greater than n. If n divides the witness then n must be considered a strong probable prime.
+     * @param n an unsigned 32-bit number
+     * @return a base of the strong pseudoprimality test
+     */
+    static int hashed( int n )
+    {
+        int h = ( ( n >>> 16 ) ^ n ) * 0x45D9F3B;
+        h = ( ( h >>> 16 ) ^ h ) * 0x45D9F3B;
+        h = ( h >>> 16 ) ^ h;
+        return HASHED_WITNESSES[ h & ( ( 1 << HASH_BITS ) - 1 ) ];
+    }
+}
\ No newline at end of file
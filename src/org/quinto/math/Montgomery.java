@@ -0,0 +1,127 @@
+package org.quinto.math;
+
+/**
+ * Montgomery modular arithmetic for odd 64-bit moduli. All methods are allocation-free.
+ * <p>A residue a is represented as a * R mod n, where R = 2<sup>64</sup>. A product of two representations
+ * is reduced by REDC which replaces a 128-bit division by two multiplications.
+ * <p>The modulus n must be odd and less than 2<sup>63</sup>. All residues lie in range [ 0 .. n ), so they are non-negative as signed values
+ * and high halves of 128-bit products are taken by the signed {@link MathUtils#multiplyHigh} without sign corrections.
+ * https://en.wikipedia.org/wiki/Montgomery_modular_multiplication
+ */
+class Montgomery
+{
+    /**
+     * Inverse of an odd number modulo 2<sup>64</sup> by Newton's iteration.
+     * @param n an odd modulus
+     * @return n<sup>-1</sup> mod 2<sup>64</sup>
+     */
+    static long inverse( long n )
+    {
+        // n * n = 1 mod 8, every iteration doubles a quantity of correct bits: 3, 6, 12, 24, 48, 96.
+        long ret = n;
+        for ( int i = 0; i < 5; i++ ) ret *= 2L - n * ret;
+        return ret;
+    }
+    
+    /**
+     * Representation of 1, R mod n.
+     */
+    static long one( long n )
+    {
+        return MathUtils.remainderUnsigned( -n, n );
+    }
+    
+    /**
+     * R<sup>2</sup> mod n which converts a residue to the Montgomery form by {@link #multiply}.
+     */
+    static long rSquared( long n )
+    {
+        long ret = one( n );
+        // Doubling 64 times, 2 * ret < 2 * n < 2^64 doesn't overflow as unsigned.
+        for ( int i = 0; i < 64; i++ )
+        {
+            ret <<= 1;
+            if ( Long.compareUnsigned( ret, n ) >= 0 ) ret -= n;
+        }
+        return ret;
+    }
+    
+    /**
+     * Convert a small non-negative number to the Montgomery form by doubling and adding R mod n. Time O( log( a ) ).
+     * @param a a non-negative number which is less than n
+     * @param one representation of 1, see {@link #one}
+     * @return a * R mod n
+     */
+    static long valueOf( int a, long n, long one )
+    {
+        long ret = 0L;
+        // Bits of a are unpredictable, so the loop has no branches: a negative difference is corrected by adding n back.
+        // A sum 2 * ret or ret + one is less than 2 * n, so the difference is negative iff the sum is less than n.
+        for ( int i = 31 - Integer.numberOfLeadingZeros( a ); i >= 0; i-- )
+        {
+            ret = ( ret << 1 ) - n;
+            ret += n & ( ret >> 63 );
+            ret += ( one & -( ( a >>> i ) & 1 ) ) - n;
+            ret += n & ( ret >> 63 );
+        }
+        return ret;
+    }
+    
+    /**
+     * Convert a residue to the Montgomery form.
+     * @param a a residue in range [ 0 .. n )
+     * @return a * R mod n
+     */
+    static long toMontgomery( long a, long n, long nInverse, long rSquared )
+    {
+        return multiply( a, rSquared, n, nInverse );
+    }
+    
+    /**
+     * Convert a residue from the Montgomery form.
+     * @param a a * R mod n
+     * @return a
+     */
+    static long fromMontgomery( long a, long n, long nInverse )
+    {
+        return reduce( 0L, a, n, nInverse );
+    }
+    
+    /**
+     * Montgomery product a * b / R mod n.
+     */
+    static long multiply( long a, long b, long n, long nInverse )
+    {
+        return reduce( MathUtils.multiplyHigh( a, b ), a * b, n, nInverse );
+    }
+    
+    /**
+     * Montgomery power a<sup>e</sup> (in the Montgomery form).
+     * @param a a base in the Montgomery form
+     * @param e a non-negative exponent
+     * @param one representation of 1, see {@link #one}
+     */
+    static long pow( long a, long e, long n, long nInverse, long one )
+    {
+        long ret = one;
+        for ( int i = 63 - Long.numberOfLeadingZeros( e ); i >= 0; i-- )
+        {
+            ret = multiply( ret, ret, n, nInverse );
+            if ( ( e & ( 1L << i ) ) != 0L ) ret = multiply( ret, a, n, nInverse );
+        }
+        return ret;
+    }
+    
+    /**
+     * REDC: ( high * 2<sup>64</sup> + low ) / R mod n, where high &lt; n.
+     */
+    private static long reduce( long high, long low, long n, long nInverse )
+    {
+        // Low 64 bits of m * n are equal to low, so they cancel out without a borrow.
+        // A multiplier m is unsigned, so n is added to a signed high half of m * n if m is negative.
+        long m = low * nInverse;
+        long ret = high - MathUtils.multiplyHigh( m, n ) - ( n & ( m >> 63 ) );
+        // The sign is unpredictable, so n is added back without a branch.
+        return ret + ( n & ( ret >> 63 ) );
+    }
+}
\ No newline at end of file
@@ -0,0 +1,248 @@
+package org.quinto.math;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Multi-core prime numbers enumeration.
+ * <p>A range is split into chunks of several sieve segments. Chunks are sieved independently
+ * by {@link PrimeSieve} on a {@link ForkJoinPool} and delivered in increasing order.
+ * Only a limited window of chunks (twice the pool parallelism) is sieved ahead of the consumer,
+ * so memory consumption doesn't depend on the range length.
+ * <p>All ranges are inclusive: [ from .. to ].
+ */
+public class ParallelPrimeSieve
+{
+    /**
+     * Maximal length of a chunk (a range sieved by one task).
+     */
+    public static final long MAX_CHUNK_LENGTH = 30L * PrimeSieve.SEGMENT_BYTES * 8L;
+    
+    private static final long MIN_CHUNK_LENGTH = 30L * PrimeSieve.SEGMENT_BYTES;
+    
+    /**
+     * Call an action for every chunk of primes in range [ {@code from} .. {@code to} ] (both sides included).
+     * <p>Chunks are sieved in parallel on a common pool, the action is called sequentially in increasing order of primes.
+     * Every array passed to the action is sorted and contains at least one prime.
+     * @param from a lower inclusive bound
+     * @param to an upper inclusive bound
+     * @param action an action to be performed for each chunk
+     */
+    public static void forEachChunk( long from, long to, Consumer< long[] > action )
+    {
+        forEachChunk( from, to, ForkJoinPool.commonPool(), action );
+    }
+    
+    /**
+     * Call an action for every chunk of primes in range [ {@code from} .. {@code to} ] (both sides included).
+     * <p>Chunks are sieved in parallel on a given pool, the action is called sequentially in increasing order of primes.
+     * Every array passed to the action is sorted and contains at least one prime.
+     * @param from a lower inclusive bound
+     * @param to an upper inclusive bound
+     * @param pool a pool to sieve chunks on
+     * @param action an action to be performed for each chunk
+     */
+    public static void forEachChunk( long from, long to, ForkJoinPool pool, Consumer< long[] > action )
+    {
+        OrderedChunks chunks = new OrderedChunks( from, to, pool );
+        try
+        {
+            for ( long primes[] = chunks.next(); primes != null; primes = chunks.next() ) action.accept( primes );
+        }
+        finally
+        {
+            chunks.cancel();
+        }
+    }
+    
+    /**
+     * Sieve all the primes in range [ {@code from} .. {@code to} ] (both sides included) on a common pool.
+     * @param from a lower inclusive bound
+     * @param to an upper inclusive bound
+     * @return a sorted array of prime numbers
+     * @throws IllegalArgumentException if there are too many primes to fit an array
+     */
+    public static long[] toArray( long from, long to ) throws IllegalArgumentException
+    {
+        return toArray( from, to, ForkJoinPool.commonPool() );
+    }
+    
+    /**
+     * Sieve all the primes in range [ {@code from} .. {@code to} ] (both sides included) on a given pool.
+     * @param from a lower inclusive bound
+     * @param to an upper inclusive bound
+     * @param pool a pool to sieve chunks on
+     * @return a sorted array of prime numbers
+     * @throws IllegalArgumentException if there are too many primes to fit an array
+     */
+    public static long[] toArray( long from, long to, ForkJoinPool pool ) throws IllegalArgumentException
+    {
+        long ret[][] = { new long[ 1024 ] };
+        int size[] = { 0 };
+        forEachChunk( from, to, pool, primes ->
+        {
+            long length = ( long )size[ 0 ] + primes.length;
+            if ( length > Integer.MAX_VALUE - 8 ) throw new IllegalArgumentException( "Too many primes in range [ " + from + " .. " + to + " ]" );
+            if ( length > ret[ 0 ].length ) ret[ 0 ] = Arrays.copyOf( ret[ 0 ], ( int )Math.min( Math.max( length, ( long )ret[ 0 ].length << 1 ), Integer.MAX_VALUE - 8 ) );
+            System.arraycopy( primes, 0, ret[ 0 ], size[ 0 ], primes.length );
+            size[ 0 ] = ( int )length;
+        } );
+        return Arrays.copyOf( ret[ 0 ], size[ 0 ] );
+    }
+    
+    /**
+     * Generate an ordered stream of primes in range [ {@code from} .. {@code to} ] (both sides included)
+     * which are sieved ahead in parallel on a common pool.
+     * <p>The stream itself is sequential. Chunks that were sieved ahead are cancelled when the stream is closed.
+     * @param from a lower inclusive bound
+     * @param to an upper inclusive bound
+     * @return an ordered stream of prime numbers
+     */
+    public static LongStream stream( long from, long to )
+    {
+        return stream( from, to, ForkJoinPool.commonPool() );
+    }
+    
+    /**
+     * Generate an ordered stream of primes in range [ {@code from} .. {@code to} ] (both sides included)
+     * which are sieved ahead in parallel on a given pool.
+     * <p>The stream itself is sequential. Chunks that were sieved ahead are cancelled when the stream is closed.
+     * @param from a lower inclusive bound
+     * @param to an upper inclusive bound
+     * @param pool a pool to sieve chunks on
+     * @return an ordered stream of prime numbers
+     */
+    public static LongStream stream( long from, long to, ForkJoinPool pool )
+    {
+        OrderedChunks chunks = new OrderedChunks( from, to, pool );
+        Spliterator.OfLong spliterator = new Spliterators.AbstractLongSpliterator( Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.SORTED | Spliterator.NONNULL | Spliterator.IMMUTABLE )
+        {
+            private long primes[] = new long[ 0 ];
+            private int position;
+            
+            @Override
+            public boolean tryAdvance( LongConsumer action )
+            {
+                while ( position == primes.length )
+                {
+                    primes = chunks.next();
+                    position = 0;
+                    if ( primes == null )
+                    {
+                        primes = new long[ 0 ];
+                        return false;
+                    }
+                }
+                action.accept( primes[ position++ ] );
+                return true;
+            }
+            
+            @Override
+            public Comparator< ? super Long > getComparator()
+            {
+                return null;
+            }
+        };
+        return StreamSupport.longStream( spliterator, false ).onClose( chunks::cancel );
+    }
+    
+    /**
+     * Sieve primes of a chunk.
+     * @return a sorted array of primes in range [ from .. to ]
+     */
+    static long[] sieveChunk( long from, long to, int primes[], int primesLimit )
+    {
+        PrimeSieve sieve = new PrimeSieve( from, to, primes, primesLimit, PrimeSieve.SEGMENT_BYTES );
+        long ret[] = new long[ 64 ];
+        int size = 0;
+        for ( long p = sieve.next(); p != 0L; p = sieve.next() )
+        {
+            if ( size == ret.length ) ret = Arrays.copyOf( ret, size << 1 );
+            ret[ size++ ] = p;
+        }
+        return size == ret.length ? ret : Arrays.copyOf( ret, size );
+    }
+    
+    /**
+     * A sliding window of chunk tasks. Chunks are joined in order of submission.
+     */
+    static class OrderedChunks
+    {
+        private final long to;
+        private final long chunkLength;
+        private final int primes[];
+        private final int primesLimit;
+        private final ForkJoinPool pool;
+        private final int window;
+        private final ArrayDeque< ForkJoinTask< long[] > > tasks = new ArrayDeque<>();
+        private long next;
+        private boolean submitted;
+        
+        OrderedChunks( long from, long to, ForkJoinPool pool )
+        {
+            from = Math.max( from, 0L );
+            this.to = Math.min( to, PrimesIterable.LAST_LONG_PRIME );
+            this.pool = pool;
+            window = Math.max( pool.getParallelism(), 1 ) << 1;
+            next = from;
+            submitted = from > this.to;
+            long length = submitted ? 0L : this.to - from + 1L;
+            // Chunks are aligned to the wheel cycle, at least a few chunks per thread are used for load balancing.
+            long chunk = length / ( window << 1 );
+            chunk = Math.max( MIN_CHUNK_LENGTH, Math.min( MAX_CHUNK_LENGTH, chunk ) );
+            chunkLength = chunk - chunk % 30L;
+            primesLimit = ( int )MathUtils.isqrt( Math.min( this.to, PrimeSieve.MAX_SIEVING_LIMIT ) );
+            primes = submitted ? null : PrimeSieve.getSievingPrimes( primesLimit );
+            fill();
+        }
+        
+        private void fill()
+        {
+            while ( !submitted && tasks.size() < window )
+            {
+                long lo = next;
+                long hi = lo + chunkLength - 1L;
+                // Overflow or the last chunk.
+                if ( hi < lo || hi >= to )
+                {
+                    hi = to;
+                    submitted = true;
+                }
+                else next = hi + 1L;
+                long chunkTo = hi;
+                tasks.addLast( pool.submit( () -> sieveChunk( lo, chunkTo, primes, primesLimit ) ) );
+            }
+        }
+        
+        /**
+         * Wait for the next chunk.
+         * @return a non-empty sorted array of primes, or null if there are no more primes
+         */
+        long[] next()
+        {
+            while ( !tasks.isEmpty() )
+            {
+                long ret[] = tasks.pollFirst().join();
+                fill();
+                if ( ret.length > 0 ) return ret;
+            }
+            return null;
+        }
+        
+        void cancel()
+        {
+            submitted = true;
+            for ( ForkJoinTask< long[] > task : tasks ) task.cancel( false );
+            tasks.clear();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,280 @@
+package org.quinto.math;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Primality test of arrays of numbers.
+ * <p>Every number goes through the same tiers as {@link PrimeUtils#isPrime(long)}: table lookups and trial division.
+ * The rest numbers are grouped by size classes which share witnesses (see {@link MillerWitnesses})
+ * and tested witness by witness, so a pass runs only for numbers that passed all the previous witnesses.
+ * Exponentiations of {@link #LANES} numbers are interleaved: they are independent,
+ * so a CPU executes their multiplications in parallel instead of waiting for a single chain of multiplications.
+ * @see PrimeUtils#isPrime(long[], BitSet)
+ */
+class PrimeBatch
+{
+    /**
+     * Quantity of interleaved exponentiations.
+     */
+    private static final int LANES = 4;
+    
+    /**
+     * Quantity of numbers processed by one task. It's a multiple of 64, so tasks write distinct words of a bitmap.
+     */
+    private static final int CHUNK_LENGTH = 1 << 13;
+    
+    /**
+     * Size classes: numbers with a hashed witness and classes of {@link MillerWitnesses#WITNESSES}.
+     */
+    private static final int CLASSES = MillerWitnesses.WITNESSES.length + 1;
+    
+    /**
+     * Primality test of every number of an array. Chunks of large arrays are processed in parallel.
+     * @param values numbers to check for primality
+     * @param out a bit i is set iff absolute value of values[ i ] is prime; bits from values.length are kept
+     * @param pool a pool to process chunks on, or null to process in the current thread
+     */
+    static void isPrime( long values[], BitSet out, ForkJoinPool pool )
+    {
+        long words[] = new long[ ( values.length + 63 ) >>> 6 ];
+        if ( pool == null || values.length <= CHUNK_LENGTH ) test( values, 0, values.length, words );
+        else
+        {
+            List< ForkJoinTask< ? > > tasks = new ArrayList<>();
+            for ( int from = 0; from < values.length; from += CHUNK_LENGTH )
+            {
+                int chunkFrom = from;
+                int chunkTo = Math.min( from + CHUNK_LENGTH, values.length );
+                tasks.add( pool.submit( () -> test( values, chunkFrom, chunkTo, words ) ) );
+            }
+            for ( ForkJoinTask< ? > task : tasks ) task.join();
+        }
+        store( words, values.length, out );
+    }
+    
+    /**
+     * Primality test of every number of an array. Chunks of large arrays are processed in parallel.
+     * @param values numbers to check for primality
+     * @param out a bit i is set iff absolute value of values[ i ] is prime; bits from values.length are kept
+     * @param pool a pool to process chunks on, or null to process in the current thread
+     */
+    static void isPrime( int values[], BitSet out, ForkJoinPool pool )
+    {
+        long words[] = new long[ ( values.length + 63 ) >>> 6 ];
+        if ( pool == null || values.length <= CHUNK_LENGTH ) test( values, 0, values.length, words );
+        else
+        {
+            List< ForkJoinTask< ? > > tasks = new ArrayList<>();
+            for ( int from = 0; from < values.length; from += CHUNK_LENGTH )
+            {
+                int chunkFrom = from;
+                int chunkTo = Math.min( from + CHUNK_LENGTH, values.length );
+                tasks.add( pool.submit( () -> test( values, chunkFrom, chunkTo, words ) ) );
+            }
+            for ( ForkJoinTask< ? > task : tasks ) task.join();
+        }
+        store( words, values.length, out );
+    }
+    
+    private static void store( long words[], int length, BitSet out )
+    {
+        out.clear( 0, length );
+        out.or( BitSet.valueOf( words ) );
+    }
+    
+    private static void test( int values[], int from, int to, long words[] )
+    {
+        long numbers[] = new long[ to - from ];
+        for ( int i = from; i < to; i++ ) numbers[ i - from ] = values[ i ];
+        test( numbers, from, words );
+    }
+    
+    private static void test( long values[], int from, int to, long words[] )
+    {
+        long numbers[] = new long[ to - from ];
+        System.arraycopy( values, from, numbers, 0, numbers.length );
+        test( numbers, from, words );
+    }
+    
+    /**
+     * Test a chunk of numbers.
+     * @param numbers a chunk, it's overwritten
+     * @param offset an index of the first number of the chunk in the whole array, a multiple of 64
+     * @param words a bitmap of the whole array
+     */
+    private static void test( long numbers[], int offset, long words[] )
+    {
+        PrimeTable small = PrimeUtils.SmallTable.TABLE;
+        PrimeTable table = PrimeTable.getDefault();
+        // Size classes of numbers that need Miller-Rabin tests, or -1 if a number is already decided.
+        byte classes[] = new byte[ numbers.length ];
+        int counts[] = new int[ CLASSES + 1 ];
+        for ( int i = 0; i < numbers.length; i++ )
+        {
+            long n = Math.abs( numbers[ i ] );
+            numbers[ i ] = n;
+            classes[ i ] = -1;
+            boolean prime;
+            if ( small.contains( n ) ) prime = small.isPrime( n );
+            else if ( table != null && table.contains( n ) ) prime = table.isPrime( n );
+            // Long.MIN_VALUE would be rejected here too.
+            else if ( ( n & 1L ) == 0L ) prime = n == 2L;
+            else
+            {
+                int p = MillerWitnesses.smallFactor( n );
+                if ( p != 0 ) prime = n == p;
+                else if ( n < MillerWitnesses.TRIAL_LIMIT ) prime = n > 1L;
+                else if ( n >= MillerWitnesses.HASHED_LIMIT )
+                {
+                    prime = false;
+                    classes[ i ] = ( byte )( MillerWitnesses.sizeClass( n ) + 1 );
+                }
+                // If n divides the hashed witness then n is prime.
+                else if ( MillerWitnesses.hashed( ( int )n ) % n == 0L ) prime = true;
+                else
+                {
+                    prime = false;
+                    classes[ i ] = 0;
+                }
+            }
+            if ( prime ) words[ ( offset + i ) >>> 6 ] |= 1L << ( offset + i );
+            else if ( classes[ i ] >= 0 ) counts[ classes[ i ] + 1 ]++;
+        }
+        // Counting sort of candidates by size classes.
+        for ( int c = 0; c < CLASSES; c++ ) counts[ c + 1 ] += counts[ c ];
+        long candidates[] = new long[ counts[ CLASSES ] ];
+        int indices[] = new int[ candidates.length ];
+        int positions[] = counts.clone();
+        for ( int i = 0; i < numbers.length; i++ )
+        {
+            if ( classes[ i ] < 0 ) continue;
+            int position = positions[ classes[ i ] ]++;
+            candidates[ position ] = numbers[ i ];
+            indices[ position ] = offset + i;
+        }
+        Lanes lanes = new Lanes();
+        for ( int c = 0; c < CLASSES; c++ )
+        {
+            int from = counts[ c ];
+            int to = counts[ c + 1 ];
+            int witnesses = c == 0 ? 1 : MillerWitnesses.WITNESSES[ c - 1 ].length;
+            for ( int w = 0; w < witnesses && to > from; w++ )
+            {
+                // Survivors are moved to the beginning of the range.
+                int survivors = from;
+                for ( int i = from; i < to; i += LANES )
+                {
+                    int count = Math.min( LANES, to - i );
+                    for ( int l = 0; l < LANES; l++ )
+                    {
+                        // Empty lanes repeat the first number.
+                        long n = candidates[ i + ( l < count ? l : 0 ) ];
+                        lanes.n[ l ] = n;
+                        lanes.bases[ l ] = c == 0 ? ( int )( MillerWitnesses.hashed( ( int )n ) % n ) : MillerWitnesses.WITNESSES[ c - 1 ][ w ];
+                    }
+                    int passed = lanes.test( c == 0 );
+                    for ( int l = 0; l < count; l++ )
+                    {
+                        if ( ( passed & ( 1 << l ) ) == 0 ) continue;
+                        candidates[ survivors ] = candidates[ i + l ];
+                        indices[ survivors ] = indices[ i + l ];
+                        survivors++;
+                    }
+                }
+                to = survivors;
+            }
+            for ( int i = from; i < to; i++ ) words[ indices[ i ] >>> 6 ] |= 1L << indices[ i ];
+        }
+    }
+    
+    /**
+     * Interleaved strong pseudoprimality tests with Montgomery arithmetic.
+     * <p>Exponentiation uses fixed windows of {@link #WINDOW_BITS} bits. Unlike the binary method, it doesn't branch
+     * on bits of exponents, so mispredicted branches of one lane don't discard work of the others.
+     */
+    private static class Lanes
+    {
+        private static final int WINDOW_BITS = 4;
+        private static final int WINDOW_MASK = ( 1 << WINDOW_BITS ) - 1;
+        
+        private final long n[] = new long[ LANES ];
+        private final int bases[] = new int[ LANES ];
+        private final long nInverse[] = new long[ LANES ];
+        private final long one[] = new long[ LANES ];
+        private final long r[] = new long[ LANES ];
+        private final long x[] = new long[ LANES ];
+        private final long powers[][] = new long[ LANES ][ 1 << WINDOW_BITS ];
+        
+        /**
+         * Test odd numbers {@link #n} greater than 2 with bases {@link #bases} that are less than the numbers.
+         * @param narrow true if all the numbers are less than 2<sup>32</sup>, then R = 2<sup>32</sup> instead of 2<sup>64</sup>
+         * @return a bit mask of lanes that pass the test
+         */
+        private int test( boolean narrow )
+        {
+            int bits = 0;
+            for ( int l = 0; l < LANES; l++ )
+            {
+                long nMinusOne = n[ l ] - 1L;
+                r[ l ] = nMinusOne >>> Long.numberOfTrailingZeros( nMinusOne );
+                bits = Math.max( bits, 64 - Long.numberOfLeadingZeros( r[ l ] ) );
+                if ( narrow )
+                {
+                    nInverse[ l ] = Montgomery.inverse( n[ l ] ) & 0xFFFFFFFFL;
+                    one[ l ] = ( 1L << 32 ) % n[ l ];
+                    powers[ l ][ 1 ] = ( ( long )bases[ l ] << 32 ) % n[ l ];
+                }
+                else
+                {
+                    nInverse[ l ] = Montgomery.inverse( n[ l ] );
+                    one[ l ] = Montgomery.one( n[ l ] );
+                    powers[ l ][ 1 ] = Montgomery.valueOf( bases[ l ], n[ l ], one[ l ] );
+                }
+                powers[ l ][ 0 ] = one[ l ];
+            }
+            for ( int k = 2; k <= WINDOW_MASK; k++ ) for ( int l = 0; l < LANES; l++ ) powers[ l ][ k ] = multiply( powers[ l ][ k - 1 ], powers[ l ][ 1 ], l, narrow );
+            // Leading zero windows of shorter exponents square one.
+            int shift = ( bits + WINDOW_BITS - 1 ) / WINDOW_BITS * WINDOW_BITS - WINDOW_BITS;
+            for ( int l = 0; l < LANES; l++ ) x[ l ] = powers[ l ][ ( int )( r[ l ] >>> shift ) & WINDOW_MASK ];
+            for ( shift -= WINDOW_BITS; shift >= 0; shift -= WINDOW_BITS )
+            {
+                for ( int l = 0; l < LANES; l++ )
+                {
+                    long y = x[ l ];
+                    for ( int i = 0; i < WINDOW_BITS; i++ ) y = multiply( y, y, l, narrow );
+                    x[ l ] = multiply( y, powers[ l ][ ( int )( r[ l ] >>> shift ) & WINDOW_MASK ], l, narrow );
+                }
+            }
+            int ret = 0;
+            for ( int l = 0; l < LANES; l++ )
+            {
+                long minusOne = n[ l ] - one[ l ];
+                long remainder = x[ l ];
+                boolean passed = remainder == one[ l ] || remainder == minusOne;
+                for ( int j = Long.numberOfTrailingZeros( n[ l ] - 1L ) - 1; j > 0 && !passed; j-- )
+                {
+                    remainder = multiply( remainder, remainder, l, narrow );
+                    if ( remainder == one[ l ] ) break;
+                    passed = remainder == minusOne;
+                }
+                if ( passed ) ret |= 1 << l;
+            }
+            return ret;
+        }
+        
+        private long multiply( long a, long b, int lane, boolean narrow )
+        {
+            long n = this.n[ lane ];
+            if ( !narrow ) return Montgomery.multiply( a, b, n, nInverse[ lane ] );
+            // REDC with R = 2^32: a * b < n * R, so both high halves are less than n and low halves cancel out.
+            long product = a * b;
+            long m = ( product * nInverse[ lane ] ) & 0xFFFFFFFFL;
+            long ret = ( product >>> 32 ) - ( ( m * n ) >>> 32 );
+            return ret + ( n & ( ret >> 63 ) );
+        }
+    }
+}
\ No newline at end of file
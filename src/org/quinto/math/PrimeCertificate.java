@@ -0,0 +1,271 @@
+package org.quinto.math;
+
+import java.io.Serializable;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A certificate of primality of a number. It's created by {@link PrimeUtils#certifyPrime(BigInteger)}.
+ * <p>A certificate is a chain of numbers n = n<sub>0</sub> &gt; n<sub>1</sub> &gt; ... &gt; n<sub>k</sub> where n<sub>k</sub> &lt; 2<sup>63</sup>.
+ * Each step proves that n<sub>i</sub> is prime if n<sub>i + 1</sub> is prime, the last number is checked by {@link PrimeUtils#isPrime(long)}.
+ * There are two kinds of steps:
+ * <ul><li>Pocklington step: n - 1 is completely factored, its factors are n<sub>i + 1</sub> and several small primes.
+ * A base a is given such that a<sup>n - 1</sup> = 1 and gcd( a<sup>( n - 1 ) / p</sup> - 1, n ) = 1 for every prime factor p of n - 1.</li>
+ * <li>Elliptic step (Goldwasser-Kilian, Atkin-Morain): a curve y<sup>2</sup> = x<sup>3</sup> + a * x + b modulo n, a point P on the curve
+ * and a factorization m = s * q where q = n<sub>i + 1</sub> &gt; ( n<sup>1/4</sup> + 1 )<sup>2</sup>, such that s * P isn't the point at infinity
+ * and q * ( s * P ) is the point at infinity.</li></ul>
+ * <p>Verification needs a couple of exponentiations or scalar multiplications per step, and no search at all.
+ * So it's much faster than proving.
+ * <p>A certificate is serializable, and it has a text form: see {@link #toString()} and {@link #valueOf(String)}.
+ * A certificate that was deserialized or parsed from a text isn't trusted: {@link #verify()} checks it completely.
+ */
+public class PrimeCertificate implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+    private static final BigInteger SIX = BigInteger.valueOf( 6L );
+    
+    private final BigInteger number;
+    private final Step steps[];
+    
+    /**
+     * A step of a chain: a proof that a number is prime if the next number is prime.
+     */
+    abstract static class Step implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+        
+        final BigInteger n;
+        final BigInteger q;
+        
+        Step( BigInteger n, BigInteger q )
+        {
+            this.n = n;
+            this.q = q;
+        }
+        
+        /**
+         * Check the step.
+         * @return true if n is prime provided that q is prime
+         */
+        abstract boolean verify();
+        
+        /**
+         * Get all the numbers of the step in the order of the text form, starting from n.
+         */
+        abstract BigInteger[] values();
+    }
+    
+    /**
+     * Pocklington step with a complete factorization of n - 1: q and small primes.
+     */
+    static class Pocklington extends Step
+    {
+        private static final long serialVersionUID = 1L;
+        
+        /**
+         * Tag of the step in the text form.
+         */
+        static final String TAG = "P";
+        
+        final BigInteger a;
+        final long primes[];
+        
+        Pocklington( BigInteger n, BigInteger q, BigInteger a, long primes[] )
+        {
+            super( n, q );
+            this.a = a;
+            this.primes = primes;
+        }
+        
+        @Override
+        boolean verify()
+        {
+            if ( a == null || primes == null || n.compareTo( BigUtils.BI_TWO ) <= 0 ) return false;
+            BigInteger nMinusOne = n.subtract( BigInteger.ONE );
+            BigInteger qr[] = nMinusOne.divideAndRemainder( q );
+            if ( qr[ 1 ].signum() != 0 ) return false;
+            // The rest of n - 1 is a product of powers of listed primes.
+            BigInteger rest = qr[ 0 ];
+            for ( long p : primes )
+            {
+                if ( !PrimeUtils.isPrime( p ) || p < 0L ) return false;
+                BigInteger divisor = BigInteger.valueOf( p );
+                for ( qr = rest.divideAndRemainder( divisor ); qr[ 1 ].signum() == 0; qr = rest.divideAndRemainder( divisor ) ) rest = qr[ 0 ];
+            }
+            if ( !rest.equals( BigInteger.ONE ) ) return false;
+            if ( !a.modPow( nMinusOne, n ).equals( BigInteger.ONE ) ) return false;
+            if ( !coprime( nMinusOne.divide( q ) ) ) return false;
+            for ( long p : primes ) if ( !coprime( nMinusOne.divide( BigInteger.valueOf( p ) ) ) ) return false;
+            return true;
+        }
+        
+        private boolean coprime( BigInteger exponent )
+        {
+            return a.modPow( exponent, n ).subtract( BigInteger.ONE ).gcd( n ).equals( BigInteger.ONE );
+        }
+        
+        @Override
+        BigInteger[] values()
+        {
+            BigInteger ret[] = new BigInteger[ primes.length + 3 ];
+            ret[ 0 ] = n;
+            ret[ 1 ] = q;
+            ret[ 2 ] = a;
+            for ( int i = 0; i < primes.length; i++ ) ret[ i + 3 ] = BigInteger.valueOf( primes[ i ] );
+            return ret;
+        }
+    }
+    
+    /**
+     * Elliptic curve step.
+     */
+    static class Elliptic extends Step
+    {
+        private static final long serialVersionUID = 1L;
+        
+        /**
+         * Tag of the step in the text form.
+         */
+        static final String TAG = "E";
+        
+        final BigInteger a;
+        final BigInteger b;
+        final BigInteger x;
+        final BigInteger y;
+        final BigInteger s;
+        
+        Elliptic( BigInteger n, BigInteger q, BigInteger a, BigInteger b, BigInteger x, BigInteger y, BigInteger s )
+        {
+            super( n, q );
+            this.a = a;
+            this.b = b;
+            this.x = x;
+            this.y = y;
+            this.s = s;
+        }
+        
+        @Override
+        boolean verify()
+        {
+            if ( a == null || b == null || x == null || y == null || s == null || s.signum() <= 0 ) return false;
+            if ( !n.gcd( SIX ).equals( BigInteger.ONE ) || n.compareTo( BigInteger.ONE ) <= 0 ) return false;
+            if ( q.compareTo( lowerBound( n ) ) < 0 ) return false;
+            for ( BigInteger v : new BigInteger[]{ a, b, x, y } ) if ( v.signum() < 0 || v.compareTo( n ) >= 0 ) return false;
+            EllipticCurve curve = new EllipticCurve( n, a, b );
+            if ( !curve.discriminant().gcd( n ).equals( BigInteger.ONE ) || !curve.contains( x, y ) ) return false;
+            BigInteger point[] = curve.multiply( new BigInteger[]{ x, y }, s );
+            if ( point == null ) return false;
+            return curve.multiply( point, q ) == null && curve.divisor == null;
+        }
+        
+        @Override
+        BigInteger[] values()
+        {
+            return new BigInteger[]{ n, q, a, b, x, y, s };
+        }
+    }
+    
+    PrimeCertificate( BigInteger number, Step steps[] )
+    {
+        this.number = number;
+        this.steps = steps;
+    }
+    
+    /**
+     * Get the least order of a point of an elliptic step, so that n is prime. It's not less than ( n<sup>1/4</sup> + 1 )<sup>2</sup>.
+     * @param n a number which is proved to be prime
+     * @return ( floor( n<sup>1/4</sup> ) + 2 )<sup>2</sup>
+     */
+    static BigInteger lowerBound( BigInteger n )
+    {
+        BigInteger ret = BigUtils.isqrt( BigUtils.isqrt( n ) ).add( BigUtils.BI_TWO );
+        return ret.multiply( ret );
+    }
+    
+    /**
+     * Get a number which primality is certified.
+     * @return a positive number
+     */
+    public BigInteger getNumber()
+    {
+        return number;
+    }
+    
+    /**
+     * Get a quantity of steps of the chain.
+     * @return 0 if the number is less than 2<sup>63</sup>
+     */
+    public int getLength()
+    {
+        return steps.length;
+    }
+    
+    /**
+     * Check the certificate. It doesn't rely on any unproved hypotheses nor on probabilistic tests.
+     * @return true if the certificate is valid, so the number is prime
+     */
+    public boolean verify()
+    {
+        if ( number == null || steps == null ) return false;
+        BigInteger n = number;
+        for ( Step step : steps )
+        {
+            if ( step == null || step.n == null || step.q == null || !step.n.equals( n ) || step.q.compareTo( n ) >= 0 || step.q.signum() <= 0 ) return false;
+            if ( !step.verify() ) return false;
+            n = step.q;
+        }
+        return n.bitLength() < 64 && PrimeUtils.isPrime( n.longValue() ) && n.signum() > 0;
+    }
+    
+    /**
+     * Get a text form of the certificate.
+     * <p>The first line is the number. The next lines are steps: numbers that are separated by spaces.
+     * A Pocklington step is {@code P n q a p1 p2 ...}, an elliptic step is {@code E n q a b x y s}.
+     * @return lines of decimal numbers
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append( number );
+        for ( Step step : steps )
+        {
+            sb.append( '\n' ).append( step instanceof Pocklington ? Pocklington.TAG : Elliptic.TAG );
+            for ( BigInteger v : step.values() ) sb.append( ' ' ).append( v );
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * Parse a text form of a certificate (see {@link #toString()}). The certificate isn't verified.
+     * @param s a text form
+     * @return a parsed certificate
+     * @throws NumberFormatException if the text isn't a valid form of a certificate
+     */
+    public static PrimeCertificate valueOf( String s ) throws NumberFormatException
+    {
+        String lines[] = s.trim().split( "\\s*\\n\\s*" );
+        BigInteger number = new BigInteger( lines[ 0 ] );
+        List< Step > steps = new ArrayList<>();
+        for ( int i = 1; i < lines.length; i++ )
+        {
+            String tokens[] = lines[ i ].split( "\\s+" );
+            BigInteger values[] = new BigInteger[ tokens.length - 1 ];
+            for ( int j = 0; j < values.length; j++ ) values[ j ] = new BigInteger( tokens[ j + 1 ] );
+            if ( tokens[ 0 ].equals( Pocklington.TAG ) && values.length >= 3 )
+            {
+                long primes[] = new long[ values.length - 3 ];
+                for ( int j = 0; j < primes.length; j++ )
+                {
+                    if ( values[ j + 3 ].bitLength() >= 64 ) throw new NumberFormatException( "Too large prime " + values[ j + 3 ] + " in line " + ( i + 1 ) );
+                    primes[ j ] = values[ j + 3 ].longValue();
+                }
+                steps.add( new Pocklington( values[ 0 ], values[ 1 ], values[ 2 ], primes ) );
+            }
+            else if ( tokens[ 0 ].equals( Elliptic.TAG ) && values.length == 7 ) steps.add( new Elliptic( values[ 0 ], values[ 1 ], values[ 2 ], values[ 3 ], values[ 4 ], values[ 5 ], values[ 6 ] ) );
+            else throw new NumberFormatException( "Invalid step in line " + ( i + 1 ) + ": " + lines[ i ] );
+        }
+        return new PrimeCertificate( number, steps.toArray( new Step[ steps.size() ] ) );
+    }
+}
\ No newline at end of file
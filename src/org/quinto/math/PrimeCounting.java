@@ -0,0 +1,382 @@
+package org.quinto.math;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Sublinear prime counting, prime summation and n-th prime search.
+ * @see PrimeUtils#primePi
+ * @see PrimeUtils#primeSum
+ * @see PrimeUtils#nthPrime
+ */
+class PrimeCounting
+{
+    /**
+     * Primes up to this limit are counted by a sieve.
+     */
+    private static final long SIEVE_THRESHOLD = 1L << 22;
+    
+    /**
+     * Length of a segment of special leaves sieve.
+     */
+    private static final int SEGMENT_LENGTH = 1 << 16;
+    
+    /**
+     * Minimal quantity of segments processed by one task.
+     */
+    private static final int SEGMENTS_PER_TASK = 4;
+    
+    /**
+     * Prime-counting function pi( x ) by Lagarias-Miller-Odlyzko algorithm. Time O( x<sup>2/3</sup> ).
+     * <p>pi( x ) = phi( x, a ) + a - 1 - P2( x, a ), where a = pi( y ), y ~ x<sup>1/3</sup>.
+     * <ul><li>phi( x, a ) is a quantity of numbers in range [ 1 .. x ] that are not divisible by first a primes.
+     * It's a sum of ordinary leaves (S1) and special leaves (S2) of Legendre's recursion
+     * phi( x, b ) = phi( x, b - 1 ) - phi( x / p<sub>b</sub>, b - 1 ).
+     * Special leaves are counted by a segmented sieve of range [ 1 .. x / y ] with a binary indexed tree.</li>
+     * <li>P2( x, a ) is a quantity of numbers in range [ 1 .. x ] that are products of two primes greater than p<sub>a</sub>.</li></ul>
+     * Segments of the special leaves sieve are processed in parallel.
+     * https://en.wikipedia.org/wiki/Prime-counting_function#Algorithms_for_evaluating_.CF.80.28x.29
+     * @param x an upper inclusive bound
+     * @param pool a pool to process segments on
+     * @return a quantity of primes in range [ 2 .. x ]
+     */
+    static long primePi( long x, ForkJoinPool pool )
+    {
+        if ( x < SIEVE_THRESHOLD ) return countBySieve( 0L, x );
+        long sqrt = MathUtils.isqrt( x );
+        // Balance between sieving range length ( x / y ) and quantity of special leaves ( ~ y ^ 2 ).
+        double alpha = Math.max( 1.0, Math.log( x ) / 8.0 );
+        int y = ( int )Math.min( sqrt, ( long )( MathUtils.icbrt( x ) * alpha ) );
+        long z = x / y;
+        int primes[] = PrimesIterable.intStream( y ).toArray();
+        int a = primes.length;
+        // Least prime factors and Moebius function values of numbers up to y.
+        int lpf[] = new int[ y + 1 ];
+        byte mu[] = new byte[ y + 1 ];
+        mu[ 1 ] = 1;
+        for ( int n = 2; n <= y; n++ ) mu[ n ] = 1;
+        for ( int i = 0; i < a; i++ )
+        {
+            int p = primes[ i ];
+            for ( int n = p; n <= y; n += p )
+            {
+                if ( lpf[ n ] == 0 ) lpf[ n ] = p;
+                mu[ n ] = ( byte )-mu[ n ];
+            }
+            long p2 = ( long )p * p;
+            for ( long n = p2; n <= y; n += p2 ) mu[ ( int )n ] = 0;
+        }
+        // Ordinary leaves.
+        long s1 = 0L;
+        for ( int n = 1; n <= y; n++ ) if ( mu[ n ] != 0 ) s1 += mu[ n ] * ( x / n );
+        long s2 = specialLeaves( x, y, z, a, primes, lpf, mu, pool );
+        long p2 = countSemiprimes( x, y, a, pool );
+        return s1 + s2 + a - 1 - p2;
+    }
+    
+    /**
+     * The n-th prime number.
+     * <p>Cipolla's asymptotic expansion estimates x ~ p<sub>n</sub>, pi( x ) is computed exactly,
+     * and only the primes between x and p<sub>n</sub> are sieved.
+     * https://en.wikipedia.org/wiki/Prime_number_theorem#Approximations_for_the_nth_prime_number
+     * @param n an index of a prime, starting from 1
+     * @param pool a pool to count and sieve primes on
+     * @return the n-th prime number
+     * @throws IllegalArgumentException if n &lt; 1 or the n-th prime doesn't fit long datatype
+     */
+    static long nthPrime( long n, ForkJoinPool pool ) throws IllegalArgumentException
+    {
+        if ( n < 1L || n > PrimesIterable.LONG_PRIMES_QUANTITY ) throw new IllegalArgumentException( "No prime with index " + n + " in long datatype" );
+        // The expansion isn't defined for n = 1 (ln ln 1 = -Infinity) and is meaningless for the next few n.
+        double ln = Math.log( n );
+        double lnln = Math.log( ln );
+        double estimate = n < 6L ? 0.0 : n * ( ln + lnln - 1.0 + ( lnln - 2.0 ) / ln - ( lnln * lnln - 6.0 * lnln + 11.0 ) / ( 2.0 * ln * ln ) );
+        if ( estimate < SIEVE_THRESHOLD )
+        {
+            PrimeSieve sieve = new PrimeSieve( 0L, PrimesIterable.LAST_LONG_PRIME );
+            long ret = sieve.next();
+            for ( long i = 1L; i < n; i++ ) ret = sieve.next();
+            return ret;
+        }
+        long x = ( long )Math.min( estimate, PrimesIterable.LAST_LONG_PRIME );
+        long count = primePi( x, pool );
+        if ( count < n )
+        {
+            // Sieve forward from x.
+            long remaining = n - count;
+            ParallelPrimeSieve.OrderedChunks chunks = new ParallelPrimeSieve.OrderedChunks( x + 1L, PrimesIterable.LAST_LONG_PRIME, pool );
+            try
+            {
+                for ( long chunk[] = chunks.next(); ; chunk = chunks.next() )
+                {
+                    if ( remaining <= chunk.length ) return chunk[ ( int )remaining - 1 ];
+                    remaining -= chunk.length;
+                }
+            }
+            finally
+            {
+                chunks.cancel();
+            }
+        }
+        // Sieve backward from x, x is included.
+        long remaining = count - n + 1L;
+        for ( long hi = x; ; )
+        {
+            long lo = Math.max( 0L, hi - ParallelPrimeSieve.MAX_CHUNK_LENGTH + 1L );
+            long window[] = ParallelPrimeSieve.sieveChunk( lo, hi, null, 0 );
+            if ( remaining <= window.length ) return window[ window.length - ( int )remaining ];
+            remaining -= window.length;
+            hi = lo - 1L;
+        }
+    }
+    
+    private static long countBySieve( long from, long to )
+    {
+        PrimeSieve sieve = new PrimeSieve( from, to );
+        long ret = 0L;
+        while ( sieve.next() != 0L ) ret++;
+        return ret;
+    }
+    
+    /**
+     * P2( x, a ) = sum( pi( x / p<sub>k</sub> ) - k + 1 ), a &lt; k &le; pi( sqrt( x ) ).
+     */
+    private static long countSemiprimes( long x, int y, int a, ForkJoinPool pool )
+    {
+        long sqrt = MathUtils.isqrt( x );
+        if ( y >= sqrt ) return 0L;
+        // Values x / p_k are increasing while k decreases from pi( sqrt( x ) ) to a + 1.
+        // So primes in range ( y .. sqrt( x ) ] are sieved in decreasing order by windows.
+        long k = a + countBySieve( y + 1L, sqrt );
+        long window[] = new long[ 0 ];
+        int w = 0;
+        long hi = sqrt;
+        long ret = 0L;
+        long count = 0L;
+        ParallelPrimeSieve.OrderedChunks chunks = new ParallelPrimeSieve.OrderedChunks( 0L, x / ( y + 1L ), pool );
+        try
+        {
+            for ( long chunk[] = chunks.next(); chunk != null && k > a; chunk = chunks.next() )
+            {
+                int i = 0;
+                while ( k > a )
+                {
+                    while ( w == 0 )
+                    {
+                        long lo = Math.max( y + 1L, hi - ParallelPrimeSieve.MAX_CHUNK_LENGTH + 1L );
+                        window = ParallelPrimeSieve.sieveChunk( lo, hi, null, 0 );
+                        w = window.length;
+                        hi = lo - 1L;
+                    }
+                    long v = x / window[ w - 1 ];
+                    while ( i < chunk.length && chunk[ i ] <= v ) i++;
+                    if ( i == chunk.length ) break;
+                    ret += count + i - k + 1L;
+                    k--;
+                    w--;
+                }
+                count += chunk.length;
+            }
+        }
+        finally
+        {
+            chunks.cancel();
+        }
+        // All the remaining values are not less than the last prime.
+        for ( ; k > a; k-- ) ret += count - k + 1L;
+        return ret;
+    }
+    
+    /**
+     * S2 = -sum( mu( m ) * phi( x / ( m * p<sub>b + 1</sub> ), b ) ),
+     * where 0 &le; b &lt; a, y / p<sub>b + 1</sub> &lt; m &le; y, lpf( m ) &gt; p<sub>b + 1</sub>.
+     * <p>The range [ 1 .. z ] is split into blocks of segments which are processed independently.
+     * phi( v, b ) is a sum of a quantity of unsieved numbers in previous blocks and in the current block.
+     * So every block reports its local sum, its leaves coefficients and its unsieved numbers quantities for each b.
+     */
+    private static long specialLeaves( long x, int y, long z, int a, int primes[], int lpf[], byte mu[], ForkJoinPool pool )
+    {
+        long segments = ( z + SEGMENT_LENGTH ) / SEGMENT_LENGTH;
+        long tasksQuantity = Math.max( 1L, Math.min( segments / SEGMENTS_PER_TASK, pool.getParallelism() * 8L ) );
+        long segmentsPerTask = ( segments + tasksQuantity - 1L ) / tasksQuantity;
+        List< ForkJoinTask< long[] > > tasks = new ArrayList<>();
+        for ( long low = 1L; low <= z; low += segmentsPerTask * SEGMENT_LENGTH )
+        {
+            long from = low;
+            long to = Math.min( z + 1L, low + segmentsPerTask * SEGMENT_LENGTH );
+            tasks.add( pool.submit( () -> specialLeavesBlock( x, y, from, to, a, primes, lpf, mu ) ) );
+        }
+        long ret = 0L;
+        long phi[] = new long[ a ];
+        for ( ForkJoinTask< long[] > task : tasks )
+        {
+            long block[] = task.join();
+            // block = [ local sum, coefficients[ a ], quantities[ a ] ]
+            ret += block[ 0 ];
+            for ( int b = 0; b < a; b++ )
+            {
+                ret += block[ 1 + b ] * phi[ b ];
+                phi[ b ] += block[ 1 + a + b ];
+            }
+        }
+        return ret;
+    }
+    
+    /**
+     * Special leaves with x / ( m * p<sub>b + 1</sub> ) in range [ from .. to ).
+     * @return [ local sum, coefficients of phi( from - 1, b ) for each b, quantities of unsieved numbers for each b ]<br>
+     * The local sum contains phi values that are counted from {@code from}.
+     */
+    private static long[] specialLeavesBlock( long x, int y, long from, long to, int a, int primes[], int lpf[], byte mu[] )
+    {
+        long ret[] = new long[ 1 + ( a << 1 ) ];
+        boolean sieved[] = new boolean[ SEGMENT_LENGTH ];
+        int tree[] = new int[ SEGMENT_LENGTH + 1 ];
+        for ( long low = from; low < to; low += SEGMENT_LENGTH )
+        {
+            int length = ( int )Math.min( SEGMENT_LENGTH, to - low );
+            long high = low + length;
+            Arrays.fill( sieved, 0, length, false );
+            // Binary indexed tree of unsieved numbers, all numbers are unsieved initially.
+            for ( int i = 1; i <= length; i++ ) tree[ i ] = i & -i;
+            int unsieved = length;
+            for ( int b = 0; b < a; b++ )
+            {
+                int p = primes[ b ];
+                // Leaves with low <= x / ( m * p ) < high.
+                long mMax = Math.min( y, x / low / p );
+                long mMin = Math.max( y / p, x / high / p );
+                for ( long m = mMax; m > mMin; m-- )
+                {
+                    int mm = ( int )m;
+                    if ( mu[ mm ] == 0 || lpf[ mm ] <= p ) continue;
+                    long v = x / ( m * p );
+                    // Quantity of unsieved numbers in range [ low .. v ].
+                    int count = 0;
+                    for ( int i = ( int )( v - low ) + 1; i > 0; i -= i & -i ) count += tree[ i ];
+                    ret[ 0 ] -= mu[ mm ] * ( ret[ 1 + a + b ] + count );
+                    ret[ 1 + b ] -= mu[ mm ];
+                }
+                ret[ 1 + a + b ] += unsieved;
+                // Sieve out multiples of p (including p).
+                for ( long n = ( low + p - 1L ) / p * p; n < high; n += p )
+                {
+                    int i = ( int )( n - low );
+                    if ( sieved[ i ] ) continue;
+                    sieved[ i ] = true;
+                    unsieved--;
+                    for ( i++; i <= length; i += i & -i ) tree[ i ]--;
+                }
+            }
+        }
+        return ret;
+    }
+    
+    /**
+     * Sum of primes up to x by Lucy Hedgehog's algorithm. Time O( x<sup>3/4</sup> / log( x ) ).
+     * <p>S( v, p ) is a sum of numbers in range [ 2 .. v ] which are primes or have all prime factors not less than p.
+     * S( v, p ) = S( v, p - 1 ) - p * ( S( v / p, p - 1 ) - S( p - 1, p - 1 ) ) for prime p, p<sup>2</sup> &le; v.
+     * Only values v = x / i are required. Sums are kept as 128-bit integers (pairs of longs).
+     * Most of updates for a given p are independent and are performed in parallel for large x.
+     * @param x an upper inclusive bound
+     * @param pool a pool to perform updates on
+     * @return a sum of primes in range [ 2 .. x ]
+     * @throws IllegalArgumentException if sqrt( x ) is too large for an array index (x is about 2<sup>62</sup>)
+     */
+    static BigInteger primeSum( long x, ForkJoinPool pool ) throws IllegalArgumentException
+    {
+        if ( x < 2L ) return BigInteger.ZERO;
+        long sqrt = MathUtils.isqrt( x );
+        if ( sqrt > Integer.MAX_VALUE - 8 ) throw new IllegalArgumentException( "Too large x: " + x );
+        int r = ( int )sqrt;
+        // Sums for v in range [ 0 .. r ] and for v = x / i, i in range [ 1 .. r ].
+        long smallHigh[] = new long[ r + 1 ];
+        long smallLow[] = new long[ r + 1 ];
+        long largeHigh[] = new long[ r + 1 ];
+        long largeLow[] = new long[ r + 1 ];
+        for ( int v = 1; v <= r; v++ ) setTriangular( smallHigh, smallLow, v, v );
+        for ( int i = 1; i <= r; i++ ) setTriangular( largeHigh, largeLow, i, x / i );
+        for ( int p = 2; p <= r; p++ )
+        {
+            // p is composite if S( p ) = S( p - 1 ).
+            if ( smallLow[ p ] == smallLow[ p - 1 ] && smallHigh[ p ] == smallHigh[ p - 1 ] ) continue;
+            long spHigh = smallHigh[ p - 1 ];
+            long spLow = smallLow[ p - 1 ];
+            long p2 = ( long )p * p;
+            int largeTo = ( int )Math.min( r, x / p2 );
+            int prime = p;
+            // Large values with indices i <= largeTo / p depend on large values with indices i * p, so they are updated sequentially.
+            // The rest large values depend only on values which aren't updated on this step (small values are updated last).
+            int dependent = largeTo / p;
+            updateLarge( x, r, prime, spHigh, spLow, 1, dependent, smallHigh, smallLow, largeHigh, largeLow );
+            if ( largeTo - dependent > SEGMENT_LENGTH && pool.getParallelism() > 1 )
+            {
+                int step = ( largeTo - dependent + pool.getParallelism() - 1 ) / pool.getParallelism();
+                List< ForkJoinTask< ? > > tasks = new ArrayList<>();
+                for ( int from = dependent + 1; from <= largeTo; from += step )
+                {
+                    int lo = from;
+                    int hi = Math.min( largeTo, from + step - 1 );
+                    tasks.add( pool.submit( () -> updateLarge( x, r, prime, spHigh, spLow, lo, hi, smallHigh, smallLow, largeHigh, largeLow ) ) );
+                }
+                for ( ForkJoinTask< ? > task : tasks ) task.join();
+            }
+            else updateLarge( x, r, prime, spHigh, spLow, dependent + 1, largeTo, smallHigh, smallLow, largeHigh, largeLow );
+            for ( int v = r; v >= p2; v-- )
+            {
+                int w = v / p;
+                subtractProduct( smallHigh, smallLow, v, p, smallHigh[ w ], smallLow[ w ], spHigh, spLow );
+            }
+        }
+        BigInteger ret = BigInteger.valueOf( largeHigh[ 1 ] ).shiftLeft( 64 );
+        return ret.add( MathUtils.toUnsignedBigInteger( largeLow[ 1 ] ) );
+    }
+    
+    private static void updateLarge( long x, int r, int p, long spHigh, long spLow, int from, int to, long smallHigh[], long smallLow[], long largeHigh[], long largeLow[] )
+    {
+        // In increasing order of i: large values with greater indices are read before they are updated.
+        for ( int i = from; i <= to; i++ )
+        {
+            long d = ( long )i * p;
+            if ( d <= r ) subtractProduct( largeHigh, largeLow, i, p, largeHigh[ ( int )d ], largeLow[ ( int )d ], spHigh, spLow );
+            else
+            {
+                int w = ( int )( x / d );
+                subtractProduct( largeHigh, largeLow, i, p, smallHigh[ w ], smallLow[ w ], spHigh, spLow );
+            }
+        }
+    }
+    
+    /**
+     * S[ i ] -= p * ( ( wHigh, wLow ) - ( spHigh, spLow ) ) for 128-bit values.
+     */
+    private static void subtractProduct( long high[], long low[], int i, int p, long wHigh, long wLow, long spHigh, long spLow )
+    {
+        long dLow = wLow - spLow;
+        long dHigh = wHigh - spHigh - ( Long.compareUnsigned( wLow, spLow ) < 0 ? 1L : 0L );
+        long tLow = dLow * p;
+        long tHigh = dHigh * p + MathUtils.multiplyHighUnsigned( dLow, p );
+        long l = low[ i ];
+        low[ i ] = l - tLow;
+        high[ i ] -= tHigh + ( Long.compareUnsigned( l, tLow ) < 0 ? 1L : 0L );
+    }
+    
+    /**
+     * S[ i ] = v * ( v + 1 ) / 2 - 1 as a 128-bit value.
+     */
+    private static void setTriangular( long high[], long low[], int i, long v )
+    {
+        long a = v;
+        long b = v + 1L;
+        if ( ( a & 1L ) == 0L ) a >>= 1;
+        else b >>= 1;
+        long l = a * b;
+        long h = MathUtils.multiplyHighUnsigned( a, b );
+        low[ i ] = l - 1L;
+        high[ i ] = l == 0L ? h - 1L : h;
+    }
+}
\ No newline at end of file
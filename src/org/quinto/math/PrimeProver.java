@@ -0,0 +1,324 @@
+package org.quinto.math;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Search of primality certificates (see {@link PrimeCertificate}).
+ * <p>A chain of numbers is built top-down with backtracking. For every number n of the chain, candidates of the next number are:
+ * <ul><li>a cofactor of n - 1 after trial division, for a Pocklington step;</li>
+ * <li>a cofactor of an order m = n + 1 - t of a curve with complex multiplication by an imaginary quadratic order of discriminant D,
+ * where 4 * n = t<sup>2</sup> + |D| * v<sup>2</sup> (Atkin-Morain ECPP), for an elliptic step.</li></ul>
+ * Probable prime candidates are tried in increasing order within a batch. A candidate is rejected if a step can't be built
+ * or if the candidate itself can't be proved.
+ * <p>Discriminants are taken from {@link ClassPolynomial#DISCRIMINANTS}, the ones with smaller class numbers go first.
+ * Candidates are collected in small batches, so that large class polynomials are needed only if small ones don't give a prime.
+ * Curves are built from roots of Hilbert class polynomials modulo n, a twist of a curve is selected by a random point that is killed by m.
+ */
+class PrimeProver
+{
+    /**
+     * Bounds of trial division of n - 1 and of orders of curves.
+     */
+    private static final int MIN_SMOOTHNESS_BOUND = 1 << 10;
+    private static final int MAX_SMOOTHNESS_BOUND = 1 << 20;
+    
+    /**
+     * Quantity of tried curves or points for a candidate.
+     */
+    private static final int ATTEMPTS = 64;
+    
+    /**
+     * Quantity of probable prime candidates that are collected before trying them.
+     */
+    private static final int BATCH_SIZE = 4;
+    
+    private static final BigInteger J_1728 = BigInteger.valueOf( 1728L );
+    
+    private final Random random;
+    
+    /**
+     * Numbers that can't be proved by this prover.
+     */
+    private final Set< BigInteger > failed = new HashSet<>();
+    
+    /**
+     * A candidate of the next number of a chain.
+     */
+    private static class Candidate
+    {
+        private final BigInteger q;
+        private final BigInteger s;
+        /**
+         * A discriminant of an order of complex multiplication, or 0 for a Pocklington step.
+         */
+        private final int discriminant;
+        private final long primes[];
+        
+        private Candidate( BigInteger q, BigInteger s, int discriminant, long primes[] )
+        {
+            this.q = q;
+            this.s = s;
+            this.discriminant = discriminant;
+            this.primes = primes;
+        }
+    }
+    
+    private PrimeProver( BigInteger n )
+    {
+        // Certificates are reproducible.
+        random = new Random( n.hashCode() );
+    }
+    
+    /**
+     * Build a certificate of a probable prime number.
+     * @param n a positive number
+     * @return a certificate, or null if n is composite or the search failed
+     */
+    static PrimeCertificate prove( BigInteger n )
+    {
+        List< PrimeCertificate.Step > steps = new ArrayList<>();
+        if ( !new PrimeProver( n ).prove( n, steps ) ) return null;
+        return new PrimeCertificate( n, steps.toArray( new PrimeCertificate.Step[ steps.size() ] ) );
+    }
+    
+    private boolean prove( BigInteger n, List< PrimeCertificate.Step > steps )
+    {
+        if ( n.bitLength() < 64 ) return PrimeUtils.isPrime( n.longValue() );
+        if ( failed.contains( n ) ) return false;
+        List< Candidate > batch = new ArrayList<>();
+        // The index -1 stands for the Pocklington candidate.
+        for ( int next = -1; next < ClassPolynomial.DISCRIMINANTS.length; )
+        {
+            batch.clear();
+            next = candidates( n, next, batch );
+            batch.sort( Comparator.comparing( c -> c.q ) );
+            for ( Candidate candidate : batch )
+            {
+                PrimeCertificate.Step step = candidate.discriminant == 0 ? pocklington( n, candidate ) : elliptic( n, candidate );
+                if ( step == null ) continue;
+                steps.add( step );
+                if ( prove( candidate.q, steps ) ) return true;
+                steps.remove( steps.size() - 1 );
+            }
+        }
+        failed.add( n );
+        return false;
+    }
+    
+    /**
+     * Collect probable prime candidates.
+     * @param from an index of the first discriminant in {@link ClassPolynomial#DISCRIMINANTS}, or -1 to start from the Pocklington candidate
+     * @param batch a list to add candidates to
+     * @return an index of the next discriminant to look at
+     */
+    private int candidates( BigInteger n, int from, List< Candidate > batch )
+    {
+        int bits = n.bitLength();
+        int bound = ( int )Math.max( MIN_SMOOTHNESS_BOUND, Math.min( MAX_SMOOTHNESS_BOUND, ( long )bits * bits ) );
+        BigInteger lowerBound = PrimeCertificate.lowerBound( n );
+        int i = from;
+        if ( i < 0 )
+        {
+            BigInteger nMinusOne = n.subtract( BigInteger.ONE );
+            long primes[] = new long[ 64 ];
+            int size[] = { 0 };
+            BigInteger q = TrialDivision.divideOut( nMinusOne, bound, p ->
+            {
+                if ( size[ 0 ] < primes.length ) primes[ size[ 0 ] ] = p;
+                size[ 0 ]++;
+            } );
+            // The largest small prime is the next number if n - 1 is smooth.
+            if ( q.equals( BigInteger.ONE ) && size[ 0 ] > 0 ) q = BigInteger.valueOf( primes[ size[ 0 ] - 1 ] );
+            if ( size[ 0 ] <= primes.length && q.compareTo( n ) < 0 ) add( new Candidate( q, nMinusOne.divide( q ), 0, Arrays.copyOf( primes, size[ 0 ] ) ), batch );
+            i++;
+        }
+        for ( ; i < ClassPolynomial.DISCRIMINANTS.length && batch.size() < BATCH_SIZE; i++ )
+        {
+            int d = ClassPolynomial.DISCRIMINANTS[ i ];
+            if ( PrimeUtils.jacobiSymbol( d, n ) != 1 ) continue;
+            BigInteger uv[] = cornacchia( n, d );
+            if ( uv == null ) continue;
+            for ( BigInteger t : traces( d, uv[ 0 ], uv[ 1 ] ) )
+            {
+                BigInteger m = n.add( BigInteger.ONE ).subtract( t );
+                BigInteger cofactor = TrialDivision.divideOut( m, bound, null );
+                if ( cofactor.compareTo( lowerBound ) >= 0 && cofactor.compareTo( n ) < 0 ) add( new Candidate( cofactor, m.divide( cofactor ), d, null ), batch );
+            }
+        }
+        return i;
+    }
+    
+    /**
+     * Add a candidate to a batch if it's a probable prime that isn't known to be unprovable.
+     */
+    private void add( Candidate candidate, List< Candidate > batch )
+    {
+        if ( failed.contains( candidate.q ) ) return;
+        if ( candidate.q.bitLength() >= 64 && !PrimeUtils.isPrime( candidate.q ) )
+        {
+            failed.add( candidate.q );
+            return;
+        }
+        batch.add( candidate );
+    }
+    
+    /**
+     * Traces of Frobenius of curves with complex multiplication by an order of discriminant d.
+     * Orders of the curves are n + 1 - t.
+     */
+    private static BigInteger[] traces( int d, BigInteger u, BigInteger v )
+    {
+        if ( d == -4 ) return new BigInteger[]{ u, u.negate(), v.shiftLeft( 1 ), v.shiftLeft( 1 ).negate() };
+        if ( d == -3 )
+        {
+            BigInteger v3 = v.multiply( BigUtils.BI_THREE );
+            BigInteger t1 = u.add( v3 ).shiftRight( 1 );
+            BigInteger t2 = u.subtract( v3 ).shiftRight( 1 );
+            return new BigInteger[]{ u, u.negate(), t1, t1.negate(), t2, t2.negate() };
+        }
+        return new BigInteger[]{ u, u.negate() };
+    }
+    
+    private PrimeCertificate.Step pocklington( BigInteger n, Candidate candidate )
+    {
+        BigInteger nMinusOne = n.subtract( BigInteger.ONE );
+        for ( int a = 2; a < ATTEMPTS; a++ )
+        {
+            PrimeCertificate.Step step = new PrimeCertificate.Pocklington( n, candidate.q, BigInteger.valueOf( a ), candidate.primes );
+            // A composite n would be revealed by Fermat test.
+            if ( !BigInteger.valueOf( a ).modPow( nMinusOne, n ).equals( BigInteger.ONE ) ) return null;
+            if ( step.verify() ) return step;
+        }
+        return null;
+    }
+    
+    private PrimeCertificate.Step elliptic( BigInteger n, Candidate candidate )
+    {
+        int d = candidate.discriminant;
+        BigInteger j = ClassPolynomial.root( ClassPolynomial.get( d ), n, random );
+        if ( j == null ) return null;
+        BigInteger k = null;
+        if ( d != -3 && d != -4 )
+        {
+            // A curve y^2 = x^3 + 3 * k * x + 2 * k has j-invariant j.
+            BigInteger denominator = J_1728.subtract( j ).mod( n );
+            if ( !denominator.gcd( n ).equals( BigInteger.ONE ) ) return null;
+            k = j.multiply( denominator.modInverse( n ) ).mod( n );
+        }
+        for ( int attempt = 0; attempt < ATTEMPTS; attempt++ )
+        {
+            // Twists of the curve: by c^2 and c^3 for a general j-invariant, all the curves with the same j-invariant otherwise.
+            BigInteger c = random( n );
+            BigInteger a;
+            BigInteger b;
+            if ( d == -3 )
+            {
+                a = BigInteger.ZERO;
+                b = c;
+            }
+            else if ( d == -4 )
+            {
+                a = c;
+                b = BigInteger.ZERO;
+            }
+            else
+            {
+                BigInteger c2 = c.multiply( c ).mod( n );
+                a = k.multiply( BigUtils.BI_THREE ).multiply( c2 ).mod( n );
+                b = k.shiftLeft( 1 ).multiply( c2 ).multiply( c ).mod( n );
+            }
+            EllipticCurve curve = new EllipticCurve( n, a, b );
+            if ( !curve.discriminant().gcd( n ).equals( BigInteger.ONE ) ) continue;
+            BigInteger x = random( n );
+            BigInteger y = sqrt( curve.rightHandSide( x ), n );
+            if ( y == null ) continue;
+            BigInteger point[] = curve.multiply( new BigInteger[]{ x, y }, candidate.s );
+            if ( curve.divisor != null ) return null;
+            if ( point == null ) continue;
+            point = curve.multiply( point, candidate.q );
+            if ( curve.divisor != null ) return null;
+            if ( point == null ) return new PrimeCertificate.Elliptic( n, candidate.q, a, b, x, y, candidate.s );
+        }
+        return null;
+    }
+    
+    private BigInteger random( BigInteger n )
+    {
+        return new BigInteger( n.bitLength() + 8, random ).mod( n );
+    }
+    
+    /**
+     * Solve 4 * p = u<sup>2</sup> + |d| * v<sup>2</sup> by modified Cornacchia algorithm.
+     * <p>Henri Cohen, A Course in Computational Algebraic Number Theory, algorithm 1.5.3.
+     * @param p an odd prime
+     * @param d a negative discriminant, |d| &lt; 4 * p
+     * @return { u, v }, or null if there are no solutions
+     */
+    static BigInteger[] cornacchia( BigInteger p, int d )
+    {
+        BigInteger x = sqrt( BigInteger.valueOf( d ), p );
+        if ( x == null ) return null;
+        if ( x.testBit( 0 ) != ( ( d & 1 ) != 0 ) ) x = p.subtract( x );
+        BigInteger a = p.shiftLeft( 1 );
+        BigInteger b = x;
+        BigInteger p4 = p.shiftLeft( 2 );
+        BigInteger limit = BigUtils.isqrt( p4 );
+        while ( b.compareTo( limit ) > 0 )
+        {
+            BigInteger r = a.mod( b );
+            a = b;
+            b = r;
+        }
+        BigInteger qr[] = p4.subtract( b.multiply( b ) ).divideAndRemainder( BigInteger.valueOf( -d ) );
+        if ( qr[ 1 ].signum() != 0 ) return null;
+        BigInteger v = BigUtils.getBaseOfPerfectSquare( qr[ 0 ] );
+        return v == null ? null : new BigInteger[]{ b, v };
+    }
+    
+    /**
+     * Square root modulo a prime by Tonelli-Shanks algorithm.
+     * @param a a number
+     * @param p an odd prime
+     * @return x such that x<sup>2</sup> = a modulo p, or null if a is a quadratic non-residue (or p isn't prime)
+     */
+    static BigInteger sqrt( BigInteger a, BigInteger p )
+    {
+        a = a.mod( p );
+        if ( a.signum() == 0 ) return a;
+        BigInteger pMinusOne = p.subtract( BigInteger.ONE );
+        int s = pMinusOne.getLowestSetBit();
+        BigInteger q = pMinusOne.shiftRight( s );
+        BigInteger ret = a.modPow( q.add( BigInteger.ONE ).shiftRight( 1 ), p );
+        if ( s > 1 )
+        {
+            BigInteger t = a.modPow( q, p );
+            int z = 2;
+            while ( PrimeUtils.jacobiSymbol( z, p ) != -1 )
+            {
+                // There is no non-residue if p is a square.
+                if ( ++z == ATTEMPTS << 4 ) return null;
+            }
+            BigInteger c = BigInteger.valueOf( z ).modPow( q, p );
+            int m = s;
+            while ( !t.equals( BigInteger.ONE ) )
+            {
+                int i = 0;
+                for ( BigInteger t2 = t; !t2.equals( BigInteger.ONE ); t2 = t2.multiply( t2 ).mod( p ) ) if ( ++i == m ) return null;
+                BigInteger b = c;
+                for ( int j = m - i - 1; j > 0; j-- ) b = b.multiply( b ).mod( p );
+                ret = ret.multiply( b ).mod( p );
+                c = b.multiply( b ).mod( p );
+                t = t.multiply( c ).mod( p );
+                m = i;
+            }
+        }
+        return ret.multiply( ret ).mod( p ).equals( a ) ? ret : null;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,242 @@
+package org.quinto.math;
+
+import java.util.Arrays;
+
+/**
+ * Segmented sieve of Eratosthenes on a mod 30 wheel.
+ * <p>Every byte of a segment represents 30 consecutive integers, one bit per residue
+ * that is relatively prime to 30 (1, 7, 11, 13, 17, 19, 23, 29). A segment of
+ * {@link #SEGMENT_BYTES} bytes fits into L1 cache and covers almost a million integers.
+ * <p>Sieving pays off only while the sieving primes (up to a square root of the segment end)
+ * are small compared to the range length. Above {@link #MAX_SIEVING_LIMIT} the primes
+ * are searched one by one with {@link PrimesIterable#getNext(long)}.
+ * <p>Segments that are covered by the default {@link PrimeTable} are copied from it instead of sieving.
+ * <p>The sieve is lazy: the next segment is sieved only when the previous one is exhausted.
+ * Segments start small and grow twice on each step up to {@link #SEGMENT_BYTES},
+ * so enumeration of a few first primes is cheap.
+ */
+public class PrimeSieve
+{
+    /**
+     * Maximal size of a segment in bytes (each byte covers 30 integers).
+     */
+    public static final int SEGMENT_BYTES = 1 << 15;
+    
+    /**
+     * The largest number that is sieved.
+     * Primes above this limit are found by a primality test of each candidate.
+     */
+    public static final long MAX_SIEVING_LIMIT = 1L << 44;
+    
+    static final int CYCLE_LENGTH = 30;
+    /**
+     * Bit mask of a residue modulo 30 in a segment byte (0 for residues that aren't relatively prime to 30).
+     */
+    static final int BITS[] = new int[ CYCLE_LENGTH ];
+    
+    private static final int INDICES[] = { 1, 7, 11, 13, 17, 19, 23, 29 };
+    private static final int MIN_SEGMENT_BYTES = 1 << 6;
+    /**
+     * Index of the first residue in {@link #INDICES} that is greater than or equal to a given residue modulo 30.
+     */
+    private static final int NEXT_INDEX[] = new int[ CYCLE_LENGTH ];
+    
+    private final long from;
+    private final long to;
+    private final int segmentBytes;
+    private byte segment[];
+    private long segmentStart;
+    private int segmentLength;
+    private int position;
+    private int bits;
+    private int primes[];
+    private int primesLimit;
+    private long candidate;
+    private boolean sieving;
+    private boolean exhausted;
+    
+    static
+    {
+        for ( int i = 0; i < INDICES.length; i++ ) BITS[ INDICES[ i ] ] = 1 << i;
+        for ( int r = CYCLE_LENGTH - 1, i = INDICES.length; r >= 0; r-- )
+        {
+            if ( i > 0 && INDICES[ i - 1 ] >= r ) i--;
+            NEXT_INDEX[ r ] = i;
+        }
+    }
+    
+    /**
+     * Create a lazy sieve of primes in range [ {@code from} .. {@code to} ] (both sides included).
+     * <p>Negative bounds are treated as zero. An empty range is permitted.
+     * @param from a lower inclusive bound
+     * @param to an upper inclusive bound
+     */
+    public PrimeSieve( long from, long to )
+    {
+        this( from, to, null, 0, MIN_SEGMENT_BYTES );
+    }
+    
+    /**
+     * Create a lazy sieve of primes in range [ {@code from} .. {@code to} ] (both sides included).
+     * @param from a lower inclusive bound
+     * @param to an upper inclusive bound
+     * @param primes precomputed sieving primes (see {@link #getSievingPrimes}), or null
+     * @param primesLimit an upper inclusive bound of precomputed sieving primes
+     * @param segmentBytes a size of the first segment in bytes
+     */
+    PrimeSieve( long from, long to, int primes[], int primesLimit, int segmentBytes )
+    {
+        this.primes = primes;
+        this.primesLimit = primes == null ? 0 : primesLimit;
+        this.segmentBytes = segmentBytes;
+        this.from = Math.max( from, 0L );
+        this.to = Math.min( to, PrimesIterable.LAST_LONG_PRIME );
+        candidate = this.from;
+        segmentStart = this.from / CYCLE_LENGTH;
+        position = -1;
+        sieving = true;
+        exhausted = this.from > this.to;
+    }
+    
+    /**
+     * Seeking of the next prime number in the range.
+     * @return the next prime number in increasing order, or 0 if there are no more primes in the range
+     */
+    public long next()
+    {
+        if ( exhausted ) return 0L;
+        // Numbers 2, 3 and 5 aren't represented on the wheel.
+        if ( candidate < 7L )
+        {
+            long p = candidate <= 2L ? 2L : candidate <= 3L ? 3L : candidate <= 5L ? 5L : 7L;
+            if ( p < 7L )
+            {
+                candidate = p + 1L;
+                if ( p <= to ) return p;
+                exhausted = true;
+                return 0L;
+            }
+            candidate = 7L;
+        }
+        if ( sieving )
+        {
+            while ( bits == 0 )
+            {
+                position++;
+                if ( position >= segmentLength && !nextSegment() ) return sieving ? exhaust() : next();
+                bits = segment[ position ] & 0xFF;
+            }
+            int bit = Integer.numberOfTrailingZeros( bits );
+            bits &= bits - 1;
+            long p = ( segmentStart + position ) * CYCLE_LENGTH + INDICES[ bit ];
+            if ( p > to ) return exhaust();
+            return p;
+        }
+        // Sieving doesn't pay off, fall back to the search of each candidate.
+        if ( candidate > to ) return exhaust();
+        long p = PrimesIterable.getNext( candidate );
+        // Overflow of the search.
+        if ( p < 0L || p > to ) return exhaust();
+        candidate = p + 1L;
+        return p;
+    }
+    
+    private long exhaust()
+    {
+        exhausted = true;
+        return 0L;
+    }
+    
+    /**
+     * Sieve the next segment.
+     * @return true if a segment is sieved, false if the range is exhausted or sieving doesn't pay off
+     */
+    private boolean nextSegment()
+    {
+        if ( segment != null ) segmentStart += segmentLength;
+        long remaining = to / CYCLE_LENGTH - segmentStart + 1L;
+        if ( remaining <= 0L ) return false;
+        int capacity = segment == null ? segmentBytes : Math.min( segment.length << 1, SEGMENT_BYTES );
+        int length = ( int )Math.min( capacity, remaining );
+        long hi = ( segmentStart + length ) * CYCLE_LENGTH - 1L;
+        if ( hi > MAX_SIEVING_LIMIT )
+        {
+            sieving = false;
+            candidate = Math.max( candidate, segmentStart * CYCLE_LENGTH );
+            return false;
+        }
+        if ( segment == null || segment.length < capacity ) segment = new byte[ capacity ];
+        segmentLength = length;
+        position = 0;
+        PrimeTable table = PrimeTable.getDefault();
+        if ( table != null && hi <= table.getLimit() ) table.copy( segmentStart, segment, length );
+        else
+        {
+            ensurePrimes( ( int )MathUtils.isqrt( hi ) );
+            sieveSegment( segmentStart, segment, length, primes );
+        }
+        // Mask out the numbers below the lower bound in the first segment.
+        if ( segmentStart * CYCLE_LENGTH < from ) segment[ 0 ] &= -( 1 << NEXT_INDEX[ ( int )( from - segmentStart * CYCLE_LENGTH ) ] );
+        return true;
+    }
+    
+    /**
+     * Sieve a segment of bytes [ k0 .. k0 + length ), each byte represents 30 integers.
+     * @param primes sieving primes (see {@link #getSievingPrimes}) up to a square root of the segment end at least
+     */
+    static void sieveSegment( long k0, byte segment[], int length, int primes[] )
+    {
+        Arrays.fill( segment, 0, length, ( byte )-1 );
+        // Number 1 isn't prime.
+        if ( k0 == 0L ) segment[ 0 ] &= ~1;
+        int sqrt = ( int )MathUtils.isqrt( ( k0 + length ) * CYCLE_LENGTH - 1L );
+        long lo = k0 * CYCLE_LENGTH;
+        for ( int p : primes )
+        {
+            // Multiples of 2, 3 and 5 aren't represented on the wheel.
+            if ( p < 7 ) continue;
+            if ( p > sqrt ) break;
+            // Multiples p * m, where m < p, were already sieved out by smaller primes.
+            long m = Math.max( p, ( lo + p - 1L ) / p );
+            long k = m / CYCLE_LENGTH;
+            int in = NEXT_INDEX[ ( int )( m - k * CYCLE_LENGTH ) ];
+            int pr = p % CYCLE_LENGTH;
+            for ( int j = 0; j < INDICES.length; j++, in++ )
+            {
+                if ( in == INDICES.length )
+                {
+                    in = 0;
+                    k++;
+                }
+                int r = INDICES[ in ];
+                // p * ( 30 * k + r ) = 30 * ( p * k + p * r / 30 ) + ( p * r ) % 30
+                long idx = p * k + p * r / CYCLE_LENGTH - k0;
+                if ( idx >= length ) continue;
+                byte mask = ( byte )~BITS[ pr * r % CYCLE_LENGTH ];
+                for ( int b = ( int )idx; b < length; b += p ) segment[ b ] &= mask;
+            }
+        }
+    }
+    
+    /**
+     * Make sure that all the sieving primes up to {@code limit} are available.
+     * @param limit a maximal sieving prime
+     */
+    private void ensurePrimes( int limit )
+    {
+        if ( limit <= primesLimit ) return;
+        limit = ( int )Math.min( Math.max( limit, ( long )primesLimit << 1 ), Integer.MAX_VALUE - 1 );
+        primes = getSievingPrimes( limit );
+        primesLimit = limit;
+    }
+    
+    /**
+     * Get sieving primes from the shared table of small primes (or sieve them if the table is too small).
+     * @param limit an upper inclusive bound
+     * @return sorted primes up to {@code limit} at least, starting from 2; the array must not be modified
+     */
+    static int[] getSievingPrimes( int limit )
+    {
+        return SmallPrimes.getOrSieve( limit );
+    }
+}
\ No newline at end of file
@@ -0,0 +1,266 @@
+package org.quinto.math;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Persistent table of prime numbers in range [ 0 .. limit ].
+ * <p>The table is a mod 30 wheel bitmap: every byte represents 30 consecutive integers, one bit per residue
+ * that is relatively prime to 30 (the same layout as segments of {@link PrimeSieve}). So a table of primes up to 10<sup>9</sup> takes 33 MB.
+ * <p>A table file is generated once by {@link #create} and then opened read-only by {@link #open} through
+ * {@link FileChannel#map}, so processes that open the same file share its pages.
+ * <p>The default table is used transparently by {@link PrimeUtils#isPrime(long)}, {@link PrimeSieve},
+ * {@link PrimesIterable} and {@link ParallelPrimeSieve} for numbers inside the table range.
+ * It's set by {@link #setDefault} or opened at startup from a file defined by system property {@value #PROPERTY}.
+ */
+public class PrimeTable
+{
+    /**
+     * System property with a path of the default table file.
+     */
+    public static final String PROPERTY = "org.quinto.math.PrimeTable";
+    
+    /**
+     * The largest limit of a table.
+     */
+    public static final long MAX_LIMIT = PrimeSieve.MAX_SIEVING_LIMIT;
+    
+    private static final long MAGIC = 0x5150524D54424C31L;
+    private static final int HEADER_BYTES = 16;
+    private static final int REGION_SHIFT = 30;
+    private static final int REGION_MASK = ( 1 << REGION_SHIFT ) - 1;
+    private static volatile PrimeTable defaultTable;
+    
+    private final long limit;
+    private final ByteBuffer regions[];
+    
+    static
+    {
+        String path = System.getProperty( PROPERTY );
+        // The default table is an optimization only, so a missing or broken file is ignored.
+        if ( path != null && Files.isRegularFile( Paths.get( path ) ) )
+        {
+            try
+            {
+                defaultTable = open( Paths.get( path ) );
+            }
+            catch ( IOException e )
+            {
+            }
+        }
+    }
+    
+    private PrimeTable( long limit, ByteBuffer regions[] )
+    {
+        this.limit = limit;
+        this.regions = regions;
+    }
+    
+    /**
+     * Generate a table file of primes in range [ 0 .. {@code limit} ] on a common pool.
+     * <p>The file is written to a temporary file which is atomically moved to {@code path} when complete,
+     * so concurrent readers never see a partial table.
+     * @param path a path of the table file
+     * @param limit an upper inclusive bound, it's rounded up to a multiple of 30 minus 1
+     * @return the generated table opened read-only
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalArgumentException if {@code limit} is negative or greater than {@link #MAX_LIMIT}
+     */
+    public static PrimeTable create( Path path, long limit ) throws IOException, IllegalArgumentException
+    {
+        return create( path, limit, ForkJoinPool.commonPool() );
+    }
+    
+    /**
+     * Generate a table file of primes in range [ 0 .. {@code limit} ] on a given pool.
+     * <p>The file is written to a temporary file which is atomically moved to {@code path} when complete,
+     * so concurrent readers never see a partial table.
+     * @param path a path of the table file
+     * @param limit an upper inclusive bound, it's rounded up to a multiple of 30 minus 1
+     * @param pool a pool to sieve segments on
+     * @return the generated table opened read-only
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalArgumentException if {@code limit} is negative or greater than {@link #MAX_LIMIT}
+     */
+    public static PrimeTable create( Path path, long limit, ForkJoinPool pool ) throws IOException, IllegalArgumentException
+    {
+        if ( limit < 0L || limit > MAX_LIMIT ) throw new IllegalArgumentException( "Limit must be in range [ 0 .. " + MAX_LIMIT + " ], got " + limit );
+        long bytes = limit / PrimeSieve.CYCLE_LENGTH + 1L;
+        Path absolute = path.toAbsolutePath();
+        Path temp = Files.createTempFile( absolute.getParent(), absolute.getFileName().toString(), ".tmp" );
+        try
+        {
+            try ( FileChannel channel = FileChannel.open( temp, StandardOpenOption.READ, StandardOpenOption.WRITE ) )
+            {
+                ByteBuffer header = ByteBuffer.allocate( HEADER_BYTES );
+                header.putLong( MAGIC ).putLong( bytes * PrimeSieve.CYCLE_LENGTH - 1L ).flip();
+                while ( header.hasRemaining() ) channel.write( header, header.position() );
+                int primes[] = PrimeSieve.getSievingPrimes( ( int )MathUtils.isqrt( bytes * PrimeSieve.CYCLE_LENGTH - 1L ) );
+                for ( long regionStart = 0L; regionStart < bytes; regionStart += 1L << REGION_SHIFT )
+                {
+                    int regionLength = ( int )Math.min( 1L << REGION_SHIFT, bytes - regionStart );
+                    MappedByteBuffer region = channel.map( FileChannel.MapMode.READ_WRITE, HEADER_BYTES + regionStart, regionLength );
+                    List< ForkJoinTask< ? > > tasks = new ArrayList<>();
+                    for ( int from = 0; from < regionLength; from += ParallelPrimeSieve.MAX_CHUNK_LENGTH / PrimeSieve.CYCLE_LENGTH )
+                    {
+                        int offset = from;
+                        long k0 = regionStart + from;
+                        int length = ( int )Math.min( ParallelPrimeSieve.MAX_CHUNK_LENGTH / PrimeSieve.CYCLE_LENGTH, regionLength - from );
+                        tasks.add( pool.submit( () -> sieveChunk( region, offset, k0, length, primes ) ) );
+                    }
+                    for ( ForkJoinTask< ? > task : tasks ) task.join();
+                    region.force();
+                }
+            }
+            Files.move( temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+        }
+        finally
+        {
+            Files.deleteIfExists( temp );
+        }
+        return open( path );
+    }
+    
+    private static void sieveChunk( MappedByteBuffer region, int offset, long k0, int length, int primes[] )
+    {
+        // Every task writes through its own view of the buffer.
+        ByteBuffer view = region.duplicate();
+        view.position( offset );
+        byte segment[] = new byte[ PrimeSieve.SEGMENT_BYTES ];
+        for ( int i = 0; i < length; i += segment.length )
+        {
+            int segmentLength = Math.min( segment.length, length - i );
+            PrimeSieve.sieveSegment( k0 + i, segment, segmentLength, primes );
+            view.put( segment, 0, segmentLength );
+        }
+    }
+    
+    /**
+     * Sieve a table of primes in range [ 0 .. {@code limit} ] in heap memory.
+     * @param limit a non-negative upper inclusive bound, it's rounded up to a multiple of 30 minus 1
+     * @return a table of primes which isn't backed by a file
+     */
+    static PrimeTable sieve( int limit )
+    {
+        int bytes = limit / PrimeSieve.CYCLE_LENGTH + 1;
+        byte bitmap[] = new byte[ bytes ];
+        byte segment[] = new byte[ PrimeSieve.SEGMENT_BYTES ];
+        int primes[] = PrimeSieve.getSievingPrimes( ( int )MathUtils.isqrt( ( long )bytes * PrimeSieve.CYCLE_LENGTH - 1L ) );
+        for ( int k0 = 0; k0 < bytes; k0 += segment.length )
+        {
+            int length = Math.min( segment.length, bytes - k0 );
+            PrimeSieve.sieveSegment( k0, segment, length, primes );
+            System.arraycopy( segment, 0, bitmap, k0, length );
+        }
+        return new PrimeTable( ( long )bytes * PrimeSieve.CYCLE_LENGTH - 1L, new ByteBuffer[]{ ByteBuffer.wrap( bitmap ) } );
+    }
+    
+    /**
+     * Open a table file generated by {@link #create} read-only.
+     * <p>The file is mapped into memory, it isn't read into heap.
+     * @param path a path of the table file
+     * @return a table of primes
+     * @throws IOException if an I/O error occurs or the file isn't a prime table
+     */
+    public static PrimeTable open( Path path ) throws IOException
+    {
+        try ( FileChannel channel = FileChannel.open( path, StandardOpenOption.READ ) )
+        {
+            ByteBuffer header = ByteBuffer.allocate( HEADER_BYTES );
+            while ( header.hasRemaining() ) if ( channel.read( header, header.position() ) < 0 ) break;
+            header.flip();
+            if ( header.remaining() < HEADER_BYTES || header.getLong() != MAGIC ) throw new IOException( "Not a prime table: " + path );
+            long limit = header.getLong();
+            long bytes = ( limit + 1L ) / PrimeSieve.CYCLE_LENGTH;
+            if ( limit < 0L || limit > MAX_LIMIT + PrimeSieve.CYCLE_LENGTH || ( limit + 1L ) % PrimeSieve.CYCLE_LENGTH != 0L || channel.size() != HEADER_BYTES + bytes ) throw new IOException( "Corrupted prime table: " + path );
+            ByteBuffer regions[] = new ByteBuffer[ ( int )( ( bytes + REGION_MASK ) >>> REGION_SHIFT ) ];
+            for ( int i = 0; i < regions.length; i++ )
+            {
+                long regionStart = ( long )i << REGION_SHIFT;
+                regions[ i ] = channel.map( FileChannel.MapMode.READ_ONLY, HEADER_BYTES + regionStart, Math.min( 1L << REGION_SHIFT, bytes - regionStart ) );
+            }
+            return new PrimeTable( limit, regions );
+        }
+    }
+    
+    /**
+     * Get the default table which is used transparently by primality tests and sieves.
+     * @return the default table, or null if there is no default table
+     */
+    public static PrimeTable getDefault()
+    {
+        return defaultTable;
+    }
+    
+    /**
+     * Set the default table which is used transparently by primality tests and sieves.
+     * @param table a table, or null to stop using a table
+     */
+    public static void setDefault( PrimeTable table )
+    {
+        defaultTable = table;
+    }
+    
+    /**
+     * Get the upper inclusive bound of the table.
+     * @return the largest number of the table
+     */
+    public long getLimit()
+    {
+        return limit;
+    }
+    
+    /**
+     * Check if the table contains a number (or its absolute value if the number is negative).
+     * @param n a number
+     * @return true iff absolute value of n is not greater than the limit of the table
+     */
+    public boolean contains( long n )
+    {
+        return n >= -limit && n <= limit;
+    }
+    
+    /**
+     * Primality test by a table lookup. Constant time.
+     * <p>Negative number n is considered prime if -n is prime.
+     * @param n a number to check for primality
+     * @return true if and only if absolute value of n is prime
+     * @throws IllegalArgumentException if the table doesn't contain n
+     */
+    public boolean isPrime( long n ) throws IllegalArgumentException
+    {
+        if ( !contains( n ) ) throw new IllegalArgumentException( "Number " + n + " is out of table range [ 0 .. " + limit + " ]" );
+        n = Math.abs( n );
+        if ( n < 7L ) return n == 2L || n == 3L || n == 5L;
+        long k = n / PrimeSieve.CYCLE_LENGTH;
+        int bit = PrimeSieve.BITS[ ( int )( n - k * PrimeSieve.CYCLE_LENGTH ) ];
+        return bit != 0 && ( regions[ ( int )( k >>> REGION_SHIFT ) ].get( ( int )k & REGION_MASK ) & bit ) != 0;
+    }
+    
+    /**
+     * Copy bytes [ k0 .. k0 + length ) of the bitmap to a segment.
+     */
+    void copy( long k0, byte segment[], int length )
+    {
+        for ( int i = 0; i < length; )
+        {
+            long k = k0 + i;
+            ByteBuffer view = regions[ ( int )( k >>> REGION_SHIFT ) ].duplicate();
+            view.position( ( int )k & REGION_MASK );
+            int n = Math.min( length - i, view.remaining() );
+            view.get( segment, i, n );
+            i += n;
+        }
+    }
+}
\ No newline at end of file
@@ -1,25 +1,100 @@
 package org.quinto.math;
 
 import java.math.BigInteger;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
 
 /**
- * Primality tests.
+ * Primality tests and prime-counting functions.
  */
 public class PrimeUtils
 {
+    /**
+     * System property with an upper bound of the in-memory table of primes used by {@link #isPrime(long)}.
+     */
+    public static final String TABLE_LIMIT_PROPERTY = "org.quinto.math.PrimeUtils.tableLimit";
+    
+    /**
+     * Default upper bound of the in-memory table of primes. The table takes 560 KB.
+     */
+    public static final int DEFAULT_TABLE_LIMIT = 1 << 24;
+    
+    /**
+     * Lazily sieved in-memory table of primes.
+     */
+    static class SmallTable
+    {
+        static final PrimeTable TABLE = PrimeTable.sieve( Math.max( Integer.getInteger( TABLE_LIMIT_PROPERTY, DEFAULT_TABLE_LIMIT ), 0 ) );
+    }
+    
     /**
      * Deterministic primality test. Polynomial time.
      * <ul><li>Negative number n is considered prime if -n is prime.</li>
      * <li>Numbers 0 and 1 aren't prime.</li>
      * <li>Examples of first prime numbers: 2, 3, 5, 7, 11, 13.</li></ul>
+     * <p>The test doesn't allocate memory. It has several tiers:
+     * <ul><li>numbers up to {@link #DEFAULT_TABLE_LIMIT} (or system property {@value #TABLE_LIMIT_PROPERTY}) are looked up in an in-memory table;</li>
+     * <li>numbers inside the range of the default {@link PrimeTable} are looked up in the table;</li>
+     * <li>the rest numbers are checked by trial division and {@link #passesMiller(long)}.</li></ul>
      * @param n a number to check for primality
      * @return true if and only if absolute value of n is prime
      */
     public static boolean isPrime( long n )
     {
+        PrimeTable table = SmallTable.TABLE;
+        if ( table.contains( n ) ) return table.isPrime( n );
+        table = PrimeTable.getDefault();
+        if ( table != null && table.contains( n ) ) return table.isPrime( n );
         return passesMiller( n );
     }
     
+    /**
+     * Deterministic primality test of every number of an array. The same as {@link #isPrime(long)} element by element, but faster.
+     * <p>Exponentiations of several numbers are interleaved, chunks of large arrays are processed in parallel on a common pool.
+     * @param values numbers to check for primality
+     * @param out a bit i is set if and only if absolute value of values[ i ] is prime, bits starting from values.length aren't changed
+     */
+    public static void isPrime( long values[], BitSet out )
+    {
+        isPrime( values, out, ForkJoinPool.commonPool() );
+    }
+    
+    /**
+     * Deterministic primality test of every number of an array. The same as {@link #isPrime(long)} element by element, but faster.
+     * <p>Exponentiations of several numbers are interleaved, chunks of large arrays are processed in parallel on a given pool.
+     * @param values numbers to check for primality
+     * @param out a bit i is set if and only if absolute value of values[ i ] is prime, bits starting from values.length aren't changed
+     * @param pool a pool to process chunks on, or null to process all the numbers in the current thread
+     */
+    public static void isPrime( long values[], BitSet out, ForkJoinPool pool )
+    {
+        PrimeBatch.isPrime( values, out, pool );
+    }
+    
+    /**
+     * Deterministic primality test of every number of an array. The same as {@link #isPrime(long)} element by element, but faster.
+     * <p>Chunks of large arrays are processed in parallel on a common pool.
+     * @param values numbers to check for primality
+     * @param out a bit i is set if and only if absolute value of values[ i ] is prime, bits starting from values.length aren't changed
+     */
+    public static void isPrime( int values[], BitSet out )
+    {
+        isPrime( values, out, ForkJoinPool.commonPool() );
+    }
+    
+    /**
+     * Deterministic primality test of every number of an array. The same as {@link #isPrime(long)} element by element, but faster.
+     * <p>Chunks of large arrays are processed in parallel on a given pool.
+     * @param values numbers to check for primality
+     * @param out a bit i is set if and only if absolute value of values[ i ] is prime, bits starting from values.length aren't changed
+     * @param pool a pool to process chunks on, or null to process all the numbers in the current thread
+     */
+    public static void isPrime( int values[], BitSet out, ForkJoinPool pool )
+    {
+        PrimeBatch.isPrime( values, out, pool );
+    }
+    
     /**
      * Deterministic primality test. Polynomial time.
      * <ul><li>Negative number n is considered prime if -n is prime.</li>
@@ -43,6 +118,8 @@ public class PrimeUtils
         // They are already accepted at this step by isPrime( long ).
         // The rest Fermat numbers are definitely composite.
         if ( isFermatNumber( n ) ) return false;
+        // Most composite numbers have small factors.
+        if ( TrialDivision.smallFactor( n ) != 0 ) return false;
         // This test is required for Lucas test correctness.
         // Lucas test is performed inside BigInteger.isProbablePrime.
         // Miller-Rabin test are performed there at random bases,
@@ -56,8 +133,78 @@ public class PrimeUtils
         return passesBailliePSW( n );
     }
     
+    /**
+     * Prove primality of a number. The proof doesn't rely on any unproved hypotheses.
+     * <p>A certificate is a chain of Pocklington steps (when n - 1 is factored by trial division up to a probable prime cofactor)
+     * and elliptic curve steps (Atkin-Morain ECPP with curves of class numbers up to 12) down to a number below 2<sup>63</sup>.
+     * It can be verified by {@link PrimeCertificate#verify()} much faster than it's built.
+     * @param n a number to prove primality of
+     * @return a certificate of primality of absolute value of n, or null if absolute value of n is composite or is less than 2
+     * @throws ArithmeticException if n is a probable prime, but a certificate isn't found
+     */
+    public static PrimeCertificate certifyPrime( BigInteger n ) throws ArithmeticException
+    {
+        n = n.abs();
+        if ( !isPrime( n ) ) return null;
+        PrimeCertificate ret = PrimeProver.prove( n );
+        if ( ret == null ) throw new ArithmeticException( "Failed to prove primality of " + n );
+        return ret;
+    }
+    
+    /**
+     * Factorization of a number into powers of primes. Time O( n<sup>1/4</sup> ) expected.
+     * <p>Factors up to 2<sup>11</sup> are found by trial division, cofactors are checked by {@link #isPrime(long)}
+     * and composite ones are split by Pollard-Brent rho method with Montgomery arithmetic.
+     * SQUFOF and Hart's one line factoring are fallbacks if rho method fails.
+     * <p>Examples: {@code factor( 168 ) = 2^3 * 3 * 7}, {@code factor( -25 ) = -5^2}, {@code factor( 1 ) = 1}.
+     * @param n a number to factor
+     * @return factorization of absolute value of n
+     * @throws IllegalArgumentException if n = 0
+     */
+    public static Factorization factor( long n ) throws IllegalArgumentException
+    {
+        if ( n == 0L ) throw new IllegalArgumentException( "Zero has no factorization" );
+        return Factorizer.factor( n );
+    }
+    
+    /**
+     * Factorization of a number into powers of primes. Curves of ECM and polynomials of the quadratic sieve run in parallel on a common pool.
+     * @see #factor(BigInteger, ForkJoinPool)
+     * @param n a number to factor
+     * @return factorization of absolute value of n
+     * @throws IllegalArgumentException if n = 0
+     */
+    public static BigFactorization factor( BigInteger n ) throws IllegalArgumentException
+    {
+        return factor( n, ForkJoinPool.commonPool() );
+    }
+    
+    /**
+     * Factorization of a number into powers of primes. Expected time grows subexponentially with the size
+     * of the second largest prime factor: on a single core a factor of 15 digits is found in a fraction of a second,
+     * a factor of 20 digits in about ten seconds. Numbers from 30 digits are split by the quadratic sieve, so
+     * a 40-digit product of two primes of the same size is factored in a fraction of a second, a 50-digit one in 2.5 seconds,
+     * a 60-digit one in 30 seconds and a 65-digit one in about 85 seconds. Larger numbers aren't measured and take much longer.
+     * <p>Factors up to 2<sup>16</sup> are found by trial division, cofactors below 2<sup>63</sup> are factored by {@link #factor(long)}.
+     * Other cofactors are checked by {@link #isPrime(BigInteger)}, and composite ones are split by Lenstra elliptic curve method (ECM)
+     * with Montgomery curves, stage 1 and stage 2. Bounds of stages grow until a factor is found.
+     * Cofactors from 100 bits are searched by ECM for factors up to a third of their digits only,
+     * then they are split by self-initializing quadratic sieve (SIQS).
+     * @param n a number to factor
+     * @param pool a pool to run curves and polynomials in parallel, or null to run them in the current thread
+     * @return factorization of absolute value of n
+     * @throws IllegalArgumentException if n = 0
+     */
+    public static BigFactorization factor( BigInteger n, ForkJoinPool pool ) throws IllegalArgumentException
+    {
+        if ( n.signum() == 0 ) throw new IllegalArgumentException( "Zero has no factorization" );
+        return Factorizer.factor( n, pool );
+    }
+    
     /**
      * Trial division deterministic test. Exponential time.
+     * <p>Divisors are taken from the shared table of small primes ({@link SmallPrimes}),
+     * divisors beyond the table are numbers in the form 6 * k - 1 and 6 * k + 1.
      * <p>Implementation is based on <a href="http://stackoverflow.com/questions/2385909/most-elegant-way-to-write-isprime-in-java">this</a> StackOverflow question.
      * @param n a number to check for primality
      * @return true if and only if absolute value of n is prime
@@ -67,29 +214,38 @@ public class PrimeUtils
         if ( n < 0L ) n = -n;
         // Values 0, 1 and Long.MIN_VALUE would be rejected at this step.
         if ( n < 2L ) return false;
-        if ( n < 4L ) return true;
-        if ( ( n & 1L ) == 0L ) return false;
-        if ( n % 3L == 0L ) return false;
-        long sqrt = ( long )Math.sqrt( n ) + 1L;
-        for ( long i = 6L; i <= sqrt; i += 6L ) if ( n % ( i - 1L ) == 0L || n % ( i + 1L ) == 0L ) return false;
+        long sqrt = MathUtils.isqrt( n );
+        int primes[] = SmallPrimes.upTo( ( int )Math.min( sqrt, Integer.MAX_VALUE ) );
+        for ( int p : primes )
+        {
+            if ( p > sqrt ) return true;
+            if ( n % p == 0L ) return n == p;
+        }
+        for ( long i = ( primes[ primes.length - 1 ] / 6L + 1L ) * 6L; i - 1L <= sqrt; i += 6L ) if ( n % ( i - 1L ) == 0L || n % ( i + 1L ) == 0L ) return false;
         return true;
     }
     
     /**
      * Trial division deterministic test. Exponential time.
-     * <p>Implementation is based on <a href="http://stackoverflow.com/questions/2385909/most-elegant-way-to-write-isprime-in-java">this</a> StackOverflow question.
+     * <p>Divisors are primes generated by {@link PrimeSieve}. They are grouped into products that fit 63 bits,
+     * so n is divided as a BigInteger once per group and the remainder is checked for every prime of the group with long arithmetic.
+     * Divisors beyond the long range are numbers in the form 6 * k - 1 and 6 * k + 1.
      * @param n a number to check for primality
      * @return true if and only if absolute value of n is prime
      */
     public static boolean passesTrialDivision( BigInteger n )
     {
         n = n.abs();
-        if ( !n.testBit( 0 ) ) return n.equals( BigUtils.BI_TWO );
-        if ( n.remainder( BigUtils.BI_THREE ).signum() == 0 ) return n.equals( BigUtils.BI_THREE );
-        BigInteger b = BigUtils.isqrt( n ).add( BigInteger.ONE );
+        if ( n.bitLength() < 64 ) return passesTrialDivision( n.longValue() );
+        if ( !n.testBit( 0 ) ) return false;
+        BigInteger sqrt = BigUtils.isqrt( n );
+        long limit = sqrt.bitLength() < 64 ? sqrt.longValue() : Long.MAX_VALUE;
+        if ( TrialDivision.smallestFactor( n, limit ) != 0L ) return false;
+        if ( limit < Long.MAX_VALUE ) return true;
         boolean switch42 = false;
-        for ( BigInteger i = BigUtils.BI_FIVE; i.compareTo( b ) <= 0; i = i.add( switch42 ? BigUtils.BI_FOUR : BigUtils.BI_TWO ), switch42 = !switch42 ) if ( n.remainder( i ).signum() == 0 ) return false;
-        return !n.equals( BigInteger.ONE );
+        BigInteger i = BigInteger.valueOf( Long.MAX_VALUE / 6L + 1L ).multiply( BigInteger.valueOf( 6L ) ).subtract( BigInteger.ONE );
+        for ( ; i.compareTo( sqrt ) <= 0; i = i.add( switch42 ? BigUtils.BI_FOUR : BigUtils.BI_TWO ), switch42 = !switch42 ) if ( n.remainder( i ).signum() == 0 ) return false;
+        return true;
     }
 
     /**
@@ -111,6 +267,7 @@ public class PrimeUtils
 
     /**
      * Lucas-Lehmer deterministic primality test for Mersenne numbers. Polynomial time.
+     * <p>Residues are squared by {@link BigInteger#multiply(BigInteger)} and reduced modulo 2<sup>p</sup> - 1 by a shift and an addition.
      * @param n <b>a Mersenne number M<sub>p</sub> = 2<sup>p</sup> - 1, p &ge; 0, n &ge; 0</b>
      * @return true iff n is prime
      */
@@ -124,17 +281,8 @@ public class PrimeUtils
         // Optimization: Mersenne numbers with prime base p in the form 4 * k + 3 are composite if 2 * p + 1 is prime.
         // http://mathworld.wolfram.com/MersennePrime.html
         if ( ( p & 3 ) == 3 && isPrime( ( ( long )p << 1 ) + 1L ) ) return false;
-        // Lucas-Lehmer primality test.
-        BigInteger x = BigUtils.BI_FOUR;
-        while ( p > 2 )
-        {
-            x = x.modPow( BigUtils.BI_TWO, n );
-            if ( x.signum() == 0 ) x = n.subtract( BigUtils.BI_TWO );
-            else if ( x.equals( BigInteger.ONE ) ) x = n.subtract( BigInteger.ONE );
-            else x = x.subtract( BigUtils.BI_TWO );
-            p--;
-        }
-        return x.signum() == 0;
+        // Lucas-Lehmer primality test with reduction modulo 2^p - 1 by shifts.
+        return LucasLehmer.test( p );
     }
 
     /**
@@ -150,6 +298,35 @@ public class PrimeUtils
         return passesLucasLehmer( n );
     }
 
+    /**
+     * Search Mersenne primes M<sub>p</sub> = 2<sup>p</sup> - 1 in a range of exponents.
+     * <p>The same as {@link #searchMersennePrimes(int, int, Path, ForkJoinPool)} on a common pool without checkpoints.
+     * @param from the least exponent, inclusive
+     * @param to the greatest exponent, inclusive
+     * @return exponents p of the range such that M<sub>p</sub> is prime, in increasing order
+     */
+    public static int[] searchMersennePrimes( int from, int to )
+    {
+        return searchMersennePrimes( from, to, null, ForkJoinPool.commonPool() ).join();
+    }
+    
+    /**
+     * Start a search of Mersenne primes M<sub>p</sub> = 2<sup>p</sup> - 1 in a range of exponents, the method returns immediately.
+     * <p>Prime exponents are filtered by the 2 * p + 1 rule and by trial factoring of M<sub>p</sub>,
+     * the rest are checked by Lucas-Lehmer tests in parallel on a given pool.
+     * Residues are saved to a checkpoint directory every minute, so a search that was cancelled or crashed
+     * can be resumed by a new search with the same directory.
+     * @param from the least exponent, inclusive
+     * @param to the greatest exponent, inclusive
+     * @param checkpoints a directory of checkpoints, or null if tests aren't saved
+     * @param pool a pool to run tests on
+     * @return a handle of the running search, its result is exponents p of the range such that M<sub>p</sub> is prime, in increasing order
+     */
+    public static MersenneSearch searchMersennePrimes( int from, int to, Path checkpoints, ForkJoinPool pool )
+    {
+        return new MersenneSearch( from, to, checkpoints, MersenneSearch.DEFAULT_CHECKPOINT_MILLIS, pool );
+    }
+    
     /**
      * Method to check if a given number is a Fermat number. Linear time.
      * https://en.wikipedia.org/wiki/Fermat_number
@@ -211,12 +388,16 @@ public class PrimeUtils
     }
 
     /**
-     * Lucas probabilistic polynomial-time primality test.
-     * This is a method {@code passesLucasLehmer} from a standard Java class BigInteger.
-     * Used in Baillie-PSW primality test.<br><br>
+     * Strong Lucas probabilistic polynomial-time primality test with Selfridge parameters P = 1, Q = ( 1 - D ) / 4.
+     * Used in Baillie-PSW primality test.
+     * <p>Let n + 1 = d * 2<sup>s</sup> with odd d. A number n passes the test if U<sub>d</sub> = 0 (mod n)
+     * or V<sub>d * 2<sup>r</sup></sub> = 0 (mod n) for some 0 &lt;= r &lt; s. Every strong Lucas pseudoprime is a Lucas pseudoprime.
+     * <p>Only V is computed, by a binary ladder over pairs ( V<sub>k</sub>, V<sub>k + 1</sub> ):
+     * V<sub>2k</sub> = V<sub>k</sub><sup>2</sup> - 2Q<sup>k</sup>, V<sub>2k + 1</sub> = V<sub>k</sub>V<sub>k + 1</sub> - PQ<sup>k</sup>.
+     * Then U<sub>d</sub> = ( 2V<sub>d + 1</sub> - PV<sub>d</sub> ) / D. Every step takes three Montgomery multiplications
+     * (two if Q = -1) of mutable limb arrays (see {@link BigMontgomery}) and doesn't allocate memory.<br><br>
      * https://en.wikipedia.org/wiki/Lucas_pseudoprime<br><br>
      * Not to be confused with https://en.wikipedia.org/wiki/Lucas_primality_test
-     * @see java.math.BigInteger#passesLucasLehmer
      * @param n <b>an odd integer greater than one, not a strong pseudoprime to base 2, not a perfect square</b>
      * @return false if n is composite, true if n is a probable prime (with high probability)
      */
@@ -224,33 +405,80 @@ public class PrimeUtils
     {
         int z = 5;
         while ( jacobiSymbol( z, n ) != -1 ) z = z < 0 ? 2 - z : -( z + 2 );
-        BigInteger d = BigInteger.valueOf( z );
-        BigInteger u = BigInteger.ONE;
-        BigInteger u2;
-        BigInteger v = BigInteger.ONE;
-        BigInteger v2;
+        int q = ( 1 - z ) / 4;
+        // A prime n doesn't divide Q, otherwise D = 1 - 4Q would be a quadratic residue.
+        if ( q != -1 && MathUtils.gcd( Math.abs( q ), n.mod( BigInteger.valueOf( Math.abs( q ) ) ).intValue() ) != 1 ) return false;
+        BigMontgomery m = new BigMontgomery( n );
+        int vk[] = m.valueOf( BigUtils.BI_TWO );
+        int vk1[] = m.valueOf( BigInteger.ONE );
+        int one[] = m.valueOf( BigInteger.ONE );
+        int qk[] = one.clone();
+        int tmp[] = m.newValue();
         BigInteger k = n.add( BigInteger.ONE );
-        for ( int i = k.bitLength() - 2; i >= 0; i-- )
+        int s = k.getLowestSetBit();
+        k = k.shiftRight( s );
+        for ( int i = k.bitLength() - 1; i >= 0; i-- )
         {
-            u2 = u.multiply( v ).mod( n );
-            v2 = v.multiply( v ).add( d.multiply( u.multiply( u ) ) ).mod( n );
-            if ( v2.testBit( 0 ) ) v2 = v2.subtract( n );
-            v2 = v2.shiftRight( 1 );
-            u = u2;
-            v = v2;
             if ( k.testBit( i ) )
             {
-                u2 = u.add( v ).mod( n );
-                if ( u2.testBit( 0 ) ) u2 = u2.subtract( n );
-                u2 = u2.shiftRight( 1 );
-                v2 = v.add( d.multiply( u ) ).mod( n );
-                if ( v2.testBit( 0 ) ) v2 = v2.subtract( n );
-                v2 = v2.shiftRight( 1 );
-                u = u2;
-                v = v2;
+                // ( V[ k ], V[ k + 1 ] ) -> ( V[ 2k + 1 ], V[ 2k + 2 ] ).
+                m.multiply( vk, vk1, vk );
+                m.subtract( vk, qk, vk );
+                multiply( m, qk, q, tmp );
+                m.square( vk1, vk1 );
+                m.subtract( vk1, tmp, vk1 );
+                m.subtract( vk1, tmp, vk1 );
+                square( m, qk, q, one );
+                multiply( m, qk, q, tmp );
+                System.arraycopy( tmp, 0, qk, 0, qk.length );
             }
+            else
+            {
+                // ( V[ k ], V[ k + 1 ] ) -> ( V[ 2k ], V[ 2k + 1 ] ).
+                m.multiply( vk, vk1, vk1 );
+                m.subtract( vk1, qk, vk1 );
+                m.square( vk, vk );
+                m.subtract( vk, qk, vk );
+                m.subtract( vk, qk, vk );
+                square( m, qk, q, one );
+            }
+        }
+        // U[ d ] = 0 iff 2V[ d + 1 ] = V[ d ] since D is relatively prime to n.
+        m.add( vk1, vk1, tmp );
+        m.subtract( tmp, vk, tmp );
+        if ( BigMontgomery.isZero( tmp ) || BigMontgomery.isZero( vk ) ) return true;
+        for ( int r = 1; r < s; r++ )
+        {
+            m.square( vk, vk );
+            m.subtract( vk, qk, vk );
+            m.subtract( vk, qk, vk );
+            if ( BigMontgomery.isZero( vk ) ) return true;
+            square( m, qk, q, one );
+        }
+        return false;
+    }
+    
+    /**
+     * Replace Q<sup>k</sup> by Q<sup>2k</sup>. If Q = -1 then Q<sup>2k</sup> = 1 without multiplication.
+     */
+    private static void square( BigMontgomery m, int qk[], int q, int one[] )
+    {
+        if ( q == -1 ) System.arraycopy( one, 0, qk, 0, qk.length );
+        else m.square( qk, qk );
+    }
+    
+    /**
+     * a * q mod n for a small Selfridge parameter q.
+     * @param out a destination which differs from a
+     */
+    private static void multiply( BigMontgomery m, int a[], int q, int out[] )
+    {
+        if ( q < 0 )
+        {
+            m.multiply( a, -q, out );
+            m.negate( out, out );
         }
-        return u.mod( n ).signum() == 0;
+        else m.multiply( a, q, out );
     }
 
     /**
@@ -261,7 +489,7 @@ public class PrimeUtils
      * @see java.math.BigInteger#jacobiSymbol
      * @param n <b>an odd integer greater than one, not a perfect square</b>
      */
-    private static int jacobiSymbol( int p, BigInteger n )
+    static int jacobiSymbol( int p, BigInteger n )
     {
         if ( p == 0 ) return 0;
         int u = n.intValue();
@@ -345,7 +573,7 @@ public class PrimeUtils
         return true;
     }
     
-    private static boolean internalPassesMillerRabin( BigInteger n, BigInteger base, BigInteger nMinusOne, BigInteger m, int a )
+    static boolean internalPassesMillerRabin( BigInteger n, BigInteger base, BigInteger nMinusOne, BigInteger m, int a )
     {
         int j = 0;
         BigInteger z = base.modPow( m, n );
@@ -364,6 +592,9 @@ public class PrimeUtils
      * <p>This test is correct for any integer in {@code long} range and does not rely on Riemann hypothesis.
      * <a href="https://en.wikipedia.org/wiki/Miller%E2%80%93Rabin_primality_test#Deterministic_variants_of_the_test">Verified</a> for all long int numbers.
      * A probabilistic Miller-Rabin test is implemented in a standard Java class BigInteger.
+     * <p>Trial division by primes up to 53 comes first. Then numbers below 2<sup>32</sup> are tested with a single witness
+     * selected by a hash of the number, larger numbers need from 5 to 7 witnesses, see {@link MillerWitnesses}.
+     * <p>Numbers above {@link Integer#MAX_VALUE} are tested with 64-bit Montgomery arithmetic without memory allocation.
      * @see java.math.BigInteger#isProbablePrime
      * @param n a number to check for primality
      * @return true if and only if absolute value of n is prime
@@ -373,53 +604,43 @@ public class PrimeUtils
         if ( n < 0L ) n = -n;
         // Long.MIN_VALUE would be rejected here too.
         if ( ( n & 1L ) == 0L ) return n == 2L;
-        // Smallest odd number that requires q Miller-Rabin primality tests.
-        // Sloane's A006945: http://oeis.org/A006945
-        int q;
-        if ( n < 2152302898747L )
-        {
-            if ( n < 1373653L )
-            {
-                if ( n < 2047L )
-                {
-                    if ( n < 9L ) return n > 1L;
-                    else q = 1;
-                }
-                else q = 2;
-            }
-            else
-            {
-                if ( n < 3215031751L ) q = n < 25326001L ? 3 : 4;
-                else q = 5;
-            }
-        }
-        else if ( n < 341550071728321L ) q = n < 3474749660383L ? 6 : 7;
-        else q = n < 3825123056546413051L ? 9 : 12;
+        // Multiples of small primes are excluded from the table of hashed witnesses.
+        // For larger numbers trial division rejects most of composites faster than an exponentiation.
+        int p = MillerWitnesses.smallFactor( n );
+        if ( p != 0 ) return n == p;
+        if ( n < MillerWitnesses.TRIAL_LIMIT ) return n > 1L;
         long nMinusOne = n - 1;
         int s = Long.numberOfTrailingZeros( nMinusOne );
         long r = nMinusOne >> s;
-        if ( n <= Integer.MAX_VALUE )
+        if ( n < MillerWitnesses.HASHED_LIMIT )
         {
-            for ( int witness : PrimesIterable.getIntegerTotally( q ) ) if ( !internalPassesMillerRabin( ( int )n, witness, ( int )nMinusOne, ( int )r, s ) ) return false;
+            int witness = ( int )( MillerWitnesses.hashed( ( int )n ) % n );
+            if ( witness == 0 ) return true;
+            if ( n <= Integer.MAX_VALUE ) return internalPassesMillerRabin( ( int )n, witness, ( int )nMinusOne, ( int )r, s );
+            return internalPassesMillerRabin( n, witness, r, s, Montgomery.inverse( n ), Montgomery.one( n ) );
         }
-        else
+        int witnesses[] = MillerWitnesses.WITNESSES[ MillerWitnesses.sizeClass( n ) ];
+        long nInverse = Montgomery.inverse( n );
+        long one = Montgomery.one( n );
+        for ( int witness : witnesses ) if ( !internalPassesMillerRabin( n, witness, r, s, nInverse, one ) ) return false;
+        return true;
+    }
+    
+    /**
+     * Strong pseudoprimality test with 64-bit Montgomery arithmetic.
+     * Residues 1 and n - 1 are compared in the Montgomery form.
+     */
+    private static boolean internalPassesMillerRabin( long n, int base, long r, int s, long nInverse, long one )
+    {
+        long minusOne = n - one;
+        long remainder = Montgomery.pow( Montgomery.valueOf( base, n, one ), r, n, nInverse, one );
+        int j = 0;
+        while ( ( j > 0 || remainder != one ) && remainder != minusOne )
         {
-            BigInteger br = BigInteger.valueOf( r );
-            BigInteger bn = BigInteger.valueOf( n );
-            for ( BigInteger witness : PrimesIterable.getBigIntegerTotally( BigInteger.valueOf( q ) ) )
-            {
-                BigInteger bRemainder = witness.modPow( br, bn );
-                long remainder = bRemainder.longValue();
-                int j = 0;
-                while ( ( j > 0 || remainder != 1L ) && remainder != nMinusOne )
-                {
-                    if ( j > 0 && remainder == 1L ) return false;
-                    j++;
-                    if ( j == s ) return false;
-                    bRemainder = bRemainder.modPow( BigUtils.BI_TWO, bn );
-                    remainder = bRemainder.longValue();
-                }
-            }
+            if ( j > 0 && remainder == one ) return false;
+            j++;
+            if ( j == s ) return false;
+            remainder = Montgomery.multiply( remainder, remainder, n, nInverse );
         }
         return true;
     }
@@ -444,10 +665,43 @@ public class PrimeUtils
         BigInteger m = nMinusOne;
         int a = m.getLowestSetBit();
         m = m.shiftRight( a );
-        for ( BigInteger witness : PrimesIterable.getBigIntegerMax( BigInteger.valueOf( q ).shiftLeft( 1 ) ) ) if ( !internalPassesMillerRabin( n, witness, nMinusOne, m, a ) ) return false;
+        long limit = q << 1;
+        int primes[] = SmallPrimes.upTo( ( int )Math.min( limit, Integer.MAX_VALUE ) );
+        for ( int p : primes )
+        {
+            if ( p > limit ) return true;
+            if ( !internalPassesMillerRabin( n, BigInteger.valueOf( p ), nMinusOne, m, a ) ) return false;
+        }
+        // Witnesses beyond the table of small primes.
+        for ( long p = PrimesIterable.getNext( primes[ primes.length - 1 ] + 1L ); p <= limit; p = PrimesIterable.getNext( p + 1L ) ) if ( !internalPassesMillerRabin( n, BigInteger.valueOf( p ), nMinusOne, m, a ) ) return false;
         return true;
     }
     
+    /**
+     * Deterministic Miller primality test. Polynomial time.
+     * <p>The same as {@link #passesMiller(BigInteger)}, but witnesses are tested in parallel on a given pool.
+     * @param n a number to check for primality
+     * @param pool a pool to test witnesses on
+     * @return true if and only if absolute value of n is prime
+     */
+    public static boolean passesMiller( BigInteger n, ForkJoinPool pool )
+    {
+        return passesMillerAsync( n, pool ).join();
+    }
+    
+    /**
+     * Start a deterministic Miller primality test. Polynomial time.
+     * <p>Witnesses of {@link #passesMiller(BigInteger)} are tested in parallel on a given pool, the method returns immediately.
+     * The returned handle shows progress of the test and allows to cancel it. All the workers stop on the first failing witness.
+     * @param n a number to check for primality
+     * @param pool a pool to test witnesses on
+     * @return a handle of the running test, its result is true if and only if absolute value of n is prime
+     */
+    public static MillerTest passesMillerAsync( BigInteger n, ForkJoinPool pool )
+    {
+        return new MillerTest( n, pool );
+    }
+    
     /**
      * Probabilistic Miller-Rabin primality test. Polynomial time.
      * <p>This test does not rely on GRH.
@@ -575,4 +829,83 @@ public class PrimeUtils
         }
         return isPrime( real.multiply( real ).add( imaginary.multiply( imaginary ) ) );
     }
+    
+    /**
+     * Prime-counting function. Time O( x<sup>2/3</sup> ), memory O( x<sup>1/3</sup> log<sup>2</sup>( x ) ).
+     * <p>Lagarias-Miller-Odlyzko algorithm, segments of the sieve are processed in parallel on a common pool.
+     * https://en.wikipedia.org/wiki/Prime-counting_function
+     * @param x an upper inclusive bound
+     * @return a quantity of prime numbers that are not greater than x
+     */
+    public static long primePi( long x )
+    {
+        return primePi( x, ForkJoinPool.commonPool() );
+    }
+    
+    /**
+     * Prime-counting function. Time O( x<sup>2/3</sup> ), memory O( x<sup>1/3</sup> log<sup>2</sup>( x ) ).
+     * <p>Lagarias-Miller-Odlyzko algorithm, segments of the sieve are processed in parallel on a given pool.
+     * https://en.wikipedia.org/wiki/Prime-counting_function
+     * @param x an upper inclusive bound
+     * @param pool a pool to process segments on
+     * @return a quantity of prime numbers that are not greater than x
+     */
+    public static long primePi( long x, ForkJoinPool pool )
+    {
+        return PrimeCounting.primePi( x, pool );
+    }
+    
+    /**
+     * The n-th prime number: nthPrime( 1 ) = 2, nthPrime( 2 ) = 3, nthPrime( 3 ) = 5, etc.
+     * Time O( p<sub>n</sub><sup>2/3</sup> ).
+     * <p>An approximate location is corrected by {@link #primePi(long)} and only a small window is sieved.
+     * Computations are performed on a common pool.
+     * @param n an index of a prime, starting from 1
+     * @return the n-th prime number
+     * @throws IllegalArgumentException if n &lt; 1 or the n-th prime doesn't fit long datatype
+     */
+    public static long nthPrime( long n ) throws IllegalArgumentException
+    {
+        return nthPrime( n, ForkJoinPool.commonPool() );
+    }
+    
+    /**
+     * The n-th prime number: nthPrime( 1 ) = 2, nthPrime( 2 ) = 3, nthPrime( 3 ) = 5, etc.
+     * Time O( p<sub>n</sub><sup>2/3</sup> ).
+     * <p>An approximate location is corrected by {@link #primePi(long)} and only a small window is sieved.
+     * Computations are performed on a given pool.
+     * @param n an index of a prime, starting from 1
+     * @param pool a pool to perform computations on
+     * @return the n-th prime number
+     * @throws IllegalArgumentException if n &lt; 1 or the n-th prime doesn't fit long datatype
+     */
+    public static long nthPrime( long n, ForkJoinPool pool ) throws IllegalArgumentException
+    {
+        return PrimeCounting.nthPrime( n, pool );
+    }
+    
+    /**
+     * Sum of prime numbers that are not greater than x. Time O( x<sup>3/4</sup> / log( x ) ), memory O( x<sup>1/2</sup> ).
+     * <p>Lucy Hedgehog's algorithm, updates are processed in parallel on a common pool.
+     * @param x an upper inclusive bound
+     * @return a sum of prime numbers that are not greater than x
+     * @throws IllegalArgumentException if x is too large (about 2<sup>62</sup>)
+     */
+    public static BigInteger primeSum( long x ) throws IllegalArgumentException
+    {
+        return primeSum( x, ForkJoinPool.commonPool() );
+    }
+    
+    /**
+     * Sum of prime numbers that are not greater than x. Time O( x<sup>3/4</sup> / log( x ) ), memory O( x<sup>1/2</sup> ).
+     * <p>Lucy Hedgehog's algorithm, updates are processed in parallel on a given pool.
+     * @param x an upper inclusive bound
+     * @param pool a pool to process updates on
+     * @return a sum of prime numbers that are not greater than x
+     * @throws IllegalArgumentException if x is too large (about 2<sup>62</sup>)
+     */
+    public static BigInteger primeSum( long x, ForkJoinPool pool ) throws IllegalArgumentException
+    {
+        return PrimeCounting.primeSum( x, pool );
+    }
 }
\ No newline at end of file
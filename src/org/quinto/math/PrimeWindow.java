@@ -0,0 +1,173 @@
+package org.quinto.math;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Search of the nearest prime numbers to a large number by sieving windows of candidates.
+ * <p>A window contains consecutive odd candidates above (or below) a number. Residues of the first candidate
+ * modulo small primes are computed once, word by word.
+ * Every prime p strikes out candidates divisible by p starting from an index -r / 2 (mod p).
+ * Residues of the next window are derived from the residues of the previous one without BigInteger arithmetic.
+ * <p>Only candidates that survive the sieve are tested by {@link PrimeUtils#isPrime(BigInteger)}.
+ * A quantity of sieving primes grows with the length of numbers: a sieving prime p removes about 1 / ( p ln( p ) )
+ * of survivors, it pays off while it's cheaper than a failed test which grows faster than a residue computation.
+ */
+class PrimeWindow
+{
+    private static final int MIN_SIEVING_LIMIT = 1 << 12;
+    private static final int MAX_SIEVING_LIMIT = 1 << 20;
+    private static final int MIN_WINDOW_LENGTH = 1 << 8;
+    
+    private final int primes[];
+    /**
+     * Residues of the first candidate of the current window modulo every prime.
+     */
+    private final int residues[];
+    private final boolean composite[];
+    /**
+     * Direction of the search: 1 or -1.
+     */
+    private final int direction;
+    private BigInteger start;
+    
+    /**
+     * @param n a number greater than {@link PrimesIterable#LAST_LONG_PRIME}
+     * @param direction 1 to search upwards, -1 to search downwards
+     */
+    private PrimeWindow( BigInteger n, int direction )
+    {
+        this.direction = direction;
+        int bitLength = n.bitLength();
+        int limit = ( int )Math.min( Math.max( ( long )bitLength << 7, MIN_SIEVING_LIMIT ), MAX_SIEVING_LIMIT );
+        int smallPrimes[] = SmallPrimes.getOrSieve( limit );
+        int count = 0;
+        // Number 2 isn't needed: all the candidates are odd.
+        while ( count + 1 < smallPrimes.length && smallPrimes[ count + 1 ] <= limit ) count++;
+        primes = new int[ count ];
+        System.arraycopy( smallPrimes, 1, primes, 0, count );
+        residues = new int[ count ];
+        // An average gap between primes is ln( n ) = 0.69 * bitLength, so the window covers about 2.9 gaps.
+        composite = new boolean[ Math.max( bitLength, MIN_WINDOW_LENGTH ) ];
+        start = n.testBit( 0 ) ? n : n.add( BigInteger.valueOf( direction ) );
+        // Remainders of 32-bit words by Horner's rule don't need BigInteger divisions: r * 2^32 + word < 2^52.
+        byte bytes[] = start.toByteArray();
+        int words[] = new int[ ( bytes.length + 3 ) >>> 2 ];
+        for ( int i = 0; i < bytes.length; i++ ) words[ i >>> 2 ] |= ( bytes[ bytes.length - 1 - i ] & 0xFF ) << ( ( i & 3 ) << 3 );
+        for ( int j = 0; j < count; j++ )
+        {
+            long p = primes[ j ];
+            long r = 0L;
+            for ( int i = words.length - 1; i >= 0; i-- ) r = ( ( r << 32 ) | ( words[ i ] & 0xFFFFFFFFL ) ) % p;
+            residues[ j ] = ( int )r;
+        }
+    }
+    
+    /**
+     * The smallest prime number that is greater than or equal to n.
+     * @param n a number greater than {@link PrimesIterable#LAST_LONG_PRIME}
+     * @param pool a pool to test survivors of a window in parallel, or null to test them in the current thread
+     */
+    static BigInteger next( BigInteger n, ForkJoinPool pool )
+    {
+        return new PrimeWindow( n, 1 ).search( pool );
+    }
+    
+    /**
+     * The largest prime number that is less than or equal to n.
+     * @param n a number greater than {@link PrimesIterable#LAST_LONG_PRIME}
+     * @param pool a pool to test survivors of a window in parallel, or null to test them in the current thread
+     */
+    static BigInteger previous( BigInteger n, ForkJoinPool pool )
+    {
+        return new PrimeWindow( n, -1 ).search( pool );
+    }
+    
+    private BigInteger search( ForkJoinPool pool )
+    {
+        BigInteger step = BigInteger.valueOf( 2L * direction * composite.length );
+        int survivors[] = new int[ composite.length ];
+        while ( true )
+        {
+            sieve();
+            int count = 0;
+            for ( int i = 0; i < composite.length; i++ ) if ( !composite[ i ] ) survivors[ count++ ] = i;
+            int found = pool == null ? testSequentially( survivors, count ) : testInParallel( survivors, count, pool );
+            if ( found >= 0 ) return candidate( found );
+            start = start.add( step );
+            shift();
+        }
+    }
+    
+    private BigInteger candidate( int index )
+    {
+        return start.add( BigInteger.valueOf( 2L * direction * index ) );
+    }
+    
+    /**
+     * @return the first prime survivor, or -1 if all the survivors are composite
+     */
+    private int testSequentially( int survivors[], int count )
+    {
+        for ( int i = 0; i < count; i++ ) if ( PrimeUtils.isPrime( candidate( survivors[ i ] ) ) ) return survivors[ i ];
+        return -1;
+    }
+    
+    /**
+     * Survivors are tested by batches of pool parallelism size, so a prime isn't returned before nearer candidates are tested.
+     * @return the first prime survivor, or -1 if all the survivors are composite
+     */
+    private int testInParallel( int survivors[], int count, ForkJoinPool pool )
+    {
+        int batch = Math.max( pool.getParallelism(), 1 );
+        for ( int from = 0; from < count; from += batch )
+        {
+            List< ForkJoinTask< Boolean > > tasks = new ArrayList<>();
+            int to = Math.min( from + batch, count );
+            for ( int i = from; i < to; i++ )
+            {
+                BigInteger candidate = candidate( survivors[ i ] );
+                tasks.add( pool.submit( () -> PrimeUtils.isPrime( candidate ) ) );
+            }
+            int found = -1;
+            // All the tasks are joined even if a prime is found, so none of them outlives the search.
+            for ( int i = 0; i < tasks.size(); i++ ) if ( tasks.get( i ).join() && found < 0 ) found = survivors[ from + i ];
+            if ( found >= 0 ) return found;
+        }
+        return -1;
+    }
+    
+    /**
+     * Mark the candidates of the current window that are divisible by sieving primes.
+     */
+    private void sieve()
+    {
+        boolean composite[] = this.composite;
+        int length = composite.length;
+        for ( int i = 0; i < length; i++ ) composite[ i ] = false;
+        for ( int j = 0; j < primes.length; j++ )
+        {
+            int p = primes[ j ];
+            int r = residues[ j ];
+            // start + 2 * direction * i = 0 (mod p) iff i = -r * direction / 2 (mod p), 2^-1 = ( p + 1 ) / 2.
+            int i = ( int )( ( long )( direction > 0 ? ( p - r ) % p : r ) * ( ( p + 1 ) >>> 1 ) % p );
+            for ( ; i < length; i += p ) composite[ i ] = true;
+        }
+    }
+    
+    /**
+     * Move residues to the next window.
+     */
+    private void shift()
+    {
+        long delta = 2L * composite.length;
+        for ( int j = 0; j < primes.length; j++ )
+        {
+            int p = primes[ j ];
+            residues[ j ] = ( int )Math.floorMod( residues[ j ] + direction * delta, ( long )p );
+        }
+    }
+}
\ No newline at end of file
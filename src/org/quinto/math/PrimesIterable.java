@@ -2,8 +2,18 @@ package org.quinto.math;
 
 import java.math.BigInteger;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Prime numbers sequence generator.
@@ -20,10 +30,17 @@ public class PrimesIterable< T extends Number > implements Iterable< T >
     
     private static final int INDICES[] = { 1, 7, 11, 13, 17, 19, 23, 29 };
     private static final int CYCLE_LENGTH = 30;
-    private static final int CACHE[] = new int[ 512 ];
     private static final BigInteger BI_LAST_LONG_PRIME = BigInteger.valueOf( LAST_LONG_PRIME );
-    private static final BigInteger CACHE_LENGTH = BigInteger.valueOf( CACHE.length );
-    private static final boolean initialized;
+    /**
+     * Quantity of prime numbers in int datatype, pi( 2<sup>31</sup> - 1 ).
+     * https://oeis.org/A007053
+     */
+    private static final long INT_PRIMES_QUANTITY = 105097565L;
+    /**
+     * Quantity of prime numbers in long datatype, pi( 2<sup>63</sup> - 1 ).
+     * https://oeis.org/A007053
+     */
+    static final long LONG_PRIMES_QUANTITY = 216289611853439384L;
     
     private T current;
     private T next;
@@ -32,13 +49,7 @@ public class PrimesIterable< T extends Number > implements Iterable< T >
     private T quantity;
     private PrimesIterableType type;
     private PrimesIterator iterator;
-    
-    static
-    {
-        int i = 0;
-        for ( int p : getIntegerTotally( CACHE.length ) ) CACHE[ i++ ] = p;
-        initialized = true;
-    }
+    private PrimeSieve sieve;
     
     private static enum PrimesIterableType
     {
@@ -67,6 +78,7 @@ public class PrimesIterable< T extends Number > implements Iterable< T >
     /**
      * Generate a sequence of int prime numbers.
      * <p>A sequence is generated lazily (next number is calculated only if required).
+     * Primes are produced by a segmented sieve (see {@link PrimeSieve}).
      * <p>The resulting sequence would contain exactly {@code quantity} numbers.
      * <p>The result can be enumerated in a for-loop construction, e.g.:<br>
      * <code>for ( int i : getIntegerTotally( 5 ) ) System.out.println( i );</code><br>
@@ -82,10 +94,12 @@ public class PrimesIterable< T extends Number > implements Iterable< T >
     /**
      * Generate a sequence of long prime numbers.
      * <p>A sequence is generated lazily (next number is calculated only if required).
+     * Primes are produced by a segmented sieve (see {@link PrimeSieve}).
      * <p>The resulting sequence would contain exactly {@code quantity} numbers.
      * <p>The result can be enumerated in a for-loop construction, e.g.:<br>
      * <code>for ( long l : getLongTotally( 5L ) ) System.out.println( l );</code><br>
      * The output of this example would contain 5 numbers: 2, 3, 5, 7, 11.
+     * <p>Use {@link PrimeUtils#nthPrime(long)} to get a single prime by its index.
      * @param quantity a quantity of numbers in the resulting sequence
      * @return a sequence of prime numbers
      */
@@ -114,6 +128,7 @@ public class PrimesIterable< T extends Number > implements Iterable< T >
     /**
      * Generate a sequence of int prime numbers up to {@code max} value inclusively.
      * <p>A sequence is generated lazily (next number is calculated only if required).
+     * Primes are produced by a segmented sieve (see {@link PrimeSieve}).
      * <p>All the numbers in a resulting sequence would lie in range [ 2 .. {@code max} ] (both sides included).
      * <p>The result can be enumerated in a for-loop construction, e.g.:<br>
      * <code>for ( int i : getIntegerMax( 5 ) ) System.out.println( i );</code><br>
@@ -129,6 +144,7 @@ public class PrimesIterable< T extends Number > implements Iterable< T >
     /**
      * Generate a sequence of long prime numbers up to {@code max} value inclusively.
      * <p>A sequence is generated lazily (next number is calculated only if required).
+     * Primes are produced by a segmented sieve (see {@link PrimeSieve}).
      * <p>All the numbers in a resulting sequence would lie in range [ 2 .. {@code max} ] (both sides included).
      * <p>The result can be enumerated in a for-loop construction, e.g.:<br>
      * <code>for ( long l : getLongMax( 5L ) ) System.out.println( l );</code><br>
@@ -141,6 +157,194 @@ public class PrimesIterable< T extends Number > implements Iterable< T >
         return new PrimesIterable<>( max, null, PrimesIterableType.LONG );
     }
     
+    /**
+     * Generate an iterator over int prime numbers in range [ {@code from} .. {@code to} ] (both sides included).
+     * <p>Unlike {@link #getIntegerMax}, the primes aren't boxed, so the iteration doesn't allocate objects
+     * (except for sieve segments).
+     * <p>Example:<br>
+     * <code>PrimitiveIterator.OfInt it = intIterator( 3, 10 );<br>
+     * while ( it.hasNext() ) System.out.println( it.nextInt() );</code><br>
+     * The output of this example would contain 3 numbers: 3, 5, 7.
+     * @param from a lower inclusive bound of the sequence
+     * @param to an upper inclusive bound of the sequence
+     * @return an iterator over prime numbers
+     */
+    public static PrimitiveIterator.OfInt intIterator( int from, int to )
+    {
+        return new IntPrimesIterator( from, to );
+    }
+    
+    /**
+     * Generate an iterator over long prime numbers in range [ {@code from} .. {@code to} ] (both sides included).
+     * <p>Unlike {@link #getLongMax}, the primes aren't boxed, so the iteration doesn't allocate objects
+     * (except for sieve segments).
+     * <p>Example:<br>
+     * <code>PrimitiveIterator.OfLong it = longIterator( 3L, 10L );<br>
+     * while ( it.hasNext() ) System.out.println( it.nextLong() );</code><br>
+     * The output of this example would contain 3 numbers: 3, 5, 7.
+     * @param from a lower inclusive bound of the sequence
+     * @param to an upper inclusive bound of the sequence
+     * @return an iterator over prime numbers
+     */
+    public static PrimitiveIterator.OfLong longIterator( long from, long to )
+    {
+        return new LongPrimesIterator( from, to );
+    }
+    
+    /**
+     * Generate a sequential stream of int prime numbers up to {@code max} value inclusively.
+     * <p>Example:<br>
+     * <code>intStream( 5 ).forEach( System.out::println );</code><br>
+     * The output of this example would contain 3 numbers: 2, 3, 5.
+     * @param max an upper inclusive bound of the sequence
+     * @return an ordered stream of prime numbers
+     */
+    public static IntStream intStream( int max )
+    {
+        return intStream( 0, max );
+    }
+    
+    /**
+     * Generate a sequential stream of int prime numbers in range [ {@code from} .. {@code to} ] (both sides included).
+     * <p>Example:<br>
+     * <code>intStream( 3, 10 ).forEach( System.out::println );</code><br>
+     * The output of this example would contain 3 numbers: 3, 5, 7.
+     * <p>A quantity of primes can be limited by {@link IntStream#limit}, e.g.
+     * <code>intStream( 0, Integer.MAX_VALUE ).limit( 5 )</code> contains 5 numbers: 2, 3, 5, 7, 11.
+     * <p>The stream can be made parallel: it's split by numeric range and each part is sieved independently.
+     * @param from a lower inclusive bound of the sequence
+     * @param to an upper inclusive bound of the sequence
+     * @return an ordered stream of prime numbers
+     */
+    public static IntStream intStream( int from, int to )
+    {
+        return StreamSupport.intStream( new IntPrimesSpliterator( from, to, -1L, null, 0 ), false );
+    }
+    
+    /**
+     * Generate a sequential stream of long prime numbers up to {@code max} value inclusively.
+     * <p>Example:<br>
+     * <code>longStream( 5L ).forEach( System.out::println );</code><br>
+     * The output of this example would contain 3 numbers: 2, 3, 5.
+     * @param max an upper inclusive bound of the sequence
+     * @return an ordered stream of prime numbers
+     */
+    public static LongStream longStream( long max )
+    {
+        return longStream( 0L, max );
+    }
+    
+    /**
+     * Generate a sequential stream of long prime numbers in range [ {@code from} .. {@code to} ] (both sides included).
+     * <p>Example:<br>
+     * <code>longStream( 3L, 10L ).forEach( System.out::println );</code><br>
+     * The output of this example would contain 3 numbers: 3, 5, 7.
+     * <p>A quantity of primes can be limited by {@link LongStream#limit}, e.g.
+     * <code>longStream( 0L, Long.MAX_VALUE ).limit( 5L )</code> contains 5 numbers: 2, 3, 5, 7, 11.
+     * <p>The stream can be made parallel: it's split by numeric range and each part is sieved independently.
+     * @param from a lower inclusive bound of the sequence
+     * @param to an upper inclusive bound of the sequence
+     * @return an ordered stream of prime numbers
+     */
+    public static LongStream longStream( long from, long to )
+    {
+        return StreamSupport.longStream( new LongPrimesSpliterator( from, to, -1L, null, 0 ), false );
+    }
+    
+    /**
+     * Generate an iterator over twin primes ( p, p + 2 ) up to {@code max} value inclusively.
+     * <p>Example:<br>
+     * <code>PrimitiveIterator.OfLong it = twins( 20L );<br>
+     * while ( it.hasNext() ) System.out.println( it.nextLong() );</code><br>
+     * The output of this example would contain 4 numbers: 3, 5, 11, 17.
+     * @param max an upper inclusive bound of both members of a pair
+     * @return an iterator over the smaller members of pairs
+     */
+    public static PrimitiveIterator.OfLong twins( long max )
+    {
+        return tuples( new int[]{ 0, 2 }, 0L, max );
+    }
+    
+    /**
+     * Generate an iterator over cousin primes ( p, p + 4 ) up to {@code max} value inclusively.
+     * @param max an upper inclusive bound of both members of a pair
+     * @return an iterator over the smaller members of pairs
+     */
+    public static PrimitiveIterator.OfLong cousins( long max )
+    {
+        return tuples( new int[]{ 0, 4 }, 0L, max );
+    }
+    
+    /**
+     * Generate an iterator over sexy primes ( p, p + 6 ) up to {@code max} value inclusively.
+     * @param max an upper inclusive bound of both members of a pair
+     * @return an iterator over the smaller members of pairs
+     */
+    public static PrimitiveIterator.OfLong sexyPrimes( long max )
+    {
+        return tuples( new int[]{ 0, 6 }, 0L, max );
+    }
+    
+    /**
+     * Generate an iterator over prime triplets ( p, p + 2, p + 6 ) and ( p, p + 4, p + 6 ) up to {@code max} value inclusively.
+     * <p>Both patterns are sieved independently and merged in increasing order.
+     * The output would start with 5, 7, 11, 13, 17, 37, 41, 67.
+     * @param max an upper inclusive bound of all members of a triplet
+     * @return an iterator over the smallest members of triplets
+     */
+    public static PrimitiveIterator.OfLong triplets( long max )
+    {
+        return new MergingIterator( tuples( new int[]{ 0, 2, 6 }, 0L, max ), tuples( new int[]{ 0, 4, 6 }, 0L, max ) );
+    }
+    
+    /**
+     * Generate an iterator over prime k-tuples with all members in range [ {@code from} .. {@code to} ] (both sides included).
+     * <p>A tuple is defined by a pattern of offsets: numbers p + pattern[ i ] should be prime for all i.
+     * E.g. { 0, 2 } defines twin primes, { 0, 2, 6 } defines prime triplets.
+     * <p>All the offsets are sieved at once on a mod 30 wheel, so only positions where every member can be prime are tested.
+     * <p>Example:<br>
+     * <code>PrimitiveIterator.OfLong it = tuples( new int[]{ 0, 4, 6 }, 0L, 50L );<br>
+     * while ( it.hasNext() ) System.out.println( it.nextLong() );</code><br>
+     * The output of this example would contain 3 numbers: 7, 13, 37.
+     * @param pattern offsets of members, a strictly increasing array which starts with 0, offsets aren't greater than 65536
+     * @param from a lower inclusive bound of all members
+     * @param to an upper inclusive bound of all members
+     * @return an iterator over the first members of tuples
+     * @throws IllegalArgumentException if the pattern is invalid
+     */
+    public static PrimitiveIterator.OfLong tuples( int pattern[], long from, long to ) throws IllegalArgumentException
+    {
+        TupleSieve.checkPattern( pattern );
+        return new TupleIterator( new TupleSieve( pattern.clone(), from, lastTupleStart( pattern, to ), null, 0 ) );
+    }
+    
+    /**
+     * Generate a sequential stream of prime k-tuples with all members in range [ {@code from} .. {@code to} ] (both sides included).
+     * See {@link #tuples} for a definition of a pattern.
+     * <p>The stream can be made parallel: it's split by numeric range and each part is sieved independently.
+     * <p>Example:<br>
+     * <code>tupleStream( new int[]{ 0, 2 }, 0L, 1000000000L ).parallel().count()</code> = 3424506.
+     * @param pattern offsets of members, a strictly increasing array which starts with 0, offsets aren't greater than 65536
+     * @param from a lower inclusive bound of all members
+     * @param to an upper inclusive bound of all members
+     * @return an ordered stream of the first members of tuples
+     * @throws IllegalArgumentException if the pattern is invalid
+     */
+    public static LongStream tupleStream( int pattern[], long from, long to ) throws IllegalArgumentException
+    {
+        TupleSieve.checkPattern( pattern );
+        return StreamSupport.longStream( new TuplesSpliterator( pattern.clone(), from, lastTupleStart( pattern, to ), null, 0 ), false );
+    }
+    
+    /**
+     * An upper bound of the first member of a tuple such that its last member neither exceeds {@code to} nor overflows.
+     */
+    private static long lastTupleStart( int pattern[], long to )
+    {
+        int last = pattern[ pattern.length - 1 ];
+        return to < last ? -1L : Math.min( to, LAST_LONG_PRIME ) - last;
+    }
+    
     private PrimesIterable( T max, T quantity, PrimesIterableType type )
     {
         this.max = max;
@@ -173,11 +377,54 @@ public class PrimesIterable< T extends Number > implements Iterable< T >
         return iterator;
     }
     
+    /**
+     * Create a spliterator over the prime numbers of this sequence which haven't been returned by the iterator yet.
+     * <p>Int and long sequences bounded by {@code max} are split by numeric range,
+     * each part is sieved independently. Sequences bounded by {@code quantity} are {@link Spliterator#SIZED}
+     * (if the datatype contains enough primes) but can't be split.
+     * @return a spliterator over prime numbers
+     */
+    // T is Integer or Long exactly when the type is INTEGER or LONG, so the spliterator of that type is a Spliterator< T >.
+    @SuppressWarnings( "unchecked" )
+    @Override
+    public Spliterator< T > spliterator()
+    {
+        if ( type == PrimesIterableType.BIG_INTEGER ) return Iterable.super.spliterator();
+        long from = next == null ? 1L : next.longValue();
+        long to = max == null ? type == PrimesIterableType.INTEGER ? Integer.MAX_VALUE : Long.MAX_VALUE : max.longValue();
+        long remaining = quantity == null ? -1L : Math.max( quantity.longValue() - currentPos.longValue(), 0L );
+        if ( next == null ) remaining = 0L;
+        boolean sized = quantity != null && quantity.longValue() <= ( type == PrimesIterableType.INTEGER ? INT_PRIMES_QUANTITY : LONG_PRIMES_QUANTITY );
+        Spliterator< ? > ret = type == PrimesIterableType.INTEGER ? new IntPrimesSpliterator( from, to, remaining, sized ) : new LongPrimesSpliterator( from, to, remaining, sized );
+        return ( Spliterator< T > )ret;
+    }
+    
+    /**
+     * Create a sequential stream of the prime numbers of this sequence which haven't been returned by the iterator yet.
+     * @return a stream of prime numbers
+     */
+    public Stream< T > stream()
+    {
+        return StreamSupport.stream( spliterator(), false );
+    }
+    
+    /**
+     * Create a parallel stream of the prime numbers of this sequence which haven't been returned by the iterator yet.
+     * <p>Int and long sequences bounded by {@code max} are split by numeric range and sieved independently, e.g.:<br>
+     * <code>getLongMax( 1000000000L ).parallelStream().filter( p -&gt; p % 4L == 1L ).count()</code>
+     * @return a parallel stream of prime numbers
+     */
+    public Stream< T > parallelStream()
+    {
+        return StreamSupport.stream( spliterator(), true );
+    }
+    
     private class PrimesIterator implements Iterator< T >
     {
         @Override
         public boolean hasNext()
         {
+            if ( next == null ) return false;
             if ( max != null )
             {
                 switch ( type )
@@ -215,25 +462,37 @@ public class PrimesIterable< T extends Number > implements Iterable< T >
         public T next()
         {
             if ( !hasNext() ) throw new NoSuchElementException();
+            int small[];
             switch ( type )
             {
                 case BIG_INTEGER:
                     current = next;
                     currentPos = ( T )( ( BigInteger )currentPos ).add( BigInteger.ONE );
-                    if ( ( ( BigInteger )currentPos ).compareTo( CACHE_LENGTH ) < 0 ) next = ( T )BigInteger.valueOf( CACHE[ currentPos.intValue() ] );
+                    small = ( ( BigInteger )currentPos ).bitLength() < 31 ? SmallPrimes.first( currentPos.intValue() + 1 ) : null;
+                    if ( small != null && currentPos.intValue() < small.length ) next = ( T )BigInteger.valueOf( small[ currentPos.intValue() ] );
                     else next = ( T )getNext( ( ( BigInteger )next ).add( BigInteger.ONE ) );
                     return current;
                 case INTEGER:
                     current = next;
                     currentPos = ( T )Integer.valueOf( ( Integer )currentPos + 1 );
-                    if ( initialized && ( Integer )currentPos < CACHE.length ) next = ( T )Integer.valueOf( CACHE[ currentPos.intValue() ] );
-                    else next = ( T )Integer.valueOf( getNext( ( Integer )next + 1 ) );
+                    small = SmallPrimes.snapshot();
+                    if ( ( Integer )currentPos < small.length && sieve == null ) next = ( T )Integer.valueOf( small[ currentPos.intValue() ] );
+                    else
+                    {
+                        long p = nextSieved( ( Integer )current, Integer.MAX_VALUE );
+                        next = p == 0L ? null : ( T )Integer.valueOf( ( int )p );
+                    }
                     return current;
                 case LONG:
                     current = next;
                     currentPos = ( T )Long.valueOf( ( Long )currentPos + 1L );
-                    if ( ( Long )currentPos < CACHE.length ) next = ( T )Long.valueOf( CACHE[ currentPos.intValue() ] );
-                    else next = ( T )Long.valueOf( getNext( ( Long )next + 1L ) );
+                    small = SmallPrimes.snapshot();
+                    if ( ( Long )currentPos < small.length && sieve == null ) next = ( T )Long.valueOf( small[ currentPos.intValue() ] );
+                    else
+                    {
+                        long p = nextSieved( ( Long )current, Long.MAX_VALUE );
+                        next = p == 0L ? null : ( T )Long.valueOf( p );
+                    }
                     return current;
                 default:
                     throw new NoSuchElementException();
@@ -244,6 +503,380 @@ public class PrimesIterable< T extends Number > implements Iterable< T >
         public void remove()
         {
         }
+        
+        /**
+         * Seeking of the next prime number by a segmented sieve.
+         * The sieve is created lazily when the cache is exhausted.
+         * @param prime the last returned prime number
+         * @param limit the largest number of the datatype
+         * @return the next prime number, or 0 if there are no more primes up to max (or limit)
+         */
+        private long nextSieved( long prime, long limit )
+        {
+            if ( sieve == null ) sieve = new PrimeSieve( prime + 1L, max == null ? limit : max.longValue() );
+            return sieve.next();
+        }
+    }
+    
+    private static class IntPrimesIterator implements PrimitiveIterator.OfInt
+    {
+        private final PrimeSieve sieve;
+        private int next;
+        
+        private IntPrimesIterator( int from, int to )
+        {
+            sieve = new PrimeSieve( from, to );
+            next = ( int )sieve.next();
+        }
+        
+        @Override
+        public boolean hasNext()
+        {
+            return next != 0;
+        }
+        
+        @Override
+        public int nextInt()
+        {
+            if ( next == 0 ) throw new NoSuchElementException();
+            int ret = next;
+            next = ( int )sieve.next();
+            return ret;
+        }
+    }
+    
+    private static class LongPrimesIterator implements PrimitiveIterator.OfLong
+    {
+        private final PrimeSieve sieve;
+        private long next;
+        
+        private LongPrimesIterator( long from, long to )
+        {
+            sieve = new PrimeSieve( from, to );
+            next = sieve.next();
+        }
+        
+        @Override
+        public boolean hasNext()
+        {
+            return next != 0L;
+        }
+        
+        @Override
+        public long nextLong()
+        {
+            if ( next == 0L ) throw new NoSuchElementException();
+            long ret = next;
+            next = sieve.next();
+            return ret;
+        }
+    }
+    
+    private static class TupleIterator implements PrimitiveIterator.OfLong
+    {
+        private final TupleSieve sieve;
+        private long next;
+        
+        private TupleIterator( TupleSieve sieve )
+        {
+            this.sieve = sieve;
+            next = sieve.next();
+        }
+        
+        @Override
+        public boolean hasNext()
+        {
+            return next != 0L;
+        }
+        
+        @Override
+        public long nextLong()
+        {
+            if ( next == 0L ) throw new NoSuchElementException();
+            long ret = next;
+            next = sieve.next();
+            return ret;
+        }
+    }
+    
+    /**
+     * Merge of two increasing sequences without duplicates.
+     */
+    private static class MergingIterator implements PrimitiveIterator.OfLong
+    {
+        private final PrimitiveIterator.OfLong a;
+        private final PrimitiveIterator.OfLong b;
+        private long nextA;
+        private long nextB;
+        
+        private MergingIterator( PrimitiveIterator.OfLong a, PrimitiveIterator.OfLong b )
+        {
+            this.a = a;
+            this.b = b;
+            nextA = a.hasNext() ? a.nextLong() : Long.MAX_VALUE;
+            nextB = b.hasNext() ? b.nextLong() : Long.MAX_VALUE;
+        }
+        
+        @Override
+        public boolean hasNext()
+        {
+            return nextA != Long.MAX_VALUE || nextB != Long.MAX_VALUE;
+        }
+        
+        @Override
+        public long nextLong()
+        {
+            if ( !hasNext() ) throw new NoSuchElementException();
+            long ret = Math.min( nextA, nextB );
+            if ( nextA == ret ) nextA = a.hasNext() ? a.nextLong() : Long.MAX_VALUE;
+            if ( nextB == ret ) nextB = b.hasNext() ? b.nextLong() : Long.MAX_VALUE;
+            return ret;
+        }
+    }
+    
+    /**
+     * A range of prime numbers that can be split by numeric range.
+     * Parts of a split range share sieving primes, each part is sieved independently.
+     */
+    private static abstract class PrimesSpliterator
+    {
+        /**
+         * Minimal length of a range part.
+         */
+        static final long MIN_SPLIT_LENGTH = 30L * PrimeSieve.SEGMENT_BYTES;
+        
+        protected long from;
+        protected final long to;
+        protected int primes[];
+        protected int primesLimit;
+        private long remaining;
+        private final boolean sized;
+        private PrimeSieve sieve;
+        
+        /**
+         * @param from a lower inclusive bound
+         * @param to an upper inclusive bound
+         * @param remaining a quantity of primes to return, or -1 if unlimited
+         * @param sized true iff the range contains at least {@code remaining} primes
+         * @param primes precomputed sieving primes, or null
+         * @param primesLimit an upper inclusive bound of sieving primes
+         */
+        protected PrimesSpliterator( long from, long to, long remaining, boolean sized, int primes[], int primesLimit )
+        {
+            this.from = Math.max( from, 0L );
+            this.to = to;
+            this.remaining = remaining;
+            this.sized = sized;
+            this.primes = primes;
+            this.primesLimit = primesLimit;
+        }
+        
+        /**
+         * @return the next prime number, or 0 if there are no more primes
+         */
+        protected long nextPrime()
+        {
+            if ( remaining == 0L ) return 0L;
+            if ( sieve == null ) sieve = primes == null ? new PrimeSieve( from, to ) : new PrimeSieve( from, to, primes, primesLimit, PrimeSieve.SEGMENT_BYTES );
+            long p = sieve.next();
+            if ( p == 0L ) remaining = 0L;
+            else if ( remaining > 0L ) remaining--;
+            return p;
+        }
+        
+        /**
+         * Find a point to split the range at. The range itself isn't changed.
+         * @return a lower bound of a suffix range, or -1 if the range can't be split
+         */
+        protected long split()
+        {
+            // The range cannot be split if the iteration has already started or the quantity is limited.
+            if ( sieve != null || remaining >= 0L || to - from < MIN_SPLIT_LENGTH << 1 ) return -1L;
+            if ( primes == null )
+            {
+                primesLimit = ( int )MathUtils.isqrt( Math.min( to, PrimeSieve.MAX_SIEVING_LIMIT ) );
+                primes = PrimeSieve.getSievingPrimes( primesLimit );
+            }
+            long mid = from + ( ( to - from ) >>> 1 );
+            return mid - mid % 30L;
+        }
+        
+        public long estimateSize()
+        {
+            if ( remaining >= 0L ) return remaining;
+            if ( from > to ) return 0L;
+            // Prime number theorem: a density of primes near x is about 1 / ln( x ).
+            return ( long )( ( to - from + 1L ) / Math.log( Math.max( to, 3L ) ) ) + 1L;
+        }
+        
+        public int characteristics()
+        {
+            int ret = Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.SORTED | Spliterator.NONNULL | Spliterator.IMMUTABLE;
+            if ( sized ) ret |= Spliterator.SIZED | Spliterator.SUBSIZED;
+            return ret;
+        }
+        
+        public Comparator< ? super Number > getComparator()
+        {
+            return null;
+        }
+    }
+    
+    private static class IntPrimesSpliterator extends PrimesSpliterator implements Spliterator.OfInt
+    {
+        private IntPrimesSpliterator( long from, long to, long remaining, boolean sized )
+        {
+            super( from, to, remaining, sized, null, 0 );
+        }
+        
+        private IntPrimesSpliterator( long from, long to, long remaining, int primes[], int primesLimit )
+        {
+            super( from, to, remaining, false, primes, primesLimit );
+        }
+        
+        @Override
+        public Spliterator.OfInt trySplit()
+        {
+            long mid = split();
+            if ( mid < 0L ) return null;
+            IntPrimesSpliterator prefix = new IntPrimesSpliterator( from, mid - 1L, -1L, primes, primesLimit );
+            from = mid;
+            return prefix;
+        }
+        
+        @Override
+        public boolean tryAdvance( IntConsumer action )
+        {
+            long p = nextPrime();
+            if ( p == 0L ) return false;
+            action.accept( ( int )p );
+            return true;
+        }
+        
+        @Override
+        public void forEachRemaining( IntConsumer action )
+        {
+            for ( long p = nextPrime(); p != 0L; p = nextPrime() ) action.accept( ( int )p );
+        }
+    }
+    
+    private static class LongPrimesSpliterator extends PrimesSpliterator implements Spliterator.OfLong
+    {
+        private LongPrimesSpliterator( long from, long to, long remaining, boolean sized )
+        {
+            super( from, to, remaining, sized, null, 0 );
+        }
+        
+        private LongPrimesSpliterator( long from, long to, long remaining, int primes[], int primesLimit )
+        {
+            super( from, to, remaining, false, primes, primesLimit );
+        }
+        
+        @Override
+        public Spliterator.OfLong trySplit()
+        {
+            long mid = split();
+            if ( mid < 0L ) return null;
+            LongPrimesSpliterator prefix = new LongPrimesSpliterator( from, mid - 1L, -1L, primes, primesLimit );
+            from = mid;
+            return prefix;
+        }
+        
+        @Override
+        public boolean tryAdvance( LongConsumer action )
+        {
+            long p = nextPrime();
+            if ( p == 0L ) return false;
+            action.accept( p );
+            return true;
+        }
+        
+        @Override
+        public void forEachRemaining( LongConsumer action )
+        {
+            for ( long p = nextPrime(); p != 0L; p = nextPrime() ) action.accept( p );
+        }
+    }
+    
+    /**
+     * A range of prime k-tuples that can be split by numeric range of the first members.
+     * Parts of a split range share sieving primes, each part is sieved independently.
+     */
+    private static class TuplesSpliterator implements Spliterator.OfLong
+    {
+        private final int pattern[];
+        private long from;
+        private final long to;
+        private int primes[];
+        private int primesLimit;
+        private TupleSieve sieve;
+        
+        private TuplesSpliterator( int pattern[], long from, long to, int primes[], int primesLimit )
+        {
+            this.pattern = pattern;
+            this.from = Math.max( from, 0L );
+            this.to = to;
+            this.primes = primes;
+            this.primesLimit = primesLimit;
+        }
+        
+        private long nextTuple()
+        {
+            if ( sieve == null ) sieve = new TupleSieve( pattern, from, to, primes, primesLimit );
+            return sieve.next();
+        }
+        
+        @Override
+        public Spliterator.OfLong trySplit()
+        {
+            // The range cannot be split if the iteration has already started.
+            if ( sieve != null || to - from < PrimesSpliterator.MIN_SPLIT_LENGTH << 1 ) return null;
+            if ( primes == null )
+            {
+                primesLimit = ( int )MathUtils.isqrt( Math.min( to + pattern[ pattern.length - 1 ], PrimeSieve.MAX_SIEVING_LIMIT ) );
+                primes = PrimeSieve.getSievingPrimes( primesLimit );
+            }
+            long mid = from + ( ( to - from ) >>> 1 );
+            mid -= mid % 30L;
+            TuplesSpliterator prefix = new TuplesSpliterator( pattern, from, mid - 1L, primes, primesLimit );
+            from = mid;
+            return prefix;
+        }
+        
+        @Override
+        public boolean tryAdvance( LongConsumer action )
+        {
+            long p = nextTuple();
+            if ( p == 0L ) return false;
+            action.accept( p );
+            return true;
+        }
+        
+        @Override
+        public void forEachRemaining( LongConsumer action )
+        {
+            for ( long p = nextTuple(); p != 0L; p = nextTuple() ) action.accept( p );
+        }
+        
+        @Override
+        public long estimateSize()
+        {
+            if ( from > to ) return 0L;
+            // Every member is prime with a probability of about 1 / ln( x ).
+            return ( long )( ( to - from + 1L ) / Math.pow( Math.log( Math.max( to, 3L ) ), pattern.length ) ) + 1L;
+        }
+        
+        @Override
+        public int characteristics()
+        {
+            return Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.SORTED | Spliterator.NONNULL | Spliterator.IMMUTABLE;
+        }
+        
+        @Override
+        public Comparator< ? super Long > getComparator()
+        {
+            return null;
+        }
     }
     
     /**
@@ -360,33 +993,100 @@ public class PrimesIterable< T extends Number > implements Iterable< T >
      * Examples: getNext( 7 ) = 7, getNext( 9 ) = 11.
      * <p>For negative n, -getNext( -n ) is returned.
      * <p>If n is null then null is returned.
-     * @author Howard Hinnant
-     * http://stackoverflow.com/questions/4475996/given-prime-number-n-compute-the-next-prime
+     * <p>Numbers above {@link #LAST_LONG_PRIME} are searched in windows of candidates which are sieved by small primes,
+     * only survivors are tested by {@link PrimeUtils#isPrime(BigInteger)}.
      * @param n lower inclusive limit of the searching prime number
      * @return minimal prime number p such that p &ge; n, or null if n is null
      */
     public static BigInteger getNext( BigInteger n )
+    {
+        return getNext( n, null );
+    }
+    
+    /**
+     * Seeking of the next prime number that is greater than or equal to n.
+     * The same as {@link #getNext(BigInteger)}, but candidates that survive sieving are tested in parallel on a given pool.
+     * @param n lower inclusive limit of the searching prime number
+     * @param pool a pool to test candidates on
+     * @return minimal prime number p such that p &ge; n, or null if n is null
+     */
+    public static BigInteger getNext( BigInteger n, ForkJoinPool pool )
     {
         if ( n == null ) return null;
-        if ( n.signum() < 0 ) return getNext( n.negate() ).negate();
+        if ( n.signum() < 0 ) return getNext( n.negate(), pool ).negate();
         if ( n.compareTo( BI_LAST_LONG_PRIME ) <= 0 ) return BigInteger.valueOf( getNext( n.longValue() ) );
-        BigInteger cycleLength = BigInteger.valueOf( CYCLE_LENGTH );
-        BigInteger k[] = n.divideAndRemainder( cycleLength );
-        BigInteger k0 = k[ 0 ];
-        BigInteger r = k[ 1 ];
-        int in = Arrays.binarySearch( INDICES, r.intValue() );
-        if ( in < 0 ) in = -1 - in;
-        n = n.add( BigInteger.valueOf( INDICES[ in ] ) ).subtract( r );
-        while ( !PrimeUtils.isPrime( n ) )
+        return PrimeWindow.next( n, pool );
+    }
+    
+    /**
+     * Seeking of the previous prime number that is less than or equal to n.<br>
+     * Examples: getPrevious( 7 ) = 7, getPrevious( 10 ) = 7.
+     * <p>For negative n, -getPrevious( -n ) is returned. If -2 &lt; n &lt; 2 then there are no primes, 0 is returned.
+     * @param n upper inclusive limit of the searching prime number
+     * @return maximal prime number p such that p &le; n, or 0
+     */
+    public static int getPrevious( int n )
+    {
+        return ( int )getPrevious( ( long )n );
+    }
+    
+    /**
+     * Seeking of the previous prime number that is less than or equal to n.<br>
+     * Examples: getPrevious( 7 ) = 7, getPrevious( 10 ) = 7.
+     * <p>For negative n, -getPrevious( -n ) is returned. If -2 &lt; n &lt; 2 then there are no primes, 0 is returned.
+     * Long.MIN_VALUE is handled as -Long.MAX_VALUE.
+     * @param n upper inclusive limit of the searching prime number
+     * @return maximal prime number p such that p &le; n, or 0
+     */
+    public static long getPrevious( long n )
+    {
+        if ( n < 0L ) return -getPrevious( n == Long.MIN_VALUE ? Long.MAX_VALUE : -n );
+        if ( n < 7L ) return n < 2L ? 0L : n == 4L ? 3L : n == 6L ? 5L : n;
+        long k0 = n / CYCLE_LENGTH;
+        int in = Arrays.binarySearch( INDICES, ( int )( n - k0 * CYCLE_LENGTH ) );
+        // The largest residue that is less than or equal to n mod 30.
+        if ( in < 0 ) in = -2 - in;
+        while ( true )
         {
-            in++;
-            if ( in == INDICES.length )
+            if ( in < 0 )
             {
-                k0 = k0.add( BigInteger.ONE );
-                in = 0;
+                k0--;
+                in = INDICES.length - 1;
             }
-            n = k0.multiply( cycleLength ).add( BigInteger.valueOf( INDICES[ in ] ) );
+            long p = k0 * CYCLE_LENGTH + INDICES[ in ];
+            // Number 7 is prime, so the search stops there at the latest.
+            if ( PrimeUtils.isPrime( p ) ) return p;
+            in--;
         }
-        return n;
+    }
+    
+    /**
+     * Seeking of the previous prime number that is less than or equal to n.<br>
+     * Examples: getPrevious( 7 ) = 7, getPrevious( 10 ) = 7.
+     * <p>For negative n, -getPrevious( -n ) is returned. If -2 &lt; n &lt; 2 then there are no primes, 0 is returned.
+     * <p>If n is null then null is returned.
+     * <p>Numbers above {@link #LAST_LONG_PRIME} are searched in windows of candidates which are sieved by small primes,
+     * only survivors are tested by {@link PrimeUtils#isPrime(BigInteger)}.
+     * @param n upper inclusive limit of the searching prime number
+     * @return maximal prime number p such that p &le; n, or 0, or null if n is null
+     */
+    public static BigInteger getPrevious( BigInteger n )
+    {
+        return getPrevious( n, null );
+    }
+    
+    /**
+     * Seeking of the previous prime number that is less than or equal to n.
+     * The same as {@link #getPrevious(BigInteger)}, but candidates that survive sieving are tested in parallel on a given pool.
+     * @param n upper inclusive limit of the searching prime number
+     * @param pool a pool to test candidates on
+     * @return maximal prime number p such that p &le; n, or 0, or null if n is null
+     */
+    public static BigInteger getPrevious( BigInteger n, ForkJoinPool pool )
+    {
+        if ( n == null ) return null;
+        if ( n.signum() < 0 ) return getPrevious( n.negate(), pool ).negate();
+        if ( n.compareTo( BI_LAST_LONG_PRIME ) <= 0 ) return BigInteger.valueOf( getPrevious( n.longValue() ) );
+        return PrimeWindow.previous( n, pool );
     }
 }
\ No newline at end of file
@@ -0,0 +1,774 @@
+package org.quinto.math;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Self-initializing quadratic sieve (SIQS) to split numbers from 30 decimal digits.
+ * It's measured up to 65 digits: a product of two primes of the same size is split in about 85 seconds on a single core.
+ * <p>A number n is multiplied by a small k chosen by Knuth-Schroeppel function, so that many small primes are quadratic residues of k * n.
+ * A factor base consists of -1, 2 and odd primes p such that k * n is a quadratic residue modulo p,
+ * roots t<sup>2</sup> = k * n (mod p) are found by Tonelli-Shanks algorithm.
+ * <p>Polynomials Q( x ) = ( ( a * x + b )<sup>2</sup> - k * n ) / a are sieved over x from -M to M,
+ * where a is a product of s primes of the factor base, a &asymp; sqrt( 2 * k * n ) / M, and b<sup>2</sup> = k * n (mod a).
+ * Every a gives 2<sup>s - 1</sup> values of b = &plusmn;B<sub>1</sub> &plusmn; ... &plusmn;B<sub>s</sub>, they are passed in Gray code order,
+ * so roots of the next polynomial are found from the previous ones by a single addition per prime.
+ * <p>The interval is sieved by blocks of {@link #BLOCK_SIZE} bytes which fit into a L1 cache: every prime adds its rounded
+ * binary logarithm to the bytes at its roots. Values above a threshold are divided by the primes of the factor base,
+ * a prime p is tried only if x is a root modulo p. Values which are products of the factor base are full relations,
+ * values with a single larger prime (up to a multiple of the largest prime of the factor base) are partial relations,
+ * two partial relations with the same large prime are combined into a full one.
+ * <p>Workers of a pool take different values of a and sieve their polynomials in parallel.
+ * <p>When relations exceed the factor base, a matrix of exponents modulo 2 is solved by Gaussian elimination
+ * over GF( 2 ): rows are primes packed into long[] bit sets of relations. Every dependency gives a congruence
+ * X<sup>2</sup> = Y<sup>2</sup> (mod n), and gcd( X - Y, n ) is a factor of n with probability 1 / 2 at least.
+ * The matrix is dense, it takes about F<sup>2</sup> / 8 bytes and F<sup>3</sup> / 128 operations for a factor base of F primes,
+ * so sizes of the factor base are limited and larger numbers are covered by longer sieving.
+ * For the largest factor base of 30000 primes it's about 113 MB and 2 * 10<sup>11</sup> operations per elimination.
+ * https://en.wikipedia.org/wiki/Quadratic_sieve
+ */
+class QuadraticSieve
+{
+    /**
+     * Parameters by bit length of k * n: { bit length, size of a factor base, multiplier of a large prime bound, blocks of an interval }.
+     * Values between rows are interpolated. Rows from 233 bits (70 digits) are extrapolated and aren't checked by measurements.
+     */
+    private static final int PARAMETERS[][] = {
+        { 64, 100, 40, 2 },
+        { 128, 450, 40, 2 },
+        { 183, 2000, 40, 2 },
+        { 200, 3000, 50, 4 },
+        { 212, 5400, 50, 6 },
+        { 233, 10000, 100, 6 },
+        { 249, 15000, 100, 8 },
+        { 266, 20000, 100, 8 },
+        { 283, 25000, 120, 10 },
+        { 332, 30000, 150, 12 } };
+    
+    static final int BLOCK_SIZE = 1 << 15;
+    
+    /**
+     * Odd squarefree multipliers k.
+     */
+    private static final int MULTIPLIERS[] = { 1, 3, 5, 7, 11, 13, 15, 17, 19, 21, 23, 29, 31, 33, 35, 37, 39, 41, 43, 47, 51, 53, 55, 57, 59, 61, 65, 67, 69, 71, 73 };
+    
+    /**
+     * Primes below this limit aren't sieved, they are only tried by division.
+     */
+    private static final int SMALL_PRIME_LIMIT = 40;
+    
+    /**
+     * Bits that primes below {@link #SMALL_PRIME_LIMIT} add to a value on average, the threshold is lowered by them.
+     */
+    private static final int SMALL_PRIME_BITS = 6;
+    
+    /**
+     * Relations that are collected above a quantity of columns, every one of them gives a dependency.
+     */
+    private static final int EXTRA_RELATIONS = 64;
+    
+    /**
+     * A desired size of factors of a.
+     */
+    private static final int A_FACTOR = 2000;
+    
+    private final BigInteger n;
+    private final BigInteger kn;
+    private final int multiplier;
+    /**
+     * Factor base: -1 at index 0, 2 at index 1, odd primes at the rest indices.
+     */
+    private final int primes[];
+    private final int roots[];
+    private final byte logs[];
+    /**
+     * Index of the first sieved prime.
+     */
+    private final int firstSieved;
+    /**
+     * Half length of an interval, M.
+     */
+    private final int halfLength;
+    private final int blocks;
+    private final int threshold;
+    private final long largePrimeBound;
+    /**
+     * Quantity of factors of a and a range of their indices in the factor base.
+     */
+    private final int s;
+    private final int lowFactor;
+    private final int highFactor;
+    private final double logA;
+    /**
+     * A prime of the factor base that divides n, if any.
+     */
+    private BigInteger divisor;
+    
+    private final List< Relation > relations = new ArrayList<>();
+    private final Map< Long, Relation > partials = new HashMap<>();
+    private final Set< BigInteger > values = new HashSet<>();
+    private final Random random = new Random( 1L );
+    private volatile int target;
+    private int polynomials;
+    
+    /**
+     * @param n an odd composite number which isn't a perfect power
+     */
+    QuadraticSieve( BigInteger n )
+    {
+        this.n = n;
+        int bits = n.bitLength();
+        int parameters[] = getParameters( bits );
+        int size = parameters[ 1 ];
+        multiplier = chooseMultiplier( n );
+        kn = n.multiply( BigInteger.valueOf( multiplier ) );
+        primes = new int[ size ];
+        roots = new int[ size ];
+        logs = new byte[ size ];
+        primes[ 0 ] = -1;
+        primes[ 1 ] = 2;
+        int count = 2;
+        int first = 0;
+        PrimeSieve sieve = new PrimeSieve( 3L, Long.MAX_VALUE );
+        while ( count < size )
+        {
+            int p = ( int )sieve.next();
+            int r = residue( kn, p );
+            if ( r == 0 )
+            {
+                // A prime of the multiplier has a single root 0, any other prime that divides k * n divides n.
+                if ( multiplier % p != 0 )
+                {
+                    if ( divisor == null ) divisor = BigInteger.valueOf( p );
+                    continue;
+                }
+            }
+            else if ( MathUtils.modPow( r, ( p - 1 ) >>> 1, p ) != 1 ) continue;
+            primes[ count ] = p;
+            roots[ count ] = sqrt( r, p );
+            logs[ count ] = ( byte )Math.round( Math.log( p ) / Math.log( 2.0 ) );
+            if ( p < SMALL_PRIME_LIMIT ) first = count + 1;
+            count++;
+        }
+        firstSieved = Math.max( first, 2 );
+        blocks = parameters[ 3 ];
+        halfLength = blocks * BLOCK_SIZE / 2;
+        largePrimeBound = ( long )primes[ size - 1 ] * parameters[ 2 ];
+        double log2 = Math.log( 2.0 );
+        // |Q( x )| doesn't exceed M * sqrt( k * n / 2 ).
+        double bitsOfQ = Math.log( halfLength ) / log2 + kn.bitLength() / 2.0 - 0.5;
+        threshold = ( int )Math.round( bitsOfQ - Math.log( largePrimeBound ) / log2 - SMALL_PRIME_BITS );
+        logA = ( kn.bitLength() + 1 ) * log2 / 2.0 - Math.log( halfLength );
+        int factors = Math.max( ( int )Math.round( logA / Math.log( A_FACTOR ) ), 2 );
+        while ( factors > 2 && Math.exp( logA / factors ) < primes[ firstSieved ] ) factors--;
+        while ( Math.exp( logA / factors ) > primes[ size * 3 / 4 ] ) factors++;
+        s = factors;
+        double average = Math.exp( logA / s );
+        int low = firstSieved;
+        while ( low < size - 1 && primes[ low ] < average / 2.0 ) low++;
+        int high = low;
+        while ( high < size && primes[ high ] < average * 2.0 ) high++;
+        // There must be enough combinations of factors.
+        while ( high - low < s << 2 && ( low > firstSieved || high < size ) )
+        {
+            if ( low > firstSieved ) low--;
+            if ( high < size ) high++;
+        }
+        lowFactor = low;
+        highFactor = high;
+    }
+    
+    /**
+     * Interpolate parameters between the rows of {@link #PARAMETERS}.
+     */
+    private static int[] getParameters( int bits )
+    {
+        if ( bits <= PARAMETERS[ 0 ][ 0 ] ) return PARAMETERS[ 0 ];
+        for ( int i = 1; i < PARAMETERS.length; i++ )
+        {
+            int high[] = PARAMETERS[ i ];
+            if ( bits > high[ 0 ] ) continue;
+            int low[] = PARAMETERS[ i - 1 ];
+            int ret[] = new int[ 4 ];
+            ret[ 0 ] = bits;
+            for ( int j = 1; j < 4; j++ ) ret[ j ] = low[ j ] + ( int )( ( long )( high[ j ] - low[ j ] ) * ( bits - low[ 0 ] ) / ( high[ 0 ] - low[ 0 ] ) );
+            return ret;
+        }
+        return PARAMETERS[ PARAMETERS.length - 1 ];
+    }
+    
+    /**
+     * Knuth-Schroeppel function: expected contribution of small primes to logarithms of values minus a half of log( k ).
+     */
+    private static int chooseMultiplier( BigInteger n )
+    {
+        int ret = 1;
+        double best = Double.NEGATIVE_INFINITY;
+        int nMod8 = n.intValue() & 7;
+        for ( int k : MULTIPLIERS )
+        {
+            double f = -0.5 * Math.log( k );
+            int knMod8 = ( k * nMod8 ) & 7;
+            f += ( knMod8 == 1 ? 2.0 : knMod8 == 5 ? 1.0 : 0.5 ) * Math.log( 2.0 );
+            for ( int p = 3; p < 1000; p += 2 )
+            {
+                if ( !PrimeUtils.isPrime( p ) ) continue;
+                if ( k % p == 0 ) f += Math.log( p ) / p;
+                else
+                {
+                    int r = ( int )( ( long )residue( n, p ) * k % p );
+                    if ( r != 0 && MathUtils.modPow( r, ( p - 1 ) >>> 1, p ) == 1 ) f += 2.0 * Math.log( p ) / ( p - 1 );
+                }
+            }
+            if ( f > best )
+            {
+                best = f;
+                ret = k;
+            }
+        }
+        return ret;
+    }
+    
+    /**
+     * Find a non-trivial factor of n.
+     * @param pool a pool to sieve polynomials in parallel, or null to sieve them in the current thread
+     * @return a factor d such that 1 &lt; d &lt; n
+     */
+    BigInteger findFactor( ForkJoinPool pool )
+    {
+        if ( divisor != null ) return divisor;
+        BigInteger g = n.gcd( BigInteger.valueOf( multiplier ) );
+        if ( !g.equals( BigInteger.ONE ) ) return g;
+        for ( target = primes.length + EXTRA_RELATIONS; ; target += EXTRA_RELATIONS )
+        {
+            sieve( pool );
+            BigInteger ret = solve();
+            if ( ret != null ) return ret;
+        }
+    }
+    
+    /**
+     * Get a quantity of sieved polynomials.
+     */
+    synchronized int getPolynomials()
+    {
+        return polynomials;
+    }
+    
+    /**
+     * Get a quantity of full and combined relations.
+     */
+    synchronized int getRelations()
+    {
+        return relations.size();
+    }
+    
+    /**
+     * Get a size of the factor base including -1.
+     */
+    int getFactorBaseSize()
+    {
+        return primes.length;
+    }
+    
+    /**
+     * Sieve polynomials until the quantity of relations reaches the target.
+     */
+    private void sieve( ForkJoinPool pool )
+    {
+        if ( pool == null ) new Polynomial().run();
+        else
+        {
+            List< ForkJoinTask< ? > > tasks = new ArrayList<>();
+            for ( int i = Math.max( pool.getParallelism(), 1 ); i > 0; i-- ) tasks.add( pool.submit( () -> new Polynomial().run() ) );
+            // All the tasks are joined, so none of them outlives the search.
+            for ( ForkJoinTask< ? > task : tasks ) task.join();
+        }
+    }
+    
+    private synchronized void addRelation( Relation relation )
+    {
+        if ( relation.largePrime == 1L ) relations.add( relation );
+        else
+        {
+            Relation other = partials.putIfAbsent( relation.largePrime, relation );
+            if ( other != null && !other.y.equals( relation.y ) ) relations.add( new Relation( other, relation ) );
+        }
+    }
+    
+    /**
+     * Choose indices of distinct factors of a new value of a.
+     */
+    private synchronized int[] nextA()
+    {
+        polynomials += 1 << ( s - 1 );
+        while ( true )
+        {
+            int ret[] = new int[ s ];
+            double rest = logA;
+            for ( int i = 0; i < s - 1; i++ )
+            {
+                int index;
+                do index = lowFactor + random.nextInt( highFactor - lowFactor );
+                while ( contains( ret, i, index ) );
+                ret[ i ] = index;
+                rest -= Math.log( primes[ index ] );
+            }
+            // The last factor brings a closer to the desired value.
+            double last = Math.exp( rest );
+            int index = firstSieved;
+            while ( index < primes.length - 1 && primes[ index ] < last ) index++;
+            while ( index < primes.length - 1 && contains( ret, s - 1, index ) ) index++;
+            if ( contains( ret, s - 1, index ) ) continue;
+            ret[ s - 1 ] = index;
+            Arrays.sort( ret );
+            BigInteger a = BigInteger.ONE;
+            for ( int i : ret ) a = a.multiply( BigInteger.valueOf( primes[ i ] ) );
+            if ( values.add( a ) ) return ret;
+        }
+    }
+    
+    private static boolean contains( int array[], int length, int value )
+    {
+        for ( int i = 0; i < length; i++ ) if ( array[ i ] == value ) return true;
+        return false;
+    }
+    
+    /**
+     * Find dependencies of relations and try them until a factor is found.
+     * @return a non-trivial factor, or null if all the dependencies are trivial
+     */
+    private BigInteger solve()
+    {
+        List< Relation > list;
+        synchronized ( this )
+        {
+            list = new ArrayList<>( relations );
+        }
+        int columns = primes.length;
+        // Relations with a prime which doesn't occur in other relations can't be in a dependency.
+        int weights[] = new int[ columns ];
+        for ( Relation r : list ) for ( int c : r.odd ) weights[ c ]++;
+        boolean removed = true;
+        while ( removed )
+        {
+            removed = false;
+            List< Relation > rest = new ArrayList<>( list.size() );
+            for ( Relation r : list )
+            {
+                boolean singleton = false;
+                for ( int c : r.odd ) if ( weights[ c ] == 1 ) singleton = true;
+                if ( singleton )
+                {
+                    for ( int c : r.odd ) weights[ c ]--;
+                    removed = true;
+                }
+                else rest.add( r );
+            }
+            list = rest;
+        }
+        int rowOfColumn[] = new int[ columns ];
+        int rows = 0;
+        for ( int c = 0; c < columns; c++ ) rowOfColumn[ c ] = weights[ c ] > 0 ? rows++ : -1;
+        int size = list.size();
+        int words = ( size + 63 ) >>> 6;
+        long matrix[][] = new long[ rows ][ words ];
+        for ( int i = 0; i < size; i++ ) for ( int c : list.get( i ).odd ) matrix[ rowOfColumn[ c ] ][ i >>> 6 ] |= 1L << i;
+        // Reduced row echelon form: a pivot column is cleared in all the other rows.
+        int pivots[] = new int[ rows ];
+        boolean isPivot[] = new boolean[ size ];
+        int rank = 0;
+        for ( int col = 0; col < size && rank < rows; col++ )
+        {
+            int word = col >>> 6;
+            long bit = 1L << col;
+            int row = rank;
+            while ( row < rows && ( matrix[ row ][ word ] & bit ) == 0L ) row++;
+            if ( row == rows ) continue;
+            long pivot[] = matrix[ row ];
+            matrix[ row ] = matrix[ rank ];
+            matrix[ rank ] = pivot;
+            for ( int i = 0; i < rows; i++ )
+            {
+                long m[] = matrix[ i ];
+                if ( i != rank && ( m[ word ] & bit ) != 0L ) for ( int j = 0; j < words; j++ ) m[ j ] ^= pivot[ j ];
+            }
+            pivots[ rank++ ] = col;
+            isPivot[ col ] = true;
+        }
+        // Every free column f gives a null vector: f and pivot columns of rows with a bit f.
+        List< Relation > dependency = new ArrayList<>();
+        for ( int f = 0; f < size; f++ )
+        {
+            if ( isPivot[ f ] ) continue;
+            dependency.clear();
+            dependency.add( list.get( f ) );
+            for ( int i = 0; i < rank; i++ ) if ( ( matrix[ i ][ f >>> 6 ] & ( 1L << f ) ) != 0L ) dependency.add( list.get( pivots[ i ] ) );
+            BigInteger ret = tryDependency( dependency );
+            if ( ret != null ) return ret;
+        }
+        return null;
+    }
+    
+    /**
+     * Compute X = &prod; ( a * x + b ) and Y = sqrt( &prod; Q( x ) * a ) modulo n.
+     * @return gcd( X - Y, n ) if it's a non-trivial factor, or null
+     */
+    private BigInteger tryDependency( List< Relation > dependency )
+    {
+        int exponents[] = new int[ primes.length ];
+        BigInteger x = BigInteger.ONE;
+        BigInteger y = BigInteger.ONE;
+        for ( Relation r : dependency )
+        {
+            x = x.multiply( r.y ).mod( n );
+            for ( int f : r.factors ) exponents[ f ]++;
+            if ( r.largePrime != 1L ) y = y.multiply( BigInteger.valueOf( r.largePrime ) ).mod( n );
+        }
+        for ( int i = 1; i < primes.length; i++ )
+        {
+            if ( exponents[ i ] == 0 ) continue;
+            y = y.multiply( BigInteger.valueOf( primes[ i ] ).modPow( BigInteger.valueOf( exponents[ i ] >>> 1 ), n ) ).mod( n );
+        }
+        BigInteger g = x.subtract( y ).gcd( n );
+        return g.equals( BigInteger.ONE ) || g.equals( n ) ? null : g;
+    }
+    
+    /**
+     * Remainder of a non-negative number modulo p.
+     */
+    private static int residue( BigInteger v, int p )
+    {
+        return v.mod( BigInteger.valueOf( p ) ).intValue();
+    }
+    
+    /**
+     * Square root modulo a prime by Tonelli-Shanks algorithm.
+     * @param a a quadratic residue modulo p
+     * @param p an odd prime
+     * @return x such that x<sup>2</sup> = a modulo p
+     */
+    static int sqrt( int a, int p )
+    {
+        if ( a == 0 ) return 0;
+        int s = Integer.numberOfTrailingZeros( p - 1 );
+        int q = ( p - 1 ) >>> s;
+        long ret = MathUtils.modPow( a, ( q + 1 ) >>> 1, p );
+        if ( s == 1 ) return ( int )ret;
+        int z = 2;
+        while ( MathUtils.modPow( z, ( p - 1 ) >>> 1, p ) != p - 1 ) z++;
+        long c = MathUtils.modPow( z, q, p );
+        long t = MathUtils.modPow( a, q, p );
+        int m = s;
+        while ( t != 1L )
+        {
+            int i = 0;
+            for ( long t2 = t; t2 != 1L; t2 = t2 * t2 % p ) i++;
+            long b = c;
+            for ( int j = m - i - 1; j > 0; j-- ) b = b * b % p;
+            ret = ret * b % p;
+            c = b * b % p;
+            t = t * c % p;
+            m = i;
+        }
+        return ( int )ret;
+    }
+    
+    /**
+     * Relation ( a * x + b )<sup>2</sup> = a * Q( x ) (mod k * n).
+     */
+    private static class Relation
+    {
+        private final BigInteger y;
+        /**
+         * Indices of prime factors of a * Q( x ) in the factor base, with repetitions.
+         */
+        private final int factors[];
+        /**
+         * Indices of prime factors with odd exponents in increasing order.
+         */
+        private final int odd[];
+        /**
+         * A large prime of a partial relation, or a square root of a product of large primes of a combined relation, or 1.
+         */
+        private final long largePrime;
+        
+        Relation( BigInteger y, int factors[], long largePrime )
+        {
+            this.y = y;
+            this.factors = factors;
+            this.largePrime = largePrime;
+            int sorted[] = factors.clone();
+            Arrays.sort( sorted );
+            int count = 0;
+            for ( int i = 0; i < sorted.length; )
+            {
+                int j = i;
+                while ( j < sorted.length && sorted[ j ] == sorted[ i ] ) j++;
+                if ( ( ( j - i ) & 1 ) != 0 ) sorted[ count++ ] = sorted[ i ];
+                i = j;
+            }
+            odd = Arrays.copyOf( sorted, count );
+        }
+        
+        /**
+         * Combine two partial relations with the same large prime.
+         */
+        Relation( Relation r1, Relation r2 )
+        {
+            this( r1.y.multiply( r2.y ), concat( r1.factors, r2.factors ), r1.largePrime );
+        }
+        
+        private static int[] concat( int a[], int b[] )
+        {
+            int ret[] = Arrays.copyOf( a, a.length + b.length );
+            System.arraycopy( b, 0, ret, a.length, b.length );
+            return ret;
+        }
+    }
+    
+    /**
+     * Working storage of a worker: roots of the current polynomial and a sieve block.
+     */
+    private class Polynomial
+    {
+        private final byte sieve[] = new byte[ BLOCK_SIZE ];
+        /**
+         * Roots of the current polynomial modulo primes as offsets from -M.
+         */
+        private final int root1[] = new int[ primes.length ];
+        private final int root2[] = new int[ primes.length ];
+        /**
+         * Positions of the next hits in the current block.
+         */
+        private final int next1[] = new int[ primes.length ];
+        private final int next2[] = new int[ primes.length ];
+        /**
+         * Values 2 * B<sub>l</sub> * a<sup>-1</sup> modulo primes.
+         */
+        private final int deltas[][] = new int[ s ][ primes.length ];
+        private final boolean factorOfA[] = new boolean[ primes.length ];
+        private final BigInteger bs[] = new BigInteger[ s ];
+        private final int factorBuffer[] = new int[ 1024 ];
+        private int factorsOfA[];
+        private BigInteger a;
+        private BigInteger b;
+        private BigInteger c;
+        
+        void run()
+        {
+            while ( getRelations() < target )
+            {
+                initialize( nextA() );
+                for ( int i = 0; i < 1 << ( s - 1 ); i++ )
+                {
+                    if ( i > 0 ) nextB( i );
+                    sieveInterval();
+                    if ( getRelations() >= target ) return;
+                }
+            }
+        }
+        
+        /**
+         * Find B<sub>l</sub>, the first value of b and roots of the first polynomial for a new value of a.
+         */
+        private void initialize( int indices[] )
+        {
+            if ( factorsOfA != null ) for ( int i : factorsOfA ) factorOfA[ i ] = false;
+            factorsOfA = indices;
+            a = BigInteger.ONE;
+            for ( int i : indices )
+            {
+                a = a.multiply( BigInteger.valueOf( primes[ i ] ) );
+                factorOfA[ i ] = true;
+            }
+            b = BigInteger.ZERO;
+            for ( int l = 0; l < s; l++ )
+            {
+                int q = primes[ indices[ l ] ];
+                BigInteger aq = a.divide( BigInteger.valueOf( q ) );
+                // B = a / q * gamma, gamma = t * ( a / q )^-1 (mod q), so B^2 = k * n (mod q) and B = 0 (mod a / q).
+                long gamma = ( long )roots[ indices[ l ] ] * MathUtils.modInverse( residue( aq, q ), q ) % q;
+                if ( gamma > q >>> 1 ) gamma = q - gamma;
+                bs[ l ] = aq.multiply( BigInteger.valueOf( gamma ) );
+                b = b.add( bs[ l ] );
+            }
+            c = b.multiply( b ).subtract( kn ).divide( a );
+            int bWords[][] = new int[ s + 1 ][];
+            for ( int l = 0; l < s; l++ ) bWords[ l ] = toWords( bs[ l ] );
+            bWords[ s ] = toWords( b );
+            for ( int i = 2; i < primes.length; i++ )
+            {
+                if ( factorOfA[ i ] ) continue;
+                int p = primes[ i ];
+                long am = 1L;
+                for ( int j : indices ) am = am * primes[ j ] % p;
+                long inverse = MathUtils.modInverse( ( int )am, p );
+                for ( int l = 0; l < s; l++ ) deltas[ l ][ i ] = ( int )( 2L * remainder( bWords[ l ], p ) * inverse % p );
+                long bm = remainder( bWords[ s ], p );
+                long m = halfLength % p;
+                long t = roots[ i ];
+                // x = ( &plusmn;t - b ) / a (mod p), an offset from -M is x + M.
+                root1[ i ] = ( int )( ( ( t - bm + p ) * inverse + m ) % p );
+                root2[ i ] = ( int )( ( ( 2L * p - t - bm ) * inverse + m ) % p );
+            }
+        }
+        
+        /**
+         * Switch to the i-th value of b in Gray code order: a sign of B<sub>v</sub> is changed, v is the lowest set bit of i.
+         */
+        private void nextB( int i )
+        {
+            int v = Integer.numberOfTrailingZeros( i );
+            boolean negative = ( ( ( i ^ ( i >>> 1 ) ) >>> v ) & 1 ) != 0;
+            BigInteger delta = bs[ v ].shiftLeft( 1 );
+            int d[] = deltas[ v ];
+            if ( negative )
+            {
+                // b decreases by 2 * B, roots increase by 2 * B / a.
+                b = b.subtract( delta );
+                for ( int j = 2; j < primes.length; j++ )
+                {
+                    int p = primes[ j ];
+                    int r = root1[ j ] + d[ j ];
+                    root1[ j ] = r >= p ? r - p : r;
+                    r = root2[ j ] + d[ j ];
+                    root2[ j ] = r >= p ? r - p : r;
+                }
+            }
+            else
+            {
+                b = b.add( delta );
+                for ( int j = 2; j < primes.length; j++ )
+                {
+                    int p = primes[ j ];
+                    int r = root1[ j ] - d[ j ];
+                    root1[ j ] = r < 0 ? r + p : r;
+                    r = root2[ j ] - d[ j ];
+                    root2[ j ] = r < 0 ? r + p : r;
+                }
+            }
+            c = b.multiply( b ).subtract( kn ).divide( a );
+        }
+        
+        private void sieveInterval()
+        {
+            int length = primes.length;
+            for ( int i = firstSieved; i < length; i++ )
+            {
+                if ( factorOfA[ i ] )
+                {
+                    next1[ i ] = Integer.MAX_VALUE;
+                    next2[ i ] = Integer.MAX_VALUE;
+                }
+                else
+                {
+                    next1[ i ] = root1[ i ];
+                    // A prime of the multiplier has a single root.
+                    next2[ i ] = root1[ i ] == root2[ i ] ? Integer.MAX_VALUE : root2[ i ];
+                }
+            }
+            byte sieve[] = this.sieve;
+            for ( int block = 0; block < blocks; block++ )
+            {
+                Arrays.fill( sieve, ( byte )0 );
+                for ( int i = firstSieved; i < length; i++ )
+                {
+                    int p = primes[ i ];
+                    byte log = logs[ i ];
+                    int j = next1[ i ];
+                    for ( ; j < BLOCK_SIZE; j += p ) sieve[ j ] += log;
+                    next1[ i ] = j - BLOCK_SIZE;
+                    j = next2[ i ];
+                    for ( ; j < BLOCK_SIZE; j += p ) sieve[ j ] += log;
+                    next2[ i ] = j - BLOCK_SIZE;
+                }
+                int offset = block * BLOCK_SIZE;
+                for ( int j = 0; j < BLOCK_SIZE; j++ ) if ( ( sieve[ j ] & 0xFF ) >= threshold ) check( offset + j );
+            }
+        }
+        
+        /**
+         * Divide Q( x ) by the factor base and store a relation if the value is smooth.
+         * @param offset x + M
+         */
+        private void check( int offset )
+        {
+            BigInteger x = BigInteger.valueOf( offset - halfLength );
+            BigInteger q = a.multiply( x ).add( b.shiftLeft( 1 ) ).multiply( x ).add( c );
+            int count = 0;
+            int factors[] = factorBuffer;
+            if ( q.signum() < 0 )
+            {
+                factors[ count++ ] = 0;
+                q = q.negate();
+            }
+            else if ( q.signum() == 0 ) return;
+            for ( int i : factorsOfA ) factors[ count++ ] = i;
+            int twos = q.getLowestSetBit();
+            for ( int i = 0; i < twos; i++ ) factors[ count++ ] = 1;
+            q = q.shiftRight( twos );
+            int i = 2;
+            for ( ; i < primes.length && q.bitLength() > 62; i++ )
+            {
+                int p = primes[ i ];
+                if ( factorOfA[ i ] || offset % p == root1[ i ] || offset % p == root2[ i ] )
+                {
+                    BigInteger bp = BigInteger.valueOf( p );
+                    while ( true )
+                    {
+                        BigInteger qr[] = q.divideAndRemainder( bp );
+                        if ( qr[ 1 ].signum() != 0 ) break;
+                        q = qr[ 0 ];
+                        factors[ count++ ] = i;
+                    }
+                }
+            }
+            long rest = q.longValue();
+            for ( ; i < primes.length && rest > 1L; i++ )
+            {
+                int p = primes[ i ];
+                if ( factorOfA[ i ] || offset % p == root1[ i ] || offset % p == root2[ i ] )
+                {
+                    while ( rest % p == 0L )
+                    {
+                        rest /= p;
+                        factors[ count++ ] = i;
+                    }
+                }
+            }
+            if ( q.bitLength() > 62 || rest >= largePrimeBound ) return;
+            BigInteger y = a.multiply( x ).add( b );
+            addRelation( new Relation( y, Arrays.copyOf( factors, count ), rest ) );
+        }
+    }
+    
+    /**
+     * Split a non-negative number into 32-bit words, the least significant word first.
+     */
+    private static int[] toWords( BigInteger v )
+    {
+        int ret[] = new int[ ( v.bitLength() + 32 ) >>> 5 ];
+        for ( int i = 0; i < ret.length; i++ ) ret[ i ] = v.shiftRight( i << 5 ).intValue();
+        return ret;
+    }
+    
+    /**
+     * Remainder of a number split into words by Horner's rule: r * 2^32 + word &lt; 2^63.
+     */
+    private static long remainder( int words[], int p )
+    {
+        long r = 0L;
+        for ( int i = words.length - 1; i >= 0; i-- ) r = ( ( r << 32 ) | ( words[ i ] & 0xFFFFFFFFL ) ) % p;
+        return r;
+    }
+}
\ No newline at end of file
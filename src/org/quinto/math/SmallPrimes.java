@@ -0,0 +1,162 @@
+package org.quinto.math;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Global table of small prime numbers shared by sieves, iterators and primality tests.
+ * <p>The table grows lazily: when more primes are requested, a new table that covers at least twice
+ * as many numbers is computed and published. Published tables are never modified, so reads take no locks.
+ * If several threads grow the table at once, every one computes its own table and the first one is published.
+ * <p>The table doesn't grow beyond the ceiling which is defined by system property {@value #PROPERTY}
+ * or by {@link #setCeiling}. Default ceiling is {@value #DEFAULT_CEILING}.
+ */
+public class SmallPrimes
+{
+    /**
+     * System property with the ceiling of the table.
+     */
+    public static final String PROPERTY = "org.quinto.math.SmallPrimes.ceiling";
+    
+    /**
+     * Default ceiling of the table. It's enough for sieving up to {@link PrimeSieve#MAX_SIEVING_LIMIT}.
+     */
+    public static final int DEFAULT_CEILING = 1 << 24;
+    
+    private static final int INITIAL_LIMIT = 1 << 12;
+    private static final AtomicReference< Table > TABLE = new AtomicReference<>( new Table( INITIAL_LIMIT ) );
+    private static volatile int ceiling = Math.max( Integer.getInteger( PROPERTY, DEFAULT_CEILING ), INITIAL_LIMIT );
+    
+    /**
+     * An immutable snapshot of the table.
+     */
+    private static class Table
+    {
+        private final int limit;
+        private final int primes[];
+        
+        private Table( int limit )
+        {
+            this.limit = limit;
+            primes = sieve( limit );
+        }
+    }
+    
+    /**
+     * Get the ceiling of the table.
+     * @return the largest number that can be covered by the table
+     */
+    public static int getCeiling()
+    {
+        return ceiling;
+    }
+    
+    /**
+     * Set the ceiling of the table. Already computed primes aren't discarded if the ceiling is decreased.
+     * @param ceiling the largest number that can be covered by the table
+     * @throws IllegalArgumentException if ceiling is too small
+     */
+    public static void setCeiling( int ceiling ) throws IllegalArgumentException
+    {
+        if ( ceiling < INITIAL_LIMIT ) throw new IllegalArgumentException( "Ceiling must be at least " + INITIAL_LIMIT + ", got " + ceiling );
+        SmallPrimes.ceiling = ceiling;
+    }
+    
+    /**
+     * Get a prime number by its index. The table grows if required.
+     * @param index an index of a prime, starting from 0: get( 0 ) = 2, get( 1 ) = 3, get( 2 ) = 5, etc.
+     * @return a prime number
+     * @throws IllegalArgumentException if index is negative or the prime is greater than the ceiling
+     */
+    public static int get( int index ) throws IllegalArgumentException
+    {
+        if ( index < 0 ) throw new IllegalArgumentException( "Negative index " + index );
+        int primes[] = first( index + 1 );
+        if ( index >= primes.length ) throw new IllegalArgumentException( "Prime with index " + index + " is greater than the ceiling " + ceiling );
+        return primes[ index ];
+    }
+    
+    /**
+     * Get the current table without growing.
+     * @return sorted primes starting from 2, the array must not be modified
+     */
+    static int[] snapshot()
+    {
+        return TABLE.get().primes;
+    }
+    
+    /**
+     * Get a table of at least {@code quantity} first primes (or all the primes up to the ceiling).
+     * @return sorted primes starting from 2, the array must not be modified
+     */
+    static int[] first( int quantity )
+    {
+        Table table = TABLE.get();
+        while ( table.primes.length < quantity && table.limit < ceiling ) table = grow( table, table.limit );
+        return table.primes;
+    }
+    
+    /**
+     * Get a table of all the primes up to {@code limit} (or up to the ceiling if {@code limit} is greater).
+     * @return sorted primes starting from 2, the array must not be modified, it can contain primes greater than {@code limit}
+     */
+    static int[] upTo( int limit )
+    {
+        return table( limit ).primes;
+    }
+    
+    /**
+     * Get all the primes up to {@code limit} from the table if it's possible, or sieve them otherwise.
+     * @return sorted primes starting from 2, the array must not be modified, it can contain primes greater than {@code limit}
+     */
+    static int[] getOrSieve( int limit )
+    {
+        Table table = table( limit );
+        return table.limit >= limit ? table.primes : sieve( limit );
+    }
+    
+    private static Table table( int limit )
+    {
+        Table table = TABLE.get();
+        while ( table.limit < limit && table.limit < ceiling ) table = grow( table, limit );
+        return table;
+    }
+    
+    private static Table grow( Table table, int limit )
+    {
+        int ceiling = SmallPrimes.ceiling;
+        int newLimit = ( int )Math.min( Math.max( limit, ( long )table.limit << 1 ), Math.max( ceiling, table.limit ) );
+        Table newTable = new Table( newLimit );
+        // Another thread could publish a larger table meanwhile.
+        while ( !TABLE.compareAndSet( table, newTable ) )
+        {
+            table = TABLE.get();
+            if ( table.limit >= newLimit ) return table;
+        }
+        return newTable;
+    }
+    
+    /**
+     * Simple sieve of Eratosthenes for odd numbers.
+     * @param limit an upper inclusive bound
+     * @return all the primes up to {@code limit}
+     */
+    private static int[] sieve( int limit )
+    {
+        if ( limit < 2 ) return new int[ 0 ];
+        // composite[ i ] corresponds to number 2 * i + 1.
+        boolean composite[] = new boolean[ ( limit >> 1 ) + ( limit & 1 ) ];
+        int count = 1;
+        for ( int i = 1; i < composite.length; i++ )
+        {
+            if ( composite[ i ] ) continue;
+            count++;
+            int p = ( i << 1 ) + 1;
+            for ( long j = ( ( long )p * p ) >> 1; j < composite.length; j += p ) composite[ ( int )j ] = true;
+        }
+        int ret[] = new int[ count ];
+        ret[ 0 ] = 2;
+        count = 1;
+        for ( int i = 1; i < composite.length; i++ ) if ( !composite[ i ] ) ret[ count++ ] = ( i << 1 ) + 1;
+        return ret;
+    }
+}
\ No newline at end of file
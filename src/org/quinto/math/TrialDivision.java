@@ -0,0 +1,181 @@
+package org.quinto.math;
+
+import java.math.BigInteger;
+import java.util.function.LongConsumer;
+
+/**
+ * Trial division of BigIntegers by small primes.
+ * <p>Consecutive primes are grouped into products that fit 63 bits. A BigInteger is reduced modulo a product once,
+ * then a remainder is checked for divisibility by every prime of the group with long arithmetic.
+ * So there are several times less BigInteger divisions than primes.
+ * Short numbers are divided by large primes with 32-bit words instead of BigInteger arithmetic.
+ * <p>Products of primes up to {@link #PREFILTER_LIMIT} are precomputed, larger primes are sieved and grouped on the fly.
+ */
+class TrialDivision
+{
+    /**
+     * An upper bound of precomputed primes.
+     */
+    static final int PREFILTER_LIMIT = 1 << 12;
+    
+    /**
+     * Quantity of sieved primes that are grouped at once.
+     */
+    private static final int BATCH_SIZE = 256;
+    
+    /**
+     * Numbers up to this length are divided by a word-sized remainder loop. It's faster than BigInteger division
+     * for short numbers, because sieved primes are large and only a single prime fits a 31-bit modulus.
+     */
+    private static final int MAX_WORDS_BITS = 128;
+    
+    private static final int PRIMES[];
+    
+    /**
+     * Products of consecutive groups of {@link #PRIMES}.
+     */
+    private static final BigInteger PRODUCTS[];
+    
+    /**
+     * Exclusive end index in {@link #PRIMES} of each group.
+     */
+    private static final int ENDS[];
+    
+    static
+    {
+        int table[] = SmallPrimes.upTo( PREFILTER_LIMIT );
+        int length = 0;
+        while ( length < table.length && table[ length ] <= PREFILTER_LIMIT ) length++;
+        // The prime 2 is skipped: callers reject even numbers themselves.
+        PRIMES = new int[ length - 1 ];
+        System.arraycopy( table, 1, PRIMES, 0, PRIMES.length );
+        BigInteger products[] = new BigInteger[ PRIMES.length ];
+        int ends[] = new int[ PRIMES.length ];
+        int groups = 0;
+        for ( int i = 0; i < PRIMES.length; groups++ )
+        {
+            long product = PRIMES[ i++ ];
+            while ( i < PRIMES.length && PRIMES[ i ] <= Long.MAX_VALUE / product ) product *= PRIMES[ i++ ];
+            products[ groups ] = BigInteger.valueOf( product );
+            ends[ groups ] = i;
+        }
+        PRODUCTS = new BigInteger[ groups ];
+        System.arraycopy( products, 0, PRODUCTS, 0, groups );
+        ENDS = new int[ groups ];
+        System.arraycopy( ends, 0, ENDS, 0, groups );
+    }
+    
+    /**
+     * Find the smallest odd prime factor of a number that doesn't exceed {@link #PREFILTER_LIMIT}.
+     * @param n a non-negative number
+     * @return the smallest odd prime factor, or 0 if n has no odd prime factors up to {@link #PREFILTER_LIMIT}
+     */
+    static int smallFactor( BigInteger n )
+    {
+        for ( int g = 0, i = 0; g < PRODUCTS.length; g++ )
+        {
+            long remainder = n.remainder( PRODUCTS[ g ] ).longValue();
+            for ( ; i < ENDS[ g ]; i++ ) if ( remainder % PRIMES[ i ] == 0L ) return PRIMES[ i ];
+        }
+        return 0;
+    }
+    
+    /**
+     * Find the smallest odd prime factor of a number that doesn't exceed a given bound.
+     * <p>Primes above {@link #PREFILTER_LIMIT} are enumerated by {@link PrimeSieve}.
+     * @param n a non-negative number
+     * @param limit an upper inclusive bound of factors
+     * @return the smallest odd prime factor, or 0 if n has no odd prime factors up to {@code limit}
+     */
+    static long smallestFactor( BigInteger n, long limit )
+    {
+        int p = smallFactor( n );
+        if ( p != 0 ) return p <= limit ? p : 0L;
+        if ( limit <= PREFILTER_LIMIT ) return 0L;
+        int words[] = n.bitLength() <= MAX_WORDS_BITS ? words( n ) : null;
+        PrimeSieve sieve = new PrimeSieve( PREFILTER_LIMIT + 1L, limit );
+        long divisors[] = new long[ BATCH_SIZE ];
+        int size = 0;
+        for ( long q = sieve.next(); q != 0L; q = sieve.next() )
+        {
+            divisors[ size++ ] = q;
+            if ( size < divisors.length ) continue;
+            long ret = factor( n, words, divisors, size );
+            if ( ret != 0L ) return ret;
+            size = 0;
+        }
+        return factor( n, words, divisors, size );
+    }
+    
+    /**
+     * Divide out all the prime factors up to a given bound.
+     * @param n a positive number
+     * @param limit an upper inclusive bound of factors, primes are taken from the table of small primes ({@link SmallPrimes})
+     * @param factors a consumer of distinct prime factors in increasing order, or null
+     * @return n without prime factors up to {@code limit}
+     */
+    static BigInteger divideOut( BigInteger n, int limit, LongConsumer factors )
+    {
+        int primes[] = SmallPrimes.upTo( limit );
+        for ( int i = 0; i < primes.length && primes[ i ] <= limit && !n.equals( BigInteger.ONE ); )
+        {
+            int from = i;
+            long product = primes[ i++ ];
+            while ( i < primes.length && primes[ i ] <= limit && primes[ i ] <= Long.MAX_VALUE / product ) product *= primes[ i++ ];
+            long remainder = n.remainder( BigInteger.valueOf( product ) ).longValue();
+            for ( int j = from; j < i; j++ )
+            {
+                if ( remainder % primes[ j ] != 0L ) continue;
+                BigInteger p = BigInteger.valueOf( primes[ j ] );
+                for ( BigInteger qr[] = n.divideAndRemainder( p ); qr[ 1 ].signum() == 0; qr = n.divideAndRemainder( p ) ) n = qr[ 0 ];
+                if ( factors != null ) factors.accept( primes[ j ] );
+            }
+        }
+        return n;
+    }
+    
+    /**
+     * Find the smallest factor of a number among given divisors.
+     * @param words 32-bit words of n (see {@link #words}), or null if n should be divided as a BigInteger
+     * @param divisors sorted divisors, every one is less than 2<sup>63</sup>
+     * @param size quantity of divisors
+     * @return the smallest divisor that divides n, or 0 if there are no such divisors
+     */
+    private static long factor( BigInteger n, int words[], long divisors[], int size )
+    {
+        long bound = words == null ? Long.MAX_VALUE : Integer.MAX_VALUE;
+        for ( int i = 0; i < size; )
+        {
+            int from = i;
+            long product = divisors[ i++ ];
+            while ( i < size && divisors[ i ] <= bound / product ) product *= divisors[ i++ ];
+            long remainder = product <= bound && words != null ? remainder( words, product ) : n.remainder( BigInteger.valueOf( product ) ).longValue();
+            for ( int j = from; j < i; j++ ) if ( remainder % divisors[ j ] == 0L ) return divisors[ j ];
+        }
+        return 0L;
+    }
+    
+    /**
+     * Split a number into 32-bit words.
+     * @param n a non-negative number
+     * @return words from the most significant one
+     */
+    private static int[] words( BigInteger n )
+    {
+        int ret[] = new int[ ( n.bitLength() + 31 ) >>> 5 ];
+        for ( int i = 0; i < ret.length; i++ ) ret[ ret.length - 1 - i ] = n.shiftRight( i << 5 ).intValue();
+        return ret;
+    }
+    
+    /**
+     * Remainder of a number given by words modulo m without BigInteger arithmetic.
+     * @param words 32-bit words from the most significant one
+     * @param m a modulus below 2<sup>31</sup>, so a shifted remainder with the next word fits 63 bits
+     */
+    private static long remainder( int words[], long m )
+    {
+        long ret = 0L;
+        for ( int word : words ) ret = ( ( ret << 32 ) | ( word & 0xFFFFFFFFL ) ) % m;
+        return ret;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,220 @@
+package org.quinto.math;
+
+import java.util.Arrays;
+
+/**
+ * Segmented sieve of prime k-tuples (prime constellations) on a mod 30 wheel.
+ * <p>A tuple is defined by a pattern of offsets 0 = o<sub>0</sub> &lt; o<sub>1</sub> &lt; ... &lt; o<sub>k - 1</sub>:
+ * a number n is a start of a tuple if all the numbers n + o<sub>i</sub> are prime.
+ * <p>Every byte of a segment represents 30 consecutive candidates n, one bit per residue relatively prime to 30.
+ * Residues r such that some r + o<sub>i</sub> isn't relatively prime to 30 are never set, e.g. only 11, 17 and 29
+ * are admissible for twin primes. Every sieving prime p clears candidates n = -o<sub>i</sub> (mod p) for all the offsets
+ * at once, so a segment is sieved in a single pass and only admissible candidates survive.
+ * <p>Up to {@link PrimeSieve#MAX_SIEVING_LIMIT} the sieve is exact. Above it candidates are sieved by primes
+ * up to a square root of the limit, and survivors are checked by {@link PrimeUtils#isPrime(long)}.
+ * <p>The sieve is lazy: the next segment is sieved only when the previous one is exhausted.
+ * Segments start small and grow twice on each step up to {@link PrimeSieve#SEGMENT_BYTES}.
+ */
+class TupleSieve
+{
+    /**
+     * Maximal offset in a pattern.
+     */
+    static final int MAX_OFFSET = 1 << 16;
+    
+    private static final int CYCLE_LENGTH = PrimeSieve.CYCLE_LENGTH;
+    private static final int INDICES[] = { 1, 7, 11, 13, 17, 19, 23, 29 };
+    private static final int MIN_SEGMENT_BYTES = 1 << 6;
+    private static final int MAX_SIEVING_PRIME = ( int )MathUtils.isqrt( PrimeSieve.MAX_SIEVING_LIMIT );
+    
+    private final int pattern[];
+    private final long from;
+    private final long to;
+    private final int segmentBytes;
+    /**
+     * Bits of admissible residues modulo 30.
+     */
+    private final int wheel;
+    private byte segment[];
+    private long segmentStart;
+    private int segmentLength;
+    private int position;
+    private int bits;
+    private int primes[];
+    private int primesLimit;
+    /**
+     * 30<sup>-1</sup> mod p for every sieving prime p.
+     */
+    private int inverses[];
+    private long candidate;
+    private boolean exact;
+    private boolean exhausted;
+    
+    /**
+     * Create a lazy sieve of tuples which start in range [ {@code from} .. {@code to} ] (both sides included).
+     * @param pattern offsets of tuple members, see {@link #checkPattern}
+     * @param from a lower inclusive bound of the first member
+     * @param to an upper inclusive bound of the first member, the last member mustn't overflow long
+     * @param primes precomputed sieving primes (see {@link PrimeSieve#getSievingPrimes}), or null
+     * @param primesLimit an upper inclusive bound of precomputed sieving primes
+     */
+    TupleSieve( int pattern[], long from, long to, int primes[], int primesLimit )
+    {
+        this.pattern = pattern;
+        this.from = Math.max( from, 0L );
+        this.to = to;
+        this.primes = primes;
+        this.primesLimit = primes == null ? 0 : primesLimit;
+        segmentBytes = MIN_SEGMENT_BYTES;
+        int mask = 0;
+        for ( int i = 0; i < INDICES.length; i++ )
+        {
+            boolean admissible = true;
+            for ( int o : pattern ) admissible &= MathUtils.gcd( INDICES[ i ] + o, CYCLE_LENGTH ) == 1;
+            if ( admissible ) mask |= 1 << i;
+        }
+        wheel = mask;
+        candidate = this.from;
+        segmentStart = Math.max( this.from, CYCLE_LENGTH ) / CYCLE_LENGTH;
+        position = -1;
+        exhausted = this.from > this.to;
+    }
+    
+    /**
+     * Check that a pattern is strictly increasing, starts with 0 and its offsets don't exceed {@link #MAX_OFFSET}.
+     * @throws IllegalArgumentException if the pattern is invalid
+     */
+    static void checkPattern( int pattern[] ) throws IllegalArgumentException
+    {
+        if ( pattern == null || pattern.length == 0 || pattern[ 0 ] != 0 ) throw new IllegalArgumentException( "A pattern should start with 0" );
+        for ( int i = 1; i < pattern.length; i++ )
+        {
+            if ( pattern[ i ] <= pattern[ i - 1 ] || pattern[ i ] > MAX_OFFSET ) throw new IllegalArgumentException( "Illegal pattern: " + Arrays.toString( pattern ) );
+        }
+    }
+    
+    /**
+     * Seeking of the next tuple in the range.
+     * @return the first member of the next tuple in increasing order, or 0 if there are no more tuples in the range
+     */
+    long next()
+    {
+        if ( exhausted ) return 0L;
+        // Tuples which start below 30 may contain 2, 3 or 5 that aren't represented on the wheel.
+        while ( candidate < CYCLE_LENGTH )
+        {
+            long n = candidate++;
+            if ( n > to ) return exhaust();
+            if ( isTuple( n ) ) return n;
+        }
+        while ( true )
+        {
+            while ( bits == 0 )
+            {
+                position++;
+                if ( position >= segmentLength && !nextSegment() ) return exhaust();
+                bits = segment[ position ] & 0xFF;
+            }
+            int bit = Integer.numberOfTrailingZeros( bits );
+            bits &= bits - 1;
+            long n = ( segmentStart + position ) * CYCLE_LENGTH + INDICES[ bit ];
+            if ( n > to ) return exhaust();
+            if ( exact || isTuple( n ) ) return n;
+        }
+    }
+    
+    private long exhaust()
+    {
+        exhausted = true;
+        return 0L;
+    }
+    
+    private boolean isTuple( long n )
+    {
+        for ( int o : pattern ) if ( !PrimeUtils.isPrime( n + o ) ) return false;
+        return true;
+    }
+    
+    /**
+     * Sieve the next segment.
+     * @return true if a segment is sieved, false if the range is exhausted
+     */
+    private boolean nextSegment()
+    {
+        if ( segment != null ) segmentStart += segmentLength;
+        long remaining = to / CYCLE_LENGTH - segmentStart + 1L;
+        if ( remaining <= 0L ) return false;
+        int capacity = segment == null ? segmentBytes : Math.min( segment.length << 1, PrimeSieve.SEGMENT_BYTES );
+        int length = ( int )Math.min( capacity, remaining );
+        if ( segment == null || segment.length < capacity ) segment = new byte[ capacity ];
+        segmentLength = length;
+        position = 0;
+        long lo = segmentStart * CYCLE_LENGTH;
+        long hi = lo + Math.min( to - lo, length * ( long )CYCLE_LENGTH - 1L ) + pattern[ pattern.length - 1 ];
+        int sqrt = ( int )Math.min( MathUtils.isqrt( hi ), Integer.MAX_VALUE - 1 );
+        exact = sqrt <= MAX_SIEVING_PRIME;
+        int limit = Math.min( sqrt, MAX_SIEVING_PRIME );
+        ensurePrimes( limit );
+        sieveSegment( length, limit );
+        // Mask out the numbers below the lower bound in the first segment.
+        for ( int i = 0; i < INDICES.length; i++ ) if ( lo + INDICES[ i ] < from ) segment[ 0 ] &= ~( 1 << i );
+        return true;
+    }
+    
+    /**
+     * Sieve the current segment by primes up to {@code limit}.
+     */
+    private void sieveSegment( int length, int limit )
+    {
+        Arrays.fill( segment, 0, length, ( byte )wheel );
+        long k0 = segmentStart;
+        long lo = k0 * CYCLE_LENGTH;
+        for ( int j = 0; j < primes.length; j++ )
+        {
+            int p = primes[ j ];
+            // Multiples of 2, 3 and 5 aren't represented on the wheel.
+            if ( p < 7 ) continue;
+            if ( p > limit ) break;
+            long square = ( long )p * p;
+            for ( int o : pattern )
+            {
+                // Members n + o below p * p are either prime or have a smaller prime factor.
+                long start = Math.max( lo, square - o );
+                for ( int i = 0; i < INDICES.length; i++ )
+                {
+                    if ( ( wheel & ( 1 << i ) ) == 0 ) continue;
+                    int r = INDICES[ i ];
+                    // 30 * k + r + o = 0 (mod p) iff k = -( r + o ) / 30 (mod p).
+                    long target = ( p - ( r + o ) % p ) * ( long )inverses[ j ] % p;
+                    long k = Math.max( k0, Math.floorDiv( start - r - 1L, CYCLE_LENGTH ) + 1L );
+                    k += Math.floorMod( target - k, ( long )p );
+                    if ( k - k0 >= length ) continue;
+                    byte mask = ( byte )~( 1 << i );
+                    for ( int b = ( int )( k - k0 ); b < length; b += p ) segment[ b ] &= mask;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Make sure that all the sieving primes up to {@code limit} and their inverses are available.
+     * @param limit a maximal sieving prime
+     */
+    private void ensurePrimes( int limit )
+    {
+        if ( limit > primesLimit )
+        {
+            limit = ( int )Math.min( Math.max( limit, ( long )primesLimit << 1 ), Integer.MAX_VALUE - 1 );
+            primes = PrimeSieve.getSievingPrimes( limit );
+            primesLimit = limit;
+        }
+        // Shared tables of primes may be longer than needed.
+        int count = Arrays.binarySearch( primes, primesLimit + 1 );
+        if ( count < 0 ) count = -count - 1;
+        if ( inverses == null || inverses.length < count )
+        {
+            inverses = new int[ count ];
+            for ( int j = 0; j < count; j++ ) if ( primes[ j ] >= 7 ) inverses[ j ] = MathUtils.modInverse( CYCLE_LENGTH % primes[ j ], primes[ j ] );
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,100 @@
+package org.quinto.math;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class BigMontgomeryTest
+{
+    public BigMontgomeryTest()
+    {
+    }
+    
+    @BeforeClass
+    public static void setUpClass()
+    {
+    }
+    
+    @AfterClass
+    public static void tearDownClass()
+    {
+    }
+    
+    @Before
+    public void setUp()
+    {
+    }
+    
+    @After
+    public void tearDown()
+    {
+    }
+    
+    private static List< BigInteger > getModuli()
+    {
+        List< BigInteger > ret = new ArrayList<>();
+        BigInteger bis[] = TestUtils.getBigIntegers();
+        for ( int i = 0; i < bis.length; i += 3 ) if ( bis[ i ].testBit( 0 ) && bis[ i ].compareTo( BigInteger.ONE ) > 0 ) ret.add( bis[ i ] );
+        ret.add( BigInteger.ONE.shiftLeft( 32 ).subtract( BigInteger.ONE ) );
+        ret.add( BigInteger.ONE.shiftLeft( 32 ).add( BigInteger.ONE ) );
+        ret.add( BigInteger.ONE.shiftLeft( 1024 ).subtract( BigInteger.ONE ) );
+        ret.add( BigInteger.ONE.shiftLeft( 1023 ).add( BigInteger.ONE ) );
+        return ret;
+    }
+    
+    @Test( timeout = 20000L )
+    public void arithmeticSpecial()
+    {
+        BigInteger bis[] = TestUtils.getBigIntegers();
+        for ( BigInteger n : getModuli() )
+        {
+            BigMontgomery m = new BigMontgomery( n );
+            BigInteger r = BigInteger.ONE.shiftLeft( ( n.bitLength() + 31 ) >>> 5 << 5 ).mod( n );
+            int out[] = m.newValue();
+            int small[] = m.newValue();
+            for ( int i = 0; i < bis.length; i += 13 )
+            {
+                BigInteger a = bis[ i ];
+                int am[] = m.valueOf( a );
+                assertEquals( a.multiply( r ).mod( n ), m.toBigInteger( m.valueOf( a.multiply( r ) ) ) );
+                assertEquals( a.mod( n ), m.toBigInteger( am ) );
+                assertEquals( BigMontgomery.isZero( am ), a.mod( n ).signum() == 0 );
+                m.negate( am, out );
+                assertEquals( a.negate().mod( n ), m.toBigInteger( out ) );
+                m.square( am, out );
+                assertEquals( a.multiply( a ).mod( n ), m.toBigInteger( out ) );
+                for ( int c : new int[]{ 0, 1, 2, 3, 5, 1000, Integer.MAX_VALUE } )
+                {
+                    m.multiply( am, c, small );
+                    assertEquals( a.multiply( BigInteger.valueOf( c ) ).mod( n ), m.toBigInteger( small ) );
+                }
+                for ( int j = 0; j < bis.length; j += 17 )
+                {
+                    BigInteger b = bis[ j ];
+                    int bm[] = m.valueOf( b );
+                    String message = a + ", " + b + " mod " + n;
+                    m.multiply( am, bm, out );
+                    assertEquals( message, a.multiply( b ).mod( n ), m.toBigInteger( out ) );
+                    m.add( am, bm, out );
+                    assertEquals( message, a.add( b ).mod( n ), m.toBigInteger( out ) );
+                    m.subtract( am, bm, out );
+                    assertEquals( message, a.subtract( b ).mod( n ), m.toBigInteger( out ) );
+                }
+                // Results may be written over arguments.
+                int copy[] = am.clone();
+                m.multiply( copy, copy, copy );
+                m.square( am, out );
+                assertArrayEquals( out, copy );
+                m.square( copy, copy );
+                m.multiply( out, out, out );
+                assertArrayEquals( out, copy );
+            }
+        }
+    }
+}
\ No newline at end of file
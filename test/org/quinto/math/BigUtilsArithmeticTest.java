@@ -0,0 +1,116 @@
+package org.quinto.math;
+
+import java.math.BigInteger;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.quinto.math.TestUtils.bi;
+import static org.quinto.math.BigUtils.divisorCount;
+import static org.quinto.math.BigUtils.divisorSum;
+import static org.quinto.math.BigUtils.moebius;
+import static org.quinto.math.BigUtils.totient;
+
+public class BigUtilsArithmeticTest
+{
+    public BigUtilsArithmeticTest()
+    {
+    }
+    
+    @BeforeClass
+    public static void setUpClass()
+    {
+    }
+    
+    @AfterClass
+    public static void tearDownClass()
+    {
+    }
+    
+    @Before
+    public void setUp()
+    {
+    }
+    
+    @After
+    public void tearDown()
+    {
+    }
+    
+    @Test( timeout = 5000L )
+    public void casual()
+    {
+        assertEquals( bi( 4 ), totient( bi( 12 ) ) );
+        assertEquals( 0, moebius( bi( -12 ) ) );
+        assertEquals( -1, moebius( bi( 30 ) ) );
+        assertEquals( bi( 6 ), divisorCount( bi( 12 ) ) );
+        assertEquals( bi( 28 ), divisorSum( bi( 12 ) ) );
+        assertEquals( bi( 1 ), divisorSum( bi( -1 ) ) );
+        BigInteger n = BigInteger.ONE.shiftLeft( 100 );
+        assertEquals( BigInteger.ONE.shiftLeft( 99 ), totient( n ) );
+        assertEquals( bi( 101 ), divisorCount( n ) );
+        assertEquals( BigInteger.ONE.shiftLeft( 101 ).subtract( BigInteger.ONE ), divisorSum( n ) );
+        BigInteger p = bi( "1000000000000037" );
+        BigInteger q = bi( 2147483647 );
+        n = p.multiply( p ).multiply( q );
+        assertEquals( p.subtract( BigInteger.ONE ).multiply( p ).multiply( q.subtract( BigInteger.ONE ) ), totient( n ) );
+        assertEquals( 0, moebius( n ) );
+        assertEquals( 1, moebius( p.multiply( q ) ) );
+        assertEquals( bi( 6 ), divisorCount( n ) );
+        assertEquals( BigInteger.ONE.add( p ).add( p.multiply( p ) ).multiply( q.add( BigInteger.ONE ) ), divisorSum( n ) );
+        try
+        {
+            totient( BigInteger.ZERO );
+            fail();
+        }
+        catch ( IllegalArgumentException e )
+        {
+        }
+    }
+    
+    @Test( timeout = 5000L )
+    public void agreesWithLong()
+    {
+        for ( long n = -1000L; n <= 1000L; n++ )
+        {
+            if ( n == 0L ) continue;
+            String message = String.valueOf( n );
+            assertEquals( message, bi( MathUtils.totient( n ) ), totient( bi( n ) ) );
+            assertEquals( message, MathUtils.moebius( n ), moebius( bi( n ) ) );
+            assertEquals( message, bi( MathUtils.divisorCount( n ) ), divisorCount( bi( n ) ) );
+            assertEquals( message, bi( MathUtils.divisorSum( n ) ), divisorSum( bi( n ) ) );
+        }
+    }
+    
+    @Test( timeout = 5000L )
+    public void divisors()
+    {
+        Iterator< BigInteger > it = PrimeUtils.factor( bi( 12 ) ).divisors();
+        for ( int d : new int[]{ 1, 2, 4, 3, 6, 12 } ) assertEquals( bi( d ), it.next() );
+        assertFalse( it.hasNext() );
+        try
+        {
+            it.next();
+            fail();
+        }
+        catch ( NoSuchElementException e )
+        {
+        }
+        BigInteger n = BigInteger.ONE.shiftLeft( 70 ).multiply( bi( 3 * 3 * 5 * 7 ) ).negate();
+        BigFactorization f = PrimeUtils.factor( n );
+        BigInteger sum = BigInteger.ZERO;
+        int count = 0;
+        for ( it = f.divisors(); it.hasNext(); count++ )
+        {
+            BigInteger d = it.next();
+            assertEquals( d.toString(), 0, n.mod( d ).signum() );
+            sum = sum.add( d );
+        }
+        assertEquals( f.divisorCount(), bi( count ) );
+        assertEquals( f.divisorSum(), sum );
+    }
+}
\ No newline at end of file
@@ -0,0 +1,51 @@
+package org.quinto.math;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Expected time of {@link EllipticCurveMethod} to find a factor of a given size.
+ * It's not a unit test, run it by {@code main}. Arguments are quantities of decimal digits of factors, from 10 to 25 by default.
+ * A factor is multiplied by a prime such that a product has 256 bits. Curves run on a common pool.
+ */
+public class EllipticCurveBenchmark
+{
+    private static final int SAMPLES = 8;
+    private static final int BITS = 256;
+    
+    public static void main( String args[] )
+    {
+        int digits[] = { 10, 15, 20, 25 };
+        if ( args.length > 0 )
+        {
+            digits = new int[ args.length ];
+            for ( int i = 0; i < args.length; i++ ) digits[ i ] = Integer.parseInt( args[ i ] );
+        }
+        Random random = new Random( 42L );
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        System.out.printf( "Parallelism %d, %d-bit numbers%n", pool.getParallelism(), BITS );
+        for ( int d : digits )
+        {
+            BigInteger from = BigInteger.TEN.pow( d - 1 );
+            long times[] = new long[ SAMPLES ];
+            long curves = 0L;
+            for ( int i = 0; i < SAMPLES; i++ )
+            {
+                BigInteger p = from.add( new BigInteger( from.bitLength() + 3, random ).mod( from.multiply( BigInteger.valueOf( 9L ) ) ) ).nextProbablePrime();
+                BigInteger n = p.multiply( BigInteger.probablePrime( BITS - p.bitLength(), random ) );
+                EllipticCurveMethod ecm = new EllipticCurveMethod( n );
+                long time = System.nanoTime();
+                BigInteger factor = ecm.findFactor( Integer.MAX_VALUE, pool );
+                times[ i ] = System.nanoTime() - time;
+                if ( factor == null || n.mod( factor ).signum() != 0 ) throw new AssertionError( n.toString() );
+                curves += ecm.getCurves();
+            }
+            Arrays.sort( times );
+            long total = 0L;
+            for ( long time : times ) total += time;
+            System.out.printf( "%2d digits: mean %9.1f ms, median %9.1f ms, %6.1f curves%n", d, total / 1e6 / SAMPLES, times[ SAMPLES / 2 ] / 1e6, ( double )curves / SAMPLES );
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,193 @@
+package org.quinto.math;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class FactorTableTest
+{
+    public FactorTableTest()
+    {
+    }
+    
+    @BeforeClass
+    public static void setUpClass()
+    {
+    }
+    
+    @AfterClass
+    public static void tearDownClass()
+    {
+    }
+    
+    @Before
+    public void setUp()
+    {
+    }
+    
+    @After
+    public void tearDown()
+    {
+    }
+    
+    @Test( timeout = 20000L )
+    public void factorRange()
+    {
+        long primes[] = new long[ FactorTable.MAX_DISTINCT_FACTORS ];
+        int exponents[] = new int[ FactorTable.MAX_DISTINCT_FACTORS ];
+        for ( long limit : new long[]{ 0L, 29L, 30L, 1000L, 300000L } )
+        {
+            FactorTable table = FactorTable.sieve( limit, null );
+            assertEquals( ( limit / 30L + 1L ) * 30L - 1L, table.getLimit() );
+            for ( long n = -table.getLimit(); n <= table.getLimit(); n++ )
+            {
+                assertEquals( Long.toString( n ), PrimeUtils.passesMiller( n ), table.isPrime( n ) );
+                if ( n == 0L ) continue;
+                Factorization f = table.factor( n );
+                assertEquals( PrimeUtils.factor( n ), f );
+                assertEquals( f.size(), table.factor( n, primes, exponents ) );
+                for ( int i = 0; i < f.size(); i++ )
+                {
+                    assertEquals( f.getPrime( i ), primes[ i ] );
+                    assertEquals( f.getExponent( i ), exponents[ i ] );
+                }
+                assertEquals( Long.toString( n ), f.size() == 0 ? 1L : f.getPrime( 0 ), table.getSmallestPrimeFactor( n ) );
+            }
+            assertFalse( table.contains( table.getLimit() + 1L ) );
+            assertFalse( table.contains( -table.getLimit() - 1L ) );
+            assertFalse( table.contains( Long.MIN_VALUE ) );
+        }
+    }
+    
+    @Test( timeout = 10000L )
+    public void divisors()
+    {
+        FactorTable table = FactorTable.sieve( 10000L );
+        for ( long n = 1L; n <= 10000L; n++ )
+        {
+            long divisors[] = table.getDivisors( -n );
+            int count = 0;
+            for ( long d = 1L; d <= n; d++ ) if ( n % d == 0L ) assertEquals( Long.toString( n ), d, divisors[ count++ ] );
+            assertEquals( count, divisors.length );
+        }
+        assertArrayEquals( new long[]{ 1L, 2L, 3L, 4L, 6L, 12L }, table.getDivisors( 12L ) );
+        // A highly composite number.
+        assertEquals( 240, FactorTable.sieve( 720720L ).getDivisors( 720720L ).length );
+    }
+    
+    @Test( timeout = 30000L )
+    public void sieveInParallel() throws IOException
+    {
+        // Several chunks of 2^22 entries.
+        long limit = 40000000L;
+        ForkJoinPool pool = new ForkJoinPool( 3 );
+        Path path = Files.createTempFile( "factors", ".bin" );
+        try
+        {
+            FactorTable parallel = FactorTable.sieve( limit, pool );
+            FactorTable file = FactorTable.create( path, limit, pool );
+            FactorTable opened = FactorTable.open( path );
+            assertEquals( 40000019L, parallel.getLimit() );
+            assertEquals( parallel.getLimit(), opened.getLimit() );
+            assertEquals( 40000020L / 30L * 16L, parallel.getMemoryUsage() );
+            assertEquals( parallel.getMemoryUsage(), opened.getMemoryUsage() );
+            assertTrue( parallel.getBuildTime() > 0L );
+            assertTrue( file.getBuildTime() > 0L );
+            Random random = new Random( 1L );
+            for ( int i = 0; i < 100000; i++ )
+            {
+                long n = i < 1000 ? limit + 19L - i : random.nextInt( ( int )limit ) + 1L;
+                Factorization f = PrimeUtils.factor( n );
+                assertEquals( f, parallel.factor( n ) );
+                assertEquals( f, file.factor( n ) );
+                assertEquals( f, opened.factor( n ) );
+            }
+            // https://oeis.org/A006880
+            int count = 0;
+            for ( long n = 0L; n <= 10000000L; n++ ) if ( opened.isPrime( n ) ) count++;
+            assertEquals( 664579, count );
+        }
+        finally
+        {
+            pool.shutdown();
+            Files.deleteIfExists( path );
+        }
+    }
+    
+    @Test( timeout = 5000L )
+    public void errors() throws IOException
+    {
+        Path path = Files.createTempFile( "factors", ".bin" );
+        try
+        {
+            for ( long limit : new long[]{ -1L, FactorTable.MAX_LIMIT + 1L, Long.MIN_VALUE, Long.MAX_VALUE } )
+            {
+                try
+                {
+                    FactorTable.create( path, limit );
+                    fail( "Limit " + limit );
+                }
+                catch ( IllegalArgumentException e )
+                {
+                }
+                try
+                {
+                    FactorTable.sieve( limit );
+                    fail( "Limit " + limit );
+                }
+                catch ( IllegalArgumentException e )
+                {
+                }
+            }
+            FactorTable table = FactorTable.create( path, 100L );
+            for ( long n : new long[]{ 0L, 120L, -120L } )
+            {
+                try
+                {
+                    table.factor( n );
+                    fail( "Number " + n );
+                }
+                catch ( IllegalArgumentException e )
+                {
+                }
+                try
+                {
+                    table.getSmallestPrimeFactor( n );
+                    fail( "Number " + n );
+                }
+                catch ( IllegalArgumentException e )
+                {
+                }
+            }
+            try
+            {
+                table.isPrime( 120L );
+                fail( "Out of range" );
+            }
+            catch ( IllegalArgumentException e )
+            {
+            }
+            Files.write( path, new byte[]{ 1, 2, 3 } );
+            try
+            {
+                FactorTable.open( path );
+                fail( "Not a table" );
+            }
+            catch ( IOException e )
+            {
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists( path );
+        }
+    }
+}
\ No newline at end of file
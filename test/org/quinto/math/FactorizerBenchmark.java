@@ -0,0 +1,56 @@
+package org.quinto.math;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Time of {@link PrimeUtils#factor(long)} for the hardest long numbers: semiprimes with factors of balanced sizes.
+ * It's not a unit test, run it by {@code main}. Arguments are bit lengths of semiprimes in range [ 6 .. 63 ], 40, 50 and 63 by default.
+ * A factor of a 63-bit semiprime has 31 bits, the other one has 32 bits.
+ */
+public class FactorizerBenchmark
+{
+    private static final int SAMPLES = 400;
+    private static final int ROUNDS = 3;
+    
+    public static void main( String args[] )
+    {
+        int bitLengths[] = { 40, 50, 63 };
+        if ( args.length > 0 )
+        {
+            bitLengths = new int[ args.length ];
+            for ( int i = 0; i < args.length; i++ ) bitLengths[ i ] = Integer.parseInt( args[ i ] );
+        }
+        Random random = new Random( 42L );
+        for ( int bitLength : bitLengths )
+        {
+            if ( bitLength < 6 || bitLength > 63 ) throw new IllegalArgumentException( "Bit length must be in range [ 6 .. 63 ], got " + bitLength );
+            long numbers[] = new long[ SAMPLES ];
+            for ( int i = 0; i < SAMPLES; )
+            {
+                // A product of a ( b / 2 )-bit prime and a ( b - b / 2 )-bit prime has b - 1 or b bits.
+                long p = BigInteger.probablePrime( bitLength >> 1, random ).longValue();
+                long q = BigInteger.probablePrime( bitLength - ( bitLength >> 1 ), random ).longValue();
+                if ( p != q && 64 - Long.numberOfLeadingZeros( p * q ) == bitLength ) numbers[ i++ ] = p * q;
+            }
+            long times[] = new long[ SAMPLES ];
+            for ( int round = 0; round < ROUNDS; round++ )
+            {
+                for ( int i = 0; i < SAMPLES; i++ )
+                {
+                    long time = System.nanoTime();
+                    Factorization f = PrimeUtils.factor( numbers[ i ] );
+                    time = System.nanoTime() - time;
+                    if ( f.size() != 2 || f.getPrime( 0 ) * f.getPrime( 1 ) != numbers[ i ] ) throw new AssertionError( String.valueOf( numbers[ i ] ) );
+                    times[ i ] = round == 0 ? time : Math.min( times[ i ], time );
+                }
+            }
+            Arrays.sort( times );
+            long total = 0L;
+            for ( long time : times ) total += time;
+            System.out.printf( "%2d bits: mean %7.1f us, median %7.1f us, 90th percentile %7.1f us, max %7.1f us%n", bitLength,
+                    total / 1e3 / SAMPLES, times[ SAMPLES / 2 ] / 1e3, times[ SAMPLES * 9 / 10 ] / 1e3, times[ SAMPLES - 1 ] / 1e3 );
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,79 @@
+package org.quinto.math;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+/**
+ * Comparison of {@link PrimeUtils#passesLucasPseudoprime} with the former implementation which was based on immutable BigIntegers.
+ * It's not a unit test, run it by {@code main}. Arguments are bit lengths of tested primes, 1024, 2048 and 4096 by default.
+ */
+public class LucasPseudoprimeBenchmark
+{
+    private static final int ROUNDS = 5;
+    
+    public static void main( String args[] )
+    {
+        int bitLengths[] = { 1024, 2048, 4096 };
+        if ( args.length > 0 )
+        {
+            bitLengths = new int[ args.length ];
+            for ( int i = 0; i < args.length; i++ ) bitLengths[ i ] = Integer.parseInt( args[ i ] );
+        }
+        Random random = new Random( 42L );
+        for ( int bitLength : bitLengths )
+        {
+            // Primes are the worst case: every step of the ladder is done.
+            BigInteger primes[] = new BigInteger[ Math.max( 1, 16384 / bitLength ) ];
+            for ( int i = 0; i < primes.length; i++ ) primes[ i ] = BigInteger.probablePrime( bitLength, random );
+            long reference = Long.MAX_VALUE;
+            long limbs = Long.MAX_VALUE;
+            for ( int round = 0; round < ROUNDS; round++ )
+            {
+                long time = System.nanoTime();
+                for ( BigInteger p : primes ) if ( !passesLucasPseudoprimeReference( p ) ) throw new AssertionError( p.toString() );
+                reference = Math.min( reference, System.nanoTime() - time );
+                time = System.nanoTime();
+                for ( BigInteger p : primes ) if ( !PrimeUtils.passesLucasPseudoprime( p ) ) throw new AssertionError( p.toString() );
+                limbs = Math.min( limbs, System.nanoTime() - time );
+            }
+            System.out.printf( "%5d bits: BigInteger %8.2f ms, limbs %8.2f ms, speedup %.1f%n", bitLength,
+                    reference / 1e6 / primes.length, limbs / 1e6 / primes.length, ( double )reference / limbs );
+        }
+    }
+    
+    /**
+     * The former implementation: a standard (not strong) Lucas test, an adaptation of {@code BigInteger.passesLucasLehmer}.
+     */
+    static boolean passesLucasPseudoprimeReference( BigInteger n )
+    {
+        int z = 5;
+        while ( PrimeUtils.jacobiSymbol( z, n ) != -1 ) z = z < 0 ? 2 - z : -( z + 2 );
+        BigInteger d = BigInteger.valueOf( z );
+        BigInteger u = BigInteger.ONE;
+        BigInteger u2;
+        BigInteger v = BigInteger.ONE;
+        BigInteger v2;
+        BigInteger k = n.add( BigInteger.ONE );
+        for ( int i = k.bitLength() - 2; i >= 0; i-- )
+        {
+            u2 = u.multiply( v ).mod( n );
+            v2 = v.multiply( v ).add( d.multiply( u.multiply( u ) ) ).mod( n );
+            if ( v2.testBit( 0 ) ) v2 = v2.subtract( n );
+            v2 = v2.shiftRight( 1 );
+            u = u2;
+            v = v2;
+            if ( k.testBit( i ) )
+            {
+                u2 = u.add( v ).mod( n );
+                if ( u2.testBit( 0 ) ) u2 = u2.subtract( n );
+                u2 = u2.shiftRight( 1 );
+                v2 = v.add( d.multiply( u ) ).mod( n );
+                if ( v2.testBit( 0 ) ) v2 = v2.subtract( n );
+                v2 = v2.shiftRight( 1 );
+                u = u2;
+                v = v2;
+            }
+        }
+        return u.mod( n ).signum() == 0;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,212 @@
+package org.quinto.math;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.quinto.math.MathUtils.divisorCount;
+import static org.quinto.math.MathUtils.divisorCountTable;
+import static org.quinto.math.MathUtils.divisorSum;
+import static org.quinto.math.MathUtils.divisorSumTable;
+import static org.quinto.math.MathUtils.gcd;
+import static org.quinto.math.MathUtils.moebius;
+import static org.quinto.math.MathUtils.moebiusTable;
+import static org.quinto.math.MathUtils.totient;
+import static org.quinto.math.MathUtils.totientTable;
+
+public class MathUtilsArithmeticTest
+{
+    public MathUtilsArithmeticTest()
+    {
+    }
+    
+    @BeforeClass
+    public static void setUpClass()
+    {
+    }
+    
+    @AfterClass
+    public static void tearDownClass()
+    {
+    }
+    
+    @Before
+    public void setUp()
+    {
+    }
+    
+    @After
+    public void tearDown()
+    {
+    }
+    
+    @Test( timeout = 5000L )
+    public void casual()
+    {
+        assertEquals( 1L, totient( 1L ) );
+        assertEquals( 4L, totient( 12L ) );
+        assertEquals( 12L, totient( 13L ) );
+        assertEquals( 4L, totient( -12L ) );
+        assertEquals( 1L << 62, totient( Long.MIN_VALUE ) );
+        assertEquals( 9223372036854775782L, totient( 9223372036854775783L ) );
+        assertEquals( 1, moebius( 1L ) );
+        assertEquals( 0, moebius( 12L ) );
+        assertEquals( -1, moebius( 30L ) );
+        assertEquals( 1, moebius( 6L ) );
+        assertEquals( 1, divisorCount( 1L ) );
+        assertEquals( 6, divisorCount( 12L ) );
+        assertEquals( 2, divisorCount( 13L ) );
+        assertEquals( 64, divisorCount( Long.MIN_VALUE ) );
+        assertEquals( 1L, divisorSum( 1L ) );
+        assertEquals( 28L, divisorSum( 12L ) );
+        assertEquals( 14L, divisorSum( -13L ) );
+        assertEquals( Long.MAX_VALUE, divisorSum( 1L << 62 ) );
+    }
+    
+    @Test( timeout = 5000L )
+    public void special()
+    {
+        try
+        {
+            totient( 0L );
+            fail();
+        }
+        catch ( IllegalArgumentException e )
+        {
+        }
+        try
+        {
+            divisorSum( Long.MIN_VALUE );
+            fail();
+        }
+        catch ( ArithmeticException e )
+        {
+        }
+        try
+        {
+            divisorSum( 9200000000000000000L );
+            fail();
+        }
+        catch ( ArithmeticException e )
+        {
+        }
+        try
+        {
+            totientTable( -1 );
+            fail();
+        }
+        catch ( IllegalArgumentException e )
+        {
+        }
+        try
+        {
+            divisorSumTable( Integer.MAX_VALUE );
+            fail();
+        }
+        catch ( IllegalArgumentException e )
+        {
+        }
+        assertArrayEquals( new int[]{ 0 }, moebiusTable( 0 ) );
+        assertArrayEquals( new int[]{ 0, 1 }, divisorCountTable( 1 ) );
+        assertArrayEquals( new long[]{ 0L, 1L, 3L }, divisorSumTable( 2 ) );
+    }
+    
+    @Test( timeout = 5000L )
+    public void bruteForce()
+    {
+        for ( int n = 1; n <= 2000; n++ )
+        {
+            int coprimes = 0;
+            int count = 0;
+            long sum = 0L;
+            for ( int d = 1; d <= n; d++ )
+            {
+                if ( gcd( n, d ) == 1 ) coprimes++;
+                if ( n % d == 0 )
+                {
+                    count++;
+                    sum += d;
+                }
+            }
+            int mu = 1;
+            for ( int m = n, p = 2; m > 1; p++ )
+            {
+                if ( m % p != 0 ) continue;
+                m /= p;
+                mu = m % p == 0 ? 0 : -mu;
+                if ( mu == 0 ) break;
+            }
+            assertEquals( String.valueOf( n ), coprimes, totient( n ) );
+            assertEquals( String.valueOf( n ), count, divisorCount( n ) );
+            assertEquals( String.valueOf( n ), sum, divisorSum( n ) );
+            assertEquals( String.valueOf( n ), mu, moebius( n ) );
+        }
+    }
+    
+    @Test( timeout = 20000L )
+    public void tables()
+    {
+        int n = 200000;
+        int phi[] = totientTable( n );
+        int mu[] = moebiusTable( n );
+        int tau[] = divisorCountTable( n );
+        long sigma[] = divisorSumTable( n );
+        assertEquals( n + 1, phi.length );
+        assertEquals( 0, phi[ 0 ] );
+        assertEquals( 0, mu[ 0 ] );
+        assertEquals( 0, tau[ 0 ] );
+        assertEquals( 0L, sigma[ 0 ] );
+        for ( int i = 1; i <= n; i++ )
+        {
+            Factorization f = PrimeUtils.factor( i );
+            assertEquals( String.valueOf( i ), f.totient(), phi[ i ] );
+            assertEquals( String.valueOf( i ), f.moebius(), mu[ i ] );
+            assertEquals( String.valueOf( i ), f.divisorCount(), tau[ i ] );
+            assertEquals( String.valueOf( i ), f.divisorSum(), sigma[ i ] );
+        }
+    }
+    
+    @Test( timeout = 5000L )
+    public void divisors()
+    {
+        PrimitiveIterator.OfLong it = PrimeUtils.factor( 12L ).divisors();
+        for ( long d : new long[]{ 1L, 2L, 4L, 3L, 6L, 12L } ) assertEquals( d, it.nextLong() );
+        assertFalse( it.hasNext() );
+        try
+        {
+            it.nextLong();
+            fail();
+        }
+        catch ( NoSuchElementException e )
+        {
+        }
+        it = PrimeUtils.factor( -1L ).divisors();
+        assertEquals( 1L, it.nextLong() );
+        assertFalse( it.hasNext() );
+        it = PrimeUtils.factor( Long.MIN_VALUE ).divisors();
+        for ( int i = 0; i < 63; i++ ) assertEquals( 1L << i, it.nextLong() );
+        assertEquals( Long.MIN_VALUE, it.nextLong() );
+        assertFalse( it.hasNext() );
+        FactorTable table = FactorTable.sieve( 100000L );
+        for ( long n : new long[]{ 2L, 30L, 720L, 65536L, 83160L, 99991L, 100000L } )
+        {
+            Factorization f = table.factor( n );
+            long actual[] = new long[ f.divisorCount() ];
+            int count = 0;
+            for ( it = f.divisors(); it.hasNext(); ) actual[ count++ ] = it.nextLong();
+            Arrays.sort( actual );
+            assertArrayEquals( String.valueOf( n ), table.getDivisors( n ), actual );
+        }
+        Factorization f = PrimeUtils.factor( 3L * 5L * 7L * 11L * 13L * 17L * 19L * 23L * 29L * 31L * 37L * 41L * 43L * 47L );
+        long sum = 0L;
+        int count = 0;
+        for ( it = f.divisors(); it.hasNext(); count++ ) sum += it.nextLong();
+        assertEquals( f.divisorCount(), count );
+        assertEquals( f.divisorSum(), sum );
+    }
+}
\ No newline at end of file
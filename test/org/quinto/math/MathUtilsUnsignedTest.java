@@ -0,0 +1,74 @@
+package org.quinto.math;
+
+import java.math.BigInteger;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.quinto.math.MathUtils.multiplyHighUnsigned;
+import static org.quinto.math.MathUtils.toUnsignedBigInteger;
+
+public class MathUtilsUnsignedTest
+{
+    public MathUtilsUnsignedTest()
+    {
+    }
+    
+    @BeforeClass
+    public static void setUpClass()
+    {
+    }
+    
+    @AfterClass
+    public static void tearDownClass()
+    {
+    }
+    
+    @Before
+    public void setUp()
+    {
+    }
+    
+    @After
+    public void tearDown()
+    {
+    }
+    
+    @Test( timeout = 5000L )
+    public void multiplyHighUnsignedCasual()
+    {
+        assertEquals( 0L, multiplyHighUnsigned( 0L, -1L ) );
+        assertEquals( 0L, multiplyHighUnsigned( 1L << 32, ( 1L << 32 ) - 1L ) );
+        assertEquals( 1L, multiplyHighUnsigned( 1L << 32, 1L << 32 ) );
+        assertEquals( -2L, multiplyHighUnsigned( -1L, -1L ) );
+        assertEquals( Long.MAX_VALUE, multiplyHighUnsigned( -1L, Long.MIN_VALUE ) );
+    }
+    
+    @Test( timeout = 5000L )
+    public void multiplyHighUnsignedSpecial()
+    {
+        for ( long a : TestUtils.getLongs() )
+        {
+            for ( long b : TestUtils.getLongs() )
+            {
+                long expected = toUnsignedBigInteger( a ).multiply( toUnsignedBigInteger( b ) ).shiftRight( 64 ).longValue();
+                assertEquals( a + " * " + b, expected, multiplyHighUnsigned( a, b ) );
+            }
+        }
+    }
+    
+    @Test( timeout = 5000L )
+    public void multiplyHighSpecial()
+    {
+        for ( long a : TestUtils.getLongs() )
+        {
+            for ( long b : TestUtils.getLongs() )
+            {
+                long expected = BigInteger.valueOf( a ).multiply( BigInteger.valueOf( b ) ).shiftRight( 64 ).longValue();
+                assertEquals( a + " * " + b, expected, MathUtils.multiplyHigh( a, b ) );
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,94 @@
+package org.quinto.math;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+/**
+ * Comparison of {@link PrimeUtils#passesMiller(long)} with the former implementation which called {@link BigInteger#modPow} for numbers above 2<sup>31</sup>.
+ * It's not a unit test, run it by {@code main}. Arguments are bit lengths of tested numbers in range [ 32 .. 63 ], 40, 52 and 63 by default.
+ * Primes are the worst case: all the witnesses are checked. Random odd numbers are mostly rejected by the first witness.
+ */
+public class MillerBenchmark
+{
+    private static final int ROUNDS = 5;
+    private static final int SAMPLES = 20000;
+    private static final long WITNESSES[] = { 2L, 3L, 5L, 7L, 11L, 13L, 17L, 19L, 23L, 29L, 31L, 37L };
+    
+    public static void main( String args[] )
+    {
+        int bitLengths[] = { 40, 52, 63 };
+        if ( args.length > 0 )
+        {
+            bitLengths = new int[ args.length ];
+            for ( int i = 0; i < args.length; i++ ) bitLengths[ i ] = Integer.parseInt( args[ i ] );
+        }
+        Random random = new Random( 42L );
+        for ( int bitLength : bitLengths )
+        {
+            if ( bitLength < 32 || bitLength > 63 ) throw new IllegalArgumentException( "Bit length must be in range [ 32 .. 63 ], got " + bitLength );
+            long primes[] = new long[ SAMPLES ];
+            long odds[] = new long[ SAMPLES ];
+            for ( int i = 0; i < SAMPLES; i++ )
+            {
+                primes[ i ] = BigInteger.probablePrime( bitLength, random ).longValue();
+                odds[ i ] = ( random.nextLong() >>> ( 64 - bitLength ) ) | ( 1L << ( bitLength - 1 ) ) | 1L;
+            }
+            long referencePrimes = Long.MAX_VALUE;
+            long montgomeryPrimes = Long.MAX_VALUE;
+            long referenceOdds = Long.MAX_VALUE;
+            long montgomeryOdds = Long.MAX_VALUE;
+            for ( int round = 0; round < ROUNDS; round++ )
+            {
+                long time = System.nanoTime();
+                for ( long p : primes ) if ( !passesMillerReference( p ) ) throw new AssertionError( String.valueOf( p ) );
+                referencePrimes = Math.min( referencePrimes, System.nanoTime() - time );
+                time = System.nanoTime();
+                for ( long p : primes ) if ( !PrimeUtils.passesMiller( p ) ) throw new AssertionError( String.valueOf( p ) );
+                montgomeryPrimes = Math.min( montgomeryPrimes, System.nanoTime() - time );
+                int expected = 0;
+                time = System.nanoTime();
+                for ( long n : odds ) if ( passesMillerReference( n ) ) expected++;
+                referenceOdds = Math.min( referenceOdds, System.nanoTime() - time );
+                int actual = 0;
+                time = System.nanoTime();
+                for ( long n : odds ) if ( PrimeUtils.passesMiller( n ) ) actual++;
+                montgomeryOdds = Math.min( montgomeryOdds, System.nanoTime() - time );
+                if ( actual != expected ) throw new AssertionError( actual + " != " + expected );
+            }
+            System.out.printf( "%2d bits: primes BigInteger %7.0f ns, Montgomery %6.0f ns, speedup %.1f; odd numbers BigInteger %7.0f ns, Montgomery %6.0f ns, speedup %.1f%n", bitLength,
+                    ( double )referencePrimes / SAMPLES, ( double )montgomeryPrimes / SAMPLES, ( double )referencePrimes / montgomeryPrimes,
+                    ( double )referenceOdds / SAMPLES, ( double )montgomeryOdds / SAMPLES, ( double )referenceOdds / montgomeryOdds );
+        }
+    }
+    
+    /**
+     * The former implementation for odd numbers above 2<sup>31</sup>.
+     */
+    static boolean passesMillerReference( long n )
+    {
+        int q;
+        if ( n < 2152302898747L ) q = n < 3215031751L ? 4 : 5;
+        else if ( n < 341550071728321L ) q = n < 3474749660383L ? 6 : 7;
+        else q = n < 3825123056546413051L ? 9 : 12;
+        long nMinusOne = n - 1;
+        int s = Long.numberOfTrailingZeros( nMinusOne );
+        long r = nMinusOne >> s;
+        BigInteger br = BigInteger.valueOf( r );
+        BigInteger bn = BigInteger.valueOf( n );
+        for ( int i = 0; i < q; i++ )
+        {
+            BigInteger bRemainder = BigInteger.valueOf( WITNESSES[ i ] ).modPow( br, bn );
+            long remainder = bRemainder.longValue();
+            int j = 0;
+            while ( ( j > 0 || remainder != 1L ) && remainder != nMinusOne )
+            {
+                if ( j > 0 && remainder == 1L ) return false;
+                j++;
+                if ( j == s ) return false;
+                bRemainder = bRemainder.modPow( BigUtils.BI_TWO, bn );
+                remainder = bRemainder.longValue();
+            }
+        }
+        return true;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,124 @@
+package org.quinto.math;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+/**
+ * Comparison of the hashed witness of {@link MillerWitnesses} with the former schedule of the first primes (Sloane's A006945) for numbers below 2<sup>32</sup>.
+ * It's not a unit test, run it by {@code main}. Arguments are bit lengths of tested numbers in range [ 13 .. 32 ], 24, 31 and 32 by default.
+ * Both tests divide by the same small primes first and use the same arithmetic, so they differ only in a quantity of exponentiations.
+ */
+public class MillerWitnessesBenchmark
+{
+    private static final int ROUNDS = 5;
+    private static final int SAMPLES = 20000;
+    private static final int FIRST_PRIMES[] = { 2, 3, 5, 7, 11 };
+    
+    private static long exponentiations;
+    
+    public static void main( String args[] )
+    {
+        int bitLengths[] = { 24, 31, 32 };
+        if ( args.length > 0 )
+        {
+            bitLengths = new int[ args.length ];
+            for ( int i = 0; i < args.length; i++ ) bitLengths[ i ] = Integer.parseInt( args[ i ] );
+        }
+        Random random = new Random( 42L );
+        for ( int bitLength : bitLengths )
+        {
+            if ( bitLength < 13 || bitLength > 32 ) throw new IllegalArgumentException( "Bit length must be in range [ 13 .. 32 ], got " + bitLength );
+            long primes[] = new long[ SAMPLES ];
+            long odds[] = new long[ SAMPLES ];
+            for ( int i = 0; i < SAMPLES; i++ )
+            {
+                primes[ i ] = BigInteger.probablePrime( bitLength, random ).longValue();
+                odds[ i ] = ( random.nextLong() >>> ( 64 - bitLength ) ) | ( 1L << ( bitLength - 1 ) ) | 1L;
+            }
+            double scheduleCounts[] = { countSchedule( primes ), countSchedule( odds ) };
+            double hashedCounts[] = { countHashed( primes ), countHashed( odds ) };
+            long scheduleTimes[] = { Long.MAX_VALUE, Long.MAX_VALUE };
+            long hashedTimes[] = { Long.MAX_VALUE, Long.MAX_VALUE };
+            for ( int round = 0; round < ROUNDS; round++ )
+            {
+                for ( int k = 0; k < 2; k++ )
+                {
+                    long numbers[] = k == 0 ? primes : odds;
+                    int expected = 0;
+                    long time = System.nanoTime();
+                    for ( long n : numbers ) if ( passesMillerSchedule( n ) ) expected++;
+                    scheduleTimes[ k ] = Math.min( scheduleTimes[ k ], System.nanoTime() - time );
+                    int actual = 0;
+                    time = System.nanoTime();
+                    for ( long n : numbers ) if ( PrimeUtils.passesMiller( n ) ) actual++;
+                    hashedTimes[ k ] = Math.min( hashedTimes[ k ], System.nanoTime() - time );
+                    if ( actual != expected || k == 0 && actual != SAMPLES ) throw new AssertionError( actual + " != " + expected );
+                }
+            }
+            System.out.printf( "%2d bits: primes %.2f -> %.2f exponentiations, %5.0f -> %4.0f ns; odd numbers %.2f -> %.2f exponentiations, %5.0f -> %4.0f ns%n", bitLength,
+                    scheduleCounts[ 0 ], hashedCounts[ 0 ], ( double )scheduleTimes[ 0 ] / SAMPLES, ( double )hashedTimes[ 0 ] / SAMPLES,
+                    scheduleCounts[ 1 ], hashedCounts[ 1 ], ( double )scheduleTimes[ 1 ] / SAMPLES, ( double )hashedTimes[ 1 ] / SAMPLES );
+        }
+    }
+    
+    /**
+     * @return a mean quantity of exponentiations of {@link #passesMillerSchedule} per number
+     */
+    private static double countSchedule( long numbers[] )
+    {
+        exponentiations = 0L;
+        for ( long n : numbers ) passesMillerSchedule( n );
+        return ( double )exponentiations / numbers.length;
+    }
+    
+    /**
+     * @return a mean quantity of exponentiations of {@link PrimeUtils#passesMiller(long)} per number
+     */
+    private static double countHashed( long numbers[] )
+    {
+        long ret = 0L;
+        for ( long n : numbers )
+        {
+            if ( MillerWitnesses.smallFactor( n ) == 0 && n >= MillerWitnesses.TRIAL_LIMIT && MillerWitnesses.hashed( ( int )n ) % n != 0L ) ret++;
+        }
+        return ( double )ret / numbers.length;
+    }
+    
+    /**
+     * The former test of odd numbers below 2<sup>32</sup>: 4 first primes below 3215031751 and 5 ones above.
+     */
+    static boolean passesMillerSchedule( long n )
+    {
+        int p = MillerWitnesses.smallFactor( n );
+        if ( p != 0 ) return n == p;
+        if ( n < MillerWitnesses.TRIAL_LIMIT ) return n > 1L;
+        int q = n < 3215031751L ? 4 : 5;
+        long nMinusOne = n - 1;
+        int s = Long.numberOfTrailingZeros( nMinusOne );
+        long r = nMinusOne >> s;
+        long nInverse = Montgomery.inverse( n );
+        long one = Montgomery.one( n );
+        for ( int i = 0; i < q; i++ )
+        {
+            exponentiations++;
+            boolean passes = n <= Integer.MAX_VALUE ? PrimeUtils.passesMillerRabin( ( int )n, FIRST_PRIMES[ i ] ) : passesMontgomery( n, FIRST_PRIMES[ i ], r, s, nInverse, one );
+            if ( !passes ) return false;
+        }
+        return true;
+    }
+    
+    private static boolean passesMontgomery( long n, int base, long r, int s, long nInverse, long one )
+    {
+        long minusOne = n - one;
+        long remainder = Montgomery.pow( Montgomery.valueOf( base, n, one ), r, n, nInverse, one );
+        int j = 0;
+        while ( ( j > 0 || remainder != one ) && remainder != minusOne )
+        {
+            if ( j > 0 && remainder == one ) return false;
+            j++;
+            if ( j == s ) return false;
+            remainder = Montgomery.multiply( remainder, remainder, n, nInverse );
+        }
+        return true;
+    }
+}
\ No newline at end of file
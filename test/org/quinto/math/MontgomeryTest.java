@@ -0,0 +1,100 @@
+package org.quinto.math;
+
+import java.math.BigInteger;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class MontgomeryTest
+{
+    public MontgomeryTest()
+    {
+    }
+    
+    @BeforeClass
+    public static void setUpClass()
+    {
+    }
+    
+    @AfterClass
+    public static void tearDownClass()
+    {
+    }
+    
+    @Before
+    public void setUp()
+    {
+    }
+    
+    @After
+    public void tearDown()
+    {
+    }
+    
+    private static long[] getModuli()
+    {
+        long moduli[] = new long[]{ 1L, 3L, 5L, 4294967291L, 4294967311L, 9223372036854775783L, Long.MAX_VALUE, ( 1L << 62 ) + 1L, ( 1L << 62 ) - 1L };
+        return TestUtils.concat( moduli, TestUtils.getLongs() );
+    }
+    
+    @Test( timeout = 5000L )
+    public void inverseSpecial()
+    {
+        for ( long n : TestUtils.getLongs() ) if ( ( n & 1L ) == 1L ) assertEquals( Long.toString( n ), 1L, n * Montgomery.inverse( n ) );
+    }
+    
+    @Test( timeout = 5000L )
+    public void multiplySpecial()
+    {
+        for ( long n : getModuli() )
+        {
+            if ( n <= 0L || ( n & 1L ) == 0L ) continue;
+            long nInverse = Montgomery.inverse( n );
+            long rSquared = Montgomery.rSquared( n );
+            BigInteger bn = BigInteger.valueOf( n );
+            assertEquals( BigInteger.ONE.shiftLeft( 128 ).mod( bn ).longValue(), rSquared );
+            assertEquals( BigInteger.ONE.shiftLeft( 64 ).mod( bn ).longValue(), Montgomery.one( n ) );
+            for ( long a : getModuli() )
+            {
+                a = Math.floorMod( a, n );
+                long am = Montgomery.toMontgomery( a, n, nInverse, rSquared );
+                assertEquals( a, Montgomery.fromMontgomery( am, n, nInverse ) );
+                if ( a <= Integer.MAX_VALUE ) assertEquals( am, Montgomery.valueOf( ( int )a, n, Montgomery.one( n ) ) );
+                for ( long b : TestUtils.getLongs() )
+                {
+                    b = Math.floorMod( b, n );
+                    long bm = Montgomery.toMontgomery( b, n, nInverse, rSquared );
+                    long expected = BigInteger.valueOf( a ).multiply( BigInteger.valueOf( b ) ).mod( bn ).longValue();
+                    assertEquals( a + " * " + b + " mod " + n, expected, Montgomery.fromMontgomery( Montgomery.multiply( am, bm, n, nInverse ), n, nInverse ) );
+                }
+            }
+        }
+    }
+    
+    @Test( timeout = 5000L )
+    public void powSpecial()
+    {
+        for ( long n : getModuli() )
+        {
+            if ( n <= 0L || ( n & 1L ) == 0L ) continue;
+            long nInverse = Montgomery.inverse( n );
+            long rSquared = Montgomery.rSquared( n );
+            long one = Montgomery.one( n );
+            BigInteger bn = BigInteger.valueOf( n );
+            for ( long a : getModuli() )
+            {
+                a = Math.floorMod( a, n );
+                long am = Montgomery.toMontgomery( a, n, nInverse, rSquared );
+                for ( long e : TestUtils.getLongs() )
+                {
+                    if ( e < 0L ) continue;
+                    long expected = BigInteger.valueOf( a ).modPow( BigInteger.valueOf( e ), bn ).longValue();
+                    assertEquals( a + " ^ " + e + " mod " + n, expected, Montgomery.fromMontgomery( Montgomery.pow( am, e, n, nInverse, one ), n, nInverse ) );
+                }
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,68 @@
+package org.quinto.math;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Speedup of {@link ParallelPrimeSieve} against the sequential {@link PrimesIterable#getLongMax(long)} for pools of 1 .. N workers.
+ * It's not a unit test, run it by {@code main}. The first argument is an upper bound of primes, 10<sup>9</sup> by default,
+ * the second one is the greatest parallelism, a quantity of available processors by default.
+ */
+public class ParallelPrimeSieveBenchmark
+{
+    private static final int ROUNDS = 3;
+    
+    public static void main( String args[] )
+    {
+        long to = args.length > 0 ? Long.parseLong( args[ 0 ] ) : 1000000000L;
+        int maxParallelism = args.length > 1 ? Integer.parseInt( args[ 1 ] ) : Runtime.getRuntime().availableProcessors();
+        long expected = 0L;
+        long sequential = Long.MAX_VALUE;
+        for ( int round = 0; round < ROUNDS; round++ )
+        {
+            long time = System.nanoTime();
+            long sum = 0L;
+            for ( long p : PrimesIterable.getLongMax( to ) ) sum += p;
+            sequential = Math.min( sequential, System.nanoTime() - time );
+            expected = sum;
+        }
+        System.out.printf( "Primes up to %d: getLongMax %8.1f ms%n", to, sequential / 1e6 );
+        for ( int parallelism = 1; parallelism <= maxParallelism; parallelism++ )
+        {
+            ForkJoinPool pool = new ForkJoinPool( parallelism );
+            try
+            {
+                long chunks = Long.MAX_VALUE;
+                long array = Long.MAX_VALUE;
+                long stream = Long.MAX_VALUE;
+                for ( int round = 0; round < ROUNDS; round++ )
+                {
+                    long time = System.nanoTime();
+                    long sum[] = new long[ 1 ];
+                    ParallelPrimeSieve.forEachChunk( 0L, to, pool, primes ->
+                    {
+                        for ( long p : primes ) sum[ 0 ] += p;
+                    } );
+                    chunks = Math.min( chunks, System.nanoTime() - time );
+                    if ( sum[ 0 ] != expected ) throw new AssertionError( "forEachChunk" );
+                    time = System.nanoTime();
+                    long primes[] = ParallelPrimeSieve.toArray( 0L, to, pool );
+                    array = Math.min( array, System.nanoTime() - time );
+                    sum[ 0 ] = 0L;
+                    for ( long p : primes ) sum[ 0 ] += p;
+                    if ( sum[ 0 ] != expected ) throw new AssertionError( "toArray" );
+                    primes = null;
+                    time = System.nanoTime();
+                    long streamSum = ParallelPrimeSieve.stream( 0L, to, pool ).sum();
+                    stream = Math.min( stream, System.nanoTime() - time );
+                    if ( streamSum != expected ) throw new AssertionError( "stream" );
+                }
+                System.out.printf( "%2d workers: forEachChunk %8.1f ms (%4.1fx), toArray %8.1f ms (%4.1fx), stream %8.1f ms (%4.1fx)%n", parallelism,
+                        chunks / 1e6, ( double )sequential / chunks, array / 1e6, ( double )sequential / array, stream / 1e6, ( double )sequential / stream );
+            }
+            finally
+            {
+                pool.shutdown();
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,100 @@
+package org.quinto.math;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.quinto.math.PrimesIterable.longStream;
+
+public class ParallelPrimeSieveTest
+{
+    public ParallelPrimeSieveTest()
+    {
+    }
+    
+    @BeforeClass
+    public static void setUpClass()
+    {
+    }
+    
+    @AfterClass
+    public static void tearDownClass()
+    {
+    }
+    
+    @Before
+    public void setUp()
+    {
+    }
+    
+    @After
+    public void tearDown()
+    {
+    }
+    
+    @Test( timeout = 5000L )
+    public void toArrayCasual()
+    {
+        assertArrayEquals( new long[]{ 2L, 3L, 5L, 7L }, ParallelPrimeSieve.toArray( 0L, 10L ) );
+        assertArrayEquals( new long[]{ 3L, 5L, 7L }, ParallelPrimeSieve.toArray( 3L, 7L ) );
+        assertArrayEquals( new long[ 0 ], ParallelPrimeSieve.toArray( 24L, 28L ) );
+        assertArrayEquals( new long[ 0 ], ParallelPrimeSieve.toArray( 10L, 3L ) );
+        assertArrayEquals( new long[ 0 ], ParallelPrimeSieve.toArray( Long.MIN_VALUE, 1L ) );
+        assertArrayEquals( new long[]{ PrimesIterable.LAST_LONG_PRIME }, ParallelPrimeSieve.toArray( PrimesIterable.LAST_LONG_PRIME - 100L, Long.MAX_VALUE ) );
+    }
+    
+    @Test( timeout = 30000L )
+    public void toArrayRange()
+    {
+        ForkJoinPool pool = new ForkJoinPool( 4 );
+        try
+        {
+            long to = ParallelPrimeSieve.MAX_CHUNK_LENGTH * 3L + 12345L;
+            assertArrayEquals( longStream( to ).toArray(), ParallelPrimeSieve.toArray( 0L, to, pool ) );
+            long from = 1000000000000L;
+            assertArrayEquals( longStream( from, from + 10000000L ).toArray(), ParallelPrimeSieve.toArray( from, from + 10000000L, pool ) );
+            from = PrimeSieve.MAX_SIEVING_LIMIT - 100000L;
+            assertArrayEquals( longStream( from, from + 200000L ).toArray(), ParallelPrimeSieve.toArray( from, from + 200000L, pool ) );
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+    
+    @Test( timeout = 30000L )
+    public void forEachChunkOrdered()
+    {
+        List< long[] > chunks = new ArrayList<>();
+        ParallelPrimeSieve.forEachChunk( 5L, 100000000L, chunks::add );
+        assertTrue( chunks.size() > 1 );
+        long prev = 0L;
+        long count = 0L;
+        for ( long primes[] : chunks )
+        {
+            assertTrue( primes.length > 0 );
+            for ( long p : primes )
+            {
+                assertTrue( p > prev );
+                prev = p;
+            }
+            count += primes.length;
+        }
+        // There are 5761455 primes below 10^8, two of them are less than 5.
+        assertEquals( 5761453L, count );
+    }
+    
+    @Test( timeout = 30000L )
+    public void streamCasual()
+    {
+        assertArrayEquals( new long[]{ 2L, 3L, 5L, 7L, 11L }, ParallelPrimeSieve.stream( 0L, Long.MAX_VALUE ).limit( 5L ).toArray() );
+        assertEquals( 5761455L, ParallelPrimeSieve.stream( 0L, 100000000L ).count() );
+        assertEquals( 0L, ParallelPrimeSieve.stream( 14L, 16L ).count() );
+        assertArrayEquals( longStream( 1000000L, 5000000L ).toArray(), ParallelPrimeSieve.stream( 1000000L, 5000000L ).toArray() );
+    }
+}
\ No newline at end of file
@@ -0,0 +1,99 @@
+package org.quinto.math;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.quinto.math.PrimeUtils.isPrime;
+
+public class PrimeSieveTest
+{
+    public PrimeSieveTest()
+    {
+    }
+    
+    @BeforeClass
+    public static void setUpClass()
+    {
+    }
+    
+    @AfterClass
+    public static void tearDownClass()
+    {
+    }
+    
+    @Before
+    public void setUp()
+    {
+    }
+    
+    @After
+    public void tearDown()
+    {
+    }
+    
+    private static void assertSieve( long from, long to )
+    {
+        PrimeSieve sieve = new PrimeSieve( from, to );
+        long expected = Math.max( from, 0L );
+        while ( expected <= to && !isPrime( expected ) ) expected++;
+        for ( long p = sieve.next(); p != 0L; p = sieve.next() )
+        {
+            assertEquals( "From " + from + " to " + to, expected, p );
+            expected++;
+            while ( expected <= to && !isPrime( expected ) ) expected++;
+        }
+        assertTrue( "From " + from + " to " + to, expected > to );
+        assertEquals( 0L, sieve.next() );
+    }
+    
+    @Test( timeout = 5000L )
+    public void nextCasual()
+    {
+        PrimeSieve sieve = new PrimeSieve( 0L, 30L );
+        for ( long p : new long[]{ 2L, 3L, 5L, 7L, 11L, 13L, 17L, 19L, 23L, 29L } ) assertEquals( p, sieve.next() );
+        assertEquals( 0L, sieve.next() );
+        sieve = new PrimeSieve( -10L, 2L );
+        assertEquals( 2L, sieve.next() );
+        assertEquals( 0L, sieve.next() );
+        assertEquals( 0L, new PrimeSieve( 0L, 1L ).next() );
+        assertEquals( 0L, new PrimeSieve( 24L, 28L ).next() );
+        assertEquals( 0L, new PrimeSieve( 10L, 5L ).next() );
+        assertEquals( 0L, new PrimeSieve( -10L, -5L ).next() );
+    }
+    
+    @Test( timeout = 10000L )
+    public void nextRange()
+    {
+        for ( long from = 0L; from < 100L; from++ ) for ( long to = from; to < from + 100L; to += 7L ) assertSieve( from, to );
+        // Segment boundaries.
+        assertSieve( 0L, 30L * PrimeSieve.SEGMENT_BYTES * 4L + 1000L );
+        assertSieve( 30L * PrimeSieve.SEGMENT_BYTES - 1000L, 30L * PrimeSieve.SEGMENT_BYTES + 1000L );
+        assertSieve( 1000000007L, 1000000007L + 100000L );
+    }
+    
+    @Test( timeout = 10000L )
+    public void nextFallback()
+    {
+        assertSieve( PrimeSieve.MAX_SIEVING_LIMIT - 10000L, PrimeSieve.MAX_SIEVING_LIMIT + 10000L );
+        assertSieve( PrimesIterable.LAST_LONG_PRIME - 1000L, Long.MAX_VALUE - 1L );
+        PrimeSieve sieve = new PrimeSieve( PrimesIterable.LAST_LONG_PRIME, Long.MAX_VALUE );
+        assertEquals( PrimesIterable.LAST_LONG_PRIME, sieve.next() );
+        assertEquals( 0L, sieve.next() );
+    }
+    
+    @Test( timeout = 10000L )
+    public void count()
+    {
+        // https://oeis.org/A006880
+        PrimeSieve sieve = new PrimeSieve( 0L, 10000000L );
+        int count = 0;
+        while ( sieve.next() != 0L ) count++;
+        assertEquals( 664579, count );
+        sieve = new PrimeSieve( 10000000L, 100000000L );
+        while ( sieve.next() != 0L ) count++;
+        assertEquals( 5761455, count );
+    }
+}
\ No newline at end of file
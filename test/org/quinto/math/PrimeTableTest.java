@@ -0,0 +1,154 @@
+package org.quinto.math;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PrimeTableTest
+{
+    public PrimeTableTest()
+    {
+    }
+    
+    @BeforeClass
+    public static void setUpClass()
+    {
+    }
+    
+    @AfterClass
+    public static void tearDownClass()
+    {
+    }
+    
+    @Before
+    public void setUp()
+    {
+    }
+    
+    @After
+    public void tearDown()
+    {
+        PrimeTable.setDefault( null );
+    }
+    
+    @Test( timeout = 10000L )
+    public void isPrimeRange() throws IOException
+    {
+        Path path = Files.createTempFile( "primes", ".bin" );
+        try
+        {
+            for ( long limit : new long[]{ 0L, 29L, 30L, 1000L, 3000000L } )
+            {
+                PrimeTable table = PrimeTable.create( path, limit );
+                assertEquals( ( limit / 30L + 1L ) * 30L - 1L, table.getLimit() );
+                for ( long n = -table.getLimit(); n <= table.getLimit(); n++ ) assertEquals( Long.toString( n ), PrimeUtils.passesMiller( n ), table.isPrime( n ) );
+                assertFalse( table.contains( table.getLimit() + 1L ) );
+                assertFalse( table.contains( -table.getLimit() - 1L ) );
+                assertFalse( table.contains( Long.MIN_VALUE ) );
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists( path );
+        }
+    }
+    
+    @Test( timeout = 10000L )
+    public void openCasual() throws IOException
+    {
+        Path path = Files.createTempFile( "primes", ".bin" );
+        try
+        {
+            PrimeTable.create( path, 100000L );
+            PrimeTable table = PrimeTable.open( path );
+            assertEquals( 100019L, table.getLimit() );
+            assertTrue( table.isPrime( 99991L ) );
+            assertFalse( table.isPrime( 99993L ) );
+        }
+        finally
+        {
+            Files.deleteIfExists( path );
+        }
+    }
+    
+    @Test( timeout = 10000L )
+    public void defaultTable() throws IOException
+    {
+        Path path = Files.createTempFile( "primes", ".bin" );
+        try
+        {
+            PrimeTable.setDefault( PrimeTable.create( path, 30L * PrimeSieve.SEGMENT_BYTES * 3L ) );
+            for ( long n = -1000L; n <= 1000L; n++ ) assertEquals( Long.toString( n ), PrimeUtils.passesMiller( n ), PrimeUtils.isPrime( n ) );
+            // Segments inside and outside of the table.
+            long from = 30L * PrimeSieve.SEGMENT_BYTES * 3L - 100000L;
+            long to = from + 30L * PrimeSieve.SEGMENT_BYTES * 2L;
+            PrimeSieve sieve = new PrimeSieve( from, to );
+            long expected = from;
+            for ( long p = sieve.next(); p != 0L; p = sieve.next() )
+            {
+                while ( !PrimeUtils.passesMiller( expected ) ) expected++;
+                assertEquals( expected, p );
+                expected++;
+            }
+            while ( expected <= to && !PrimeUtils.passesMiller( expected ) ) expected++;
+            assertTrue( expected > to );
+            int count = 0;
+            for ( long p : PrimesIterable.getLongMax( 10000000L ) ) count++;
+            // https://oeis.org/A006880
+            assertEquals( 664579, count );
+        }
+        finally
+        {
+            PrimeTable.setDefault( null );
+            Files.deleteIfExists( path );
+        }
+    }
+    
+    @Test( timeout = 5000L )
+    public void errors() throws IOException
+    {
+        Path path = Files.createTempFile( "primes", ".bin" );
+        try
+        {
+            for ( long limit : new long[]{ -1L, PrimeTable.MAX_LIMIT + 1L, Long.MIN_VALUE, Long.MAX_VALUE } )
+            {
+                try
+                {
+                    PrimeTable.create( path, limit );
+                    fail( "Limit " + limit );
+                }
+                catch ( IllegalArgumentException e )
+                {
+                }
+            }
+            PrimeTable table = PrimeTable.create( path, 100L );
+            try
+            {
+                table.isPrime( 120L );
+                fail( "Out of range" );
+            }
+            catch ( IllegalArgumentException e )
+            {
+            }
+            Files.write( path, new byte[]{ 1, 2, 3 } );
+            try
+            {
+                PrimeTable.open( path );
+                fail( "Not a table" );
+            }
+            catch ( IOException e )
+            {
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists( path );
+        }
+    }
+}
\ No newline at end of file
@@ -1,13 +1,30 @@
 package org.quinto.math;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.management.ManagementFactory;
 import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
 import java.util.LinkedHashSet;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 import org.junit.After;
 import org.junit.AfterClass;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import com.sun.management.ThreadMXBean;
 import static org.junit.Assert.*;
 import static org.quinto.math.PrimeUtils.*;
 import static org.quinto.math.TestUtils.bi;
@@ -151,6 +168,121 @@ public class PrimeUtilsTest
         }
     }
     
+    @Test( timeout = 20000L )
+    public void isPrimeBatch()
+    {
+        Random random = new Random( 1L );
+        long longs[] = new long[ 100000 ];
+        int ints[] = new int[ longs.length ];
+        long special[] = TestUtils.getLongs();
+        for ( int i = 0; i < longs.length; i++ )
+        {
+            switch ( i % 4 )
+            {
+                case 0:
+                    longs[ i ] = special[ i / 4 % special.length ];
+                    break;
+                case 1:
+                    longs[ i ] = random.nextInt();
+                    break;
+                case 2:
+                    longs[ i ] = random.nextLong() >> random.nextInt( 64 );
+                    break;
+                default:
+                    longs[ i ] = i < longs.length / 2 ? random.nextInt( 1 << 20 ) : ( random.nextLong() >>> 2 ) | 1L;
+            }
+            ints[ i ] = ( int )longs[ i ];
+        }
+        for ( int length : new int[]{ 0, 1, 63, 64, 1000, longs.length } )
+        {
+            long values[] = Arrays.copyOf( longs, length );
+            int intValues[] = Arrays.copyOf( ints, length );
+            for ( ForkJoinPool pool : new ForkJoinPool[]{ null, ForkJoinPool.commonPool() } )
+            {
+                BitSet out = new BitSet();
+                // Bits beyond the array are kept, bits inside it are overwritten.
+                out.set( 0, length + 10 );
+                isPrime( values, out, pool );
+                for ( int i = 0; i < length; i++ ) if ( out.get( i ) != isPrime( values[ i ] ) ) fail( Long.toString( values[ i ] ) );
+                assertEquals( length + 10, out.length() );
+                assertEquals( 10, out.get( length, length + 10 ).cardinality() );
+                out.clear();
+                isPrime( intValues, out, pool );
+                for ( int i = 0; i < length; i++ ) if ( out.get( i ) != isPrime( intValues[ i ] ) ) fail( Integer.toString( intValues[ i ] ) );
+            }
+        }
+        BitSet out = new BitSet();
+        isPrime( new long[]{ 2L, -3L, 4L, Long.MIN_VALUE, Long.MAX_VALUE, PrimesIterable.LAST_LONG_PRIME, -PrimesIterable.LAST_LONG_PRIME, 4294967291L }, out );
+        assertEquals( "{0, 1, 5, 6, 7}", out.toString() );
+        out.clear();
+        isPrime( new int[]{ 0, 1, Integer.MIN_VALUE, Integer.MAX_VALUE, -Integer.MAX_VALUE, 2147483629 }, out );
+        assertEquals( "{3, 4, 5}", out.toString() );
+    }
+    
+    @Test( timeout = 10000L )
+    public void isPrimeAllocationFree()
+    {
+        ThreadMXBean bean = ( ThreadMXBean )ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue( bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled() );
+        long numbers[] = { 7L, 1000003L, DEFAULT_TABLE_LIMIT + 43L, 2147483647L, 4294967291L, 4294967297L, 1000000000000037L, PrimesIterable.LAST_LONG_PRIME, Long.MAX_VALUE };
+        boolean expected[] = new boolean[ numbers.length ];
+        for ( int i = 0; i < numbers.length; i++ ) expected[ i ] = bi( numbers[ i ] ).isProbablePrime( 100 );
+        long threadId = Thread.currentThread().getId();
+        for ( int round = 0; round < 3; round++ )
+        {
+            // The first rounds warm up the JIT compiler.
+            long allocated = bean.getThreadAllocatedBytes( threadId );
+            for ( int i = 0; i < 200000; i++ ) if ( isPrime( numbers[ i % numbers.length ] ) != expected[ i % numbers.length ] ) fail( Long.toString( numbers[ i % numbers.length ] ) );
+            allocated = bean.getThreadAllocatedBytes( threadId ) - allocated;
+            if ( round == 2 ) assertTrue( allocated + " bytes", allocated < 4096L );
+        }
+    }
+    
+    @Test( timeout = 10000L )
+    public void passesMillerHashedSpecial()
+    {
+        // Strong pseudoprimes to base 2: https://oeis.org/A001262
+        for ( long n : new long[]{ 2047L, 3277L, 4033L, 4681L, 8321L, 15841L, 29341L, 42799L, 49141L, 52633L, 65281L, 74665L, 80581L, 85489L, 88357L, 90751L, 4294901761L } ) assertFalse( passesMiller( n ) );
+        // Strong pseudoprimes to several first prime bases: https://oeis.org/A014233
+        for ( long n : new long[]{ 1373653L, 25326001L, 3215031751L, 2152302898747L, 3474749660383L, 341550071728321L, 3825123056546413051L } ) assertFalse( passesMiller( n ) );
+        // Divisors of hashed witnesses.
+        for ( long n : new long[]{ 3187L, 3313L, 8669L, 10177L, 10559L } ) assertTrue( passesMiller( n ) );
+        assertFalse( passesMiller( 37391L ) );
+        for ( long from : new long[]{ 0L, Integer.MAX_VALUE - 1000000L, MillerWitnesses.HASHED_LIMIT - 1000000L } )
+        {
+            long to = from + 2000000L;
+            PrimeSieve sieve = new PrimeSieve( from, to );
+            long expected = from;
+            for ( long p = sieve.next(); p != 0L; p = sieve.next() )
+            {
+                for ( ; expected < p; expected++ ) assertFalse( Long.toString( expected ), passesMiller( expected ) );
+                assertTrue( Long.toString( p ), passesMiller( p ) );
+                expected = p + 1L;
+            }
+            for ( ; expected <= to; expected++ ) assertFalse( Long.toString( expected ), passesMiller( expected ) );
+        }
+    }
+    
+    @Test( timeout = 1800000L )
+    public void passesMillerHashedExhaustive()
+    {
+        // Every number that is tested with a single hashed witness.
+        long limit = MillerWitnesses.HASHED_LIMIT - 1L;
+        PrimeSieve sieve = new PrimeSieve( 0L, limit );
+        long expected = 0L;
+        int count = 0;
+        for ( long p = sieve.next(); p != 0L; p = sieve.next() )
+        {
+            for ( ; expected < p; expected++ ) if ( passesMiller( expected ) ) fail( Long.toString( expected ) );
+            if ( !passesMiller( p ) ) fail( Long.toString( p ) );
+            expected = p + 1L;
+            count++;
+        }
+        for ( ; expected <= limit; expected++ ) if ( passesMiller( expected ) ) fail( Long.toString( expected ) );
+        // https://oeis.org/A007053
+        assertEquals( 203280221, count );
+    }
+    
     @Test( timeout = 180000L )
     public void isPrimeBigIntegerSpecial()
     {
@@ -198,6 +330,427 @@ public class PrimeUtilsTest
         }
     }
     
+    @Test( timeout = 10000L )
+    public void passesLucasPseudoprimeStrong()
+    {
+        // https://oeis.org/A217255
+        int strong[] = new int[]{ 5459, 5777, 10877, 16109, 18971, 22499, 24569, 25199, 40309, 58519, 75077, 97439, 100127, 113573, 115639, 130139 };
+        for ( int i : strong ) assertTrue( passesLucasPseudoprime( bi( i ) ) );
+        // Lucas pseudoprimes which are not strong, https://oeis.org/A217120
+        int weak[] = new int[]{ 323, 377, 1159, 1829, 3827, 9071, 9179, 11419, 11663, 13919, 14839, 16211, 18407, 19043 };
+        for ( int i : weak ) assertFalse( passesLucasPseudoprime( bi( i ) ) );
+        int count = 0;
+        for ( int i = 3; i < 140000; i += 2 )
+        {
+            if ( MathUtils.isPerfectSquare( i ) ) continue;
+            boolean passes = passesLucasPseudoprime( bi( i ) );
+            if ( isPrime( i ) ) assertTrue( passes );
+            else if ( passes ) count++;
+        }
+        assertEquals( strong.length, count );
+        Random random = new Random( 1L );
+        for ( int bitLength : new int[]{ 1024, 2048 } )
+        {
+            BigInteger p = BigInteger.probablePrime( bitLength, random );
+            BigInteger q = BigInteger.probablePrime( bitLength, random );
+            assertTrue( passesLucasPseudoprime( p ) );
+            assertFalse( passesLucasPseudoprime( p.multiply( q ) ) );
+        }
+    }
+    
+    @Test( timeout = 30000L )
+    public void passesLucasLehmerExponents()
+    {
+        // https://oeis.org/A000043
+        Set< Integer > exponents = new LinkedHashSet<>( Arrays.asList( 2, 3, 5, 7, 13, 17, 19, 31, 61, 89, 107, 127, 521, 607, 1279, 2203, 2281 ) );
+        for ( int p = 1; p < 2500; p++ )
+        {
+            BigInteger m = BigInteger.ONE.shiftLeft( p ).subtract( BigInteger.ONE );
+            assertEquals( Integer.toString( p ), exponents.contains( p ), passesLucasLehmer( m ) );
+            if ( p > 2 && isPrime( p ) ) assertEquals( exponents.contains( p ), LucasLehmer.test( p ) );
+        }
+        BigInteger m = BigInteger.ONE.shiftLeft( 4423 ).subtract( BigInteger.ONE );
+        assertTrue( isMersennePrime( m ) );
+        assertFalse( isMersennePrime( m.shiftLeft( 2 ).add( BigUtils.BI_THREE ) ) );
+        // Residues of composite numbers: the sequence 4, 14, 194, ... modulo 2^11 - 1.
+        BigInteger m11 = BigInteger.valueOf( 2047L );
+        assertEquals( BigInteger.valueOf( 14L ), LucasLehmer.run( LucasLehmer.START, 11, m11, 1 ) );
+        assertEquals( BigInteger.valueOf( 194L ), LucasLehmer.run( LucasLehmer.START, 11, m11, 2 ) );
+        assertEquals( BigInteger.valueOf( 194L * 194L - 2L ).mod( m11 ), LucasLehmer.run( LucasLehmer.START, 11, m11, 3 ) );
+        assertEquals( BigInteger.valueOf( 1736L ), LucasLehmer.run( LucasLehmer.START, 11, m11, 9 ) );
+    }
+    
+    @Test( timeout = 60000L )
+    public void searchMersennePrimes() throws Exception
+    {
+        assertArrayEquals( new int[]{ 2, 3, 5, 7, 13, 17, 19, 31, 61, 89, 107, 127, 521, 607, 1279, 2203, 2281 }, PrimeUtils.searchMersennePrimes( -10, 2300 ) );
+        assertArrayEquals( new int[ 0 ], PrimeUtils.searchMersennePrimes( 2282, 3000 ) );
+        assertArrayEquals( new int[ 0 ], PrimeUtils.searchMersennePrimes( 10, 5 ) );
+        assertEquals( 23L, MersenneSearch.findFactor( 11 ) );
+        assertEquals( 233L, MersenneSearch.findFactor( 29 ) );
+        for ( int p = 3; p < 3000; p += 2 )
+        {
+            if ( !isPrime( p ) ) continue;
+            long q = MersenneSearch.findFactor( p );
+            BigInteger m = BigInteger.ONE.shiftLeft( p ).subtract( BigInteger.ONE );
+            if ( q == 0L ) continue;
+            assertEquals( 1L, q % ( 2L * p ) );
+            assertEquals( BigInteger.ZERO, m.mod( BigInteger.valueOf( q ) ) );
+            assertFalse( m.equals( BigInteger.valueOf( q ) ) );
+        }
+        Path directory = Files.createTempDirectory( "mersenne" );
+        ForkJoinPool pool = new ForkJoinPool( 2 );
+        try
+        {
+            Path checkpoints = directory.resolve( "checkpoints" );
+            MersenneSearch search = new MersenneSearch( 9689, 9689, checkpoints, 0L, pool );
+            Path file = checkpoints.resolve( "M9689.ll" );
+            while ( !Files.exists( file ) && !search.isDone() ) Thread.sleep( 1L );
+            if ( search.cancel( false ) )
+            {
+                assertTrue( search.isCancelled() );
+                try
+                {
+                    search.join();
+                    fail();
+                }
+                catch ( CancellationException e )
+                {
+                }
+            }
+            assertTrue( Files.exists( file ) );
+            // Resumed from the checkpoint.
+            search = new MersenneSearch( 9680, 9700, checkpoints, 0L, pool );
+            assertArrayEquals( new int[]{ 9689 }, search.join() );
+            assertEquals( 1.0, search.getProgress(), 0.0 );
+            assertArrayEquals( new int[]{ 9697, 9689 }, search.getExponents() );
+            // A finished test isn't repeated.
+            assertArrayEquals( new int[]{ 9689 }, PrimeUtils.searchMersennePrimes( 9689, 9689, checkpoints, pool ).join() );
+            // A corrupted checkpoint is ignored.
+            Files.write( checkpoints.resolve( "M4253.ll" ), new byte[]{ 1, 2, 3 } );
+            assertArrayEquals( new int[]{ 4253 }, new MersenneSearch( 4253, 4253, checkpoints, 0L, pool ).join() );
+        }
+        finally
+        {
+            pool.shutdownNow();
+            try ( Stream< Path > paths = Files.walk( directory ) )
+            {
+                paths.sorted( Comparator.reverseOrder() ).forEach( path -> path.toFile().delete() );
+            }
+        }
+    }
+    
+    @Test( timeout = 60000L )
+    public void passesMillerParallel()
+    {
+        ForkJoinPool pool = new ForkJoinPool( 4 );
+        try
+        {
+            BigInteger m89 = BigInteger.ONE.shiftLeft( 89 ).subtract( BigInteger.ONE );
+            BigInteger m127 = BigInteger.ONE.shiftLeft( 127 ).subtract( BigInteger.ONE );
+            BigInteger p64 = BigInteger.valueOf( PrimesIterable.LAST_LONG_PRIME );
+            for ( BigInteger bi : new BigInteger[]{ BigInteger.ZERO, BigInteger.ONE, BigUtils.BI_TWO, bi( 97 ), bi( -4 ), p64, m89, m127, m89.negate(), m89.multiply( m127 ),
+                                                    m89.multiply( BigInteger.valueOf( 3L ) ), m127.shiftLeft( 1 ), p64.multiply( p64 ), BigInteger.ONE.shiftLeft( 107 ).add( BigInteger.ONE ) } )
+            {
+                MillerTest test = passesMillerAsync( bi, pool );
+                assertEquals( bi.toString(), bi.isProbablePrime( 100 ), test.join() );
+                assertEquals( bi.isProbablePrime( 100 ), passesMiller( bi, pool ) );
+                assertTrue( test.isDone() );
+                assertFalse( test.isCancelled() );
+                if ( test.join() ) assertEquals( 1.0, test.getProgress(), 0.0 );
+            }
+            MillerTest test = passesMillerAsync( m127, pool );
+            assertTrue( test.join() );
+            assertEquals( 127L * 127L * 2L, test.getLimit() );
+            assertEquals( PrimeUtils.primePi( test.getLimit() ), test.getTestedWitnesses() );
+            // A long test is cancelled after some witnesses.
+            test = passesMillerAsync( BigInteger.ONE.shiftLeft( 4423 ).subtract( BigInteger.ONE ), pool );
+            while ( test.getTestedWitnesses() < 8L ) Thread.sleep( 1L );
+            assertTrue( test.cancel( true ) );
+            assertTrue( test.isCancelled() );
+            assertTrue( test.isDone() );
+            assertFalse( test.cancel( true ) );
+            assertTrue( test.getProgress() < 1.0 );
+            pool.shutdown();
+            assertTrue( pool.awaitTermination( 10L, TimeUnit.SECONDS ) );
+            try
+            {
+                test.join();
+                fail( "Cancelled" );
+            }
+            catch ( CancellationException e )
+            {
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            throw new AssertionError( e );
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+    }
+    
+    @Test( timeout = 30000L )
+    public void passesTrialDivisionBigInteger()
+    {
+        Random random = new Random( 1L );
+        for ( int i = 0; i < 400; i++ )
+        {
+            BigInteger p = BigInteger.valueOf( PrimesIterable.getNext( random.nextInt( i < 200 ? 5000 : 1 << 20 ) ) );
+            BigInteger q = BigInteger.probablePrime( 64 + random.nextInt( 200 ), random );
+            BigInteger n = p.multiply( q );
+            assertFalse( n.toString(), isPrime( n ) );
+            assertEquals( p.longValue() > 2L ? p.longValue() : 0L, TrialDivision.smallestFactor( n, 1L << 20 ) );
+            assertEquals( p.longValue() <= TrialDivision.PREFILTER_LIMIT && p.longValue() > 2L ? p.intValue() : 0, TrialDivision.smallFactor( n ) );
+            if ( i % 10 == 0 ) assertEquals( 0L, TrialDivision.smallestFactor( q, 1L << 20 ) );
+            assertEquals( 0L, TrialDivision.smallestFactor( n, p.longValue() - 1L ) );
+        }
+        BigInteger p = BigInteger.ONE.shiftLeft( 26 ).nextProbablePrime();
+        BigInteger q = BigInteger.ONE.shiftLeft( 40 ).nextProbablePrime();
+        BigInteger r = BigInteger.ONE.shiftLeft( 63 ).nextProbablePrime();
+        assertFalse( passesTrialDivision( p.multiply( q ) ) );
+        assertFalse( passesTrialDivision( p.multiply( r ).negate() ) );
+        assertFalse( passesTrialDivision( q.multiply( r ).shiftLeft( 1 ) ) );
+        assertEquals( p.longValue(), TrialDivision.smallestFactor( p.multiply( r ).multiply( r ), p.longValue() ) );
+        assertEquals( 0L, TrialDivision.smallestFactor( r.multiply( r ), 1L << 26 ) );
+    }
+    
+    @Test( timeout = 60000L )
+    public void certifyPrimeRoundTrip() throws Exception
+    {
+        assertArrayEquals( new BigInteger[]{ bi( 12771880859375L ), bi( -5151296875L ), bi( 3491750 ) }, ClassPolynomial.get( -23 ) );
+        assertNull( certifyPrime( bi( 1 ) ) );
+        assertNull( certifyPrime( bi( 561 ) ) );
+        assertEquals( 0, certifyPrime( bi( -PrimesIterable.LAST_LONG_PRIME ) ).getLength() );
+        Random random = new Random( 1L );
+        for ( int bits : new int[]{ 64, 65, 100, 128, 160, 200, 256 } )
+        {
+            BigInteger p = BigInteger.probablePrime( bits, random );
+            assertNull( certifyPrime( p.multiply( BigInteger.probablePrime( bits, random ) ) ) );
+            PrimeCertificate certificate = certifyPrime( p.negate() );
+            assertEquals( p, certificate.getNumber() );
+            assertTrue( certificate.getLength() > 0 );
+            assertTrue( certificate.verify() );
+            String text = certificate.toString();
+            assertTrue( PrimeCertificate.valueOf( text ).verify() );
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try ( ObjectOutputStream out = new ObjectOutputStream( bytes ) )
+            {
+                out.writeObject( certificate );
+            }
+            try ( ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ) )
+            {
+                assertTrue( ( ( PrimeCertificate )in.readObject() ).verify() );
+            }
+            // Any changed number breaks the certificate.
+            String tokens[] = text.split( " " );
+            for ( int i = 1; i < tokens.length; i++ )
+            {
+                if ( !tokens[ i ].matches( "\\d+" ) ) continue;
+                String changed[] = tokens.clone();
+                changed[ i ] = new BigInteger( tokens[ i ] ).add( BigUtils.BI_TWO ).toString();
+                assertFalse( text, PrimeCertificate.valueOf( String.join( " ", changed ) ).verify() );
+            }
+            assertFalse( PrimeCertificate.valueOf( p.add( BigUtils.BI_TWO ) + text.substring( text.indexOf( '\n' ) ) ).verify() );
+        }
+        try
+        {
+            PrimeCertificate.valueOf( "101\nX 1 2" );
+            fail();
+        }
+        catch ( NumberFormatException e )
+        {
+        }
+    }
+    
+    @Test( timeout = 20000L )
+    public void factorCasual()
+    {
+        assertEquals( "2^3 * 3 * 7", factor( 168L ).toString() );
+        assertEquals( "-5^2", factor( -25L ).toString() );
+        assertEquals( "1", factor( 1L ).toString() );
+        assertEquals( "-1", factor( -1L ).toString() );
+        assertEquals( "-2^63", factor( Long.MIN_VALUE ).toString() );
+        assertEquals( "7^2 * 73 * 127 * 337 * 92737 * 649657", factor( Long.MAX_VALUE ).toString() );
+        assertEquals( "2147483647^2", factor( 4611686014132420609L ).toString() );
+        assertEquals( "3^39", factor( 4052555153018976267L ).toString() );
+        assertEquals( "2053^5", factor( 36470754403005493L ).toString() );
+        assertEquals( "3037000453 * 3037000493", factor( 9223371873002223329L ).toString() );
+        assertEquals( factor( 168L ), factor( 168L ) );
+        assertNotEquals( factor( 168L ), factor( -168L ) );
+        for ( long n = -10000L; n <= 1000000L; n++ ) if ( n != 0L ) checkFactorization( n );
+        for ( long n : TestUtils.getLongs() ) if ( n != 0L ) checkFactorization( n );
+        Random random = new Random( 1L );
+        for ( int i = 0; i < 2000; i++ ) checkFactorization( random.nextLong() >> random.nextInt( 32 ) );
+    }
+    
+    @Test( timeout = 20000L )
+    public void factorSemiprimes()
+    {
+        Random random = new Random( 1L );
+        for ( int bits = 24; bits <= 63; bits++ )
+        {
+            for ( int i = 0; i < 8; i++ )
+            {
+                long p = PrimesIterable.getNext( ( 1L << ( bits >> 1 ) - 1 ) + ( random.nextLong() >>> 65 - ( bits >> 1 ) ) );
+                long q = PrimesIterable.getPrevious( ( 1L << bits - 1 ) / p + ( random.nextLong() >>> 65 - ( bits + 1 >> 1 ) ) );
+                if ( p == q || q > Long.MAX_VALUE / p ) continue;
+                long n = p * q;
+                Factorization f = factor( n );
+                assertEquals( Long.toString( n ), 2, f.size() );
+                assertEquals( Long.toString( n ), Math.min( p, q ), f.getPrime( 0 ) );
+                assertEquals( Long.toString( n ), Math.max( p, q ), f.getPrime( 1 ) );
+                // Every fallback is checked on its own.
+                for ( long d : new long[]{ Factorizer.rho( n, 1, Long.MAX_VALUE ), Factorizer.squfof( n ), Factorizer.hart( n ) } ) if ( d != 0L ) assertTrue( n + " " + d, d == p || d == q );
+                if ( bits < 40 ) assertNotEquals( Long.toString( n ), 0L, Factorizer.hart( n ) );
+                if ( bits < 56 ) assertNotEquals( Long.toString( n ), 0L, Factorizer.squfof( n ) );
+            }
+        }
+    }
+    
+    @Test( timeout = 5000L )
+    public void factorError()
+    {
+        try
+        {
+            factor( 0L );
+            fail( "Zero has no factorization" );
+        }
+        catch ( IllegalArgumentException e )
+        {
+        }
+    }
+    
+    @Test( timeout = 60000L )
+    public void factorBigInteger()
+    {
+        assertEquals( "2^3 * 3 * 7", factor( bi( 168L ) ).toString() );
+        assertEquals( "-5^2", factor( bi( -25L ) ).toString() );
+        assertEquals( "1", factor( BigInteger.ONE ).toString() );
+        assertEquals( "-2^63", factor( BigUtils.BI_MIN_LONG ).toString() );
+        assertEquals( "2^100", factor( BigInteger.ONE.shiftLeft( 100 ) ).toString() );
+        BigInteger m61 = BigInteger.ONE.shiftLeft( 61 ).subtract( BigInteger.ONE );
+        BigInteger m89 = BigInteger.ONE.shiftLeft( 89 ).subtract( BigInteger.ONE );
+        assertEquals( "3^5 * 65537^2 * 2305843009213693951^3 * 618970019642690137449562111", factor( bi( 243L ).multiply( bi( 65537L * 65537L ) ).multiply( m61.pow( 3 ) ).multiply( m89 ) ).toString() );
+        // Perfect powers of composite numbers.
+        assertEquals( "1000003^2 * 1099511627791^2", factor( bi( 1000003L * 1099511627791L ).pow( 2 ) ).toString() );
+        assertEquals( "4294967311^3 * 4294967357^3", factor( bi( 4294967311L ).multiply( bi( 4294967357L ) ).pow( 3 ) ).toString() );
+        // Factors of 16 digits are found by ECM.
+        assertEquals( "1000000000000037 * 618970019642690137449562111", factor( bi( 1000000000000037L ).multiply( m89 ) ).toString() );
+        assertEquals( "-1000000000000037 * 2305843009213693951 * 618970019642690137449562111", factor( bi( -1000000000000037L ).multiply( m61 ).multiply( m89 ), null ).toString() );
+        assertEquals( factor( m89 ), factor( m89 ) );
+        assertNotEquals( factor( m89 ), factor( m89.negate() ) );
+        Random random = new Random( 1L );
+        ForkJoinPool pool = new ForkJoinPool( 2 );
+        try
+        {
+            for ( int i = 0; i < 40; i++ )
+            {
+                BigInteger n = BigInteger.valueOf( random.nextInt( 1 << 20 ) + 1 );
+                for ( int j = random.nextInt( 4 ); j >= 0; j-- ) n = n.multiply( BigInteger.probablePrime( 20 + random.nextInt( 30 ), random ) );
+                BigFactorization f = factor( n, i % 2 == 0 ? pool : null );
+                BigInteger product = BigInteger.ONE;
+                for ( int j = 0; j < f.size(); j++ )
+                {
+                    BigInteger p = f.getPrime( j );
+                    assertTrue( n + " = " + f, p.isProbablePrime( 50 ) && ( j == 0 || p.compareTo( f.getPrime( j - 1 ) ) > 0 ) );
+                    product = product.multiply( p.pow( f.getExponent( j ) ) );
+                }
+                assertEquals( n + " = " + f, n, product );
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+    
+    @Test( timeout = 30000L )
+    public void factorBigIntegerEllipticCurves()
+    {
+        Random random = new Random( 1L );
+        // A factor of 12 digits is found by one of the first curves of the lowest level.
+        BigInteger p = BigInteger.probablePrime( 40, random );
+        BigInteger q = BigInteger.probablePrime( 160, random );
+        EllipticCurveMethod ecm = new EllipticCurveMethod( p.multiply( q ) );
+        assertEquals( p, ecm.findFactor( 15, null ) );
+        assertTrue( Integer.toString( ecm.getCurves() ), ecm.getCurves() <= 25 );
+        // Large factors aren't found by a bounded search.
+        ecm = new EllipticCurveMethod( BigInteger.probablePrime( 100, random ).multiply( BigInteger.probablePrime( 100, random ) ) );
+        assertNull( ecm.findFactor( 15, null ) );
+        assertEquals( EllipticCurveMethod.LEVELS[ 0 ][ 2 ], ecm.getCurves() );
+        assertNull( Factorizer.getBaseOfPerfectPower( q ) );
+        assertEquals( q, Factorizer.getBaseOfPerfectPower( q.pow( 7 ) ) );
+    }
+    
+    @Test( timeout = 60000L )
+    public void factorBigIntegerQuadraticSieve()
+    {
+        for ( int p = 3; p < 2000; p += 2 )
+        {
+            if ( !isPrime( p ) ) continue;
+            for ( int a = 1; a < p; a++ )
+            {
+                if ( MathUtils.modPow( a, ( p - 1 ) >>> 1, p ) != 1 ) continue;
+                long r = QuadraticSieve.sqrt( a, p );
+                assertEquals( a + " mod " + p, a, r * r % p );
+            }
+        }
+        Random random = new Random( 1L );
+        ForkJoinPool pool = new ForkJoinPool( 2 );
+        try
+        {
+            for ( int i = 0; i < 4; i++ )
+            {
+                BigInteger p = BigInteger.probablePrime( 60 + i * 5, random );
+                BigInteger q = BigInteger.probablePrime( 70, random );
+                BigInteger d = new QuadraticSieve( p.multiply( q ) ).findFactor( i % 2 == 0 ? pool : null );
+                assertTrue( d.toString(), d.equals( p ) || d.equals( q ) );
+            }
+            // A 45-digit product of primes of the same size isn't split by ECM of the lowest level.
+            BigInteger p = BigInteger.probablePrime( 75, random );
+            BigInteger q = BigInteger.probablePrime( 75, random );
+            BigInteger min = p.min( q );
+            BigInteger max = p.max( q );
+            assertEquals( min + " * " + max, factor( p.multiply( q ), pool ).toString() );
+            assertEquals( "3^2 * " + min + "^2 * " + max + "^2", factor( p.multiply( q ).pow( 2 ).multiply( BigInteger.valueOf( 9L ) ) ).toString() );
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+    
+    @Test( timeout = 5000L )
+    public void factorBigIntegerError()
+    {
+        try
+        {
+            factor( BigInteger.ZERO );
+            fail( "Zero has no factorization" );
+        }
+        catch ( IllegalArgumentException e )
+        {
+        }
+    }
+    
+    private static void checkFactorization( long n )
+    {
+        Factorization f = factor( n );
+        assertEquals( n, f.getNumber() );
+        long product = 1L;
+        for ( int i = 0; i < f.size(); i++ )
+        {
+            long p = f.getPrime( i );
+            assertTrue( n + " = " + f, isPrime( p ) && p > 0L && ( i == 0 || p > f.getPrime( i - 1 ) ) && f.getExponent( i ) > 0 );
+            for ( int e = 0; e < f.getExponent( i ); e++ ) product *= p;
+        }
+        // Product 2^63 overflows to Long.MIN_VALUE.
+        assertEquals( n + " = " + f, n == Long.MIN_VALUE ? n : Math.abs( n ), product );
+    }
+    
     @Test( timeout = 5000L )
     public void isMersenneNumberCasual()
     {
@@ -362,4 +915,135 @@ public class PrimeUtilsTest
             }
         }
     }
+    
+    @Test( timeout = 20000L )
+    public void primePiCasual()
+    {
+        // https://oeis.org/A006880
+        long expected[] = new long[]{ 0L, 4L, 25L, 168L, 1229L, 9592L, 78498L, 664579L, 5761455L, 50847534L, 455052511L, 4118054813L };
+        long x = 1L;
+        for ( long pi : expected )
+        {
+            assertEquals( "pi( " + x + " )", pi, primePi( x ) );
+            x *= 10L;
+        }
+        assertEquals( 105097565L, primePi( Integer.MAX_VALUE ) );
+        assertEquals( 0L, primePi( -10L ) );
+        assertEquals( 0L, primePi( 1L ) );
+        assertEquals( 1L, primePi( 2L ) );
+    }
+    
+    @Test( timeout = 20000L )
+    public void primePiRange()
+    {
+        // Values around the switch from a sieve to the combinatorial algorithm.
+        long from = ( 1L << 22 ) - 1000L;
+        long pi = primePi( from );
+        PrimeSieve sieve = new PrimeSieve( from + 1L, 100000000L );
+        long p = sieve.next();
+        for ( long x = from + 1L; x < 100000000L; x += 1 + ( x >> 6 ) )
+        {
+            while ( p != 0L && p <= x )
+            {
+                pi++;
+                p = sieve.next();
+            }
+            assertEquals( "pi( " + x + " )", pi, primePi( x ) );
+        }
+    }
+    
+    @Test( timeout = 20000L )
+    public void primeSumCasual()
+    {
+        // https://oeis.org/A046731
+        String expected[] = new String[]{ "0", "17", "1060", "76127", "5736396", "454396537", "37550402023", "3203324994356", "279209790387276", "24739512092254535", "2220822432581729238" };
+        long x = 1L;
+        for ( String sum : expected )
+        {
+            assertEquals( "sum( " + x + " )", new BigInteger( sum ), primeSum( x ) );
+            x *= 10L;
+        }
+        assertEquals( BigInteger.ZERO, primeSum( -10L ) );
+        assertEquals( BigInteger.valueOf( 2L ), primeSum( 2L ) );
+        assertEquals( BigInteger.valueOf( 5L ), primeSum( 4L ) );
+    }
+    
+    @Test( timeout = 20000L )
+    public void primeSumRange()
+    {
+        BigInteger sum = BigInteger.ZERO;
+        PrimeSieve sieve = new PrimeSieve( 0L, 10000000L );
+        long p = sieve.next();
+        for ( long x = 0L; x < 10000000L; x += 1 + ( x >> 4 ) )
+        {
+            while ( p != 0L && p <= x )
+            {
+                sum = sum.add( BigInteger.valueOf( p ) );
+                p = sieve.next();
+            }
+            assertEquals( "sum( " + x + " )", sum, primeSum( x ) );
+        }
+    }
+    
+    @Test( timeout = 5000L )
+    public void primeSumError()
+    {
+        try
+        {
+            primeSum( Long.MAX_VALUE );
+            fail( "Too large x" );
+        }
+        catch ( IllegalArgumentException e )
+        {
+        }
+    }
+    
+    @Test( timeout = 20000L )
+    public void nthPrimeCasual()
+    {
+        // https://oeis.org/A006988
+        long expected[] = new long[]{ 2L, 29L, 541L, 7919L, 104729L, 1299709L, 15485863L, 179424673L, 2038074743L, 22801763489L };
+        long n = 1L;
+        for ( long p : expected )
+        {
+            assertEquals( "p( " + n + " )", p, nthPrime( n ) );
+            n *= 10L;
+        }
+        assertEquals( Integer.MAX_VALUE, nthPrime( 105097565L ) );
+        n = 1L;
+        for ( long p : new long[]{ 2L, 3L, 5L, 7L, 11L, 13L, 17L } ) assertEquals( "p( " + n + " )", p, nthPrime( n++ ) );
+    }
+    
+    @Test( timeout = 20000L )
+    public void nthPrimeRange()
+    {
+        PrimeSieve sieve = new PrimeSieve( 0L, Long.MAX_VALUE );
+        long p = sieve.next();
+        long i = 1L;
+        for ( long n = 1L; n < 6000000L; n += 1L + ( n >> 3 ) )
+        {
+            while ( i < n )
+            {
+                p = sieve.next();
+                i++;
+            }
+            assertEquals( "p( " + n + " )", p, nthPrime( n ) );
+        }
+    }
+    
+    @Test( timeout = 5000L )
+    public void nthPrimeError()
+    {
+        for ( long n : new long[]{ Long.MIN_VALUE, -1L, 0L, 216289611853439385L, Long.MAX_VALUE } )
+        {
+            try
+            {
+                nthPrime( n );
+                fail( "No prime with index " + n );
+            }
+            catch ( IllegalArgumentException e )
+            {
+            }
+        }
+    }
 }
\ No newline at end of file
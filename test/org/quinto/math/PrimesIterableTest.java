@@ -2,6 +2,13 @@ package org.quinto.math;
 
 import java.math.BigInteger;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -224,6 +231,213 @@ public class PrimesIterableTest
         }
     }
     
+    @Test( timeout = 5000L )
+    public void intIteratorCasual()
+    {
+        PrimitiveIterator.OfInt it = intIterator( 3, 10 );
+        assertTrue( it.hasNext() );
+        assertEquals( 3, it.nextInt() );
+        assertEquals( 5, it.nextInt() );
+        assertEquals( 7, it.nextInt() );
+        assertFalse( it.hasNext() );
+        assertFalse( intIterator( 0, 1 ).hasNext() );
+        assertFalse( intIterator( -5, 1 ).hasNext() );
+        assertFalse( intIterator( 14, 16 ).hasNext() );
+        assertFalse( intIterator( 10, 3 ).hasNext() );
+        it = intIterator( Integer.MAX_VALUE - 1, Integer.MAX_VALUE );
+        assertEquals( Integer.MAX_VALUE, it.nextInt() );
+        assertFalse( it.hasNext() );
+        Iterator< Integer > expected = getIntegerMax( 100000 ).iterator();
+        it = intIterator( Integer.MIN_VALUE, 100000 );
+        while ( expected.hasNext() ) assertEquals( ( int )expected.next(), it.nextInt() );
+        assertFalse( it.hasNext() );
+    }
+    
+    @Test( timeout = 5000L, expected = NoSuchElementException.class )
+    public void intIteratorError()
+    {
+        intIterator( 14, 16 ).nextInt();
+    }
+    
+    @Test( timeout = 5000L )
+    public void longIteratorCasual()
+    {
+        PrimitiveIterator.OfLong it = longIterator( 3L, 10L );
+        assertTrue( it.hasNext() );
+        assertEquals( 3L, it.nextLong() );
+        assertEquals( 5L, it.nextLong() );
+        assertEquals( 7L, it.nextLong() );
+        assertFalse( it.hasNext() );
+        assertFalse( longIterator( 0L, 1L ).hasNext() );
+        assertFalse( longIterator( -5L, 1L ).hasNext() );
+        assertFalse( longIterator( 14L, 16L ).hasNext() );
+        it = longIterator( PrimesIterable.LAST_LONG_PRIME - 1L, Long.MAX_VALUE );
+        assertEquals( PrimesIterable.LAST_LONG_PRIME, it.nextLong() );
+        assertFalse( it.hasNext() );
+        Iterator< Long > expected = getLongMax( 100000L ).iterator();
+        it = longIterator( Long.MIN_VALUE, 100000L );
+        while ( expected.hasNext() ) assertEquals( ( long )expected.next(), it.nextLong() );
+        assertFalse( it.hasNext() );
+    }
+    
+    @Test( timeout = 5000L, expected = NoSuchElementException.class )
+    public void longIteratorError()
+    {
+        longIterator( 14L, 16L ).nextLong();
+    }
+    
+    @Test( timeout = 5000L )
+    public void intStreamCasual()
+    {
+        assertArrayEquals( new int[]{ 2, 3, 5 }, intStream( 5 ).toArray() );
+        assertArrayEquals( new int[]{ 3, 5, 7 }, intStream( 3, 10 ).toArray() );
+        assertArrayEquals( new int[]{ 2, 3, 5, 7, 11 }, intStream( 0, Integer.MAX_VALUE ).limit( 5L ).toArray() );
+        assertEquals( 0L, intStream( 1 ).count() );
+        assertEquals( 0L, intStream( -5 ).count() );
+        assertEquals( 78498L, intStream( 1000000 ).count() );
+        assertArrayEquals( FIRST_PRIMES, intStream( Integer.MAX_VALUE ).limit( FIRST_PRIMES.length ).toArray() );
+    }
+    
+    @Test( timeout = 5000L )
+    public void longStreamCasual()
+    {
+        assertArrayEquals( new long[]{ 2L, 3L, 5L }, longStream( 5L ).toArray() );
+        assertArrayEquals( new long[]{ 3L, 5L, 7L }, longStream( 3L, 10L ).toArray() );
+        assertArrayEquals( new long[]{ 2L, 3L, 5L, 7L, 11L }, longStream( 0L, Long.MAX_VALUE ).limit( 5L ).toArray() );
+        assertEquals( 0L, longStream( 1L ).count() );
+        assertEquals( 0L, longStream( -5L ).count() );
+        assertEquals( 78498L, longStream( 1000000L ).count() );
+        assertEquals( 4L, longStream( 1000000000000L, 1000000000100L ).count() );
+        assertEquals( 4L, longStream( PrimesIterable.LAST_LONG_PRIME - 300L, Long.MAX_VALUE ).count() );
+    }
+    
+    @Test( timeout = 10000L )
+    public void spliteratorSplit()
+    {
+        Spliterator.OfLong right = longStream( 0L, 100000000L ).spliterator();
+        assertTrue( right.hasCharacteristics( Spliterator.SORTED | Spliterator.ORDERED | Spliterator.DISTINCT ) );
+        assertFalse( right.hasCharacteristics( Spliterator.SIZED ) );
+        Spliterator.OfLong left = right.trySplit();
+        assertNotNull( left );
+        Spliterator.OfLong leftLeft = left.trySplit();
+        assertNotNull( leftLeft );
+        long count[] = { 0L };
+        long prev[] = { 0L };
+        for ( Spliterator.OfLong s : new Spliterator.OfLong[]{ leftLeft, left, right } )
+        {
+            s.forEachRemaining( ( long p ) ->
+            {
+                assertTrue( p > prev[ 0 ] );
+                prev[ 0 ] = p;
+                count[ 0 ]++;
+            } );
+        }
+        assertEquals( 5761455L, count[ 0 ] );
+        // Small ranges and started iterations aren't split.
+        assertNull( longStream( 0L, 1000L ).spliterator().trySplit() );
+        Spliterator.OfInt it = intStream( 0, Integer.MAX_VALUE ).spliterator();
+        assertTrue( it.tryAdvance( ( int p ) -> assertEquals( 2, p ) ) );
+        assertNull( it.trySplit() );
+    }
+    
+    @Test( timeout = 10000L )
+    public void spliteratorSized()
+    {
+        Spliterator< Long > s = getLongTotally( 1000L ).spliterator();
+        assertTrue( s.hasCharacteristics( Spliterator.SIZED ) );
+        assertEquals( 1000L, s.getExactSizeIfKnown() );
+        assertNull( s.trySplit() );
+        assertEquals( 1000L, getLongTotally( 1000L ).stream().count() );
+        assertEquals( 1000L, getIntegerTotally( 1000 ).parallelStream().count() );
+        assertFalse( getLongTotally( Long.MAX_VALUE ).spliterator().hasCharacteristics( Spliterator.SIZED ) );
+        assertFalse( getIntegerTotally( Integer.MAX_VALUE ).spliterator().hasCharacteristics( Spliterator.SIZED ) );
+        PrimesIterable< Integer > primes = getIntegerTotally( 10 );
+        primes.iterator().next();
+        primes.iterator().next();
+        assertEquals( 8L, primes.spliterator().getExactSizeIfKnown() );
+        assertArrayEquals( new Integer[]{ 5, 7, 11, 13, 17, 19, 23, 29 }, primes.stream().toArray() );
+    }
+    
+    @Test( timeout = 10000L )
+    public void parallelStreamCasual()
+    {
+        assertEquals( 5761455L, longStream( 100000000L ).parallel().count() );
+        assertEquals( 5761455L, intStream( 100000000 ).parallel().count() );
+        assertEquals( longStream( 1000000L, 5000000L ).filter( p -> p % 4L == 1L ).boxed().collect( Collectors.toList() ),
+                      getLongMax( 5000000L ).parallelStream().filter( p -> p >= 1000000L && p % 4L == 1L ).collect( Collectors.toList() ) );
+        assertEquals( 4L, getBigIntegerMax( bi( 10 ) ).parallelStream().count() );
+        assertEquals( 0L, getLongMax( 1L ).parallelStream().count() );
+    }
+    
+    private static long[] toArray( PrimitiveIterator.OfLong it )
+    {
+        LongStream.Builder ret = LongStream.builder();
+        while ( it.hasNext() ) ret.add( it.nextLong() );
+        return ret.build().toArray();
+    }
+    
+    private static long[] tuplesByPrimes( int pattern[], long from, long to )
+    {
+        return longStream( from, to - pattern[ pattern.length - 1 ] ).filter( p ->
+        {
+            for ( int o : pattern ) if ( !isPrime( p + o ) ) return false;
+            return true;
+        } ).toArray();
+    }
+    
+    @Test( timeout = 20000L )
+    public void tuplesCasual()
+    {
+        assertArrayEquals( new long[]{ 3L, 5L, 11L, 17L }, toArray( twins( 20L ) ) );
+        assertArrayEquals( new long[]{ 3L, 7L, 13L, 19L, 37L, 43L }, toArray( cousins( 50L ) ) );
+        assertArrayEquals( new long[]{ 5L, 7L, 11L, 13L, 17L, 23L, 31L, 37L, 41L }, toArray( sexyPrimes( 50L ) ) );
+        assertArrayEquals( new long[]{ 5L, 7L, 11L, 13L, 17L, 37L, 41L, 67L }, toArray( triplets( 73L ) ) );
+        assertArrayEquals( new long[]{ 7L, 13L, 37L }, toArray( tuples( new int[]{ 0, 4, 6 }, 0L, 50L ) ) );
+        // Inadmissible patterns.
+        assertArrayEquals( new long[]{ 3L }, toArray( tuples( new int[]{ 0, 2, 4 }, 0L, 1000000L ) ) );
+        assertArrayEquals( new long[]{ 2L }, toArray( tuples( new int[]{ 0, 1 }, 0L, 1000000L ) ) );
+        assertArrayEquals( new long[ 0 ], toArray( twins( 4L ) ) );
+        assertArrayEquals( new long[ 0 ], toArray( twins( -5L ) ) );
+        assertArrayEquals( new long[ 0 ], toArray( tuples( new int[]{ 0, 2 }, 100L, 50L ) ) );
+        // https://oeis.org/A007508
+        assertEquals( 8169, toArray( twins( 1000000L ) ).length );
+        int patterns[][] = { { 0 }, { 0, 2 }, { 0, 4 }, { 0, 6 }, { 0, 2, 6 }, { 0, 4, 6 }, { 0, 2, 6, 8 }, { 0, 4, 6, 10, 12, 16 }, { 0, 30 }, { 0, 210, 420 } };
+        for ( int pattern[] : patterns )
+        {
+            assertArrayEquals( tuplesByPrimes( pattern, 0L, 2000000L ), toArray( tuples( pattern, 0L, 2000000L ) ) );
+            assertArrayEquals( tuplesByPrimes( pattern, 999999L, 1234567L ), toArray( tuples( pattern, 999999L, 1234567L ) ) );
+            assertArrayEquals( tuplesByPrimes( pattern, 1000000000000L, 1000000300000L ), toArray( tuples( pattern, 1000000000000L, 1000000300000L ) ) );
+            // Above the sieving limit candidates are checked by a primality test.
+            long from = PrimeSieve.MAX_SIEVING_LIMIT - 10000L;
+            assertArrayEquals( tuplesByPrimes( pattern, from, from + 20000L ), toArray( tuples( pattern, from, from + 20000L ) ) );
+        }
+        assertArrayEquals( tuplesByPrimes( new int[]{ 0, 2 }, PrimesIterable.LAST_LONG_PRIME - 100000L, Long.MAX_VALUE ),
+                           toArray( tuples( new int[]{ 0, 2 }, PrimesIterable.LAST_LONG_PRIME - 100000L, Long.MAX_VALUE ) ) );
+    }
+    
+    @Test( timeout = 5000L, expected = IllegalArgumentException.class )
+    public void tuplesError()
+    {
+        tuples( new int[]{ 0, 6, 2 }, 0L, 100L );
+    }
+    
+    @Test( timeout = 20000L )
+    public void tupleStreamCasual()
+    {
+        assertArrayEquals( new long[]{ 3L, 5L, 11L, 17L }, tupleStream( new int[]{ 0, 2 }, 0L, 20L ).toArray() );
+        // https://oeis.org/A007508
+        assertEquals( 440312L, tupleStream( new int[]{ 0, 2 }, 0L, 100000000L ).parallel().count() );
+        Spliterator.OfLong right = tupleStream( new int[]{ 0, 2, 6 }, 0L, 100000000L ).spliterator();
+        Spliterator.OfLong left = right.trySplit();
+        assertNotNull( left );
+        Spliterator.OfLong leftLeft = left.trySplit();
+        assertNotNull( leftLeft );
+        LongStream.Builder split = LongStream.builder();
+        for ( Spliterator.OfLong part : new Spliterator.OfLong[]{ leftLeft, left, right } ) part.forEachRemaining( ( long p ) -> split.add( p ) );
+        assertArrayEquals( toArray( tuples( new int[]{ 0, 2, 6 }, 0L, 100000000L ) ), split.build().toArray() );
+        assertNull( tupleStream( new int[]{ 0, 2 }, 0L, 1000L ).spliterator().trySplit() );
+    }
+    
     @Test( timeout = 5000L )
     public void getNextBigIntegerCasual()
     {
@@ -284,6 +498,84 @@ public class PrimesIterableTest
         }
     }
     
+    @Test( timeout = 60000L )
+    public void getNextBigIntegerWindow()
+    {
+        Random random = new Random( 1L );
+        for ( int bitLength : new int[]{ 64, 65, 100, 256, 512, 1024, 2048 } )
+        {
+            for ( int i = 0; i < ( bitLength <= 256 ? 20 : 2 ); i++ )
+            {
+                BigInteger n = new BigInteger( bitLength, random ).setBit( bitLength - 1 );
+                if ( n.compareTo( BigInteger.valueOf( PrimesIterable.LAST_LONG_PRIME ) ) <= 0 ) n = n.add( BigInteger.valueOf( Long.MAX_VALUE ) );
+                BigInteger next = getNext( n );
+                assertEquals( n.subtract( BigInteger.ONE ).nextProbablePrime(), next );
+                assertEquals( next, getNext( next ) );
+                assertEquals( next.negate(), getNext( n.negate() ) );
+                BigInteger previous = getPrevious( n );
+                assertTrue( isPrime( previous ) );
+                assertTrue( previous.compareTo( n ) <= 0 );
+                assertEquals( previous, getPrevious( previous ) );
+                assertEquals( previous.negate(), getPrevious( n.negate() ) );
+                // No primes between the previous prime and the next one.
+                assertEquals( next, getNext( previous.add( BigInteger.ONE ) ) );
+                if ( bitLength <= 512 )
+                {
+                    assertEquals( next, getNext( n, ForkJoinPool.commonPool() ) );
+                    assertEquals( previous, getPrevious( n, ForkJoinPool.commonPool() ) );
+                }
+            }
+        }
+        // The search crosses windows of 512 numbers: the maximal gap of 1550 follows the prime 18361375334787046697.
+        assertEquals( bi( "18361375334787048247" ), getNext( bi( "18361375334787046698" ) ) );
+        assertEquals( bi( "18361375334787046697" ), getPrevious( bi( "18361375334787048246" ) ) );
+        assertEquals( bi( "18361375334787048247" ), getNext( bi( "18361375334787046698" ), ForkJoinPool.commonPool() ) );
+        BigInteger large = BigInteger.ONE.shiftLeft( 1000 ).add( BigInteger.ONE );
+        assertEquals( large.nextProbablePrime(), getNext( large.add( BigInteger.ONE ) ) );
+        assertEquals( bi( "9223372036854775783" ), getPrevious( bi( "9223372036854775836" ) ) );
+        assertEquals( bi( "9223372036854775837" ), getPrevious( bi( "9223372036854775837" ) ) );
+    }
+    
+    @Test( timeout = 5000L )
+    public void getPreviousCasual()
+    {
+        assertEquals( 0, getPrevious( 0 ) );
+        assertEquals( 0, getPrevious( 1 ) );
+        assertEquals( 0, getPrevious( -1 ) );
+        assertEquals( 2, getPrevious( 2 ) );
+        assertEquals( 3, getPrevious( 4 ) );
+        assertEquals( 7, getPrevious( 10 ) );
+        assertEquals( -7, getPrevious( -10 ) );
+        assertEquals( Integer.MAX_VALUE, getPrevious( Integer.MAX_VALUE ) );
+        assertEquals( -Integer.MAX_VALUE, getPrevious( Integer.MIN_VALUE ) );
+        assertEquals( 2147483629, getPrevious( Integer.MAX_VALUE - 1 ) );
+        assertEquals( PrimesIterable.LAST_LONG_PRIME, getPrevious( Long.MAX_VALUE ) );
+        assertEquals( -PrimesIterable.LAST_LONG_PRIME, getPrevious( Long.MIN_VALUE ) );
+        assertEquals( BigInteger.ZERO, getPrevious( bi( 1 ) ) );
+        assertEquals( bi( 7 ), getPrevious( bi( 10 ) ) );
+        assertEquals( bi( -7 ), getPrevious( bi( -10 ) ) );
+        assertEquals( null, getPrevious( null ) );
+        long prev = 0L;
+        for ( long i = -1000L; i < 100000L; i++ )
+        {
+            if ( i >= 2L && isPrime( i ) ) prev = i;
+            if ( i >= 0L )
+            {
+                assertEquals( prev, getPrevious( i ) );
+                assertEquals( -prev, getPrevious( -i ) );
+                assertEquals( ( int )prev, getPrevious( ( int )i ) );
+                if ( i < 1000L ) assertEquals( bi( prev ), getPrevious( bi( i ) ) );
+            }
+        }
+        for ( long n : TestUtils.getLongs() )
+        {
+            long p = getPrevious( n );
+            if ( Math.abs( n ) >= 2L || n == Long.MIN_VALUE ) assertTrue( isPrime( Math.abs( p ) ) );
+            if ( n > 1L ) assertEquals( p, getNext( p ) );
+            if ( n > 1L && n < PrimesIterable.LAST_LONG_PRIME ) assertTrue( getNext( p + 1L ) > n );
+        }
+    }
+    
     @Test( timeout = 5000L )
     public void getNextLongCasual()
     {
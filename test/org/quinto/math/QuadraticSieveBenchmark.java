@@ -0,0 +1,51 @@
+package org.quinto.math;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Time of {@link QuadraticSieve} to split a product of two primes of the same size.
+ * It's not a unit test, run it by {@code main}. Arguments are quantities of decimal digits of products, from 40 to 60 by default.
+ * Polynomials are sieved on a common pool.
+ */
+public class QuadraticSieveBenchmark
+{
+    private static final int SAMPLES = 4;
+    
+    public static void main( String args[] )
+    {
+        int digits[] = { 40, 45, 50, 55, 60 };
+        if ( args.length > 0 )
+        {
+            digits = new int[ args.length ];
+            for ( int i = 0; i < args.length; i++ ) digits[ i ] = Integer.parseInt( args[ i ] );
+        }
+        Random random = new Random( 42L );
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        System.out.printf( "Parallelism %d%n", pool.getParallelism() );
+        for ( int d : digits )
+        {
+            int bits = ( int )Math.round( d * Math.log( 10.0 ) / Math.log( 2.0 ) / 2.0 );
+            long times[] = new long[ SAMPLES ];
+            long polynomials = 0L;
+            int size = 0;
+            for ( int i = 0; i < SAMPLES; i++ )
+            {
+                BigInteger n = BigInteger.probablePrime( bits, random ).multiply( BigInteger.probablePrime( bits, random ) );
+                QuadraticSieve qs = new QuadraticSieve( n );
+                long time = System.nanoTime();
+                BigInteger factor = qs.findFactor( pool );
+                times[ i ] = System.nanoTime() - time;
+                if ( factor == null || n.mod( factor ).signum() != 0 ) throw new AssertionError( n.toString() );
+                polynomials += qs.getPolynomials();
+                size = qs.getFactorBaseSize();
+            }
+            Arrays.sort( times );
+            long total = 0L;
+            for ( long time : times ) total += time;
+            System.out.printf( "%2d digits: mean %9.1f ms, median %9.1f ms, factor base %5d, %8d polynomials%n", d, total / 1e6 / SAMPLES, times[ SAMPLES / 2 ] / 1e6, size, polynomials / SAMPLES );
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,112 @@
+package org.quinto.math;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SmallPrimesTest
+{
+    public SmallPrimesTest()
+    {
+    }
+    
+    @BeforeClass
+    public static void setUpClass()
+    {
+    }
+    
+    @AfterClass
+    public static void tearDownClass()
+    {
+    }
+    
+    @Before
+    public void setUp()
+    {
+    }
+    
+    @After
+    public void tearDown()
+    {
+    }
+    
+    @Test( timeout = 5000L )
+    public void getCasual()
+    {
+        assertEquals( 2, SmallPrimes.get( 0 ) );
+        assertEquals( 3, SmallPrimes.get( 1 ) );
+        assertEquals( 5, SmallPrimes.get( 2 ) );
+        assertEquals( 7, SmallPrimes.get( 3 ) );
+        // https://oeis.org/A006988
+        assertEquals( 104729, SmallPrimes.get( 9999 ) );
+        assertEquals( 1299709, SmallPrimes.get( 99999 ) );
+        assertEquals( 15485863, SmallPrimes.get( 999999 ) );
+    }
+    
+    @Test( timeout = 10000L )
+    public void getRange()
+    {
+        PrimeSieve sieve = new PrimeSieve( 0L, SmallPrimes.DEFAULT_CEILING );
+        int i = 0;
+        for ( long p = sieve.next(); p != 0L; p = sieve.next() )
+        {
+            if ( ( i & 15 ) == 0 ) assertEquals( p, SmallPrimes.get( i ) );
+            i++;
+        }
+        int primes[] = SmallPrimes.upTo( SmallPrimes.DEFAULT_CEILING );
+        assertTrue( primes.length >= i );
+        for ( int j = 1; j < primes.length; j++ ) assertTrue( primes[ j - 1 ] < primes[ j ] );
+    }
+    
+    @Test( timeout = 10000L )
+    public void getConcurrent()
+    {
+        List< ForkJoinTask< ? > > tasks = new ArrayList<>();
+        for ( int t = 0; t < 8; t++ )
+        {
+            int shift = t;
+            tasks.add( ForkJoinPool.commonPool().submit( () ->
+            {
+                for ( int i = shift; i < 1000000; i = i * 2 + 1 ) assertTrue( PrimeUtils.passesMiller( SmallPrimes.get( i ) ) );
+            } ) );
+        }
+        for ( ForkJoinTask< ? > task : tasks ) task.join();
+    }
+    
+    @Test( timeout = 5000L )
+    public void errors()
+    {
+        try
+        {
+            SmallPrimes.get( -1 );
+            fail( "Negative index" );
+        }
+        catch ( IllegalArgumentException e )
+        {
+        }
+        try
+        {
+            SmallPrimes.get( Integer.MAX_VALUE );
+            fail( "Above the ceiling" );
+        }
+        catch ( IllegalArgumentException e )
+        {
+        }
+        try
+        {
+            SmallPrimes.setCeiling( 100 );
+            fail( "Too small ceiling" );
+        }
+        catch ( IllegalArgumentException e )
+        {
+        }
+        assertEquals( SmallPrimes.DEFAULT_CEILING, SmallPrimes.getCeiling() );
+    }
+}
\ No newline at end of file